@@ -0,0 +1,117 @@
+import Exceptions.LexicalException;
+import Exceptions.SyntaxException;
+import IR.CompUnitSimplifyer;
+import IR.IRElem;
+import IR.IRLabelManager;
+import IR.IRTranslater;
+import Optimizer.IROptimizer;
+import SyntaxClasses.SyntaxTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// 与Compiler.compile相同的流程，但拆成可单独执行的各个阶段，供基准测试只对其中一个阶段计时
+public class BenchPipeline {
+    public static final int LEX = 0, PARSE = 1, SIMPLIFY = 2, IR_TRANS = 3, OPTIMIZE = 4, MIPS_TRANS = 5;
+    public static final String[] phaseNames = {
+            "LexicalAnalyze", "SyntaxAnalyze", "CompUnitSimplify", "IRTranslate", "IROptimize", "MIPSTranslate"
+    };
+
+    private CharSequence program;
+    private ArrayList<Error> errorList;
+    private TokenBuffer tokenBuffer;
+    private SyntaxTree syntaxTree;
+    private IRTranslater irTranslater;
+    private StringBuilder mipsStr;
+    private ForkJoinPool parsePool;
+
+    public BenchPipeline(CharSequence program) {
+        this.program = program;
+        this.errorList = new ArrayList<>();
+        IRLabelManager.resetIRLabelManager();
+    }
+
+    public void runPhase(int phase) {
+        switch (phase) {
+            case LEX:
+                LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer();
+                lexicalAnalyzer.setErrorList(errorList);
+                lexicalAnalyzer.setProgramStr(program);
+                try {
+                    lexicalAnalyzer.lexicalAnalyze();
+                } catch (LexicalException e) {
+                    e.printStackTrace();
+                }
+                tokenBuffer = lexicalAnalyzer.getTokenBuffer();
+                break;
+            case PARSE:
+                SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer();
+                syntaxAnalyzer.setErrorList(errorList);
+                syntaxAnalyzer.setTokenBuffer(tokenBuffer);
+                syntaxAnalyzer.setParsePool(parsePool);
+                try {
+                    syntaxAnalyzer.syntaxAnalyze();
+                } catch (SyntaxException e) {
+                    e.printStackTrace();
+                }
+                syntaxTree = syntaxAnalyzer.getSyntaxTree();
+                break;
+            case SIMPLIFY:
+                new CompUnitSimplifyer(syntaxTree).compUnitSimplify();
+                break;
+            case IR_TRANS:
+                irTranslater = new IRTranslater(syntaxTree);
+                irTranslater.compUnitTrans();
+                break;
+            case OPTIMIZE:
+                IROptimizer optimizer = new IROptimizer(irTranslater);
+                optimizer.doOptimize();
+                break;
+            case MIPS_TRANS:
+                MIPSTranslatorWithReg mipsTranslater = new MIPSTranslatorWithReg(irTranslater);
+                mipsStr = mipsTranslater.iRTranslate();
+                break;
+        }
+    }
+
+    // 依次执行[from, to)的各阶段
+    public void runPhases(int from, int to) {
+        for (int phase = from; phase < to; phase++) {
+            runPhase(phase);
+        }
+    }
+
+    // 语法分析时用parsePool并行分析各FuncDef
+    public void setParsePool(ForkJoinPool parsePool) {
+        this.parsePool = parsePool;
+    }
+
+    public ArrayList<Error> getErrorList() {
+        return errorList;
+    }
+
+    public SyntaxTree getSyntaxTree() {
+        return syntaxTree;
+    }
+
+    public int getTokenNum() {
+        return (tokenBuffer == null) ? 0 : tokenBuffer.size();
+    }
+
+    public List<IRElem> getIRList() {
+        return irTranslater.getIRList();
+    }
+
+    public IRTranslater getIRTranslater() {
+        return irTranslater;
+    }
+
+    public int getIRInstNum() {
+        return (irTranslater == null) ? 0 : irTranslater.getIRModule().getInstNum();
+    }
+
+    public StringBuilder getMipsStr() {
+        return mipsStr;
+    }
+}
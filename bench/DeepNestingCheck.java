@@ -0,0 +1,122 @@
+/*
+ * 常量折叠和中间代码生成在极深嵌套程序上的压力检查
+ * 每种形状按深度生成一个只有一条深层语句的程序：
+ *   chain    x = x + 1 - 2 + ...;                   很长的左结合运算链，不能折叠
+ *   const    const int c = 1 + 2 - ...;             很长的常量表达式，全部折叠
+ *   paren    x = (((...(x + 1)...) * 2);            层层括号
+ *   cond     if (x < 1 || x > 2 || ...) x = 1;       很长的逻辑运算链
+ *   if       if (x) if (x) ... x = 1;               if层层嵌套
+ *   while    while (x) while (x) ... x = x - 1;     while层层嵌套
+ * 语法分析本身仍是递归下降，在大栈线程中完成；折叠和中间代码生成在默认栈大小的主线程中进行，
+ * 输出两个阶段的耗时和生成的中间代码条数。栈溢出为失败；同一形状按深度从小到大检查，
+ * 两阶段总耗时超过MIN_JUDGE_MS时，每层耗时比上一个深度增长到SUPERLINEAR_RATIO倍以上也为失败（耗时随深度超线性增长）
+ * 用法：java -cp out DeepNestingCheck [-depth 1000,10000,100000] [-shape chain,if]
+ */
+public class DeepNestingCheck {
+    private static final long STACK_SIZE = 1L << 30;
+    private static final double SUPERLINEAR_RATIO = 4.0; // 深度增大10倍时，平方复杂度的每层耗时约增长10倍
+    private static final double MIN_JUDGE_MS = 50.0; // 总耗时太短时计时误差大，不判断增长
+    private static final String[] shapes = new String[]{"chain", "const", "paren", "cond", "if", "while"};
+
+    public static void main(String[] argv) throws InterruptedException {
+        String depthArg = "1000,10000,100000";
+        String[] checkShapes = shapes;
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-depth")) {
+                depthArg = argv[i + 1];
+            } else if (argv[i].equals("-shape")) {
+                checkShapes = argv[i + 1].split(",");
+            }
+        }
+        int failNum = 0;
+        System.out.printf("%-8s %8s %12s %12s %10s  %s%n", "shape", "depth", "simplify ms", "IR ms", "IR insts", "result");
+        for (String shape : checkShapes) {
+            double lastLevelTime = 0; // 上一个深度的每层耗时
+            for (String depth : depthArg.split(",")) {
+                int curDepth = Integer.parseInt(depth.trim());
+                double levelTime = check(shape, curDepth, lastLevelTime);
+                if (levelTime < 0) {
+                    failNum++;
+                } else {
+                    lastLevelTime = levelTime;
+                }
+            }
+        }
+        System.exit(failNum == 0 ? 0 : 1);
+    }
+
+    // 返回每层的耗时（纳秒），失败时返回-1
+    public static double check(String shape, int depth, double lastLevelTime) throws InterruptedException {
+        BenchPipeline pipeline = new BenchPipeline(nestedProgram(shape, depth));
+        Thread parser = new Thread(null, () -> pipeline.runPhases(BenchPipeline.LEX, BenchPipeline.SIMPLIFY),
+                "deep-nesting-parser", STACK_SIZE);
+        parser.start();
+        parser.join();
+        long simplifyTime = 0, irTime = 0;
+        String result = "ok";
+        try {
+            long timeStart = System.nanoTime();
+            pipeline.runPhase(BenchPipeline.SIMPLIFY);
+            long timeMid = System.nanoTime();
+            pipeline.runPhase(BenchPipeline.IR_TRANS);
+            long timeEnd = System.nanoTime();
+            simplifyTime = timeMid - timeStart;
+            irTime = timeEnd - timeMid;
+        } catch (StackOverflowError e) {
+            result = "StackOverflowError";
+        }
+        double levelTime = (double) (simplifyTime + irTime) / depth;
+        if (result.equals("ok") && lastLevelTime > 0 && (simplifyTime + irTime) / 1e6 > MIN_JUDGE_MS
+                && levelTime > lastLevelTime * SUPERLINEAR_RATIO) {
+            result = String.format("superlinear (%.1fx time per level)", levelTime / lastLevelTime);
+        }
+        System.out.printf("%-8s %8d %12.3f %12.3f %10d  %s%n", shape, depth, simplifyTime / 1e6, irTime / 1e6,
+                result.startsWith("StackOverflowError") ? 0 : pipeline.getIRInstNum(), result);
+        return result.equals("ok") ? levelTime : -1;
+    }
+
+    public static StringBuilder nestedProgram(String shape, int depth) {
+        StringBuilder program = new StringBuilder();
+        program.append("int main() {\n    int x;\n    x = getint();\n    ");
+        switch (shape) {
+            case "chain":
+                program.append("x = x");
+                for (int i = 0; i < depth; i++) {
+                    program.append(i % 2 == 0 ? " + " : " - ").append(i % 7 + 1);
+                }
+                program.append(";\n");
+                break;
+            case "const":
+                program.append("const int c = 1");
+                for (int i = 0; i < depth; i++) {
+                    program.append(i % 2 == 0 ? " + " : " - ").append(i % 7 + 1);
+                }
+                program.append(";\n    x = c;\n");
+                break;
+            case "paren":
+                program.append("x = ").append("(".repeat(depth)).append('x');
+                for (int i = 0; i < depth; i++) {
+                    program.append(i % 2 == 0 ? " + 1)" : " * 2)");
+                }
+                program.append(";\n");
+                break;
+            case "cond":
+                program.append("if (x < 1");
+                for (int i = 0; i < depth; i++) {
+                    program.append(i % 2 == 0 ? " || x > " : " && x != ").append(i + 2);
+                }
+                program.append(") x = 1;\n");
+                break;
+            case "if":
+                program.append("if (x) ".repeat(depth)).append("x = 1;\n");
+                break;
+            case "while":
+                program.append("while (x) ".repeat(depth)).append("x = x - 1;\n");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        program.append("    printf(\"%d\\n\", x);\n    return 0;\n}\n");
+        return program;
+    }
+}
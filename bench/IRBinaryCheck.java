@@ -0,0 +1,139 @@
+import IR.IRBinaryReader;
+import IR.IRBinaryWriter;
+import IR.IRElem;
+import IR.IRModule;
+import IR.IRSymbol;
+import IR.IRTranslater;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+/*
+ * 二进制中间代码的一致性检查与读写耗时
+ * 对每个程序先用compileToIR得到优化后的中间代码并写成二进制文件，再读回，核对读回的指令序列、数据区与原来逐项相同，
+ * 并分别用原中间代码和读回的中间代码生成目标代码，在MIPSSimulator中核对两者输出相同
+ * 程序可以是语料库中的文件（同目录下的inputN.txt或同名.in文件作为输入），也可以用-func指定生成程序的函数个数
+ * 用法：java -cp out IRBinaryCheck [-func 16,64] [-iter 5] [testfileN.txt ...]
+ * compile列为compileToIR的耗时，load列为读入二进制文件的耗时，均取iter次中的最小值
+ */
+public class IRBinaryCheck {
+    private static final long STACK_SIZE = 1L << 30;
+    private static int iterNum = 5;
+
+    public static void main(String[] argv) throws InterruptedException {
+        ArrayList<String> nameList = new ArrayList<>();
+        ArrayList<String> programList = new ArrayList<>();
+        ArrayList<String> inputList = new ArrayList<>();
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("-iter")) {
+                iterNum = Integer.parseInt(argv[++i]);
+            } else if (argv[i].equals("-func")) {
+                for (String funcNum : argv[++i].split(",")) {
+                    SysYGenerator generator = new SysYGenerator(2021);
+                    generator.setKnob("func", Integer.parseInt(funcNum.trim()));
+                    nameList.add("func=" + funcNum.trim());
+                    programList.add(generator.generate().toString());
+                    inputList.add("7\n"); // 生成的程序读入一个整数
+                }
+            } else {
+                File file = new File(argv[i]);
+                String inputName = file.getName().startsWith("testfile") ?
+                        file.getName().replace("testfile", "input") : file.getName().replace(".txt", ".in");
+                File inputFile = new File(file.getParentFile(), inputName);
+                nameList.add(file.getName());
+                programList.add(MIPSSimulator.readText(file.getPath()));
+                inputList.add(inputFile.exists() ? MIPSSimulator.readText(inputFile.getPath()) : "");
+            }
+        }
+        int[] failNum = {0};
+        Thread checkThread = new Thread(null, () -> {
+            System.out.printf("%-16s %10s %10s %12s %10s %10s %8s  %s%n", "program", "IR insts", "bytes",
+                    "compile ms", "write ms", "load ms", "speedup", "result");
+            for (int i = 0; i < programList.size(); i++) {
+                try {
+                    if (!check(nameList.get(i), programList.get(i), inputList.get(i))) {
+                        failNum[0]++;
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    failNum[0]++;
+                }
+            }
+        }, "check", STACK_SIZE);
+        checkThread.start();
+        checkThread.join();
+        System.exit(failNum[0] == 0 ? 0 : 1);
+    }
+
+    private static boolean check(String name, String program, String input) throws IOException {
+        File irFile = File.createTempFile("sysy-ir", ".bin");
+        irFile.deleteOnExit();
+        long compileTime = Long.MAX_VALUE, writeTime = Long.MAX_VALUE, loadTime = Long.MAX_VALUE;
+        IRTranslater irTranslater = null;
+        for (int i = 0; i < iterNum; i++) {
+            long timeStart = System.nanoTime();
+            irTranslater = Compiler.compileToIR(program, false);
+            compileTime = Math.min(compileTime, System.nanoTime() - timeStart);
+            timeStart = System.nanoTime();
+            try (FileOutputStream irOutput = new FileOutputStream(irFile)) {
+                new IRBinaryWriter(irOutput).write(irTranslater.getIRModule());
+            }
+            writeTime = Math.min(writeTime, System.nanoTime() - timeStart);
+        }
+        IRModule origin = irTranslater.getIRModule();
+        String originText = instText(origin);
+        String originData = dataText(origin);
+        String originOutput = runOutput(new MIPSTranslatorWithReg(irTranslater).iRTranslate().toString(), input);
+
+        IRModule loaded = null;
+        for (int i = 0; i < iterNum; i++) {
+            long timeStart = System.nanoTime();
+            loaded = IRBinaryReader.read(irFile);
+            loadTime = Math.min(loadTime, System.nanoTime() - timeStart);
+        }
+        boolean same = originText.equals(instText(loaded)) && originData.equals(dataText(loaded));
+        same &= originOutput.equals(runOutput(new MIPSTranslatorWithReg(loaded).iRTranslate().toString(), input));
+        System.out.printf("%-16s %10d %10d %12.3f %10.3f %10.3f %7.1fx  %s%n", name, origin.getInstNum(),
+                irFile.length(), compileTime / 1e6, writeTime / 1e6, loadTime / 1e6,
+                (double) compileTime / loadTime, same ? "same" : "DIFFERENT");
+        return same;
+    }
+
+    private static String instText(IRModule iRModule) {
+        StringBuilder text = new StringBuilder();
+        for (IRElem inst : iRModule.toIRList()) {
+            text.append(inst).append('\n');
+        }
+        return text.toString();
+    }
+
+    // 数据区各表的内容，按字符串排序后与表的遍历顺序无关
+    private static String dataText(IRModule iRModule) {
+        ArrayList<String> itemList = new ArrayList<>();
+        addDataItems(itemList, "const ", iRModule.getConstantData());
+        addDataItems(itemList, "global ", iRModule.getGlobalData());
+        for (IRSymbol symbol : iRModule.getFormatStrMap().keySet()) {
+            itemList.add("str " + symbol + " " + iRModule.getFormatStrMap().get(symbol));
+        }
+        Collections.sort(itemList);
+        return String.join("\n", itemList) + "\nmain " + iRModule.getMainFunc();
+    }
+
+    private static void addDataItems(ArrayList<String> itemList, String kind,
+                                     HashMap<IRSymbol, ArrayList<Integer>> dataMap) {
+        for (IRSymbol symbol : dataMap.keySet()) {
+            itemList.add(kind + symbol + " " + dataMap.get(symbol));
+        }
+    }
+
+    private static String runOutput(String mipsStr, String input) {
+        MIPSSimulator simulator = new MIPSSimulator(mipsStr);
+        simulator.setInput(input);
+        simulator.run();
+        return simulator.getOutput();
+    }
+}
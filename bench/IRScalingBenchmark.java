@@ -0,0 +1,124 @@
+import IR.IRFunction;
+import IR.IRTranslater;
+import Optimizer.IROptimizer;
+import Optimizer.JumpOpt;
+import Optimizer.MultDivOpt;
+import Optimizer.PrintOpt;
+
+import java.util.ArrayList;
+
+/*
+ * 中间代码规模测试：按阶梯增大生成程序的语句数，对逐条访问指令序列的各个过程分别计时，给出每条IR指令的平均耗时
+ * 各过程都作用在未优化的中间代码上：跳转优化、空串输出删除、划分基本块、乘除优化，以及目标代码生成
+ * 完整的IROptimizer不在其中：常量传播和活跃变量分析的集合运算与基本块数、变量数的乘积相关，不反映指令序列本身的开销
+ * 用法：java -cp out IRScalingBenchmark [-ladder 500,1000,2000,4000] [-iter 3] [-seed n] [-func n -depth n ...]
+ * 默认阶梯的最后一级约为9万条IR指令；growth列为 (本行耗时/上一行耗时) / (本行指令数/上一行指令数)，接近1说明该过程线性
+ */
+public class IRScalingBenchmark {
+    private static final long STACK_SIZE = 1L << 30;
+    private static final String[] passNames = {"JumpOpt", "PrintOpt", "BasicBlock", "MultDivOpt", "MIPSTranslate"};
+    private static int iterNum = 3;
+
+    public static void main(String[] argv) throws InterruptedException {
+        String ladderArg = "500,1000,2000,4000";
+        long seed = 2021;
+        ArrayList<String> fixedKnobs = new ArrayList<>();
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-ladder")) {
+                ladderArg = argv[i + 1];
+            } else if (argv[i].equals("-iter")) {
+                iterNum = Integer.parseInt(argv[i + 1]);
+            } else if (argv[i].equals("-seed")) {
+                seed = Long.parseLong(argv[i + 1]);
+            } else {
+                fixedKnobs.add(argv[i].substring(1));
+                fixedKnobs.add(argv[i + 1]);
+            }
+        }
+        String[] ladder = ladderArg.split(",");
+        measure(generate(Integer.parseInt(ladder[0].trim()), seed, fixedKnobs)); // 预热JIT，不输出
+        StringBuilder head = new StringBuilder(String.format("%-8s %10s", "stmt", "IR insts"));
+        for (String passName : passNames) {
+            head.append(String.format(" %14s %7s", passName + " ns/i", "growth"));
+        }
+        System.out.println(head);
+        long[] last = null;
+        for (String sizeStr : ladder) {
+            int size = Integer.parseInt(sizeStr.trim());
+            long[] result = measure(generate(size, seed, fixedKnobs));
+            StringBuilder line = new StringBuilder(String.format("%-8d %10d", size, result[0]));
+            for (int pass = 1; pass <= passNames.length; pass++) {
+                line.append(String.format(" %14.1f", (double) result[pass] / result[0]));
+                if (last != null) {
+                    line.append(String.format(" %7.2f",
+                            ((double) result[pass] / last[pass]) / ((double) result[0] / last[0])));
+                } else {
+                    line.append(String.format(" %7s", "-"));
+                }
+            }
+            System.out.println(line);
+            last = result;
+        }
+    }
+
+    private static StringBuilder generate(int size, long seed, ArrayList<String> fixedKnobs) {
+        SysYGenerator generator = new SysYGenerator(seed);
+        for (int i = 0; i < fixedKnobs.size(); i += 2) {
+            generator.setKnob(fixedKnobs.get(i), Integer.parseInt(fixedKnobs.get(i + 1)));
+        }
+        generator.setKnob("stmt", size);
+        return generator.generate();
+    }
+
+    // 返回{IR指令数, 各过程耗时...}，耗时取iterNum次中的最小值；每个过程都修改指令序列，因此各自重新生成一份中间代码
+    private static long[] measure(CharSequence program) throws InterruptedException {
+        long[] result = new long[passNames.length + 1];
+        for (int pass = 1; pass <= passNames.length; pass++) {
+            result[pass] = Long.MAX_VALUE;
+        }
+        Thread compileThread = new Thread(null, () -> {
+            for (int i = 0; i < iterNum; i++) {
+                for (int pass = 1; pass <= passNames.length; pass++) {
+                    BenchPipeline pipeline = new BenchPipeline(program);
+                    pipeline.runPhases(BenchPipeline.LEX, BenchPipeline.OPTIMIZE);
+                    result[0] = pipeline.getIRInstNum();
+                    long timeStart = System.nanoTime();
+                    runPass(pass, pipeline);
+                    result[pass] = Math.min(result[pass], System.nanoTime() - timeStart);
+                }
+            }
+        }, "compile", STACK_SIZE);
+        compileThread.start();
+        compileThread.join();
+        return result;
+    }
+
+    private static void runPass(int pass, BenchPipeline pipeline) {
+        IRTranslater irTranslater = pipeline.getIRTranslater();
+        switch (pass) {
+            case 1:
+                for (IRFunction func : irTranslater.getIRModule().getFuncList()) {
+                    func.setIRList(new JumpOpt(func.getIRList()).doJumpOpt());
+                }
+                break;
+            case 2:
+                PrintOpt.emptyStrOpt(irTranslater.getIRModule());
+                break;
+            case 3:
+                IROptimizer optimizer = new IROptimizer(irTranslater);
+                for (IRFunction func : irTranslater.getIRModule().getFuncList()) {
+                    optimizer.basicBlockInit(func);
+                }
+                break;
+            case 4:
+                MultDivOpt multDivOpter = new MultDivOpt();
+                for (IRFunction func : irTranslater.getIRModule().getFuncList()) {
+                    multDivOpter.powOfTwoOpt(func);
+                }
+                break;
+            case 5:
+                pipeline.runPhase(BenchPipeline.MIPS_TRANS);
+                break;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import Exceptions.IRParseException;
+import IR.IRModule;
+import IR.IRParser;
+import Optimizer.IROptimizer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * 文本中间代码的一致性检查：只运行优化或只运行目标代码生成时，结果与完整编译相同
+ * 对每个程序：
+ *   1. 前端得到未优化的中间代码，输出为文本再由IRParser读回，读回后再输出的文本应与原文本相同（数据区不计顺序）
+ *   2. 读回的中间代码单独经过IROptimizer和MIPSTranslatorWithReg，在MIPSSimulator中的输出应与完整编译相同
+ *   3. 完整编译优化后的中间代码输出为文本再读回，单独生成目标代码，输出也应相同
+ *   4. 未优化的文本截断到最后一个标签行（函数不再以RET结束），IRParser应报IRParseException，而不是读入后在优化时出错
+ * front列为词法分析到中间代码生成的耗时，parse列为读入未优化文本的耗时，opt列为对读入的中间代码做优化的耗时
+ * 用法：java -cp out IRTextCheck [-func 16,64] [testfileN.txt ...]
+ */
+public class IRTextCheck {
+    private static final long STACK_SIZE = 1L << 30;
+
+    public static void main(String[] argv) throws InterruptedException {
+        ArrayList<String> nameList = new ArrayList<>();
+        ArrayList<String> programList = new ArrayList<>();
+        ArrayList<String> inputList = new ArrayList<>();
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("-func")) {
+                for (String funcNum : argv[++i].split(",")) {
+                    SysYGenerator generator = new SysYGenerator(2021);
+                    generator.setKnob("func", Integer.parseInt(funcNum.trim()));
+                    nameList.add("func=" + funcNum.trim());
+                    programList.add(generator.generate().toString());
+                    inputList.add("7\n"); // 生成的程序读入一个整数
+                }
+            } else {
+                File file = new File(argv[i]);
+                String inputName = file.getName().startsWith("testfile") ?
+                        file.getName().replace("testfile", "input") : file.getName().replace(".txt", ".in");
+                File inputFile = new File(file.getParentFile(), inputName);
+                nameList.add(file.getName());
+                programList.add(MIPSSimulator.readText(file.getPath()));
+                inputList.add(inputFile.exists() ? MIPSSimulator.readText(inputFile.getPath()) : "");
+            }
+        }
+        int[] failNum = {0};
+        Thread checkThread = new Thread(null, () -> {
+            System.out.printf("%-16s %10s %10s %10s %10s  %s%n", "program", "IR insts", "front ms", "parse ms",
+                    "opt ms", "result");
+            for (int i = 0; i < programList.size(); i++) {
+                try {
+                    if (!check(nameList.get(i), programList.get(i), inputList.get(i))) {
+                        failNum[0]++;
+                    }
+                } catch (IRParseException e) {
+                    e.printStackTrace();
+                    failNum[0]++;
+                }
+            }
+        }, "check", STACK_SIZE);
+        checkThread.start();
+        checkThread.join();
+        System.exit(failNum[0] == 0 ? 0 : 1);
+    }
+
+    private static boolean check(String name, String program, String input) throws IRParseException {
+        String expectOutput = runOutput(Compiler.compile(program, false).toString(), input);
+
+        long timeStart = System.nanoTime();
+        BenchPipeline pipeline = new BenchPipeline(program);
+        pipeline.runPhases(BenchPipeline.LEX, BenchPipeline.OPTIMIZE);
+        long frontTime = System.nanoTime() - timeStart;
+        String rawText = pipeline.getIRTranslater().getIRModule().outputIR().toString();
+
+        timeStart = System.nanoTime();
+        IRModule iRModule = new IRParser(rawText).parse();
+        long parseTime = System.nanoTime() - timeStart;
+        boolean same = canonical(rawText).equals(canonical(iRModule.outputIR().toString()));
+        timeStart = System.nanoTime();
+        new IROptimizer(iRModule).doOptimize();
+        long optTime = System.nanoTime() - timeStart;
+        int instNum = iRModule.getInstNum();
+        same &= expectOutput.equals(runOutput(new MIPSTranslatorWithReg(iRModule).iRTranslate().toString(), input));
+
+        same &= rejectsTruncated(name, rawText);
+
+        String optText = Compiler.compileToIR(program, false).getIRModule().outputIR().toString();
+        IRModule optModule = new IRParser(optText).parse();
+        same &= expectOutput.equals(runOutput(new MIPSTranslatorWithReg(optModule).iRTranslate().toString(), input));
+        System.out.printf("%-16s %10d %10.3f %10.3f %10.3f  %s%n", name, instNum, frontTime / 1e6,
+                parseTime / 1e6, optTime / 1e6, same ? "same" : "DIFFERENT");
+        return same;
+    }
+
+    private static boolean rejectsTruncated(String name, String irText) {
+        int textStart = irText.indexOf("\n.text\n");
+        int lineEnd = irText.length() - 1;
+        while (lineEnd > textStart) { // 从后往前找.text段中最后一个标签行
+            int lineStart = irText.lastIndexOf('\n', lineEnd - 1) + 1;
+            String line = irText.substring(lineStart, lineEnd);
+            if (line.startsWith("#") && line.endsWith(":")) {
+                break;
+            }
+            lineEnd = lineStart - 1;
+        }
+        if (lineEnd <= textStart) {
+            return true; // 没有标签可截断
+        }
+        try {
+            new IRParser(irText.substring(0, lineEnd + 1)).parse();
+        } catch (IRParseException e) {
+            return true;
+        }
+        System.out.println(name + ": IR truncated after a label was accepted");
+        return false;
+    }
+
+    // .text段原样保留；数据区各项的顺序取决于散列表，按行排序后比较
+    private static String canonical(String irText) {
+        int textStart = irText.indexOf("\n.text\n");
+        String[] dataLines = irText.substring(0, textStart).split("\n");
+        Arrays.sort(dataLines);
+        return String.join("\n", dataLines) + irText.substring(textStart);
+    }
+
+    private static String runOutput(String mipsStr, String input) {
+        MIPSSimulator simulator = new MIPSSimulator(mipsStr);
+        simulator.setInput(input);
+        simulator.run();
+        return simulator.getOutput();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * 增量编译的一致性检查与延迟测量
+ * 对每个规模用SysYGenerator生成-func个函数的程序，先完整地增量编译一次建立缓存，
+ * 之后反复修改中间一个函数的返回语句，分别计时增量编译和完整编译，并在MIPSSimulator中核对两者的输出
+ * 用法：java -cp out IncrementalCheck [-func 16,32,64] [-edit 5]
+ */
+public class IncrementalCheck {
+    public static void main(String[] argv) {
+        String funcArg = "16,32,64";
+        int editNum = 5;
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-func")) {
+                funcArg = argv[i + 1];
+            } else if (argv[i].equals("-edit")) {
+                editNum = Integer.parseInt(argv[i + 1]);
+            }
+        }
+        int failNum = 0;
+        System.out.printf("%8s %12s %14s %12s %12s  %s%n", "funcs", "cold ms", "recompiled", "incr ms", "full ms",
+                "result");
+        for (String funcNum : funcArg.split(",")) {
+            if (!check(Integer.parseInt(funcNum.trim()), editNum)) {
+                failNum++;
+            }
+        }
+        System.exit(failNum == 0 ? 0 : 1);
+    }
+
+    public static boolean check(int funcNum, int editNum) {
+        SysYGenerator generator = new SysYGenerator(2021);
+        generator.setKnob("func", funcNum);
+        String program = generator.generate().toString();
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        long timeStart = System.nanoTime();
+        compiler.compile(program);
+        long coldTime = System.nanoTime() - timeStart;
+        long incrTime = 0, fullTime = 0;
+        boolean same = true;
+        // 被修改的函数：return a; -> return a + 1; -> return a + 2; ...
+        int funcPos = program.indexOf("int f" + funcNum / 2 + "(");
+        int retPos = program.indexOf("return a", funcPos);
+        int retEnd = program.indexOf(';', retPos);
+        for (int i = 1; i <= editNum; i++) {
+            program = program.substring(0, retPos) + "return a + " + i + program.substring(retEnd);
+            retEnd = program.indexOf(';', retPos);
+            timeStart = System.nanoTime();
+            String incrMips = compiler.compile(program).toString();
+            incrTime += System.nanoTime() - timeStart;
+            timeStart = System.nanoTime();
+            String fullMips = Compiler.compile(program, false).toString();
+            fullTime += System.nanoTime() - timeStart;
+            same &= runOutput(incrMips).equals(runOutput(fullMips));
+        }
+        System.out.printf("%8d %12.3f %14s %12.3f %12.3f  %s%n", funcNum, coldTime / 1e6,
+                compiler.getRecompiledNum() + "/" + compiler.getFuncNum(), incrTime / 1e6 / editNum,
+                fullTime / 1e6 / editNum, same ? "same" : "DIFFERENT");
+        return same;
+    }
+
+    private static String runOutput(String mipsStr) {
+        MIPSSimulator simulator = new MIPSSimulator(mipsStr);
+        simulator.setInput("7\n"); // 生成的程序读入一个整数
+        simulator.run();
+        return simulator.getOutput();
+    }
+}
@@ -0,0 +1,176 @@
+import Exceptions.LexicalException;
+import SyntaxClasses.Token;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/*
+ * 表驱动词法分析器（LexicalAnalyzer）与原if/else分支实现（BranchLexer）的对比测试
+ * 先核对两者在同一输入上产生的Token类型、行号、文本以及格式字符串错误完全一致，再分别计时并统计每个Token分摊的内存分配
+ * 没有给出源文件时用SysYGenerator按不同种子拼接出指定大小的输入，词法分析不关心语义，拼接后的程序照样可用
+ * 另外总是先核对一段由保留字变形（大小写不同、只差首字符或中间字符）组成的输入，这些标识符与保留字落在同一哈希槽，不能被识别成保留字
+ * 任一输入不一致时以非0退出
+ * 用法：java -cp out LexerBenchmark [-mb 1,2,4] [-warmup 5] [-iter 10] [源文件...]
+ */
+public class LexerBenchmark {
+    private int warmupNum = 5;
+    private int iterNum = 10;
+    private ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] argv) throws LexicalException {
+        LexerBenchmark benchmark = new LexerBenchmark();
+        ArrayList<String> inputNameList = new ArrayList<>();
+        ArrayList<CharSequence> inputList = new ArrayList<>();
+        String sizeArg = "1,2,4";
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("-mb")) {
+                sizeArg = argv[++i];
+            } else if (argv[i].equals("-warmup")) {
+                benchmark.warmupNum = Integer.parseInt(argv[++i]);
+            } else if (argv[i].equals("-iter")) {
+                benchmark.iterNum = Integer.parseInt(argv[++i]);
+            } else {
+                inputNameList.add(argv[i]);
+                inputList.add(new ReadFile(new File(argv[i]).getPath()).mapFile());
+            }
+        }
+        if (inputList.isEmpty()) {
+            for (String size : sizeArg.split(",")) {
+                int mb = Integer.parseInt(size.trim());
+                inputNameList.add("generated " + mb + "MB");
+                inputList.add(generateInput(mb << 20));
+            }
+        }
+        int failNum = 0;
+        String mismatch = checkTokens(keywordVariantInput());
+        if (mismatch != null) {
+            System.out.println("keyword variants: token mismatch, " + mismatch);
+            failNum++;
+        }
+        System.out.printf("%-18s %10s %10s %12s %12s %12s %12s %8s %10s %10s%n", "input", "MB", "tokens",
+                "branch ms", "branch MB/s", "table ms", "table MB/s", "speedup", "branch B/t", "table B/t");
+        for (int i = 0; i < inputList.size(); i++) {
+            if (!benchmark.runBenchmark(inputNameList.get(i), inputList.get(i))) {
+                failNum++;
+            }
+        }
+        System.exit(failNum == 0 ? 0 : 1);
+    }
+
+    // 每个保留字的首字母大写、全大写、只改首字符、只改中间一个字符的变形，都应是标识符
+    public static StringBuilder keywordVariantInput() {
+        String[] keywords = {"const", "int", "void", "if", "else", "while", "break", "continue",
+                "getint", "printf", "return", "main"};
+        StringBuilder input = new StringBuilder();
+        for (String keyword : keywords) {
+            int mid = keyword.length() / 2;
+            input.append("int ").append(Character.toUpperCase(keyword.charAt(0))).append(keyword.substring(1))
+                    .append(" = ").append(keyword.toUpperCase()).append(";\n");
+            input.append((char) (keyword.charAt(0) ^ 1)).append(keyword.substring(1)).append(' ')
+                    .append(keyword, 0, mid).append((char) (keyword.charAt(mid) ^ 1)).append(keyword.substring(mid + 1))
+                    .append(' ').append(keyword).append('\n');
+        }
+        return input;
+    }
+
+    // 两种实现在program上的Token与错误一致时返回null，否则返回第一处不同的描述
+    private static String checkTokens(CharSequence program) throws LexicalException {
+        ArrayList<Error> expectErrorList = new ArrayList<>(), actualErrorList = new ArrayList<>();
+        LinkedList<Token> expectList = runBranch(program, expectErrorList);
+        TokenBuffer actualBuffer = runTable(program, actualErrorList);
+        String mismatch = compareTokens(expectList, actualBuffer);
+        if (mismatch == null && !expectErrorList.toString().equals(actualErrorList.toString())) {
+            mismatch = "errors " + expectErrorList + " vs " + actualErrorList;
+        }
+        return mismatch;
+    }
+
+    public static StringBuilder generateInput(int byteNum) {
+        StringBuilder input = new StringBuilder();
+        long seed = 0;
+        while (input.length() < byteNum) {
+            SysYGenerator generator = new SysYGenerator(seed++);
+            generator.setKnob("func", 16);
+            input.append("/* part ").append(seed).append(" */\n").append(generator.generate());
+        }
+        return input;
+    }
+
+    public boolean runBenchmark(String inputName, CharSequence program) throws LexicalException {
+        String mismatch = checkTokens(program);
+        if (mismatch != null) {
+            System.out.println(inputName + ": token mismatch, " + mismatch);
+            return false;
+        }
+        LinkedList<Token> expectList = runBranch(program, new ArrayList<>());
+        long branchTime = 0, tableTime = 0, branchAlloc = 0, tableAlloc = 0;
+        for (int i = 0; i < warmupNum + iterNum; i++) {
+            // 两种实现交替运行，避免GC与JIT状态总偏向后运行的一方
+            long allocStart = allocatedBytes();
+            long timeStart = System.nanoTime();
+            runBranch(program, new ArrayList<>());
+            long timeMid = System.nanoTime();
+            long allocMid = allocatedBytes();
+            runTable(program, new ArrayList<>());
+            long timeEnd = System.nanoTime();
+            long allocEnd = allocatedBytes();
+            if (i >= warmupNum) {
+                branchTime += timeMid - timeStart;
+                tableTime += timeEnd - timeMid;
+                branchAlloc += allocMid - allocStart;
+                tableAlloc += allocEnd - allocMid;
+            }
+        }
+        double mb = program.length() / (double) (1 << 20);
+        double branchMs = branchTime / 1e6 / iterNum, tableMs = tableTime / 1e6 / iterNum;
+        double tokenNum = Math.max(expectList.size(), 1) * (double) iterNum;
+        System.out.printf("%-18s %10.2f %10d %12.3f %12.2f %12.3f %12.2f %7.2fx %10.1f %10.1f%n", inputName, mb,
+                expectList.size(), branchMs, mb / branchMs * 1000, tableMs, mb / tableMs * 1000, branchMs / tableMs,
+                branchAlloc / tokenNum, tableAlloc / tokenNum);
+        return true;
+    }
+
+    private long allocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).
+                    getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static LinkedList<Token> runBranch(CharSequence program, ArrayList<Error> errorList) throws LexicalException {
+        BranchLexer lexer = new BranchLexer();
+        lexer.setErrorList(errorList);
+        lexer.setProgramStr(program);
+        lexer.lexicalAnalyze();
+        return lexer.getTokenList();
+    }
+
+    private static TokenBuffer runTable(CharSequence program, ArrayList<Error> errorList) throws LexicalException {
+        LexicalAnalyzer lexer = new LexicalAnalyzer();
+        lexer.setErrorList(errorList);
+        lexer.setProgramStr(program);
+        lexer.lexicalAnalyze();
+        return lexer.getTokenBuffer();
+    }
+
+    // 返回第一处不同的描述，完全一致时返回null
+    private static String compareTokens(LinkedList<Token> expectList, TokenBuffer actualBuffer) {
+        if (expectList.size() != actualBuffer.size()) {
+            return "token num " + expectList.size() + " vs " + actualBuffer.size();
+        }
+        int index = 0;
+        for (Token expect : expectList) {
+            Token actual = actualBuffer.getToken(index++);
+            if (expect.getTokenType() != actual.getTokenType() || expect.getLineNo() != actual.getLineNo() ||
+                    !expect.getTokenContext().equals(actual.getTokenContext())) {
+                return "line " + expect.getLineNo() + ": " + expect.toString().trim() + " vs " +
+                        actual.toString().trim() + " (line " + actual.getLineNo() + ")";
+            }
+        }
+        return null;
+    }
+}
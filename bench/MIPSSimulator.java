@@ -0,0 +1,582 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * 本地MIPS模拟器，只支持MIPSTranslatorWithReg实际输出的指令子集：
+ *   addu subu and sllv srlv srav sgt sge slt sle seq sne addiu subiu sll srl sra andi
+ *   mult div mflo mfhi li la move lw sw beqz bnez j jal jr syscall(1/4/5/10)
+ * 内存布局与MARS默认设置一致（.data从0x10010000开始，$sp初值0x7fffeffc）
+ * 伪指令按一条计数；统计按类别给出动态指令数，并按权重计算加权代价
+ * 用法：java -cp out MIPSSimulator mips.txt [-input input.txt] [-expect output.txt] [-output out.txt]
+ *      [-weight alu=1,muldiv=4,mem=2,branch=1,syscall=1] [-limit 指令数上限]
+ */
+public class MIPSSimulator {
+    public static final int ALU = 0, MULDIV = 1, MEM = 2, BRANCH = 3, SYSCALL = 4;
+    public static final String[] classNames = {"alu", "muldiv", "mem", "branch", "syscall"};
+    public static final double[] DEFAULT_WEIGHTS = {1, 4, 2, 1, 1};
+
+    private static final int ADDU = 0, SUBU = 1, AND = 2, SLLV = 3, SRLV = 4, SRAV = 5,
+            SGT = 6, SGE = 7, SLT = 8, SLE = 9, SEQ = 10, SNE = 11,
+            ADDIU = 12, SUBIU = 13, SLL = 14, SRL = 15, SRA = 16, ANDI = 17,
+            MULT = 18, DIV = 19, MFLO = 20, MFHI = 21, LI = 22, LA = 23, MOVE = 24,
+            LW = 25, SW = 26, BEQZ = 27, BNEZ = 28, J = 29, JAL = 30, JR = 31, SYSCALL_OP = 32;
+    private static final String[] opNames = {
+            "addu", "subu", "and", "sllv", "srlv", "srav", "sgt", "sge", "slt", "sle", "seq", "sne",
+            "addiu", "subiu", "sll", "srl", "sra", "andi", "mult", "div", "mflo", "mfhi",
+            "li", "la", "move", "lw", "sw", "beqz", "bnez", "j", "jal", "jr", "syscall"
+    };
+    private static final int[] opClass = {
+            ALU, ALU, ALU, ALU, ALU, ALU, ALU, ALU, ALU, ALU, ALU, ALU,
+            ALU, ALU, ALU, ALU, ALU, ALU, MULDIV, MULDIV, MULDIV, MULDIV,
+            ALU, ALU, ALU, MEM, MEM, BRANCH, BRANCH, BRANCH, BRANCH, BRANCH, SYSCALL
+    };
+    private static final String[] regNames = {
+            "zero", "at", "v0", "v1", "a0", "a1", "a2", "a3",
+            "t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7",
+            "s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7",
+            "t8", "t9", "k0", "k1", "gp", "sp", "fp", "ra"
+    };
+    private static final int DATA_BASE = 0x10010000, TEXT_BASE = 0x00400000;
+    private static final int SP_INIT = 0x7fffeffc, GP_INIT = 0x10008000;
+    private static final int PAGE_BITS = 12;
+    private static final int IMM_OPERAND = -1; // 第三个操作数是立即数
+
+    private HashMap<String, Integer> opMap;
+    private HashMap<String, Integer> regMap;
+    private HashMap<String, Integer> labelMap; // 数据标签为地址，代码标签为指令下标
+    // 译码后的指令，按下标存放
+    private int[] instOp, instA, instB, instC, instImm;
+    private int instNum;
+    private ArrayList<String[]> pendingTextList; // 第一遍扫描得到的代码，标签全部确定后再译码
+    private HashMap<Integer, byte[]> memPages;
+
+    private int[] regs;
+    private int hi, lo;
+    private int[] inputValues;
+    private int inputPos;
+    private StringBuilder output;
+    private long[] classCount;
+    private long instLimit;
+    private boolean exited;
+
+    public MIPSSimulator(String asmStr) {
+        opMap = new HashMap<>();
+        for (int i = 0; i < opNames.length; i++) {
+            opMap.put(opNames[i], i);
+        }
+        regMap = new HashMap<>();
+        for (int i = 0; i < regNames.length; i++) {
+            regMap.put(regNames[i], i);
+            regMap.put(Integer.toString(i), i);
+        }
+        regMap.put("s8", 30);
+        labelMap = new HashMap<>();
+        memPages = new HashMap<>();
+        pendingTextList = new ArrayList<>();
+        instLimit = 500_000_000L;
+        inputValues = new int[0];
+        assemble(asmStr);
+    }
+
+    public static void main(String[] argv) {
+        String inputFile = null, expectFile = null, outputFile = null;
+        double[] weights = DEFAULT_WEIGHTS.clone();
+        long limit = -1;
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-input")) {
+                inputFile = argv[i + 1];
+            } else if (argv[i].equals("-expect")) {
+                expectFile = argv[i + 1];
+            } else if (argv[i].equals("-output")) {
+                outputFile = argv[i + 1];
+            } else if (argv[i].equals("-weight")) {
+                weights = parseWeights(argv[i + 1]);
+            } else if (argv[i].equals("-limit")) {
+                limit = Long.parseLong(argv[i + 1]);
+            }
+        }
+        MIPSSimulator simulator = new MIPSSimulator(readText(argv[0]));
+        if (inputFile != null) {
+            simulator.setInput(readText(inputFile));
+        }
+        if (limit > 0) {
+            simulator.setInstLimit(limit);
+        }
+        simulator.run();
+        String result = simulator.getOutput();
+        if (outputFile != null) {
+            try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+                outputStream.write(result.getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        } else {
+            System.out.print(result);
+        }
+        System.err.print(simulator.report(weights));
+        if (expectFile != null) {
+            boolean pass = sameOutput(result, readText(expectFile));
+            System.err.println(pass ? "Output check: PASS" : "Output check: FAIL");
+            if (!pass) {
+                System.exit(1);
+            }
+        }
+    }
+
+    public static String readText(String path) {
+        try (FileInputStream inputStream = new FileInputStream(path)) {
+            return new String(inputStream.readAllBytes());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
+
+    // 忽略行尾空白与末尾空行的差异
+    public static boolean sameOutput(String actual, String expected) {
+        return normalize(actual).equals(normalize(expected));
+    }
+
+    private static String normalize(String str) {
+        return str.replace("\r\n", "\n").replaceAll("[ \t]+\n", "\n").replaceAll("\\s+$", "");
+    }
+
+    // 形如 alu=1,muldiv=4,mem=2 ，未给出的类别保持默认权重
+    public static double[] parseWeights(String weightStr) {
+        double[] weights = DEFAULT_WEIGHTS.clone();
+        for (String item : weightStr.split(",")) {
+            String[] pair = item.split("=");
+            for (int i = 0; i < classNames.length; i++) {
+                if (classNames[i].equals(pair[0].trim())) {
+                    weights[i] = Double.parseDouble(pair[1].trim());
+                }
+            }
+        }
+        return weights;
+    }
+
+    public void setInput(String inputStr) {
+        String trimmed = inputStr.trim();
+        if (trimmed.isEmpty()) {
+            inputValues = new int[0];
+            return;
+        }
+        String[] items = trimmed.split("\\s+");
+        inputValues = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            inputValues[i] = Integer.parseInt(items[i]);
+        }
+    }
+
+    public void setInstLimit(long instLimit) {
+        this.instLimit = instLimit;
+    }
+
+    public int getStaticInstNum() {
+        return instNum;
+    }
+
+    public String getOutput() {
+        return output.toString();
+    }
+
+    public long getClassCount(int instClass) {
+        return classCount[instClass];
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : classCount) {
+            total += count;
+        }
+        return total;
+    }
+
+    public double getWeightedCost(double[] weights) {
+        double cost = 0;
+        for (int i = 0; i < classCount.length; i++) {
+            cost += classCount[i] * weights[i];
+        }
+        return cost;
+    }
+
+    public StringBuilder report(double[] weights) {
+        StringBuilder reportStr = new StringBuilder();
+        reportStr.append("static instructions: ").append(instNum).append("\n");
+        reportStr.append("dynamic instructions: ").append(getTotalCount()).append("\n");
+        for (int i = 0; i < classNames.length; i++) {
+            reportStr.append(String.format("  %-8s %12d  x %.2f%n", classNames[i], classCount[i], weights[i]));
+        }
+        reportStr.append(String.format("weighted cost: %.2f%n", getWeightedCost(weights)));
+        return reportStr;
+    }
+
+    /* ---------------- 汇编 ---------------- */
+
+    private void assemble(String asmStr) {
+        boolean inText = false;
+        int dataPos = DATA_BASE;
+        for (String rawLine : asmStr.split("\n")) {
+            String line = stripComment(rawLine).trim();
+            while (!line.isEmpty()) {
+                int colon = labelColon(line);
+                if (colon < 0) {
+                    break;
+                }
+                String label = line.substring(0, colon).trim();
+                labelMap.put(label, inText ? pendingTextList.size() : dataPos);
+                line = line.substring(colon + 1).trim();
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals(".data")) {
+                inText = false;
+            } else if (line.equals(".text")) {
+                inText = true;
+            } else if (line.startsWith(".align")) {
+                int align = 1 << Integer.parseInt(line.substring(6).trim());
+                dataPos = (dataPos + align - 1) / align * align;
+            } else if (line.startsWith(".word")) {
+                for (String item : line.substring(5).split(",")) {
+                    storeWord(dataPos, Integer.parseInt(item.trim()));
+                    dataPos += 4;
+                }
+            } else if (line.startsWith(".space")) {
+                dataPos += Integer.parseInt(line.substring(6).trim());
+            } else if (line.startsWith(".asciiz")) {
+                String str = unescape(line.substring(line.indexOf('"') + 1, line.lastIndexOf('"')));
+                for (int i = 0; i < str.length(); i++) {
+                    storeByte(dataPos++, str.charAt(i));
+                }
+                storeByte(dataPos++, 0);
+            } else if (inText) {
+                pendingTextList.add(splitInst(line));
+            }
+        }
+        instNum = pendingTextList.size();
+        instOp = new int[instNum];
+        instA = new int[instNum];
+        instB = new int[instNum];
+        instC = new int[instNum];
+        instImm = new int[instNum];
+        for (int i = 0; i < instNum; i++) {
+            decode(i, pendingTextList.get(i));
+        }
+        pendingTextList = null;
+    }
+
+    // 字符串中的'#'和':'不算注释与标签
+    private static String stripComment(String line) {
+        boolean inStr = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inStr = !inStr;
+            } else if (c == '#' && !inStr) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private static int labelColon(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ':') {
+                return i;
+            } else if (c == '"' || c == ' ' || c == '\t') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static String unescape(String str) {
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '\\' && i + 1 < str.length()) {
+                char next = str.charAt(++i);
+                if (next == 'n') {
+                    res.append('\n');
+                } else if (next == 't') {
+                    res.append('\t');
+                } else {
+                    res.append(next);
+                }
+            } else {
+                res.append(c);
+            }
+        }
+        return res.toString();
+    }
+
+    private static String[] splitInst(String line) {
+        int space = 0;
+        while (space < line.length() && !Character.isWhitespace(line.charAt(space))) {
+            space++;
+        }
+        String op = line.substring(0, space);
+        String rest = line.substring(space).trim();
+        if (rest.isEmpty()) {
+            return new String[]{op};
+        }
+        String[] operands = rest.split(",");
+        String[] res = new String[operands.length + 1];
+        res[0] = op;
+        for (int i = 0; i < operands.length; i++) {
+            res[i + 1] = operands[i].trim();
+        }
+        return res;
+    }
+
+    private int reg(String name) {
+        String regName = name.startsWith("$") ? name.substring(1) : name; // 容忍遗漏'$'的寄存器
+        Integer no = regMap.get(regName);
+        if (no == null) {
+            throw new IllegalArgumentException("Unknown register: " + name);
+        }
+        return no;
+    }
+
+    private boolean isReg(String operand) {
+        return operand.startsWith("$") || regMap.containsKey(operand);
+    }
+
+    private int label(String name) {
+        Integer addr = labelMap.get(name);
+        if (addr == null) {
+            throw new IllegalArgumentException("Unknown label: " + name);
+        }
+        return addr;
+    }
+
+    private void decode(int index, String[] inst) {
+        Integer op = opMap.get(inst[0]);
+        if (op == null) {
+            throw new IllegalArgumentException("Unsupported instruction: " + String.join(" ", inst));
+        }
+        instOp[index] = op;
+        switch (op) {
+            case ADDU: case SUBU: case AND: case SLLV: case SRLV: case SRAV:
+            case SGT: case SGE: case SLT: case SLE: case SEQ: case SNE:
+                instA[index] = reg(inst[1]);
+                instB[index] = reg(inst[2]);
+                if (isReg(inst[3])) {
+                    instC[index] = reg(inst[3]);
+                } else {
+                    instC[index] = IMM_OPERAND;
+                    instImm[index] = Integer.parseInt(inst[3]);
+                }
+                break;
+            case ADDIU: case SUBIU: case SLL: case SRL: case SRA: case ANDI:
+                instA[index] = reg(inst[1]);
+                instB[index] = reg(inst[2]);
+                instImm[index] = Integer.parseInt(inst[3]);
+                break;
+            case MULT: case DIV:
+                instB[index] = reg(inst[1]);
+                instC[index] = reg(inst[2]);
+                break;
+            case MFLO: case MFHI: case JR:
+                instA[index] = reg(inst[1]);
+                break;
+            case LI:
+                instA[index] = reg(inst[1]);
+                instImm[index] = (int) Long.parseLong(inst[2]);
+                break;
+            case LA:
+                instA[index] = reg(inst[1]);
+                instImm[index] = label(inst[2]);
+                break;
+            case MOVE:
+                instA[index] = reg(inst[1]);
+                instB[index] = reg(inst[2]);
+                break;
+            case LW: case SW: // off(base)、label、label(base)
+                instA[index] = reg(inst[1]);
+                String addr = inst[2];
+                int lParen = addr.indexOf('(');
+                String offset = (lParen < 0) ? addr : addr.substring(0, lParen).trim();
+                instB[index] = (lParen < 0) ? 0 : reg(addr.substring(lParen + 1, addr.indexOf(')')).trim());
+                if (offset.isEmpty()) {
+                    instImm[index] = 0;
+                } else if (Character.isDigit(offset.charAt(0)) || offset.charAt(0) == '-') {
+                    instImm[index] = Integer.parseInt(offset);
+                } else {
+                    instImm[index] = label(offset);
+                }
+                break;
+            case BEQZ: case BNEZ:
+                instA[index] = reg(inst[1]);
+                instImm[index] = label(inst[2]);
+                break;
+            case J: case JAL:
+                instImm[index] = label(inst[1]);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /* ---------------- 内存 ---------------- */
+
+    private byte[] page(int addr) {
+        int pageNo = addr >>> PAGE_BITS;
+        byte[] page = memPages.get(pageNo);
+        if (page == null) {
+            page = new byte[1 << PAGE_BITS];
+            memPages.put(pageNo, page);
+        }
+        return page;
+    }
+
+    private void storeByte(int addr, int value) {
+        page(addr)[addr & ((1 << PAGE_BITS) - 1)] = (byte) value;
+    }
+
+    private int loadByte(int addr) {
+        return page(addr)[addr & ((1 << PAGE_BITS) - 1)] & 0xff;
+    }
+
+    private void storeWord(int addr, int value) {
+        if ((addr & 3) != 0) {
+            throw new IllegalStateException("Unaligned store at 0x" + Integer.toHexString(addr));
+        }
+        byte[] page = page(addr);
+        int off = addr & ((1 << PAGE_BITS) - 1);
+        page[off] = (byte) value;
+        page[off + 1] = (byte) (value >>> 8);
+        page[off + 2] = (byte) (value >>> 16);
+        page[off + 3] = (byte) (value >>> 24);
+    }
+
+    private int loadWord(int addr) {
+        if ((addr & 3) != 0) {
+            throw new IllegalStateException("Unaligned load at 0x" + Integer.toHexString(addr));
+        }
+        byte[] page = page(addr);
+        int off = addr & ((1 << PAGE_BITS) - 1);
+        return (page[off] & 0xff) | ((page[off + 1] & 0xff) << 8) |
+                ((page[off + 2] & 0xff) << 16) | ((page[off + 3] & 0xff) << 24);
+    }
+
+    /* ---------------- 执行 ---------------- */
+
+    private int textIndex(int addr) {
+        return (addr - TEXT_BASE) >> 2;
+    }
+
+    public void run() {
+        regs = new int[32];
+        regs[29] = SP_INIT;
+        regs[28] = GP_INIT;
+        hi = 0;
+        lo = 0;
+        inputPos = 0;
+        output = new StringBuilder();
+        classCount = new long[classNames.length];
+        exited = false;
+        long executed = 0;
+        int pc = 0;
+        while (!exited && pc < instNum) {
+            if (++executed > instLimit) {
+                throw new IllegalStateException("Instruction limit exceeded: " + instLimit);
+            }
+            int op = instOp[pc];
+            int a = instA[pc], b = instB[pc], c = instC[pc], imm = instImm[pc];
+            int rhs = (c == IMM_OPERAND) ? imm : regs[c];
+            classCount[opClass[op]]++;
+            int nextPc = pc + 1;
+            switch (op) {
+                case ADDU: regs[a] = regs[b] + rhs; break;
+                case SUBU: regs[a] = regs[b] - rhs; break;
+                case AND: regs[a] = regs[b] & rhs; break;
+                case SLLV: regs[a] = regs[b] << (rhs & 31); break;
+                case SRLV: regs[a] = regs[b] >>> (rhs & 31); break;
+                case SRAV: regs[a] = regs[b] >> (rhs & 31); break;
+                case SGT: regs[a] = (regs[b] > rhs) ? 1 : 0; break;
+                case SGE: regs[a] = (regs[b] >= rhs) ? 1 : 0; break;
+                case SLT: regs[a] = (regs[b] < rhs) ? 1 : 0; break;
+                case SLE: regs[a] = (regs[b] <= rhs) ? 1 : 0; break;
+                case SEQ: regs[a] = (regs[b] == rhs) ? 1 : 0; break;
+                case SNE: regs[a] = (regs[b] != rhs) ? 1 : 0; break;
+                case ADDIU: regs[a] = regs[b] + imm; break;
+                case SUBIU: regs[a] = regs[b] - imm; break;
+                case SLL: regs[a] = regs[b] << (imm & 31); break;
+                case SRL: regs[a] = regs[b] >>> (imm & 31); break;
+                case SRA: regs[a] = regs[b] >> (imm & 31); break;
+                case ANDI: regs[a] = regs[b] & imm; break;
+                case MULT:
+                    long product = (long) regs[b] * (long) regs[c];
+                    lo = (int) product;
+                    hi = (int) (product >> 32);
+                    break;
+                case DIV:
+                    if (regs[c] != 0) { // 除零时MARS保持hi、lo不变
+                        lo = regs[b] / regs[c];
+                        hi = regs[b] % regs[c];
+                    }
+                    break;
+                case MFLO: regs[a] = lo; break;
+                case MFHI: regs[a] = hi; break;
+                case LI: case LA: regs[a] = imm; break;
+                case MOVE: regs[a] = regs[b]; break;
+                case LW: regs[a] = loadWord(regs[b] + imm); break;
+                case SW: storeWord(regs[b] + imm, regs[a]); break;
+                case BEQZ:
+                    if (regs[a] == 0) {
+                        nextPc = imm;
+                    }
+                    break;
+                case BNEZ:
+                    if (regs[a] != 0) {
+                        nextPc = imm;
+                    }
+                    break;
+                case J: nextPc = imm; break;
+                case JAL:
+                    regs[31] = TEXT_BASE + 4 * (pc + 1);
+                    nextPc = imm;
+                    break;
+                case JR: nextPc = textIndex(regs[a]); break;
+                case SYSCALL_OP: doSyscall(); break;
+                default: break;
+            }
+            regs[0] = 0;
+            pc = nextPc;
+        }
+    }
+
+    private void doSyscall() {
+        switch (regs[2]) {
+            case 1:
+                output.append(regs[4]);
+                break;
+            case 4:
+                for (int addr = regs[4]; ; addr++) {
+                    int c = loadByte(addr);
+                    if (c == 0) {
+                        break;
+                    }
+                    output.append((char) c);
+                }
+                break;
+            case 5:
+                if (inputPos >= inputValues.length) {
+                    throw new IllegalStateException("getint: input exhausted");
+                }
+                regs[2] = inputValues[inputPos++];
+                break;
+            case 10:
+                exited = true;
+                break;
+            default:
+                throw new IllegalStateException("Unsupported syscall: " + regs[2]);
+        }
+    }
+}
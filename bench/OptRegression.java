@@ -0,0 +1,212 @@
+import IR.IRLabelManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * 优化效果回归测试：编译语料库中的每个程序，在MIPSSimulator中运行并核对输出，
+ * 再与基线文件比较加权动态代价与静态指令数，任一程序变差超过阈值即失败
+ * 语料库目录约定（与评测数据一致）：testfileN.txt 源程序，inputN.txt 输入（可选），outputN.txt 期望输出（可选）
+ * 基线文件每行：程序名 加权代价 静态指令数；不带-update时基线文件必须存在，基线中的程序在语料库中缺失也算失败
+ * 用法：java -cp out OptRegression <语料库目录> [-baseline baseline.txt] [-threshold 0] [-update]
+ *      [-threads n] [-weight alu=1,muldiv=4,...]
+ */
+public class OptRegression {
+    private static final long STACK_SIZE = 256L << 20;
+    private double[] weights = MIPSSimulator.DEFAULT_WEIGHTS.clone();
+    private double threshold = 0; // 代码生成是确定的，同一程序两次编译的代价相同，任何变差都算回归
+
+    public static void main(String[] argv) throws InterruptedException {
+        File corpusDir = new File(argv[0]);
+        String baselinePath = new File(corpusDir, "baseline.txt").getPath();
+        boolean update = false;
+        int threadNum = Runtime.getRuntime().availableProcessors();
+        OptRegression regression = new OptRegression();
+        for (int i = 1; i < argv.length; i++) {
+            if (argv[i].equals("-baseline")) {
+                baselinePath = argv[++i];
+            } else if (argv[i].equals("-threshold")) {
+                regression.threshold = Double.parseDouble(argv[++i]);
+            } else if (argv[i].equals("-update")) {
+                update = true;
+            } else if (argv[i].equals("-threads")) {
+                threadNum = Integer.parseInt(argv[++i]);
+            } else if (argv[i].equals("-weight")) {
+                regression.weights = MIPSSimulator.parseWeights(argv[++i]);
+            }
+        }
+        ArrayList<CaseResult> resultList = regression.runCorpus(corpusDir, threadNum);
+        boolean pass;
+        if (update) {
+            pass = regression.writeBaseline(resultList, baselinePath);
+        } else {
+            HashMap<String, double[]> baseline = regression.readBaseline(baselinePath);
+            pass = baseline != null && regression.compareBaseline(resultList, baseline);
+        }
+        System.exit(pass ? 0 : 1);
+    }
+
+    public ArrayList<CaseResult> runCorpus(File corpusDir, int threadNum) throws InterruptedException {
+        File[] files = corpusDir.listFiles();
+        ArrayList<CaseResult> resultList = new ArrayList<>();
+        if (files == null) {
+            return resultList;
+        }
+        Arrays.sort(files);
+        ExecutorService executor = Executors.newFixedThreadPool(threadNum,
+                runnable -> new Thread(null, runnable, "regression", STACK_SIZE));
+        ArrayList<Future<CaseResult>> futureList = new ArrayList<>();
+        for (File file : files) {
+            if (BatchCompiler.isSourceFile(file)) {
+                futureList.add(executor.submit(() -> runCase(file)));
+            }
+        }
+        for (Future<CaseResult> future : futureList) {
+            try {
+                resultList.add(future.get());
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        executor.shutdown();
+        return resultList;
+    }
+
+    private CaseResult runCase(File sourceFile) {
+        String suffix = sourceFile.getName().substring(BatchCompiler.INPUT_PREFIX.length());
+        CaseResult result = new CaseResult(sourceFile.getName());
+        try {
+            StringBuilder mipsStr = Compiler.compile(new ReadFile(sourceFile.getPath()).mapFile(), false);
+            MIPSSimulator simulator = new MIPSSimulator(mipsStr.toString());
+            File inputFile = new File(sourceFile.getParentFile(), "input" + suffix);
+            if (inputFile.exists()) {
+                simulator.setInput(MIPSSimulator.readText(inputFile.getPath()));
+            }
+            simulator.run();
+            File expectFile = new File(sourceFile.getParentFile(), "output" + suffix);
+            if (expectFile.exists() &&
+                    !MIPSSimulator.sameOutput(simulator.getOutput(), MIPSSimulator.readText(expectFile.getPath()))) {
+                result.error = "wrong output";
+            }
+            result.cost = simulator.getWeightedCost(weights);
+            result.staticNum = simulator.getStaticInstNum();
+        } catch (Throwable e) { // 栈溢出等Error也记为该程序失败，不能让它从结果中消失
+            result.error = e.toString();
+        } finally {
+            IRLabelManager.releaseIRLabelManager();
+        }
+        return result;
+    }
+
+    // 基线文件不存在时返回null，此时不与任何结果比较，回归测试失败
+    public HashMap<String, double[]> readBaseline(String path) {
+        if (!new File(path).exists()) {
+            System.err.println("No baseline at " + path + ", run with -update first");
+            return null;
+        }
+        HashMap<String, double[]> baseline = new HashMap<>();
+        for (String line : MIPSSimulator.readText(path).split("\n")) {
+            String[] items = line.trim().split("\\s+");
+            if (items.length == 3) {
+                baseline.put(items[0], new double[]{Double.parseDouble(items[1]), Double.parseDouble(items[2])});
+            }
+        }
+        return baseline;
+    }
+
+    public boolean writeBaseline(ArrayList<CaseResult> resultList, String path) {
+        StringBuilder baselineStr = new StringBuilder();
+        boolean pass = true;
+        for (CaseResult result : resultList) {
+            if (result.error != null) {
+                System.out.println("FAIL " + result.name + ": " + result.error);
+                pass = false;
+            } else {
+                baselineStr.append(result.name).append(' ').append(String.format("%.2f", result.cost))
+                        .append(' ').append(result.staticNum).append('\n');
+            }
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(path)) {
+            outputStream.write(baselineStr.toString().getBytes());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        System.out.println("Baseline written to " + path);
+        return pass;
+    }
+
+    public boolean compareBaseline(ArrayList<CaseResult> resultList, HashMap<String, double[]> baseline) {
+        boolean pass = true;
+        double totalCost = 0, totalBaseCost = 0;
+        HashSet<String> resultNames = new HashSet<>();
+        System.out.printf("%-20s %14s %14s %8s %8s %8s  %s%n", "program", "cost", "base", "delta",
+                "static", "delta", "status");
+        for (CaseResult result : resultList) {
+            resultNames.add(result.name);
+            if (result.error != null) {
+                System.out.printf("%-20s %14s %14s %8s %8s %8s  FAIL (%s)%n", result.name, "-", "-", "-", "-", "-",
+                        result.error);
+                pass = false;
+                continue;
+            }
+            double[] base = baseline.get(result.name);
+            if (base == null) {
+                System.out.printf("%-20s %14.2f %14s %8s %8d %8s  NEW%n", result.name, result.cost, "-", "-",
+                        result.staticNum, "-");
+                continue;
+            }
+            double costDelta = (result.cost - base[0]) / Math.max(base[0], 1);
+            double staticDelta = (result.staticNum - base[1]) / Math.max(base[1], 1);
+            boolean regressed = costDelta > threshold || staticDelta > threshold;
+            System.out.printf("%-20s %14.2f %14.2f %+7.2f%% %8d %+7.2f%%  %s%n", result.name, result.cost, base[0],
+                    costDelta * 100, result.staticNum, staticDelta * 100, regressed ? "REGRESSED" : "ok");
+            totalCost += result.cost;
+            totalBaseCost += base[0];
+            if (regressed) {
+                pass = false;
+            }
+        }
+        // 基线中有、本次没有结果的程序（被删除或编译时抛出了异常），不能当作通过
+        ArrayList<String> missingNames = new ArrayList<>();
+        for (String name : baseline.keySet()) {
+            if (!resultNames.contains(name)) {
+                missingNames.add(name);
+            }
+        }
+        Collections.sort(missingNames);
+        for (String name : missingNames) {
+            System.out.printf("%-20s %14s %14.2f %8s %8s %8s  MISSING%n", name, "-", baseline.get(name)[0], "-", "-",
+                    "-");
+            pass = false;
+        }
+        if (totalBaseCost > 0) {
+            System.out.printf("total cost %.2f vs baseline %.2f (%+.2f%%)%n", totalCost, totalBaseCost,
+                    (totalCost - totalBaseCost) / totalBaseCost * 100);
+        }
+        System.out.println(pass ? "PASS" : "FAIL");
+        return pass;
+    }
+
+    public static class CaseResult {
+        private String name;
+        private double cost;
+        private int staticNum;
+        private String error;
+
+        public CaseResult(String name) {
+            this.name = name;
+            this.error = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import Exceptions.SyntaxException;
+import IR.IRElem;
+import IR.IRLabelManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * 并行分析FuncDef的一致性检查与计时
+ * 对每个程序分别顺序分析和用-threads个线程并行分析，比较语法分析输出、错误列表（按产生顺序，不排序）和没有错误时的中间代码，
+ * 再各自重复-iter次只对语法分析计时；除命令行给出的文件外，还用SysYGenerator生成-func个函数的程序
+ * 另外与Compiler一样由语法分析按需驱动词法分析，比较一个同时有词法错误和语义错误的程序在两种方式下的错误列表
+ * 用法：java -cp out ParallelParseCheck [-threads 4] [-func 64,512] [-iter 10] [file ...]
+ */
+public class ParallelParseCheck {
+    private static int iterNum = 10;
+    // 各函数中交错着词法错误（a）、未定义的名字（c）和缺少返回语句（g）
+    private static final String ERROR_PROGRAM = "int f1() {\n" +
+            "    int x = y;\n" +
+            "}\n" +
+            "void f2() {\n" +
+            "    printf(\"a$b\");\n" +
+            "}\n" +
+            "int f3() { }\n" +
+            "void f4() {\n" +
+            "}\n" +
+            "int f5() { }\n" +
+            "int main() {\n" +
+            "    printf(\"x$\");\n" +
+            "    z = 1;\n" +
+            "    return 0;\n" +
+            "}\n";
+
+    public static void main(String[] argv) throws IOException {
+        int threadNum = 4;
+        String funcArg = "64,512";
+        ArrayList<String> files = new ArrayList<>();
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("-threads") && i + 1 < argv.length) {
+                threadNum = Integer.parseInt(argv[++i]);
+            } else if (argv[i].equals("-func") && i + 1 < argv.length) {
+                funcArg = argv[++i];
+            } else if (argv[i].equals("-iter") && i + 1 < argv.length) {
+                iterNum = Integer.parseInt(argv[++i]);
+            } else {
+                files.add(argv[i]);
+            }
+        }
+        ForkJoinPool parsePool = new ForkJoinPool(threadNum);
+        int failNum = 0;
+        System.out.printf("%-28s %8s %12s %12s  %s%n", "program", "tokens", "seq ms", "par ms", "result");
+        for (String file : files) {
+            if (!check(file, Files.readString(Path.of(file)), parsePool)) {
+                failNum++;
+            }
+        }
+        String seqErrors = streamErrors(ERROR_PROGRAM, null);
+        String parErrors = streamErrors(ERROR_PROGRAM, parsePool);
+        System.out.printf("%-28s %8s %12s %12s  %s%n", "lexical+semantic errors", "-", "-", "-",
+                seqErrors.equals(parErrors) ? "same" : "DIFFERENT");
+        if (!seqErrors.equals(parErrors)) {
+            System.out.println("sequential: " + seqErrors);
+            System.out.println("parallel:   " + parErrors);
+            failNum++;
+        }
+        for (String funcNum : funcArg.split(",")) {
+            SysYGenerator generator = new SysYGenerator(2021);
+            generator.setKnob("func", Integer.parseInt(funcNum.trim()));
+            if (!check("generated func=" + funcNum.trim(), generator.generate(), parsePool)) {
+                failNum++;
+            }
+        }
+        parsePool.shutdown();
+        System.exit(failNum == 0 ? 0 : 1);
+    }
+
+    public static boolean check(String name, CharSequence program, ForkJoinPool parsePool) {
+        String seqResult = compileResult(program, null);
+        String parResult = compileResult(program, parsePool);
+        long seqTime = parseTime(program, null);
+        long parTime = parseTime(program, parsePool);
+        BenchPipeline pipeline = new BenchPipeline(program);
+        pipeline.runPhase(BenchPipeline.LEX);
+        boolean same = seqResult.equals(parResult);
+        System.out.printf("%-28s %8d %12.3f %12.3f  %s%n", name, pipeline.getTokenNum(),
+                seqTime / 1e6 / iterNum, parTime / 1e6 / iterNum, same ? "same" : "DIFFERENT");
+        return same;
+    }
+
+    // 语法分析输出、错误列表和中间代码拼在一起
+    private static String compileResult(CharSequence program, ForkJoinPool parsePool) {
+        BenchPipeline pipeline = new BenchPipeline(program);
+        pipeline.setParsePool(parsePool);
+        pipeline.runPhases(BenchPipeline.LEX, BenchPipeline.SIMPLIFY);
+        StringBuilder result = new StringBuilder(pipeline.getSyntaxTree().toString());
+        for (Error error : pipeline.getErrorList()) {
+            result.append(error).append('\n');
+        }
+        if (pipeline.getErrorList().isEmpty()) { // 有错误的程序不生成中间代码
+            pipeline.runPhases(BenchPipeline.SIMPLIFY, BenchPipeline.IR_TRANS + 1);
+            for (IRElem irElem : pipeline.getIRList()) {
+                result.append(irElem).append('\n');
+            }
+        }
+        IRLabelManager.resetIRLabelManager();
+        return result.toString();
+    }
+
+    // 与Compiler.compileToIR相同，词法分析由语法分析按需驱动，返回按产生顺序排列的错误
+    private static String streamErrors(CharSequence program, ForkJoinPool parsePool) {
+        LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer();
+        SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer();
+        ArrayList<Error> errorList = new ArrayList<>();
+        lexicalAnalyzer.setErrorList(errorList);
+        syntaxAnalyzer.setErrorList(errorList);
+        lexicalAnalyzer.setProgramStr(program);
+        syntaxAnalyzer.setTokenBuffer(lexicalAnalyzer.streamTokens());
+        syntaxAnalyzer.setParsePool(parsePool);
+        try {
+            syntaxAnalyzer.syntaxAnalyze();
+        } catch (SyntaxException e) {
+            e.printStackTrace();
+        }
+        return errorList.toString();
+    }
+
+    private static long parseTime(CharSequence program, ForkJoinPool parsePool) {
+        long totalTime = 0;
+        for (int i = 0; i < iterNum; i++) {
+            BenchPipeline pipeline = new BenchPipeline(program);
+            pipeline.setParsePool(parsePool);
+            pipeline.runPhase(BenchPipeline.LEX);
+            long timeStart = System.nanoTime();
+            pipeline.runPhase(BenchPipeline.PARSE);
+            totalTime += System.nanoTime() - timeStart;
+        }
+        return totalTime;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * 语法分析在深层嵌套表达式语句上的基准测试
+ * 每种语句形状按嵌套深度生成一个程序（stmt条语句），只对语法分析计时（词法分析不计时）：
+ *   assign   x = ((((x + 1) * 2) ...));          赋值语句，右侧层层括号
+ *   expr     a[a[a[...]]] + 1;                    以LVal开头但不是赋值的表达式语句
+ *   call     f(f(f(...g()...)));                  嵌套函数调用，最内层没有参数
+ *   unary    - - ! - ... x;                       一元运算符链
+ * 用法：java -cp out ParserBenchmark [-depth 4,16,64,256] [-stmt 200] [-warmup 5] [-iter 10]
+ * 在大栈线程中运行，深度再大也不会栈溢出
+ */
+public class ParserBenchmark {
+    private static final long STACK_SIZE = 1L << 30;
+    private static final String[] shapes = new String[]{"assign", "expr", "call", "unary"};
+    private int stmtNum = 200;
+    private int warmupNum = 5;
+    private int iterNum = 10;
+
+    public static void main(String[] argv) throws InterruptedException {
+        ParserBenchmark benchmark = new ParserBenchmark();
+        String depthArg = "4,16,64,256";
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-depth")) {
+                depthArg = argv[i + 1];
+            } else if (argv[i].equals("-stmt")) {
+                benchmark.stmtNum = Integer.parseInt(argv[i + 1]);
+            } else if (argv[i].equals("-warmup")) {
+                benchmark.warmupNum = Integer.parseInt(argv[i + 1]);
+            } else if (argv[i].equals("-iter")) {
+                benchmark.iterNum = Integer.parseInt(argv[i + 1]);
+            }
+        }
+        String[] depths = depthArg.split(",");
+        Thread thread = new Thread(null, () -> {
+            System.out.printf("%-8s %8s %10s %12s %14s%n", "shape", "depth", "tokens", "ms/op", "tokens/s");
+            for (String shape : shapes) {
+                for (String depth : depths) {
+                    benchmark.runBenchmark(shape, Integer.parseInt(depth.trim()));
+                }
+            }
+        }, "parser-benchmark", STACK_SIZE);
+        thread.start();
+        thread.join();
+    }
+
+    public void runBenchmark(String shape, int depth) {
+        CharSequence program = nestedProgram(shape, depth, stmtNum);
+        long totalTime = 0;
+        int tokenNum = 0;
+        for (int i = 0; i < warmupNum + iterNum; i++) {
+            BenchPipeline pipeline = new BenchPipeline(program);
+            pipeline.runPhase(BenchPipeline.LEX);
+            tokenNum = pipeline.getTokenNum();
+            long timeStart = System.nanoTime();
+            pipeline.runPhase(BenchPipeline.PARSE);
+            long timeEnd = System.nanoTime();
+            if (i >= warmupNum) {
+                totalTime += timeEnd - timeStart;
+            }
+        }
+        double msPerOp = totalTime / 1e6 / iterNum;
+        System.out.printf("%-8s %8d %10d %12.3f %14.0f%n", shape, depth, tokenNum, msPerOp,
+                tokenNum / msPerOp * 1000);
+    }
+
+    public static StringBuilder nestedProgram(String shape, int depth, int stmtNum) {
+        StringBuilder program = new StringBuilder();
+        program.append("int a[8];\n");
+        program.append("int f(int x) {\n    return x;\n}\n");
+        program.append("int g() {\n    return 1;\n}\n");
+        program.append("int main() {\n    int x = 1;\n");
+        for (int i = 0; i < stmtNum; i++) {
+            program.append("    ");
+            switch (shape) {
+                case "assign":
+                    program.append("x = ");
+                    program.append("(".repeat(depth)).append('x');
+                    for (int j = 0; j < depth; j++) {
+                        program.append(j % 2 == 0 ? " + 1)" : " * 2)");
+                    }
+                    break;
+                case "expr":
+                    program.append("a[".repeat(depth)).append('0').append("]".repeat(depth)).append(" + 1");
+                    break;
+                case "call":
+                    program.append("f(".repeat(depth)).append("g()").append(")".repeat(depth));
+                    break;
+                case "unary":
+                    for (int j = 0; j < depth; j++) {
+                        program.append(j % 3 == 0 ? "- " : (j % 3 == 1 ? "! " : "+ "));
+                    }
+                    program.append('x');
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown shape: " + shape);
+            }
+            program.append(";\n");
+        }
+        program.append("    return 0;\n}\n");
+        return program;
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+
+/*
+ * 编译器各阶段的基准测试（JMH风格：预热 + 测量，每次操作前重新准备输入，只对目标阶段计时）
+ * 编译：javac -encoding UTF-8 -d out -sourcepath src:bench bench/PhaseBenchmark.java
+ * 运行：java -cp out PhaseBenchmark [-size 1,8,64] [-warmup 5] [-iter 10] [-phase IROptimize] [源文件...]
+ * 给出源文件时以各文件作为输入规模，否则用内置模板按size生成对应数量的函数
+ * 吞吐量：词法/语法/常量折叠按token计，IR生成按生成的IR指令计，优化与目标代码生成按输入IR指令计
+ * 内存分配取自当前线程的分配字节数，相当于JMH的GC profiler中的gc.alloc.rate.norm
+ */
+public class PhaseBenchmark {
+    private int warmupNum = 5;
+    private int iterNum = 10;
+    private String phaseFilter = null;
+    private ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] argv) {
+        PhaseBenchmark benchmark = new PhaseBenchmark();
+        ArrayList<String> inputNameList = new ArrayList<>();
+        ArrayList<CharSequence> inputList = new ArrayList<>();
+        String sizeArg = "1,8,64";
+        for (int i = 0; i < argv.length; i++) {
+            if (argv[i].equals("-size")) {
+                sizeArg = argv[++i];
+            } else if (argv[i].equals("-warmup")) {
+                benchmark.warmupNum = Integer.parseInt(argv[++i]);
+            } else if (argv[i].equals("-iter")) {
+                benchmark.iterNum = Integer.parseInt(argv[++i]);
+            } else if (argv[i].equals("-phase")) {
+                benchmark.phaseFilter = argv[++i];
+            } else {
+                inputNameList.add(argv[i]);
+                inputList.add(new ReadFile(new File(argv[i]).getPath()).mapFile());
+            }
+        }
+        if (inputList.isEmpty()) {
+            for (String size : sizeArg.split(",")) {
+                int funcNum = Integer.parseInt(size.trim());
+                inputNameList.add("template*" + funcNum);
+                inputList.add(templateProgram(funcNum));
+            }
+        }
+        System.out.printf("%-16s %-18s %10s %12s %16s %14s %12s%n", "input", "phase", "units",
+                "ms/op", "units/s", "alloc B/op", "alloc MB/s");
+        for (int i = 0; i < inputList.size(); i++) {
+            for (int phase = BenchPipeline.LEX; phase <= BenchPipeline.MIPS_TRANS; phase++) {
+                if (benchmark.phaseFilter == null || benchmark.phaseFilter.equals(BenchPipeline.phaseNames[phase])) {
+                    benchmark.runBenchmark(inputNameList.get(i), inputList.get(i), phase);
+                }
+            }
+        }
+    }
+
+    private long allocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).
+                    getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    // 每次操作都重新从源程序开始准备好前面各阶段的结果（不计时），再对目标阶段计时
+    public void runBenchmark(String inputName, CharSequence program, int phase) {
+        long totalTime = 0, totalAlloc = 0;
+        int units = 0;
+        for (int i = 0; i < warmupNum + iterNum; i++) {
+            BenchPipeline pipeline = new BenchPipeline(program);
+            pipeline.runPhases(BenchPipeline.LEX, phase);
+            if (phase == BenchPipeline.OPTIMIZE || phase == BenchPipeline.MIPS_TRANS) {
+                units = pipeline.getIRInstNum();
+            }
+            long allocStart = allocatedBytes();
+            long timeStart = System.nanoTime();
+            pipeline.runPhase(phase);
+            long timeEnd = System.nanoTime();
+            long allocEnd = allocatedBytes();
+            if (phase <= BenchPipeline.SIMPLIFY) {
+                units = pipeline.getTokenNum();
+            } else if (phase == BenchPipeline.IR_TRANS) {
+                units = pipeline.getIRInstNum();
+            }
+            if (i >= warmupNum) {
+                totalTime += timeEnd - timeStart;
+                totalAlloc += allocEnd - allocStart;
+            }
+        }
+        double msPerOp = totalTime / 1e6 / iterNum;
+        double seconds = totalTime / 1e9;
+        System.out.printf("%-16s %-18s %10d %12.3f %16.0f %14d %12.1f%n", inputName,
+                BenchPipeline.phaseNames[phase], units, msPerOp,
+                units * (double) iterNum / seconds, totalAlloc / iterNum, totalAlloc / 1e6 / seconds);
+    }
+
+    // 内置输入：funcNum个结构相同的函数，main中依次调用
+    public static StringBuilder templateProgram(int funcNum) {
+        StringBuilder program = new StringBuilder();
+        program.append("const int SIZE = 16;\n");
+        program.append("int g_arr[SIZE] = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};\n");
+        for (int i = 0; i < funcNum; i++) {
+            program.append("int work").append(i).append("(int n, int a[]) {\n");
+            program.append("    int s = ").append(i).append(", k = 0;\n");
+            program.append("    while (k < n) {\n");
+            program.append("        if (k % 3 == 0) {\n");
+            program.append("            s = s + a[k % SIZE] * 2;\n");
+            program.append("        } else {\n");
+            program.append("            s = s - k / 4 + (s * 8) % 7;\n");
+            program.append("        }\n");
+            program.append("        k = k + 1;\n");
+            program.append("    }\n");
+            program.append("    return s;\n");
+            program.append("}\n");
+        }
+        program.append("int main() {\n");
+        program.append("    int t = 0;\n");
+        for (int i = 0; i < funcNum; i++) {
+            program.append("    t = t + work").append(i).append("(").append(i % 20).append(", g_arr);\n");
+        }
+        program.append("    printf(\"%d\\n\", t);\n");
+        program.append("    return 0;\n");
+        program.append("}\n");
+        return program;
+    }
+}
@@ -0,0 +1,94 @@
+import Profiler.PhaseProfiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/*
+ * 规模测试：让生成器的某一维度按阶梯增长，逐个编译并输出各阶段耗时随规模的变化
+ * 用法：java -cp out ScalingDriver [-knob stmt] [-ladder 1000,2000,4000,8000] [-seed n] [-func n -depth n ...]
+ * growth列为 (本行总耗时/上一行总耗时) / (本行规模/上一行规模)，明显大于1说明该维度上存在超线性的阶段
+ * 编译在单独的大栈线程中进行，这里关心的是耗时而不是递归深度
+ */
+public class ScalingDriver {
+    private static final long STACK_SIZE = 1L << 30;
+
+    public static void main(String[] argv) throws InterruptedException {
+        String knob = "stmt";
+        String ladderArg = "1000,2000,4000,8000";
+        long seed = 2021;
+        ArrayList<String> fixedKnobs = new ArrayList<>();
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-knob")) {
+                knob = argv[i + 1];
+            } else if (argv[i].equals("-ladder")) {
+                ladderArg = argv[i + 1];
+            } else if (argv[i].equals("-seed")) {
+                seed = Long.parseLong(argv[i + 1]);
+            } else {
+                fixedKnobs.add(argv[i].substring(1));
+                fixedKnobs.add(argv[i + 1]);
+            }
+        }
+        String[] ladder = ladderArg.split(",");
+        runOnce(knob, Integer.parseInt(ladder[0].trim()), seed, fixedKnobs); // 预热JIT，不输出
+        ArrayList<String> phaseNameList = null;
+        long lastTotal = 0;
+        int lastSize = 0;
+        for (String sizeStr : ladder) {
+            int size = Integer.parseInt(sizeStr.trim());
+            PhaseProfiler profiler = runOnce(knob, size, seed, fixedKnobs);
+            ArrayList<PhaseProfiler.PhaseRecord> topList = new ArrayList<>();
+            for (PhaseProfiler.PhaseRecord record : profiler.getRecordList()) {
+                if (record.getDepth() == 0) {
+                    topList.add(record);
+                }
+            }
+            if (phaseNameList == null) {
+                phaseNameList = new ArrayList<>();
+                StringBuilder head = new StringBuilder(String.format("%-10s", knob));
+                for (PhaseProfiler.PhaseRecord record : topList) {
+                    phaseNameList.add(record.getName());
+                    head.append(String.format(" %16s", record.getName() + "(ms)"));
+                }
+                head.append(String.format(" %12s %8s", "total(ms)", "growth"));
+                System.out.println(head);
+            }
+            StringBuilder line = new StringBuilder(String.format("%-10d", size));
+            for (PhaseProfiler.PhaseRecord record : topList) {
+                line.append(String.format(" %16.2f", record.getTimeNs() / 1e6));
+            }
+            long total = profiler.getTotalTimeNs();
+            line.append(String.format(" %12.2f", total / 1e6));
+            if (lastSize > 0) {
+                line.append(String.format(" %8.2f", ((double) total / lastTotal) / ((double) size / lastSize)));
+            }
+            System.out.println(line);
+            lastTotal = total;
+            lastSize = size;
+        }
+    }
+
+    private static PhaseProfiler runOnce(String knob, int size, long seed, ArrayList<String> fixedKnobs)
+            throws InterruptedException {
+        SysYGenerator generator = new SysYGenerator(seed);
+        for (int i = 0; i < fixedKnobs.size(); i += 2) {
+            generator.setKnob(fixedKnobs.get(i), Integer.parseInt(fixedKnobs.get(i + 1)));
+        }
+        generator.setKnob(knob, size);
+        StringBuilder program = generator.generate();
+        PhaseProfiler profiler = new PhaseProfiler();
+        Thread compileThread = new Thread(null, () -> {
+            PhaseProfiler.setCurProfiler(profiler);
+            try {
+                Compiler.compile(program, Writer.nullWriter(), false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            PhaseProfiler.releaseCurProfiler();
+        }, "compile", STACK_SIZE);
+        compileThread.start();
+        compileThread.join();
+        return profiler;
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/*
+ * 按固定种子生成合法的SysY程序，用于压力测试与规模测试
+ * 各维度可单独调节：
+ *   funcNum   函数个数            stmtNum   每个函数的语句数
+ *   nestDepth if/while最大嵌套深度  globalNum 全局变量个数
+ *   arrLen    全局常量数组长度      printfNum main中连续printf的个数
+ * 生成的程序没有除零，所有循环都有界，可以直接运行
+ * 用法：java -cp out SysYGenerator [-seed n] [-func n] [-stmt n] [-depth n] [-global n] [-arr n] [-printf n] [-o file]
+ */
+public class SysYGenerator {
+    private Random random;
+    private int funcNum = 4;
+    private int stmtNum = 50;
+    private int nestDepth = 3;
+    private int globalNum = 8;
+    private int arrLen = 16;
+    private int printfNum = 4;
+    private int stmtLeft;
+    private StringBuilder program;
+
+    public SysYGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] argv) {
+        long seed = 2021;
+        String output = null;
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-seed")) {
+                seed = Long.parseLong(argv[i + 1]);
+            }
+        }
+        SysYGenerator generator = new SysYGenerator(seed);
+        for (int i = 0; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-o")) {
+                output = argv[i + 1];
+            } else if (!argv[i].equals("-seed")) {
+                generator.setKnob(argv[i].substring(1), Integer.parseInt(argv[i + 1]));
+            }
+        }
+        StringBuilder program = generator.generate();
+        if (output == null) {
+            System.out.print(program);
+        } else {
+            try (FileOutputStream outputStream = new FileOutputStream(output)) {
+                outputStream.write(program.toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public void setKnob(String name, int value) {
+        switch (name) {
+            case "func":
+                funcNum = value;
+                break;
+            case "stmt":
+                stmtNum = value;
+                break;
+            case "depth":
+                nestDepth = value;
+                break;
+            case "global":
+                globalNum = value;
+                break;
+            case "arr":
+                arrLen = value;
+                break;
+            case "printf":
+                printfNum = value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown knob: " + name);
+        }
+    }
+
+    public StringBuilder generate() {
+        program = new StringBuilder();
+        program.append("const int ARR_LEN = ").append(Math.max(arrLen, 1)).append(";\n");
+        program.append("const int carr[ARR_LEN] = {");
+        for (int i = 0; i < Math.max(arrLen, 1); i++) {
+            program.append(i == 0 ? "" : ", ").append(random.nextInt(100));
+        }
+        program.append("};\n");
+        program.append("int garr[ARR_LEN];\n");
+        for (int i = 0; i < globalNum; i++) {
+            program.append("int g").append(i).append(" = ").append(random.nextInt(50)).append(";\n");
+        }
+        for (int i = 0; i < funcNum; i++) {
+            genFunc(i);
+        }
+        genMain();
+        return program;
+    }
+
+    private void genFunc(int funcNo) {
+        program.append("int f").append(funcNo).append("(int p, int q) {\n");
+        program.append("    int a = p, b = q, c = ").append(random.nextInt(10)).append(";\n");
+        for (int i = 0; i < nestDepth; i++) {
+            program.append("    int w").append(i).append(" = 0;\n");
+        }
+        stmtLeft = stmtNum;
+        genNestChain(1, 0); // 保证每个函数至少有一条嵌套到nestDepth的链
+        while (stmtLeft > 0) {
+            genStmt(1, 0);
+        }
+        program.append("    return a;\n");
+        program.append("}\n");
+    }
+
+    private void genMain() {
+        program.append("int main() {\n");
+        program.append("    int t, p = 1, q = 2, a = 3, b = 4, c = 5;\n"); // printf中的表达式与函数体共用genExp
+        program.append("    t = getint();\n"); // getint()只能出现在赋值语句中
+        for (int i = 0; i < funcNum; i++) {
+            program.append("    t = t + f").append(i).append("(t % 7, ").append(i).append(");\n");
+        }
+        for (int i = 0; i < printfNum; i++) {
+            program.append("    printf(\"out").append(i).append(": %d %d\\n\", t, ")
+                    .append(genExp(2)).append(");\n");
+            program.append("    t = t / 3 + ").append(random.nextInt(10)).append(";\n");
+        }
+        program.append("    return 0;\n");
+        program.append("}\n");
+    }
+
+    private void indent(int level) {
+        for (int i = 0; i < level; i++) {
+            program.append("    ");
+        }
+    }
+
+    private void genNestChain(int level, int depth) {
+        if (depth >= nestDepth) {
+            genAssign(level);
+            return;
+        }
+        if (depth % 2 == 0) {
+            genWhileHead(level, depth);
+            genNestChain(level + 1, depth + 1);
+        } else {
+            indent(level);
+            program.append("if (").append(genCond()).append(") {\n");
+            genNestChain(level + 1, depth + 1);
+        }
+        indent(level);
+        program.append("}\n");
+    }
+
+    private void genStmt(int level, int depth) {
+        int choice = random.nextInt(10);
+        if (choice < 2 && depth < nestDepth && stmtLeft > 3) {
+            indent(level);
+            program.append("if (").append(genCond()).append(") {\n");
+            genBody(level + 1, depth + 1);
+            indent(level);
+            if (random.nextBoolean()) {
+                program.append("} else {\n");
+                genBody(level + 1, depth + 1);
+                indent(level);
+            }
+            program.append("}\n");
+        } else if (choice < 3 && depth < nestDepth && stmtLeft > 3) {
+            genWhileHead(level, depth);
+            genBody(level + 1, depth + 1);
+            indent(level);
+            program.append("}\n");
+        } else if (choice < 4) {
+            indent(level);
+            program.append("garr[").append(random.nextInt(Math.max(arrLen, 1))).append("] = ")
+                    .append(genExp(2)).append(";\n");
+            stmtLeft--;
+        } else {
+            genAssign(level);
+        }
+    }
+
+    private void genBody(int level, int depth) {
+        int bodyLen = 1 + random.nextInt(4);
+        for (int i = 0; i < bodyLen && stmtLeft > 0; i++) {
+            genStmt(level, depth);
+        }
+    }
+
+    // 循环计数器在进入循环前清零，循环体第一句自增，保证循环次数有界
+    private void genWhileHead(int level, int depth) {
+        indent(level);
+        program.append("w").append(depth).append(" = 0;\n");
+        indent(level);
+        program.append("while (w").append(depth).append(" < ").append(1 + random.nextInt(3)).append(") {\n");
+        indent(level + 1);
+        program.append("w").append(depth).append(" = w").append(depth).append(" + 1;\n");
+        stmtLeft -= 2;
+    }
+
+    private void genAssign(int level) {
+        String[] lValues = {"a", "b", "c"};
+        indent(level);
+        program.append(lValues[random.nextInt(lValues.length)]).append(" = ").append(genExp(3)).append(";\n");
+        stmtLeft--;
+    }
+
+    private String genCond() {
+        String[] relOps = {"<", ">", "<=", ">=", "==", "!="};
+        String cond = genExp(1) + " " + relOps[random.nextInt(relOps.length)] + " " + genExp(1);
+        int choice = random.nextInt(4);
+        if (choice == 0) {
+            cond = cond + " && " + genExp(1) + " " + relOps[random.nextInt(relOps.length)] + " " + genExp(1);
+        } else if (choice == 1) {
+            cond = cond + " || !" + genPrimary();
+        }
+        return cond;
+    }
+
+    private String genExp(int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return genPrimary();
+        }
+        int choice = random.nextInt(6);
+        switch (choice) {
+            case 0:
+                return genExp(depth - 1) + " + " + genExp(depth - 1);
+            case 1:
+                return genExp(depth - 1) + " - " + genExp(depth - 1);
+            case 2:
+                return genExp(depth - 1) + " * " + genPrimary();
+            case 3:
+                return "(" + genExp(depth - 1) + ") / " + (1 + random.nextInt(9)); // 除数为非零常数
+            case 4:
+                return "(" + genExp(depth - 1) + ") % " + (2 + random.nextInt(8));
+            default:
+                return "-(" + genExp(depth - 1) + ")";
+        }
+    }
+
+    private String genPrimary() {
+        int choice = random.nextInt(7);
+        switch (choice) {
+            case 0:
+                return Integer.toString(random.nextInt(100));
+            case 1:
+                return "p";
+            case 2:
+                return "q";
+            case 3:
+                return globalNum > 0 ? "g" + random.nextInt(globalNum) : "c";
+            case 4:
+                return "carr[" + random.nextInt(Math.max(arrLen, 1)) + "]";
+            case 5:
+                return "garr[" + random.nextInt(Math.max(arrLen, 1)) + "]";
+            default:
+                return random.nextBoolean() ? "a" : "b";
+        }
+    }
+}
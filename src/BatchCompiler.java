@@ -0,0 +1,89 @@
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * 批量编译：目录下所有testfile*.txt并行编译，结果写在同目录下，testfileN.txt -> mipsN.txt
+ * 用法：Compiler -batch <dir> [线程数] [-virtual]
+ */
+public class BatchCompiler {
+    public static final String INPUT_PREFIX = "testfile", OUTPUT_PREFIX = "mips", SUFFIX = ".txt";
+    private File dir;
+    private int threadNum;
+    private boolean useVirtualThread;
+
+    public BatchCompiler(File dir, int threadNum, boolean useVirtualThread) {
+        this.dir = dir;
+        this.threadNum = threadNum;
+        this.useVirtualThread = useVirtualThread;
+    }
+
+    public static boolean isSourceFile(File file) {
+        String name = file.getName();
+        return file.isFile() && name.startsWith(INPUT_PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    public static File outputFileOf(File sourceFile) {
+        String name = sourceFile.getName();
+        return new File(sourceFile.getParentFile(), OUTPUT_PREFIX + name.substring(INPUT_PREFIX.length()));
+    }
+
+    public ArrayList<CompileTask> buildTasks() {
+        ArrayList<CompileTask> taskList = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return taskList;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (isSourceFile(file)) {
+                taskList.add(new CompileTask(file, outputFileOf(file)));
+            }
+        }
+        return taskList;
+    }
+
+    // JDK 21之前没有虚拟线程，此时退回到固定大小的平台线程池
+    private ExecutorService buildExecutor() {
+        if (useVirtualThread) {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads are not available, using " + threadNum + " platform threads");
+            }
+        }
+        return Executors.newFixedThreadPool(threadNum);
+    }
+
+    // 返回编译失败的文件数
+    public int compileAll() {
+        ArrayList<CompileTask> taskList = buildTasks();
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = buildExecutor();
+        ArrayList<Future<Boolean>> futureList = new ArrayList<>();
+        for (CompileTask task : taskList) {
+            futureList.add(executor.submit(task));
+        }
+        int failNum = 0;
+        for (int i = 0; i < taskList.size(); ++i) {
+            try {
+                if (!futureList.get(i).get()) {
+                    ++failNum;
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                ++failNum;
+            }
+        }
+        executor.shutdown();
+        System.out.println("Compiled " + (taskList.size() - failNum) + "/" + taskList.size() +
+                " files in " + (System.currentTimeMillis() - startTime) + " ms");
+        return failNum;
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * 常驻编译服务：JVM只启动一次，之后每个连接就是一次编译请求
+ * 协议：客户端发送完整源程序（UTF-8）后关闭输出方向（半关闭），服务端返回mips.txt的内容后关闭连接
+ * 中间代码中散列表的遍历顺序只取决于标签编号和插入顺序，同一服务多次编译同一程序的结果逐字节相同
+ * 例：nc -N 127.0.0.1 10086 < testfile.txt > mips.txt
+ */
+public class CompileServer {
+    public static final int DEFAULT_PORT = 10086;
+    private int port;
+
+    public CompileServer(int port) {
+        this.port = port;
+    }
+
+    public void serve() {
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Compile server listening on 127.0.0.1:" + serverSocket.getLocalPort());
+            while (true) {
+                try (Socket socket = serverSocket.accept()) {
+                    handleRequest(socket);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void handleRequest(Socket socket) throws IOException {
+        // 请求与响应都按UTF-8编解码，不随服务所在机器的默认字符集变化
+        StringBuilder myProgram = new StringBuilder(
+                new String(readAll(socket.getInputStream()), StandardCharsets.UTF_8));
+        Writer mipsWriter = new BufferedWriter(
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        try {
+            Compiler.compile(myProgram, mipsWriter, false); // 边生成边发送，注释由词法分析跳过
+        } catch (RuntimeException e) { // 单个请求编译失败不能让服务退出
+            e.printStackTrace();
+            mipsWriter.append("\n# compile failed: ").append(e.toString()).append("\n");
+        }
+        mipsWriter.flush();
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int len;
+        while ((len = input.read(chunk)) != -1) {
+            buffer.write(chunk, 0, len);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+import IR.IRLabelManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.Callable;
+
+// 一次独立的编译：输入文件 -> 输出文件。编译所需的全部状态都在执行期间创建，标签管理器只绑定在当前线程上
+public class CompileTask implements Callable<Boolean> {
+    private File inputFile;
+    private File outputFile;
+    private long costTime; // 毫秒
+
+    public CompileTask(File inputFile, File outputFile) {
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.costTime = 0;
+    }
+
+    public File getInputFile() {
+        return inputFile;
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    public long getCostTime() {
+        return costTime;
+    }
+
+    @Override
+    public Boolean call() {
+        long startTime = System.currentTimeMillis();
+        try {
+            CharSequence myProgram = new ReadFile(inputFile.getPath()).mapFile();
+            try (Writer mipsWriter = new BufferedWriter(new FileWriter(outputFile))) {
+                Compiler.compile(myProgram, mipsWriter, false);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to compile " + inputFile.getPath());
+            e.printStackTrace();
+            return false;
+        } finally {
+            IRLabelManager.releaseIRLabelManager();
+            costTime = System.currentTimeMillis() - startTime;
+        }
+    }
+}
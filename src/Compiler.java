@@ -1,23 +1,83 @@
-import Exceptions.LexicalException;
+import Exceptions.IRParseException;
 import Exceptions.SyntaxException;
 import IR.CompUnitSimplifyer;
+import IR.IRBinaryReader;
+import IR.IRBinaryWriter;
+import IR.IRLabelManager;
+import IR.IRModule;
+import IR.IRParser;
 import IR.IRTranslater;
 import MIPSTranslatePackage.IRProcessor;
 import Optimizer.IROptimizer;
-import SyntaxClasses.SyntaxClass;
-import SyntaxClasses.Token;
+import Profiler.PhaseProfiler;
+import SyntaxClasses.SyntaxTree;
 
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
 
 public class Compiler {
+    private static ForkJoinPool parsePool = null; // 并行分析各FuncDef的线程池，为null时顺序分析
+    private static String irBinaryOutput = null; // 不为null时把优化后的中间代码以二进制格式写到该文件
+    private static String irTextOutput = null; // 不为null时把优化前的中间代码以文本格式写到该文件
+
     public static void main(String[] argv) {
         boolean isDebug = false;
 
+        if (argv.length > 0 && argv[0].equals("-server")) { // 常驻编译服务模式
+            int port = (argv.length > 1) ? Integer.parseInt(argv[1]) : CompileServer.DEFAULT_PORT;
+            CompileServer server = new CompileServer(port);
+            server.serve();
+            return;
+        }
+        if (argv.length > 1 && argv[0].equals("-batch")) { // 批量并行编译一个目录
+            int threadNum = Runtime.getRuntime().availableProcessors();
+            boolean useVirtualThread = false;
+            for (int i = 2; i < argv.length; ++i) {
+                if (argv[i].equals("-virtual")) {
+                    useVirtualThread = true;
+                } else {
+                    threadNum = Integer.parseInt(argv[i]);
+                }
+            }
+            BatchCompiler batchCompiler = new BatchCompiler(new File(argv[1]), threadNum, useVirtualThread);
+            int failNum = batchCompiler.compileAll();
+            System.exit(failNum == 0 ? 0 : 1);
+        }
+        if (argv.length > 0 && argv[0].equals("-watch")) { // 监视模式：testfile.txt每次改动后增量编译到mips.txt
+            long interval = (argv.length > 1) ? Long.parseLong(argv[1]) : 200;
+            new IncrementalCompiler().watch(new File("testfile.txt"), new File("mips.txt"), interval);
+            return;
+        }
+        if (argv.length > 1 && argv[0].equals("-from-ir")) { // 读入中间代码文件（二进制或文本），只做目标代码生成
+            try (Writer mipsWriter = new BufferedWriter(new FileWriter("mips.txt"))) {
+                IRModule iRModule = readIRFile(argv[1]);
+                new MIPSTranslatorWithReg(iRModule).iRTranslate(mipsWriter);
+            } catch (IOException | IRParseException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (argv.length > 1 && argv[0].equals("-opt-ir")) { // 读入中间代码文件，只做优化，结果以文本格式写出
+            String optOutput = (argv.length > 2) ? argv[2] : "IR_Opt.txt";
+            try (FileOutputStream irOutput = new FileOutputStream(optOutput)) {
+                IRModule iRModule = readIRFile(argv[1]);
+                new IROptimizer(iRModule).doOptimize();
+                irOutput.write(iRModule.outputIR().toString().getBytes());
+            } catch (IOException | IRParseException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         /*PrintStream ps = null;
         try {
             ps = new PrintStream(new FileOutputStream("mips.txt"));
@@ -26,41 +86,128 @@ public class Compiler {
         }
         System.setOut(ps);*/
 
+        String profileOutput = null; // -profile <report.json>：输出各阶段耗时与内存分配统计
+        for (int i = 0; i < argv.length - 1; ++i) {
+            if (argv[i].equals("-profile")) {
+                profileOutput = argv[i + 1];
+            } else if (argv[i].equals("-parse-threads")) { // -parse-threads <n>：用n个线程并行分析各函数定义
+                int parseThreadNum = Integer.parseInt(argv[i + 1]);
+                parsePool = (parseThreadNum > 1) ? new ForkJoinPool(parseThreadNum) : null;
+            } else if (argv[i].equals("-emit-ir")) { // -emit-ir <file>：另外保存优化后的中间代码，供-from-ir使用
+                irBinaryOutput = argv[i + 1];
+            } else if (argv[i].equals("-dump-ir")) { // -dump-ir <file>：另外保存优化前的中间代码文本，供-opt-ir使用
+                irTextOutput = argv[i + 1];
+            }
+        }
+        PhaseProfiler profiler = null;
+        if (profileOutput != null) {
+            profiler = new PhaseProfiler();
+            PhaseProfiler.setCurProfiler(profiler);
+        }
+
         ReadFile readFile;
         if (!isDebug) {
             readFile = new ReadFile("testfile.txt");
         } else {
                 readFile = new ReadFile("A/testfile25.txt");
         }
+        PhaseProfiler.beginPhase("ReadFile", -1, -1);
+        CharSequence myProgram = readFile.mapFile();
+        PhaseProfiler.endPhase(-1, -1);
+        //System.out.println(mipsStr);
+        //StringBuilder irStr = irTranslater.outputIR();
+        try (Writer mipsWriter = new BufferedWriter(new FileWriter("mips.txt"))) {
+            compile(myProgram, mipsWriter, isDebug); // 目标代码边生成边写出
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if (profiler != null) {
+            PhaseProfiler.releaseCurProfiler();
+            try (FileOutputStream profileStream = new FileOutputStream(profileOutput)) {
+                profileStream.write(profiler.toJson(isDebug ? "A/testfile25.txt" : "testfile.txt").toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // 读入中间代码文件：以IRBinaryWriter.MAGIC开头的是二进制格式，否则按IRParser的文本格式解析
+    private static IRModule readIRFile(String path) throws IOException, IRParseException {
+        File irFile = new File(path);
+        try (DataInputStream irInput = new DataInputStream(new FileInputStream(irFile))) {
+            if (irFile.length() >= 4 && irInput.readInt() == IRBinaryWriter.MAGIC) {
+                return IRBinaryReader.read(irFile);
+            }
+        }
+        return new IRParser(new ReadFile(path).mapFile()).parse();
+    }
+
+    // 完成一次完整编译：源程序 -> MIPS汇编。每次编译的状态互不影响，可在同一JVM中反复调用
+    public static StringBuilder compile(CharSequence myProgram, boolean isDebug) {
+        IRTranslater irTranslater = compileToIR(myProgram, isDebug);
+        PhaseProfiler.beginPhase("MIPSTranslate", irTranslater.getIRModule().getInstNum(), -1);
+        //MIPSTranslater mipsTranslater = new MIPSTranslater(irTranslater);
+        MIPSTranslatorWithReg mipsTranslater = new MIPSTranslatorWithReg(irTranslater);
+        StringBuilder mipsStr = mipsTranslater.iRTranslate();
+        PhaseProfiler.endPhase(irTranslater.getIRModule().getInstNum(), -1);
+        return mipsStr;
+    }
+
+    // 同上，但目标代码每生成完一个函数就写入mipsWriter，不在内存中保留整个程序的汇编
+    public static void compile(CharSequence myProgram, Writer mipsWriter, boolean isDebug) throws IOException {
+        IRTranslater irTranslater = compileToIR(myProgram, isDebug);
+        if (irBinaryOutput != null) {
+            PhaseProfiler.beginPhase("IRBinaryWrite", irTranslater.getIRModule().getInstNum(), -1);
+            try (FileOutputStream irOutput = new FileOutputStream(irBinaryOutput)) {
+                new IRBinaryWriter(irOutput).write(irTranslater.getIRModule());
+            }
+            PhaseProfiler.endPhase(irTranslater.getIRModule().getInstNum(), -1);
+        }
+        PhaseProfiler.beginPhase("MIPSTranslate", irTranslater.getIRModule().getInstNum(), -1);
+        MIPSTranslatorWithReg mipsTranslater = new MIPSTranslatorWithReg(irTranslater);
+        mipsTranslater.iRTranslate(mipsWriter);
+        PhaseProfiler.endPhase(irTranslater.getIRModule().getInstNum(), -1);
+    }
+
+    // 前端与中端：源程序 -> 优化后的中间代码
+    public static IRTranslater compileToIR(CharSequence myProgram, boolean isDebug) {
+        IRLabelManager.resetIRLabelManager(); // 标签编号从0开始，且不保留上一次编译的标签
         LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer();
         SyntaxAnalyzer syntaxAnalyzer = new SyntaxAnalyzer();
         ArrayList<Error> errorList = new ArrayList<>();
         lexicalAnalyzer.setErrorList(errorList);
         syntaxAnalyzer.setErrorList(errorList);
-        StringBuilder myProgram = readFile.readFile();
         lexicalAnalyzer.setProgramStr(myProgram);
-        try {
-            lexicalAnalyzer.lexicalAnalyze();
-        } catch (LexicalException e) {
-            e.printStackTrace();
-        }
-        LinkedList<Token> tokenList = lexicalAnalyzer.getTokenList();
-        /*for (Token token : tokenList) {
-            System.out.println(token);
-        }*/
-        syntaxAnalyzer.setTokenList(tokenList);
+        // 词法分析由语法分析按需驱动，两者交替进行，只保留当前顶层成分的Token，因此计入同一阶段
+        TokenBuffer tokenBuffer = lexicalAnalyzer.streamTokens();
+        PhaseProfiler.beginPhase("SyntaxAnalyze", -1, -1);
+        syntaxAnalyzer.setTokenBuffer(tokenBuffer);
+        syntaxAnalyzer.setParsePool(parsePool);
         try {
             syntaxAnalyzer.syntaxAnalyze();
         } catch (SyntaxException e) {
-            System.out.println(tokenList.get(syntaxAnalyzer.getPos()));
+            System.out.println(tokenBuffer.getToken(syntaxAnalyzer.getPos()));
             e.printStackTrace();
         }
-        SyntaxClass compUnit = syntaxAnalyzer.getGlobalCompUnit();
-        CompUnitSimplifyer.compUnitSimplify(compUnit);
+        PhaseProfiler.endPhase(-1, -1);
+        SyntaxTree syntaxTree = syntaxAnalyzer.getSyntaxTree();
+        PhaseProfiler.beginPhase("CompUnitSimplify", -1, -1);
+        new CompUnitSimplifyer(syntaxTree).compUnitSimplify();
+        PhaseProfiler.endPhase(-1, -1);
 
-        IRTranslater irTranslater = new IRTranslater(compUnit);
+        PhaseProfiler.beginPhase("IRTranslate", -1, -1);
+        IRTranslater irTranslater = new IRTranslater(syntaxTree);
         irTranslater.compUnitTrans();
+        PhaseProfiler.endPhase(irTranslater.getIRModule().getInstNum(), -1);
 
+        if (irTextOutput != null) {
+            try (FileOutputStream irOutput = new FileOutputStream(irTextOutput)) {
+                irOutput.write(irTranslater.getIRModule().outputIR().toString().getBytes());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
         if (isDebug) {
             StringBuilder irStr = irTranslater.outputIR(irTranslater.getIRList());
             File irFile = new File("IR.txt");
@@ -74,8 +221,10 @@ public class Compiler {
             }
         }
 
+        PhaseProfiler.beginPhase("IROptimize", irTranslater.getIRModule().getInstNum(), -1);
         IROptimizer optimizer = new IROptimizer(irTranslater);
         optimizer.doOptimize();
+        PhaseProfiler.endPhase(irTranslater.getIRModule().getInstNum(), optimizer.getBlockList().size());
 
 
         if (isDebug) {
@@ -133,25 +282,13 @@ public class Compiler {
 
         }*/
 
-        //MIPSTranslater mipsTranslater = new MIPSTranslater(irTranslater);
-        MIPSTranslatorWithReg mipsTranslater = new MIPSTranslatorWithReg(irTranslater);
-        StringBuilder mipsStr = mipsTranslater.iRTranslate();
-
-        //System.out.println(mipsStr);
-        //StringBuilder irStr = irTranslater.outputIR();
-        File mipsFile = new File("mips.txt");
-        try {
-            FileOutputStream irOutput = new FileOutputStream(mipsFile);
-            irOutput.write(mipsStr.toString().getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
         //Collections.sort(errorList);
         /*for (Error err : errorList) {
             System.out.println(err);
         }*/
-        /*StringBuilder afterStrBuilder = IR.CompUnitSimplifyer.printUnit(compUnit);
+        /*StringBuilder afterStrBuilder = new IR.CompUnitSimplifyer(syntaxTree).printUnit(syntaxTree.getRoot());
         System.out.println(afterStrBuilder);*/
-        // System.out.println(compUnit);
+        // System.out.println(syntaxTree);
+        return irTranslater;
     }
 }
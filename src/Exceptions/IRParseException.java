@@ -0,0 +1,14 @@
+package Exceptions;
+
+public class IRParseException extends Exception {
+    private int lineNum;
+
+    public IRParseException(int lineNum, String message) {
+        super("line " + lineNum + ": " + message);
+        this.lineNum = lineNum;
+    }
+
+    public int getLineNum() {
+        return lineNum;
+    }
+}
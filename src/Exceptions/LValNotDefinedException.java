@@ -1,21 +1,19 @@
 package Exceptions;
 
-import SyntaxClasses.SyntaxClass;
-
 public class LValNotDefinedException extends Exception{
     private int lineNum;
-    private SyntaxClass lVal;
+    private int lVal; // 已建好的LVal结点在语法树中的下标
 
     public LValNotDefinedException(int lineNum) {
         super();
         this.lineNum = lineNum;
     }
 
-    public SyntaxClass getlVal() {
+    public int getlVal() {
         return lVal;
     }
 
-    public void setlVal(SyntaxClass lVal) {
+    public void setlVal(int lVal) {
         this.lVal = lVal;
     }
 
@@ -1,25 +1,26 @@
 package IR;
 
-import Symbols.SymbolTable;
 import Symbols.VarSymbol;
-import SyntaxClasses.ConstIntToken;
 import SyntaxClasses.SyntaxClass;
+import SyntaxClasses.SyntaxTree;
 import SyntaxClasses.Token;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 public class CompUnitSimplifyer {
-    private SyntaxClass compUnit;
+    private SyntaxTree tree;
+    private WorkStack workStack; // 遍历和表达式求值用的显式栈
 
-    public CompUnitSimplifyer(SyntaxClass compUnit) {
-        this.compUnit = compUnit;
+    public CompUnitSimplifyer(SyntaxTree tree) {
+        this.tree = tree;
+        this.workStack = new WorkStack();
     }
 
-    public static void compUnitSimplify(SyntaxClass compUnit) {
-        ArrayList<SyntaxClass> sonList = compUnit.getSonNodeList();
-        for (SyntaxClass syntaxClass : sonList) {
-            if (syntaxClass.getSyntaxType() == SyntaxClass.DECL) {
+    public void compUnitSimplify() {
+        int compUnit = tree.getRoot();
+        for (int i = 0; i < tree.getSonNum(compUnit); i++) {
+            int syntaxClass = tree.getSon(compUnit, i);
+            if (tree.getSyntaxType(syntaxClass) == SyntaxClass.DECL) {
                 globalDeclTableFill(syntaxClass);
             } else {
                 constCal(syntaxClass);
@@ -27,84 +28,90 @@ public class CompUnitSimplifyer {
         }
     }
 
-    public static void constCal(SyntaxClass curUnit) { // 符号表常量填充+常量折叠
-        ArrayList<SyntaxClass> sonList = curUnit.getSonNodeList();
-        for (SyntaxClass syntaxClass : sonList) {
-            /*if (syntaxClass.getSyntaxType() == SyntaxClass.DECL) {
+    public void constCal(int curUnit) { // 符号表常量填充+常量折叠
+        // 前序遍历，用显式栈代替递归，子结点倒序压栈以保持从左到右的处理顺序
+        int base = workStack.size();
+        pushSons(curUnit);
+        while (workStack.size() > base) {
+            int syntaxClass = workStack.topNode();
+            workStack.pop();
+            /*if (tree.getSyntaxType(syntaxClass) == SyntaxClass.DECL) {
                 declTableFill(syntaxClass);
             }*/
-            if (syntaxClass.getSyntaxType() == SyntaxClass.CONSTDEF) {
+            if (tree.getSyntaxType(syntaxClass) == SyntaxClass.CONSTDEF) {
                 constDefTableFill(syntaxClass);
-            } else if (syntaxClass.getSyntaxType() == SyntaxClass.VARDEF) {
+            } else if (tree.getSyntaxType(syntaxClass) == SyntaxClass.VARDEF) {
                 varDefTableFill(syntaxClass);
-            } else if (syntaxClass.getSyntaxType() == SyntaxClass.CONSTEXP) {
+            } else if (tree.getSyntaxType(syntaxClass) == SyntaxClass.CONSTEXP) {
                 constExpCal(syntaxClass);
-            } else if (syntaxClass.getSyntaxType() == SyntaxClass.FUNCFPARAM) {
+            } else if (tree.getSyntaxType(syntaxClass) == SyntaxClass.FUNCFPARAM) {
                 fParamTableFill(syntaxClass);
-            } else if (syntaxClass.getSyntaxType() == SyntaxClass.EXP) {
+            } else if (tree.getSyntaxType(syntaxClass) == SyntaxClass.EXP) {
                 expCal(syntaxClass);
-            } else if (syntaxClass.getSyntaxType() == SyntaxClass.ADDEXP) {
-                addCal(syntaxClass);
+            } else if (tree.getSyntaxType(syntaxClass) == SyntaxClass.RELEXP) {
+                relCal(syntaxClass);
             } else {
-                constCal(syntaxClass);
+                pushSons(syntaxClass);
             }
         }
     }
 
-    public static void globalDeclTableFill(SyntaxClass decl) {
-        SyntaxClass subDecl = decl.getSonNodeList().get(0);
-        ArrayList<SyntaxClass> sonList = subDecl.getSonNodeList();
-        int sonListLen = sonList.size();
-        if (subDecl.getSyntaxType() == SyntaxClass.CONSTDECL) {
+    private void pushSons(int curUnit) {
+        for (int i = tree.getSonNum(curUnit) - 1; i >= 0; i--) {
+            workStack.push(tree.getSon(curUnit, i), 0);
+        }
+    }
+
+    public void globalDeclTableFill(int decl) {
+        int subDecl = tree.getSon(decl, 0);
+        int sonListLen = tree.getSonNum(subDecl);
+        if (tree.getSyntaxType(subDecl) == SyntaxClass.CONSTDECL) {
             for (int i = 2; i < sonListLen - 1; i += 2) { // 最后有分号，长度要减1
-                constDefTableFill(sonList.get(i));
+                constDefTableFill(tree.getSon(subDecl, i));
             }
         } else { // 全局变量
             for (int i = 1; i < sonListLen - 1; i += 2) { // 最后有分号，长度要减1
-                globalVarDefTableFill(sonList.get(i));
+                globalVarDefTableFill(tree.getSon(subDecl, i));
             }
         }
     }
 
-    public static void globalVarDefTableFill(SyntaxClass varDef) {
-        ArrayList<SyntaxClass> sonList = varDef.getSonNodeList();
-        Token ident = (Token) sonList.get(0);
-        VarSymbol identSymbol = (VarSymbol) varDef.getCurEnv().
-                globalLookup(ident.getTokenContext(), 0);
+    public void globalVarDefTableFill(int varDef) {
+        VarSymbol identSymbol = tree.getVarSymbol(varDef); // 定义时建立的符号
         if (identSymbol.getDimType() == 0) { // 单独常数
-            if (sonList.size() == 1) { // 默认为0
+            if (tree.getSonNum(varDef) == 1) { // 默认为0
                 identSymbol.set0DimVarValue(0);
             } else {
-                SyntaxClass constInitVal = sonList.get(2);
-                SyntaxClass constExp = constInitVal.getSonNodeList().get(0);
+                int constInitVal = tree.getSon(varDef, 2);
+                int constExp = tree.getSon(constInitVal, 0);
                 constExpCal(constExp);
-                identSymbol.set0DimVarValue(constExp.getConstValue());
+                identSymbol.set0DimVarValue(tree.getConstValue(constExp));
             }
         } else { // 数组
-            SyntaxClass dim1LengthExp = sonList.get(2);
+            int dim1LengthExp = tree.getSon(varDef, 2);
             constExpCal(dim1LengthExp);
-            int dim1Length = dim1LengthExp.getConstValue();
+            int dim1Length = tree.getConstValue(dim1LengthExp);
             if (identSymbol.getDimType() == 1) { // 一维
                 identSymbol.setDimLengthByDim(0, dim1Length); // 设置长度
                 ArrayList<Integer> constInitValArr;
-                if (sonList.size() == 4) { // 无初始化，全部置0
+                if (tree.getSonNum(varDef) == 4) { // 无初始化，全部置0
                     constInitValArr = new ArrayList<>();
                     for (int i = 0; i < dim1Length; ++i) {
                         constInitValArr.add(0);
                     }
                 } else { // 有初始化
-                    SyntaxClass constInitVal = sonList.get(5);
+                    int constInitVal = tree.getSon(varDef, 5);
                     constInitValArr = oneDimConstInitValArr(constInitVal);
                 }
                 identSymbol.set1DimVarValue(constInitValArr, dim1Length);
             } else { // 二维
-                SyntaxClass dim0LengthExp = sonList.get(5);
+                int dim0LengthExp = tree.getSon(varDef, 5);
                 constExpCal(dim0LengthExp);
-                int dim0Length = dim0LengthExp.getConstValue();
+                int dim0Length = tree.getConstValue(dim0LengthExp);
                 identSymbol.setDimLengthByDim(1, dim1Length); // 设置长度
                 identSymbol.setDimLengthByDim(0, dim0Length);
                 ArrayList<ArrayList<Integer>> constInitValArr = new ArrayList<>();
-                if (sonList.size() == 7) { // 无初始化
+                if (tree.getSonNum(varDef) == 7) { // 无初始化
                     for (int i = 0; i < dim1Length; ++i) {
                         ArrayList<Integer> globalInitArr = new ArrayList<>();
                         for (int j = 0; j < dim0Length; ++j) {
@@ -113,10 +120,9 @@ public class CompUnitSimplifyer {
                         constInitValArr.add(globalInitArr);
                     }
                 } else {
-                    SyntaxClass constInitVal = sonList.get(8);
-                    ArrayList<SyntaxClass> initSonList = constInitVal.getSonNodeList();
-                    for (int i = 1; i < initSonList.size() - 1; i += 2) {
-                        constInitValArr.add(oneDimConstInitValArr(initSonList.get(i)));
+                    int constInitVal = tree.getSon(varDef, 8);
+                    for (int i = 1; i < tree.getSonNum(constInitVal) - 1; i += 2) {
+                        constInitValArr.add(oneDimConstInitValArr(tree.getSon(constInitVal, i)));
                     }
                 }
                 identSymbol.set2DimVarValue(constInitValArr, dim1Length, dim0Length);
@@ -124,451 +130,272 @@ public class CompUnitSimplifyer {
         }
     }
 
-    public static void constDefTableFill(SyntaxClass constDef) {
-        ArrayList<SyntaxClass> sonList = constDef.getSonNodeList();
-        Token ident = (Token) sonList.get(0);
-        VarSymbol identSymbol = (VarSymbol) constDef.getCurEnv().
-                globalLookup(ident.getTokenContext(), 0);
+    public void constDefTableFill(int constDef) {
+        VarSymbol identSymbol = tree.getVarSymbol(constDef); // 定义时建立的符号
         if (identSymbol.getDimType() == 0) { // 单独常数
-            SyntaxClass constInitVal = sonList.get(2);
-            SyntaxClass constExp = constInitVal.getSonNodeList().get(0);
+            int constInitVal = tree.getSon(constDef, 2);
+            int constExp = tree.getSon(constInitVal, 0);
             constExpCal(constExp);
-            identSymbol.set0DimConstValue(constExp.getConstValue());
+            identSymbol.set0DimConstValue(tree.getConstValue(constExp));
         } else { // 数组
-            SyntaxClass dim1LengthExp = sonList.get(2);
+            int dim1LengthExp = tree.getSon(constDef, 2);
             constExpCal(dim1LengthExp);
-            int dim1Length = dim1LengthExp.getConstValue();
+            int dim1Length = tree.getConstValue(dim1LengthExp);
             if (identSymbol.getDimType() == 1) { // 一维
-                SyntaxClass constInitVal = sonList.get(5);
+                int constInitVal = tree.getSon(constDef, 5);
                 identSymbol.setDimLengthByDim(0, dim1Length); // 设置长度
                 ArrayList<Integer> constInitValArr = oneDimConstInitValArr(constInitVal);
                 identSymbol.set1DimConstValue(constInitValArr, dim1Length);
             } else { // 二维
-                SyntaxClass dim0LengthExp = sonList.get(5);
+                int dim0LengthExp = tree.getSon(constDef, 5);
                 constExpCal(dim0LengthExp);
-                int dim0Length = dim0LengthExp.getConstValue();
+                int dim0Length = tree.getConstValue(dim0LengthExp);
                 identSymbol.setDimLengthByDim(1, dim1Length); // 设置长度
                 identSymbol.setDimLengthByDim(0, dim0Length);
-                SyntaxClass constInitVal = sonList.get(8);
+                int constInitVal = tree.getSon(constDef, 8);
                 ArrayList<ArrayList<Integer>> constInitValArr = new ArrayList<>();
-                ArrayList<SyntaxClass> initSonList = constInitVal.getSonNodeList();
-                for (int i = 1; i < initSonList.size() - 1; i += 2) {
-                    constInitValArr.add(oneDimConstInitValArr(initSonList.get(i)));
+                for (int i = 1; i < tree.getSonNum(constInitVal) - 1; i += 2) {
+                    constInitValArr.add(oneDimConstInitValArr(tree.getSon(constInitVal, i)));
                 }
                 identSymbol.set2DimConstValue(constInitValArr, dim1Length, dim0Length);
             }
         }
     }
 
-    public static ArrayList<Integer> oneDimConstInitValArr(SyntaxClass constInitVal) {
-        ArrayList<SyntaxClass> sonList = constInitVal.getSonNodeList();
+    public ArrayList<Integer> oneDimConstInitValArr(int constInitVal) {
         ArrayList<Integer> initValArr = new ArrayList<>();
-        for (int i = 1; i < sonList.size() - 1; i += 2) {
-            SyntaxClass sonInitVal = sonList.get(i);
-            SyntaxClass sonConstExp = sonInitVal.getSonNodeList().get(0);
+        for (int i = 1; i < tree.getSonNum(constInitVal) - 1; i += 2) {
+            int sonInitVal = tree.getSon(constInitVal, i);
+            int sonConstExp = tree.getSon(sonInitVal, 0);
             constExpCal(sonConstExp);
-            initValArr.add(sonConstExp.getConstValue());
+            initValArr.add(tree.getConstValue(sonConstExp));
         }
         return initValArr;
     }
 
-    public static void varDefTableFill(SyntaxClass varDef) {
-        ArrayList<SyntaxClass> sonList = varDef.getSonNodeList();
-        Token ident = (Token) sonList.get(0);
-        VarSymbol identSymbol = (VarSymbol) varDef.getCurEnv().
-                globalLookup(ident.getTokenContext(), 0);
+    public void varDefTableFill(int varDef) {
+        VarSymbol identSymbol = tree.getVarSymbol(varDef); // 定义时建立的符号
         if (identSymbol.getDimType() > 0) {
-            SyntaxClass dim1LengthExp = sonList.get(2);
+            int dim1LengthExp = tree.getSon(varDef, 2);
             constExpCal(dim1LengthExp);
-            int dim1Length = dim1LengthExp.getConstValue();
+            int dim1Length = tree.getConstValue(dim1LengthExp);
             if (identSymbol.getDimType() == 1) { // 一维
                 identSymbol.setDimLengthByDim(0, dim1Length); // 设置长度
             } else { // 二维
-                SyntaxClass dim0LengthExp = sonList.get(5);
+                int dim0LengthExp = tree.getSon(varDef, 5);
                 constExpCal(dim0LengthExp);
-                int dim0Length = dim0LengthExp.getConstValue();
+                int dim0Length = tree.getConstValue(dim0LengthExp);
                 identSymbol.setDimLengthByDim(0, dim0Length);
                 identSymbol.setDimLengthByDim(1, dim1Length);
             }
         }
-        for (SyntaxClass subClass : sonList) {
-            if (subClass.getSyntaxType() == SyntaxClass.INITVAL) {
+        for (int i = 0; i < tree.getSonNum(varDef); i++) {
+            int subClass = tree.getSon(varDef, i);
+            if (tree.getSyntaxType(subClass) == SyntaxClass.INITVAL) {
                 constCal(subClass);
             }
         }
     }
 
     // 形参长度设置
-    public static void fParamTableFill(SyntaxClass funcFParam) {
-        ArrayList<SyntaxClass> sonList = funcFParam.getSonNodeList();
-        Token ident = (Token) sonList.get(1);
-        VarSymbol identSymbol = (VarSymbol) funcFParam.getCurEnv().
-                globalLookup(ident.getTokenContext(), 0);
+    public void fParamTableFill(int funcFParam) {
+        VarSymbol identSymbol = tree.getVarSymbol(funcFParam); // 定义时建立的符号
         if (identSymbol.getDimType() == 2) {
-            SyntaxClass dim0LengthExp = sonList.get(5); // BType Ident [][Exp]
+            int dim0LengthExp = tree.getSon(funcFParam, 5); // BType Ident [][Exp]
             constExpCal(dim0LengthExp);
-            int dim0Length = dim0LengthExp.getConstValue();
+            int dim0Length = tree.getConstValue(dim0LengthExp);
             identSymbol.setDimLengthByDim(0, dim0Length);
         }
     }
 
     // Exp，不一定是Const的
-    public static void expCal(SyntaxClass exp) {
-        if (exp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = exp.getSonNodeList();
-        SyntaxClass sonAddExp = expSonNodeList.get(0);
-        addCal(sonAddExp);
-        if (sonAddExp.isCalculated()) {
-            exp.setConstValue(sonAddExp.getConstValue());
-            exp.setCalculated(true);
-        }
+    public void expCal(int exp) {
+        expressionCal(exp, false);
     }
 
-    public static void addCal(SyntaxClass addExp) {
-        if (addExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = addExp.getSonNodeList();
-        if (expSonNodeList.size() == 1) {
-            SyntaxClass sonMulExp = expSonNodeList.get(0);
-            if (sonMulExp.getSyntaxType() == SyntaxClass.MULEXP) {
-                mulCal(sonMulExp);
-            } else {
-                addCal(sonMulExp);
-            }
-            if (sonMulExp.isCalculated()) {
-                addExp.setConstValue(sonMulExp.getConstValue());
-                addExp.setCalculated(true);
-            }
-        } else {
-            SyntaxClass sonAddExp = expSonNodeList.get(0);
-            addCal(sonAddExp);
-            SyntaxClass sonMulExp = expSonNodeList.get(2);
-            if (sonMulExp.getSyntaxType() == SyntaxClass.MULEXP) {
-                mulCal(sonMulExp);
-            } else {
-                addCal(sonMulExp);
-            }
-            if (sonAddExp.isCalculated() && sonMulExp.isCalculated()) {
-                Token symbolToken = (Token) expSonNodeList.get(1);
-                if (symbolToken.getTokenType() == Token.PLUS) {
-                    addExp.setConstValue(sonAddExp.getConstValue() + sonMulExp.getConstValue());
-                } else {
-                    addExp.setConstValue(sonAddExp.getConstValue() - sonMulExp.getConstValue());
-                }
-                addExp.setCalculated(true);
-            }
+    // RelExp的操作数是折叠后的算术表达式，沿左边的RelExp链向下，再从内到外求各层右边的操作数
+    public void relCal(int relExp) {
+        int base = workStack.size();
+        int curRelExp = relExp;
+        while (tree.getSonNum(curRelExp) != 1) {
+            workStack.push(curRelExp, 0);
+            curRelExp = tree.getSon(curRelExp, 0);
+        }
+        addCal(tree.getSon(curRelExp, 0));
+        while (workStack.size() > base) {
+            curRelExp = workStack.topNode();
+            workStack.pop();
+            addCal(tree.getSon(curRelExp, 2));
         }
     }
 
-    public static void mulCal(SyntaxClass mulExp) {
-        if (mulExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = mulExp.getSonNodeList();
-        if (expSonNodeList.size() == 1) {
-            SyntaxClass sonUnaryExp = expSonNodeList.get(0);
-            unaryCal(sonUnaryExp);
-            if (sonUnaryExp.isCalculated()) {
-                mulExp.setConstValue(sonUnaryExp.getConstValue());
-                mulExp.setCalculated(true);
-            }
-        } else {
-            SyntaxClass sonMulExp = expSonNodeList.get(0);
-            mulCal(sonMulExp);
-            SyntaxClass sonUnaryExp = expSonNodeList.get(2);
-            unaryCal(sonUnaryExp);
-            if (sonMulExp.isCalculated() && sonUnaryExp.isCalculated()) {
-                Token symbolToken = (Token) expSonNodeList.get(1);
-                if (symbolToken.getTokenType() == Token.MULT) {
-                    mulExp.setConstValue(sonMulExp.getConstValue() * sonUnaryExp.getConstValue());
-                } else if (symbolToken.getTokenType() == Token.DIV) {
-                    mulExp.setConstValue(sonMulExp.getConstValue() / sonUnaryExp.getConstValue());
-                } else {
-                    mulExp.setConstValue(sonMulExp.getConstValue() % sonUnaryExp.getConstValue());
-                }
-                mulExp.setCalculated(true);
-            }
-        }
+    // AddExp层的表达式，已折叠为二元运算、一元运算、函数调用、(Exp)、LVal或IntConst结点，函数调用不求值
+    public void addCal(int addExp) {
+        expressionCal(addExp, false);
     }
 
-    public static void unaryCal(SyntaxClass unaryExp) {
-        // 需要考虑PrimaryExp和 UnaryOp UnaryExp和函数
-        if (unaryExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = unaryExp.getSonNodeList();
-        SyntaxClass sonExp = expSonNodeList.get(0);
-        if (sonExp.getSyntaxType() == SyntaxClass.PRIMARYEXP) {
-            primaryCal(sonExp);
-            if (sonExp.isCalculated()) {
-                unaryExp.setConstValue(sonExp.getConstValue());
-                unaryExp.setCalculated(true);
-            }
-        } else if (sonExp.getSyntaxType() == SyntaxClass.UNARYOP) {
-            SyntaxClass unaryOp = sonExp;
-            sonExp = expSonNodeList.get(1);
-            unaryCal(sonExp);
-            if (sonExp.isCalculated()) {
-                Token unaryOpToken = (Token) unaryOp.getSonNodeList().get(0);
-                int constValue;
-                if (unaryOpToken.getTokenType() == Token.MINU) {
-                    constValue = -sonExp.getConstValue();
-                } else if (unaryOpToken.getTokenType() == Token.PLUS) {
-                    constValue = sonExp.getConstValue();
-                } else {
-                    constValue = (sonExp.getConstValue() == 0) ? 1 : 0;
-                }
-                unaryExp.setConstValue(constValue);
-                unaryExp.setCalculated(true);
-            }
+    public int binaryCal(int opType, int value0, int value1) {
+        if (opType == Token.PLUS) {
+            return value0 + value1;
+        } else if (opType == Token.MINU) {
+            return value0 - value1;
+        } else if (opType == Token.MULT) {
+            return value0 * value1;
+        } else if (opType == Token.DIV) {
+            return value0 / value1;
+        } else {
+            return value0 % value1;
         }
     }
 
-    public static void primaryCal(SyntaxClass primaryExp) {
-        if (primaryExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = primaryExp.getSonNodeList();
-        if (expSonNodeList.size() == 1) {
-            SyntaxClass sonExp = expSonNodeList.get(0);
-            if (sonExp.getSyntaxType() == SyntaxClass.NUMBER) {
-                numberCal(sonExp);
-                primaryExp.setConstValue(sonExp.getConstValue());
-                primaryExp.setCalculated(true);
-            } else { // LVal
-                lValCal(sonExp);
-                if (sonExp.isCalculated()) {
-                    primaryExp.setConstValue(sonExp.getConstValue());
-                    primaryExp.setCalculated(true);
-                }
-            }
-            primaryExp.setConstValue(sonExp.getConstValue());
-        } else { // (Exp)
-            SyntaxClass sonExp = expSonNodeList.get(1);
-            expCal(sonExp);
-            if (sonExp.isCalculated()) {
-                primaryExp.setConstValue(sonExp.getConstValue());
-                primaryExp.setCalculated(true);
-            }
+    public int unaryCal(int opType, int value) {
+        if (opType == Token.MINU) {
+            return -value;
+        } else if (opType == Token.PLUS) {
+            return value;
+        } else {
+            return (value == 0) ? 1 : 0;
         }
     }
 
-    public static void lValCal(SyntaxClass lVal) {
-        if (lVal.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = lVal.getSonNodeList();
-        Token ident = (Token) expSonNodeList.get(0);
-        SymbolTable lValEnv = lVal.getCurEnv();
-        VarSymbol identSymbol = (VarSymbol) lValEnv.globalLookup(ident.getTokenContext(), 0);
-        if (!identSymbol.hasConstValue()) { // 本层后面覆盖了该LVal的定义，此处应向前找上一次定义
-            identSymbol = (VarSymbol) lValEnv.varLocalLookup(ident.getTokenContext(), lVal.getCurVarListPos());
-        }
-        if (identSymbol == null || !identSymbol.hasConstValue()) { // 还没找到，说明ident不是常量
-            return;
-        }
-        // 以下处理ident是常量的情况
-        if (expSonNodeList.size() == 1) {
-            lVal.setConstValue(identSymbol.constGetValue());
-        } else {
-            SyntaxClass exp1 = expSonNodeList.get(2);
-            expCal(exp1);
-            if (!exp1.isCalculated()) { // 维度1不是常量，放弃
-                return;
-            }
-            int dim1 = exp1.getConstValue();
-            if (expSonNodeList.size() == 4) {// 一维常量数组
-                lVal.setConstValue(identSymbol.constGetValue(dim1));
-            } else { // 二维常量数组
-                SyntaxClass exp2 = expSonNodeList.get(5);
-                expCal(exp2);
-                if (!exp2.isCalculated()) { // 维度2不是常量，放弃
-                    return;
-                }
-                int dim0 = exp2.getConstValue();
-                lVal.setConstValue(identSymbol.constGetValue(dim1, dim0));
-            }
-        }
-        lVal.setCalculated(true);
+    public void lValCal(int lVal) {
+        expressionCal(lVal, false);
     }
 
     // 已经知道这是一个ConstExp
-    public static void constExpCal(SyntaxClass constExp) {
-        if (constExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = constExp.getSonNodeList();
-        SyntaxClass sonAddExp = expSonNodeList.get(0);
-        constAddCal(sonAddExp);
-        constExp.setConstValue(sonAddExp.getConstValue());
-        constExp.setCalculated(true);
+    public void constExpCal(int constExp) {
+        expressionCal(constExp, true);
     }
 
-    public static void constAddCal(SyntaxClass constAddExp) {
-        if (constAddExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = constAddExp.getSonNodeList();
-        if (expSonNodeList.size() == 1) {
-            SyntaxClass sonMulExp = expSonNodeList.get(0);
-            constMulCal(sonMulExp);
-            constAddExp.setConstValue(sonMulExp.getConstValue());
-        } else {
-            SyntaxClass sonAddExp = expSonNodeList.get(0);
-            constAddCal(sonAddExp);
-            SyntaxClass sonMulExp = expSonNodeList.get(2);
-            constMulCal(sonMulExp);
-            Token symbolToken = (Token) expSonNodeList.get(1);
-            if (symbolToken.getTokenType() == Token.PLUS) {
-                constAddExp.setConstValue(sonAddExp.getConstValue() + sonMulExp.getConstValue());
-            } else {
-                constAddExp.setConstValue(sonAddExp.getConstValue() - sonMulExp.getConstValue());
-            }
-        }
-        constAddExp.setCalculated(true);
+    // 与addCal相同，但已经知道是常量，不用检查各部分是否求出
+    public void constAddCal(int constAddExp) {
+        expressionCal(constAddExp, true);
     }
 
-    public static void constMulCal(SyntaxClass constMulExp) {
-        if (constMulExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = constMulExp.getSonNodeList();
-        if (expSonNodeList.size() == 1) {
-            SyntaxClass sonUnaryExp = expSonNodeList.get(0);
-            constUnaryCal(sonUnaryExp);
-            constMulExp.setConstValue(sonUnaryExp.getConstValue());
-        } else {
-            SyntaxClass sonMulExp = expSonNodeList.get(0);
-            constMulCal(sonMulExp);
-            SyntaxClass sonUnaryExp = expSonNodeList.get(2);
-            constUnaryCal(sonUnaryExp);
-            Token symbolToken = (Token) expSonNodeList.get(1);
-            if (symbolToken.getTokenType() == Token.MULT) {
-                constMulExp.setConstValue(sonMulExp.getConstValue() * sonUnaryExp.getConstValue());
-            } else if (symbolToken.getTokenType() == Token.DIV) {
-                constMulExp.setConstValue(sonMulExp.getConstValue() / sonUnaryExp.getConstValue());
-            } else {
-                constMulExp.setConstValue(sonMulExp.getConstValue() % sonUnaryExp.getConstValue());
-            }
-        }
-        constMulExp.setCalculated(true);
+    public void constLValCal(int constLVal) {
+        expressionCal(constLVal, true);
     }
 
-    public static void constUnaryCal(SyntaxClass constUnaryExp) {
-        // 常数，右边不会是函数，只需要考虑PrimaryExp和 UnaryOp UnaryExp
-        if (constUnaryExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = constUnaryExp.getSonNodeList();
-        SyntaxClass sonExp = expSonNodeList.get(0);
-        if (sonExp.getSyntaxType() == SyntaxClass.PRIMARYEXP) {
-            constPrimaryCal(sonExp);
-            constUnaryExp.setConstValue(sonExp.getConstValue());
-        } else {
-            SyntaxClass unaryOp = sonExp;
-            sonExp = expSonNodeList.get(1);
-            constUnaryCal(sonExp);
-            Token unaryOpToken = (Token) unaryOp.getSonNodeList().get(0);
-            int constValue;
-            if (unaryOpToken.getTokenType() == Token.MINU) {
-                constValue = -sonExp.getConstValue();
-            } else if (unaryOpToken.getTokenType() == Token.PLUS) {
-                constValue = sonExp.getConstValue();
-            } else {
-                constValue = (sonExp.getConstValue() == 0) ? 1 : 0;
+    /* 表达式求值，isConst表示已经知道是常量表达式，不用检查各部分是否求出
+     * 用显式栈按后序求值：结点第一次出栈（步骤0）时压回自身的下一步，再压入子表达式，子表达式都求完后再算本结点
+     * 表达式嵌套再深也不会栈溢出
+     */
+    private void expressionCal(int root, boolean isConst) {
+        int base = workStack.size();
+        workStack.push(root, 0);
+        while (workStack.size() > base) {
+            int node = workStack.topNode();
+            int state = workStack.topState();
+            workStack.pop();
+            if (state == 0 && tree.isCalculated(node)) { // IntConst建立时已求值
+                continue;
             }
-            constUnaryExp.setConstValue(constValue);
-        }
-        constUnaryExp.setCalculated(true);
-    }
-
-    public static void constPrimaryCal(SyntaxClass constPrimaryExp) {
-        if (constPrimaryExp.isCalculated()) {
-            return;
-        }
-        ArrayList<SyntaxClass> expSonNodeList = constPrimaryExp.getSonNodeList();
-        if (expSonNodeList.size() == 1) {
-            SyntaxClass sonExp = expSonNodeList.get(0);
-            if (sonExp.getSyntaxType() == SyntaxClass.NUMBER) {
-                numberCal(sonExp);
-            } else { // LVal
-                constLValCal(sonExp);
+            int syntaxType = tree.getSyntaxType(node);
+            if (syntaxType == SyntaxClass.EXP || syntaxType == SyntaxClass.CONSTEXP ||
+                    syntaxType == SyntaxClass.PRIMARYEXP) { // Exp、ConstExp、(Exp)都只有一个子表达式
+                int sonExp = tree.getSon(node, syntaxType == SyntaxClass.PRIMARYEXP ? 1 : 0);
+                if (state == 0) {
+                    workStack.push(node, 1);
+                    workStack.push(sonExp, 0);
+                } else if (isConst || tree.isCalculated(sonExp)) {
+                    tree.setConstValue(node, tree.getConstValue(sonExp));
+                    tree.setCalculated(node, true);
+                }
+            } else if (syntaxType == SyntaxClass.BINARYEXP) {
+                int sonExp0 = tree.getSon(node, 0);
+                int sonExp1 = tree.getSon(node, 2);
+                if (state == 0) { // 左操作数在栈顶，先求
+                    workStack.push(node, 1);
+                    workStack.push(sonExp1, 0);
+                    workStack.push(sonExp0, 0);
+                } else if (isConst || (tree.isCalculated(sonExp0) && tree.isCalculated(sonExp1))) {
+                    tree.setConstValue(node, binaryCal(tree.getTokenType(tree.getSon(node, 1)),
+                            tree.getConstValue(sonExp0), tree.getConstValue(sonExp1)));
+                    tree.setCalculated(node, true);
+                }
+            } else if (syntaxType == SyntaxClass.UNARYOPEXP) {
+                int sonExp = tree.getSon(node, 1);
+                if (state == 0) {
+                    workStack.push(node, 1);
+                    workStack.push(sonExp, 0);
+                } else if (isConst || tree.isCalculated(sonExp)) {
+                    tree.setConstValue(node, unaryCal(tree.getTokenType(tree.getSon(node, 0)),
+                            tree.getConstValue(sonExp)));
+                    tree.setCalculated(node, true);
+                }
+            } else if (syntaxType == SyntaxClass.LVAL) {
+                lValStep(node, state, isConst);
             }
-            constPrimaryExp.setConstValue(sonExp.getConstValue());
-        } else { // (Exp)
-            SyntaxClass sonExp = expSonNodeList.get(1);
-            constExpCal(sonExp);
-            constPrimaryExp.setConstValue(sonExp.getConstValue());
         }
-        constPrimaryExp.setCalculated(true);
     }
 
-    public static void constLValCal(SyntaxClass constLVal) {
-        if (constLVal.isCalculated()) {
+    // LVal求值的一步：步骤0查找符号，1第1维下标已求，2第2维下标已求；不是常量或下标求不出时放弃
+    private void lValStep(int lVal, int state, boolean isConst) {
+        VarSymbol identSymbol = lValConstSymbol(lVal, isConst);
+        if (identSymbol == null) { // ident不是常量
             return;
         }
-        ArrayList<SyntaxClass> expSonNodeList = constLVal.getSonNodeList();
-        Token ident = (Token) expSonNodeList.get(0);
-        SymbolTable lValEnv = constLVal.getCurEnv();
-        VarSymbol identSymbol = (VarSymbol) lValEnv.globalLookup(ident.getTokenContext(), 0);
-        if (!identSymbol.hasConstValue()) { // 本层后面覆盖了该LVal的定义，此处应向前找上一次定义
-            //identSymbol = (VarSymbol) lValEnv.upLevelLookup(ident.getTokenContext(), 0);
-            identSymbol = lValEnv.varGlobalLookup(ident.getTokenContext(), constLVal.getCurVarListPos());
-        }
-        if (expSonNodeList.size() == 1) {
-            constLVal.setConstValue(identSymbol.constGetValue());
+        if (tree.getSonNum(lVal) == 1) {
+            tree.setConstValue(lVal, identSymbol.constGetValue());
+        } else if (state == 0) {
+            workStack.push(lVal, 1);
+            workStack.push(tree.getSon(lVal, 2), 0);
+            return;
         } else {
-            SyntaxClass constExp1 = expSonNodeList.get(2);
-            constExpCal(constExp1);
-            int dim1 = constExp1.getConstValue();
-            if (expSonNodeList.size() == 4) {// 一维常量数组
-                constLVal.setConstValue(identSymbol.constGetValue(dim1));
+            int exp1 = tree.getSon(lVal, 2);
+            if (!isConst && !tree.isCalculated(exp1)) { // 维度1不是常量，放弃
+                return;
+            }
+            int dim1 = tree.getConstValue(exp1);
+            if (tree.getSonNum(lVal) == 4) {// 一维常量数组
+                tree.setConstValue(lVal, identSymbol.constGetValue(dim1));
+            } else if (state == 1) {
+                workStack.push(lVal, 2);
+                workStack.push(tree.getSon(lVal, 5), 0);
+                return;
             } else { // 二维常量数组
-                SyntaxClass constExp2 = expSonNodeList.get(5);
-                constExpCal(constExp2);
-                int dim0 = constExp2.getConstValue();
-                constLVal.setConstValue(identSymbol.constGetValue(dim1, dim0));
+                int exp2 = tree.getSon(lVal, 5);
+                if (!isConst && !tree.isCalculated(exp2)) { // 维度2不是常量，放弃
+                    return;
+                }
+                int dim0 = tree.getConstValue(exp2);
+                tree.setConstValue(lVal, identSymbol.constGetValue(dim1, dim0));
             }
         }
-        constLVal.setCalculated(true);
+        tree.setCalculated(lVal, true);
     }
 
-    // Number无所谓Const与否，肯定是Const的
-    public static void numberCal(SyntaxClass numberExp) {
-        if (numberExp.isCalculated()) {
-            return;
+    // LVal引用的常量符号（语法分析时已解析），不是常量时返回null（已知是常量时直接返回）
+    private VarSymbol lValConstSymbol(int lVal, boolean isConst) {
+        VarSymbol identSymbol = tree.getVarSymbol(lVal);
+        if (!isConst && !identSymbol.hasConstValue()) { // ident不是常量
+            return null;
         }
-        ArrayList<SyntaxClass> expSonNodeList = numberExp.getSonNodeList();
-        ConstIntToken numberToken = (ConstIntToken) expSonNodeList.get(0);
-        numberExp.setConstValue(numberToken.getMyValue());
-        numberExp.setCalculated(true);
+        return identSymbol;
     }
 
     // 输出测试
-    public static StringBuilder printUnit(SyntaxClass curUnit) {
-        if (curUnit.getSyntaxType() == SyntaxClass.TOKEN) {
-            if (((Token) curUnit).getTokenType() == Token.INTCON) {
-                return new StringBuilder(Integer.toString(((ConstIntToken) curUnit).getMyValue())).append(" ");
+    public StringBuilder printUnit(int curUnit) {
+        if (tree.getSyntaxType(curUnit) == SyntaxClass.TOKEN) {
+            if (tree.getTokenType(curUnit) == Token.INTCON) {
+                return new StringBuilder(Integer.toString(tree.getConstValue(curUnit))).append(" ");
             } else {
-                StringBuilder returnSB = new StringBuilder(((Token) curUnit).getTokenContext()).append(" ");
-                if (((Token) curUnit).getTokenType() == Token.SEMICN ||
-                        ((Token) curUnit).getTokenType() == Token.LBRACE) {
+                StringBuilder returnSB = new StringBuilder(tree.getTokenText(curUnit)).append(" ");
+                if (tree.getTokenType(curUnit) == Token.SEMICN ||
+                        tree.getTokenType(curUnit) == Token.LBRACE) {
                     returnSB.append("\n");
                 }
                 return returnSB;
             }
         }
-        if (curUnit.isCalculated()) {
-            return new StringBuilder(Integer.toString(curUnit.getConstValue()));
+        if (tree.isCalculated(curUnit)) {
+            return new StringBuilder(Integer.toString(tree.getConstValue(curUnit)));
         }
         StringBuilder stringBuilder = new StringBuilder();
-        ArrayList<SyntaxClass> sonList = curUnit.getSonNodeList();
-        for (SyntaxClass unit : sonList) {
+        for (int i = 0; i < tree.getSonNum(curUnit); i++) {
+            int unit = tree.getSon(curUnit, i);
             stringBuilder.append(printUnit(unit));
-            if (unit.getSyntaxType() == SyntaxClass.BLOCK) {
+            if (tree.getSyntaxType(unit) == SyntaxClass.BLOCK) {
                 stringBuilder.append("\n");
             }
             //stringBuilder.append(" ");
@@ -21,4 +21,9 @@ public class IRArrSymbol implements IRSymbol{
     public int getId() {
         return -1;
     }
+
+    @Override
+    public int hashCode() {
+        return baseAddr.hashCode() * 31 + offset.hashCode();
+    }
 }
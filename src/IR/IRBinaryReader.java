@@ -0,0 +1,170 @@
+package IR;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/*
+ * 读入IRBinaryWriter写出的二进制中间代码（格式见IRBinaryWriter），得到可以直接交给MIPSTranslatorWithReg的IRModule
+ * 文件整体映射到内存，直接从映射的缓冲区中解码各条指令，不经过输入流，也不先复制到字节数组
+ * 标签按原编号恢复到当前线程的标签管理器中（与compileToIR一样先重置），之后再优化时新分配的标签不会与之重复
+ */
+public class IRBinaryReader {
+    private ByteBuffer buffer;
+    private IRLabelManager labelManager;
+    private ArrayList<IRFuncSymbol> funcSymbolList; // 按记录顺序排列的函数，调用指令以序号引用
+
+    public IRBinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.funcSymbolList = new ArrayList<>();
+    }
+
+    public static IRModule read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IRBinaryReader(buffer).read();
+        }
+    }
+
+    public IRModule read() throws IOException {
+        try {
+            if (buffer.getInt() != IRBinaryWriter.MAGIC) {
+                throw new IOException("Not a binary IR file");
+            }
+            int version = readVarInt();
+            if (version != IRBinaryWriter.VERSION) {
+                throw new IOException("Unsupported binary IR version " + version);
+            }
+            labelManager = IRLabelManager.resetIRLabelManager();
+            int mainId = readVarInt();
+            labelManager.reserve(readVarInt());
+            IRSymbol mainFunc = (mainId == 0) ? null : label(mainId - 1);
+            HashMap<IRSymbol, ArrayList<Integer>> constantData = readDataTable();
+            HashMap<IRSymbol, ArrayList<Integer>> globalData = readDataTable();
+            for (IRSymbol globalSymbol : globalData.keySet()) { // 全局变量表中的标签都是全局标签
+                ((IRLabelSymbol) globalSymbol).setGlobal(true);
+            }
+            HashMap<IRSymbol, String> formatStrMap = new LinkedHashMap<>(); // 数据区保持记录的顺序
+            int strNum = readVarInt();
+            for (int i = 0; i < strNum; i++) {
+                IRLabelSymbol strSymbol = label(readVarInt());
+                formatStrMap.put(strSymbol, readString());
+            }
+            IRModule iRModule = new IRModule(constantData, globalData, formatStrMap, mainFunc);
+            readInstList(iRModule.getEntryList());
+            while (buffer.get() == IRBinaryWriter.FUNC_RECORD) {
+                IRFuncSymbol funcSymbol = new IRFuncSymbol(readString());
+                funcSymbol.setEntry(label(readVarInt()));
+                funcSymbol.setfParamList(readSymbolList());
+                funcSymbolList.add(funcSymbol);
+                readInstList(iRModule.addFunction(funcSymbol).getIRList());
+            }
+            return iRModule;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+            throw new IOException("Corrupted binary IR file", e);
+        }
+    }
+
+    private HashMap<IRSymbol, ArrayList<Integer>> readDataTable() {
+        HashMap<IRSymbol, ArrayList<Integer>> dataMap = new LinkedHashMap<>();
+        int itemNum = readVarInt();
+        for (int i = 0; i < itemNum; i++) {
+            IRLabelSymbol labelSymbol = label(readVarInt());
+            int valueNum = readVarInt();
+            ArrayList<Integer> valueList = new ArrayList<>(valueNum);
+            for (int j = 0; j < valueNum; j++) {
+                valueList.add(readSignedVarInt());
+            }
+            dataMap.put(labelSymbol, valueList);
+        }
+        return dataMap;
+    }
+
+    private void readInstList(IRList iRList) {
+        int instNum = readVarInt();
+        for (int i = 0; i < instNum; i++) {
+            int type = buffer.get();
+            IRSymbol op3 = readOperand();
+            IRSymbol op1 = readOperand();
+            IRSymbol op2 = readOperand();
+            int listSize = readVarInt();
+            if (listSize == 0) {
+                iRList.add(new IRElem(type, op3, op1, op2));
+            } else {
+                ArrayList<IRSymbol> symbolList = new ArrayList<>(listSize - 1);
+                for (int j = 1; j < listSize; j++) {
+                    symbolList.add(readOperand());
+                }
+                if (op1 == null) { // FUNC：函数与形参
+                    iRList.add(new IRElem(type, op3, symbolList));
+                } else { // CALL：返回值、函数与实参
+                    iRList.add(new IRElem(type, op3, op1, symbolList));
+                }
+            }
+        }
+    }
+
+    private ArrayList<IRSymbol> readSymbolList() {
+        int symbolNum = readVarInt();
+        ArrayList<IRSymbol> symbolList = new ArrayList<>(symbolNum);
+        for (int i = 0; i < symbolNum; i++) {
+            symbolList.add(readOperand());
+        }
+        return symbolList;
+    }
+
+    private IRSymbol readOperand() {
+        int kind = buffer.get();
+        switch (kind) {
+            case IRBinaryWriter.NONE:
+                return null;
+            case IRBinaryWriter.LABEL:
+                return label(readVarInt());
+            case IRBinaryWriter.IMM:
+                return new IRImmSymbol(readSignedVarInt());
+            case IRBinaryWriter.FUNC:
+                return funcSymbolList.get(readVarInt());
+            case IRBinaryWriter.ARR:
+                IRSymbol baseAddr = readOperand();
+                return new IRArrSymbol(baseAddr, readOperand());
+            default:
+                throw new IndexOutOfBoundsException("Unknown operand kind " + kind);
+        }
+    }
+
+    private IRLabelSymbol label(int id) {
+        return labelManager.restoreSymbol(id); // 同一编号只恢复一次，之后按下标直接取得
+    }
+
+    private String readString() {
+        int length = readVarInt();
+        String str = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return str;
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,154 @@
+package IR;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ * 中间代码的二进制格式：保存优化后的IRModule，之后可以跳过前端和优化，读入后直接交给MIPSTranslatorWithReg
+ * 文件头：MAGIC（4字节） 版本 main入口标签+1（0表示没有） 标签总数
+ * 数据区：常量数组表、全局变量表（项数；每项为标签、字数、各字的初值），格式字符串表（项数；每项为标签、UTF-8字节数、字节）
+ * 入口序列：指令数，各条指令
+ * 函数记录：FUNC_RECORD 函数名 入口标签 形参个数 各形参 指令数 各条指令，所有函数之后以END结束
+ * 指令：操作码（1字节） op3 op1 op2 符号表（长度+1，0表示没有符号表，之后为各操作数）
+ * 操作数：类型（1字节），之后按类型为标签编号 / 立即数（zigzag） / 函数序号（在本文件中第几个函数记录） / 基址与偏移两个操作数
+ * 除MAGIC和操作码、操作数类型外，整数都是变长编码：每字节低7位有效，最高位为1表示后面还有
+ * 函数记录逐个写出，调用只能指向已写出的函数或自身，因此可以边优化边写，不必先把整个程序拼成一个缓冲区
+ */
+public class IRBinaryWriter {
+    public static final int MAGIC = 0x53594952; // "SYIR"
+    public static final int VERSION = 1;
+    public static final int NONE = 0, LABEL = 1, IMM = 2, FUNC = 3, ARR = 4; // 操作数类型
+    public static final int END = 0, FUNC_RECORD = 1; // 记录类型
+
+    private DataOutputStream out;
+    private HashMap<IRFuncSymbol, Integer> funcIndexMap; // 已写出的函数及其记录序号
+
+    public IRBinaryWriter(OutputStream outputStream) {
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        this.funcIndexMap = new HashMap<>();
+    }
+
+    public void write(IRModule iRModule) throws IOException {
+        writeHeader(iRModule);
+        for (IRFunction func : iRModule.getFuncList()) {
+            writeFunction(func);
+        }
+        finish();
+    }
+
+    // 文件头、数据区和入口序列
+    public void writeHeader(IRModule iRModule) throws IOException {
+        out.writeInt(MAGIC);
+        writeVarInt(VERSION);
+        writeVarInt((iRModule.getMainFunc() == null) ? 0 : iRModule.getMainFunc().getId() + 1);
+        writeVarInt(IRLabelManager.getIRLabelManager().getLabelNum()); // 读入时预留标签表的大小
+        writeDataTable(iRModule.getConstantData());
+        writeDataTable(iRModule.getGlobalData());
+        HashMap<IRSymbol, String> formatStrMap = iRModule.getFormatStrMap();
+        writeVarInt(formatStrMap.size());
+        for (IRSymbol strSymbol : formatStrMap.keySet()) {
+            writeVarInt(strSymbol.getId());
+            writeString(formatStrMap.get(strSymbol));
+        }
+        writeInstList(iRModule.getEntryList());
+    }
+
+    public void writeFunction(IRFunction func) throws IOException {
+        IRFuncSymbol funcSymbol = func.getFuncSymbol();
+        funcIndexMap.put(funcSymbol, funcIndexMap.size()); // 先登记，函数体中的递归调用才能找到
+        out.writeByte(FUNC_RECORD);
+        writeString(funcSymbol.getFunc());
+        writeVarInt(funcSymbol.getEntry().getId());
+        writeSymbolList(funcSymbol.getfParamList());
+        writeInstList(func.getIRList());
+    }
+
+    public void finish() throws IOException {
+        out.writeByte(END);
+        out.flush();
+    }
+
+    private void writeDataTable(HashMap<IRSymbol, ArrayList<Integer>> dataMap) throws IOException {
+        writeVarInt(dataMap.size());
+        for (IRSymbol labelSymbol : dataMap.keySet()) {
+            ArrayList<Integer> valueList = dataMap.get(labelSymbol);
+            writeVarInt(labelSymbol.getId());
+            writeVarInt(valueList.size());
+            for (int value : valueList) {
+                writeSignedVarInt(value);
+            }
+        }
+    }
+
+    private void writeInstList(IRList iRList) throws IOException {
+        writeVarInt(iRList.size());
+        for (int i = 0; i < iRList.size(); i++) {
+            IRElem inst = iRList.get(i);
+            out.writeByte(inst.getType());
+            writeOperand(inst.getOp3());
+            writeOperand(inst.getOp1());
+            writeOperand(inst.getOp2());
+            if (inst.getSymbolList() == null) {
+                writeVarInt(0);
+            } else {
+                writeVarInt(inst.getSymbolList().size() + 1);
+                for (IRSymbol symbol : inst.getSymbolList()) {
+                    writeOperand(symbol);
+                }
+            }
+        }
+    }
+
+    private void writeSymbolList(ArrayList<IRSymbol> symbolList) throws IOException {
+        writeVarInt(symbolList.size());
+        for (IRSymbol symbol : symbolList) {
+            writeOperand(symbol);
+        }
+    }
+
+    private void writeOperand(IRSymbol symbol) throws IOException {
+        if (symbol == null) {
+            out.writeByte(NONE);
+        } else if (symbol instanceof IRLabelSymbol) {
+            out.writeByte(LABEL);
+            writeVarInt(symbol.getId());
+        } else if (symbol instanceof IRImmSymbol) {
+            out.writeByte(IMM);
+            writeSignedVarInt(((IRImmSymbol) symbol).getValue());
+        } else if (symbol instanceof IRFuncSymbol) {
+            Integer funcIndex = funcIndexMap.get(symbol);
+            if (funcIndex == null) {
+                throw new IOException("Call to function " + symbol + " before its record");
+            }
+            out.writeByte(FUNC);
+            writeVarInt(funcIndex);
+        } else {
+            out.writeByte(ARR);
+            writeOperand(((IRArrSymbol) symbol).getBaseAddr());
+            writeOperand(((IRArrSymbol) symbol).getOffset());
+        }
+    }
+
+    private void writeString(String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31)); // zigzag：绝对值小的负数也只占少量字节
+    }
+}
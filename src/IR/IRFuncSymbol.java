@@ -35,6 +35,11 @@ public class IRFuncSymbol implements IRSymbol{
         return -1;
     }
 
+    @Override
+    public int hashCode() {
+        return func.hashCode();
+    }
+
     @Override
     public String toString() {
         return func + "()";
@@ -0,0 +1,45 @@
+package IR;
+
+import Optimizer.BasicBlock;
+
+import java.util.ArrayList;
+
+/*
+ * 一个函数的中间代码：函数符号，从FUNC到RET（main为EXIT）的指令序列，以及优化时划分出的基本块
+ * 函数之间只通过CALL和全局变量联系，各遍优化和目标代码生成都可以逐个函数进行
+ */
+public class IRFunction {
+    private IRFuncSymbol funcSymbol;
+    private IRList iRList;
+    private ArrayList<BasicBlock> blockList; // 最近一次划分的基本块，未划分时为空表
+
+    public IRFunction(IRFuncSymbol funcSymbol) {
+        this.funcSymbol = funcSymbol;
+        this.iRList = new IRList();
+        this.blockList = new ArrayList<>();
+    }
+
+    public IRFuncSymbol getFuncSymbol() {
+        return funcSymbol;
+    }
+
+    public String getFuncName() {
+        return funcSymbol.getFunc();
+    }
+
+    public IRList getIRList() {
+        return iRList;
+    }
+
+    public void setIRList(IRList iRList) {
+        this.iRList = iRList;
+    }
+
+    public ArrayList<BasicBlock> getBlockList() {
+        return blockList;
+    }
+
+    public void setBlockList(ArrayList<BasicBlock> blockList) {
+        this.blockList = blockList;
+    }
+}
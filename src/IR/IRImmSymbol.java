@@ -17,6 +17,11 @@ public class IRImmSymbol implements IRSymbol{
         return value;
     }
 
+    @Override
+    public int hashCode() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return String.valueOf(value);
@@ -1,32 +1,87 @@
 package IR;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class IRLabelManager {
-    private static IRLabelManager instance = null;
-    private HashMap<Integer, IRLabelSymbol> labelMap;
+    // 每次编译使用独立的标签管理器，并绑定到执行该次编译的线程上
+    // 这样IRTranslater、MultDivOpt、DAGClass、ArrDefNet等处仍通过getIRLabelManager()取得，多个编译可以并行互不干扰
+    // 标签按编号存放在数组中，编号在一次编译内从0开始连续分配，既是数组下标，也可以直接作为数据流分析中位向量的下标
+    private static final ThreadLocal<IRLabelManager> instance = new ThreadLocal<>();
+    private static final int INIT_CAPACITY = 256;
+    private IRLabelSymbol[] labels; // labels[id]为编号id的标签，未分配或已释放的位置为null
     private int cnt;
 
     private IRLabelManager() {
-        labelMap = new HashMap<>();
+        labels = new IRLabelSymbol[INIT_CAPACITY];
         cnt = 0;
     }
 
     public static IRLabelManager getIRLabelManager() {
-        if (instance == null) {
-            instance = new IRLabelManager();
+        IRLabelManager manager = instance.get();
+        if (manager == null) {
+            manager = new IRLabelManager();
+            instance.set(manager);
         }
-        return instance;
+        return manager;
+    }
+
+    // 开始新一次编译前调用，丢弃上一次编译分配的全部标签并让编号重新从0开始
+    public static IRLabelManager resetIRLabelManager() {
+        IRLabelManager manager = new IRLabelManager();
+        instance.set(manager);
+        return manager;
+    }
+
+    // 编译结束后解除与当前线程的绑定，线程池中的线程不会一直持有上一次编译的标签
+    public static void releaseIRLabelManager() {
+        IRLabelManager manager = instance.get();
+        if (manager != null) {
+            manager.releaseAll();
+        }
+        instance.remove();
     }
 
     public IRLabelSymbol allocSymbol() {
+        if (cnt == labels.length) {
+            reserve(cnt + 1);
+        }
         IRLabelSymbol symbol = new IRLabelSymbol(cnt);
-        labelMap.put(cnt, symbol);
+        labels[cnt] = symbol;
         ++cnt;
         return symbol;
     }
 
+    // 预留至少labelNum个编号的空间，已知标签数（如读入中间代码文件）时避免反复扩容
+    public void reserve(int labelNum) {
+        if (labelNum > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(labelNum, labels.length * 2));
+        }
+    }
+
+    // 一次性释放全部标签，编号重新从0开始；只能在不再使用本次编译的中间代码之后调用，否则新旧标签编号会重复
+    public void releaseAll() {
+        labels = new IRLabelSymbol[INIT_CAPACITY];
+        cnt = 0;
+    }
+
+    // 已分配的标签数，编号从0开始连续分配
+    public int getLabelNum() {
+        return cnt;
+    }
+
+    // 读入已有的中间代码时按原编号恢复标签，之后新分配的编号排在全部已恢复的标签之后
+    public IRLabelSymbol restoreSymbol(int id) {
+        reserve(id + 1);
+        IRLabelSymbol symbol = labels[id];
+        if (symbol == null) {
+            symbol = new IRLabelSymbol(id);
+            labels[id] = symbol;
+            cnt = Math.max(cnt, id + 1);
+        }
+        return symbol;
+    }
+
     public IRLabelSymbol getSymbolById(int id) {
-        return labelMap.get(id);
+        return (id >= 0 && id < cnt) ? labels[id] : null;
     }
 }
@@ -1,7 +1,7 @@
 package IR;
 
 public class IRLabelSymbol implements IRSymbol{
-    private int id;
+    private int id; // 本次编译内连续分配的编号，可直接作为位向量的下标
     private boolean isGlobal;
 
     public IRLabelSymbol(int id) {
@@ -21,6 +21,12 @@ public class IRLabelSymbol implements IRSymbol{
         return id;
     }
 
+    // 相等仍按对象判断；散列值取编号，散列表的遍历顺序只取决于编号，同一JVM中多次编译的结果相同
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return "#" + id;
@@ -0,0 +1,206 @@
+package IR;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/*
+ * 中间代码序列，代替LinkedList<IRElem>：指令放在数组中，按下标取、改都是O(1)，在两端添加均摊O(1)
+ * 删除分两步：markRemoved只做标记，各指令的下标和内容都不变，可以边扫描边标记；commit时一趟压缩掉全部标记的指令
+ * 有标记时仍可以在末尾添加（不移动已有下标），但不能在开头或中间插入、删除
+ * remove(int)和add(int, IRElem)会移动其后的全部指令，只用于偶尔的单条修改，循环中应改用markRemoved或重建新序列
+ */
+public class IRList extends AbstractList<IRElem> implements RandomAccess {
+    private static final int INIT_CAPACITY = 16;
+    private IRElem[] elems;
+    private int head; // 第一条指令在elems中的位置，前面的空位留给addFirst
+    private int size;
+    private boolean[] removed; // 待commit删除的标记，没有标记时为null；只覆盖前removed.length条，标记后在末尾添加的指令不在其中
+    private int removedNum;
+
+    public IRList() {
+        this(INIT_CAPACITY);
+    }
+
+    public IRList(int capacity) {
+        elems = new IRElem[Math.max(capacity, INIT_CAPACITY)];
+        head = 0;
+        size = 0;
+        removed = null;
+        removedNum = 0;
+    }
+
+    public IRList(Collection<? extends IRElem> instList) {
+        this(instList.size());
+        addAll(instList);
+    }
+
+    @Override
+    public IRElem get(int index) {
+        checkIndex(index);
+        return elems[head + index];
+    }
+
+    @Override
+    public IRElem set(int index, IRElem inst) {
+        checkIndex(index);
+        IRElem oldInst = elems[head + index];
+        elems[head + index] = inst;
+        return oldInst;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(IRElem inst) {
+        if (head + size == elems.length) {
+            grow(size + 1, 0);
+        }
+        elems[head + size] = inst;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, IRElem inst) {
+        if (index == size) {
+            add(inst);
+            return;
+        } else if (index == 0) {
+            addFirst(inst);
+            return;
+        }
+        checkIndex(index);
+        checkNoMark();
+        if (head + size == elems.length) {
+            grow(size + 1, 0);
+        }
+        System.arraycopy(elems, head + index, elems, head + index + 1, size - index);
+        elems[head + index] = inst;
+        size++;
+        modCount++;
+    }
+
+    public void addFirst(IRElem inst) {
+        checkNoMark();
+        if (head == 0) {
+            grow(size + 1, Math.max(INIT_CAPACITY, size / 2)); // 前面也留出空位
+        }
+        elems[--head] = inst;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends IRElem> instList) {
+        int addNum = instList.size();
+        if (addNum == 0) {
+            return false;
+        }
+        if (head + size + addNum > elems.length) {
+            grow(size + addNum, 0);
+        }
+        if (instList instanceof IRList) {
+            IRList other = (IRList) instList;
+            System.arraycopy(other.elems, other.head, elems, head + size, addNum);
+        } else {
+            int i = head + size;
+            for (IRElem inst : instList) {
+                elems[i++] = inst;
+            }
+        }
+        size += addNum;
+        modCount++;
+        return true;
+    }
+
+    public IRElem getLast() {
+        return get(size - 1);
+    }
+
+    @Override
+    public IRElem remove(int index) {
+        checkIndex(index);
+        checkNoMark();
+        IRElem oldInst = elems[head + index];
+        System.arraycopy(elems, head + index + 1, elems, head + index, size - index - 1);
+        elems[head + size - 1] = null;
+        size--;
+        modCount++;
+        return oldInst;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elems, head, head + size, null);
+        head = 0;
+        size = 0;
+        removed = null;
+        removedNum = 0;
+        modCount++;
+    }
+
+    // 标记第index条指令待删除，commit之前它仍在原位置
+    public void markRemoved(int index) {
+        checkIndex(index);
+        if (removed == null) {
+            removed = new boolean[size];
+        } else if (index >= removed.length) { // 上次标记后又在末尾添加了指令
+            removed = Arrays.copyOf(removed, size);
+        }
+        if (!removed[index]) {
+            removed[index] = true;
+            removedNum++;
+        }
+    }
+
+    public boolean isRemoved(int index) {
+        checkIndex(index);
+        return removed != null && index < removed.length && removed[index];
+    }
+
+    // 删除全部标记的指令，其余指令保持原来的顺序
+    public void commit() {
+        if (removed == null) {
+            return;
+        }
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (i >= removed.length || !removed[i]) {
+                elems[head + newSize++] = elems[head + i];
+            }
+        }
+        Arrays.fill(elems, head + newSize, head + size, null);
+        size = newSize;
+        removed = null;
+        removedNum = 0;
+        modCount++;
+    }
+
+    // 扩容到至少能放下minSize条指令，并在前面留出front个空位
+    private void grow(int minSize, int front) {
+        int capacity = Math.max(elems.length * 2, minSize + front);
+        IRElem[] newElems = new IRElem[capacity];
+        System.arraycopy(elems, head, newElems, front, size);
+        elems = newElems;
+        head = front;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+    }
+
+    // 有待删除的标记时下标不能移动，否则标记会错位
+    private void checkNoMark() {
+        if (removedNum > 0) {
+            throw new IllegalStateException("IRList has " + removedNum + " uncommitted removals");
+        }
+    }
+}
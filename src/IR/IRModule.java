@@ -0,0 +1,156 @@
+package IR;
+
+import Symbols.VarSymbol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/*
+ * 整个程序的中间代码：数据区（常量数组、全局变量、格式字符串），程序入口处的指令（跳转到main），以及按定义顺序排列的各函数
+ * 入口指令与各函数依次拼接即为原来的整个指令序列
+ */
+public class IRModule {
+    private HashMap<VarSymbol, IRSymbol> constantArrMap; // 常量数组无法消干净
+    private HashMap<VarSymbol, IRSymbol> globalArrMap; // 全局数组
+    private HashMap<IRSymbol, ArrayList<Integer>> constantData; // 不经过源程序得到的模块中，常量数组的标签与初值
+    private HashMap<IRSymbol, ArrayList<Integer>> globalData; // 同上，全局变量的标签与初值
+    private HashMap<IRSymbol, String> formatStrMap; // 格式字符串作常量存
+    private IRList entryList; // 不属于任何函数的指令
+    private ArrayList<IRFunction> funcList;
+    private IRSymbol mainFunc;
+
+    public IRModule(HashMap<VarSymbol, IRSymbol> constantArrMap, HashMap<VarSymbol, IRSymbol> globalArrMap,
+                    HashMap<IRSymbol, String> formatStrMap) {
+        this.constantArrMap = constantArrMap;
+        this.globalArrMap = globalArrMap;
+        this.constantData = null;
+        this.globalData = null;
+        this.formatStrMap = formatStrMap;
+        this.entryList = new IRList();
+        this.funcList = new ArrayList<>();
+        this.mainFunc = null;
+    }
+
+    // 从序列化的中间代码读入时数据区只有标签和初值，没有对应的VarSymbol
+    public IRModule(HashMap<IRSymbol, ArrayList<Integer>> constantData,
+                    HashMap<IRSymbol, ArrayList<Integer>> globalData,
+                    HashMap<IRSymbol, String> formatStrMap, IRSymbol mainFunc) {
+        this.constantArrMap = null;
+        this.globalArrMap = null;
+        this.constantData = constantData;
+        this.globalData = globalData;
+        this.formatStrMap = formatStrMap;
+        this.entryList = new IRList();
+        this.funcList = new ArrayList<>();
+        this.mainFunc = mainFunc;
+    }
+
+    public IRFunction addFunction(IRFuncSymbol funcSymbol) {
+        IRFunction func = new IRFunction(funcSymbol);
+        funcList.add(func);
+        return func;
+    }
+
+    public ArrayList<IRFunction> getFuncList() {
+        return funcList;
+    }
+
+    public IRList getEntryList() {
+        return entryList;
+    }
+
+    public HashMap<VarSymbol, IRSymbol> getConstantArrMap() {
+        return constantArrMap;
+    }
+
+    public HashMap<VarSymbol, IRSymbol> getGlobalArrMap() {
+        return globalArrMap;
+    }
+
+    // 常量数组的标签及其全部初值（按行展开）
+    public HashMap<IRSymbol, ArrayList<Integer>> getConstantData() {
+        return (constantArrMap == null) ? constantData : collectData(constantArrMap);
+    }
+
+    // 全局变量（含数组）的标签及其全部初值
+    public HashMap<IRSymbol, ArrayList<Integer>> getGlobalData() {
+        return (globalArrMap == null) ? globalData : collectData(globalArrMap);
+    }
+
+    private static HashMap<IRSymbol, ArrayList<Integer>> collectData(HashMap<VarSymbol, IRSymbol> arrMap) {
+        HashMap<IRSymbol, ArrayList<Integer>> dataMap = new LinkedHashMap<>(); // 与arrMap的顺序相同
+        for (VarSymbol varSymbol : arrMap.keySet()) {
+            dataMap.put(arrMap.get(varSymbol), varSymbol.constGetAllValue());
+        }
+        return dataMap;
+    }
+
+    public HashMap<IRSymbol, String> getFormatStrMap() {
+        return formatStrMap;
+    }
+
+    public void setMainFunc(IRSymbol mainFunc) {
+        this.mainFunc = mainFunc;
+    }
+
+    public IRSymbol getMainFunc() {
+        return mainFunc;
+    }
+
+    public int getInstNum() {
+        int instNum = entryList.size();
+        for (IRFunction func : funcList) {
+            instNum += func.getIRList().size();
+        }
+        return instNum;
+    }
+
+    public int getBlockNum() {
+        int blockNum = 0;
+        for (IRFunction func : funcList) {
+            blockNum += func.getBlockList().size();
+        }
+        return blockNum;
+    }
+
+    // 与IRTranslater.outputIR格式相同的文本，可由IRParser读回；数据区取自getConstantData和getGlobalData
+    public StringBuilder outputIR() {
+        StringBuilder outStr = new StringBuilder(".data\n");
+        appendData(outStr, getConstantData());
+        appendData(outStr, getGlobalData());
+        for (IRSymbol strSymbol : formatStrMap.keySet()) {
+            outStr.append(".align 2\n");
+            outStr.append(strSymbol.toString()).append(":\n.asciiz ");
+            outStr.append("\"").append(formatStrMap.get(strSymbol)).append("\"\n");
+        }
+        outStr.append("\n.text\n");
+        for (IRElem irElem : toIRList()) {
+            outStr.append(irElem.toString()).append("\n");
+        }
+        return outStr;
+    }
+
+    private static void appendData(StringBuilder outStr, HashMap<IRSymbol, ArrayList<Integer>> dataMap) {
+        for (IRSymbol labelSymbol : dataMap.keySet()) {
+            outStr.append(".align 2\n");
+            outStr.append(labelSymbol.toString()).append(":\n.word ");
+            ArrayList<Integer> valueList = dataMap.get(labelSymbol);
+            int i;
+            for (i = 0; i < valueList.size() - 1; ++i) {
+                outStr.append(valueList.get(i)).append(", ");
+            }
+            outStr.append(valueList.get(i)).append("\n");
+        }
+    }
+
+    // 拼接成整个程序的指令序列（新的序列，修改它不影响各函数）
+    public IRList toIRList() {
+        IRList iRList = new IRList(getInstNum());
+        iRList.addAll(entryList);
+        for (IRFunction func : funcList) {
+            iRList.addAll(func.getIRList());
+        }
+        return iRList;
+    }
+}
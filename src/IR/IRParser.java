@@ -0,0 +1,281 @@
+package IR;
+
+import Exceptions.IRParseException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/*
+ * 读入IRTranslater.outputIR / IRModule.outputIR输出的文本中间代码，重建IRModule
+ * .data段：每项为"#id:"一行，之后一行".word v1, v2, ..."或".asciiz "..."" （".align"行忽略）
+ * .text段：每行一条IRElem.toString()的结果，FUNC行之前的指令为入口序列，其中第一条BR的目标为main的入口
+ * 文本中不区分常量数组与全局变量，".word"项都读作全局变量；两者在目标代码中都放在数据区，按标签访问，没有区别
+ * 函数的入口标签取FUNC行之后紧接的标签行，函数以"name()"引用，调用可以出现在函数定义之前
+ * 标签按原编号恢复到当前线程的标签管理器中（先重置），之后优化时新分配的标签不会与之重复
+ * 结构不完整的输入（如被截断）在这里报错：每个函数必须以RET或EXIT结束，跳转目标必须是定义过的标签，被调用的函数必须有定义
+ */
+public class IRParser {
+    private static final String[] binaryOps = {"+", "-", "*", "/", "%", "<<", ">>", ">>A", "&",
+            ">", ">=", "<", "<=", "==", "!="};
+    private static final int[] binaryTypes = {IRElem.ADD, IRElem.MINU, IRElem.MULT, IRElem.DIV, IRElem.MOD,
+            IRElem.LSHIFT, IRElem.RSHIFT, IRElem.RASHIFT, IRElem.AND,
+            IRElem.GRE, IRElem.GEQ, IRElem.LSS, IRElem.LEQ, IRElem.EQL, IRElem.NEQ};
+    private static final HashMap<String, Integer> binaryOpMap = new HashMap<>();
+
+    static {
+        for (int i = 0; i < binaryOps.length; i++) {
+            binaryOpMap.put(binaryOps[i], binaryTypes[i]);
+        }
+    }
+
+    private String irText;
+    private int lineNum;
+    private IRLabelManager labelManager;
+    private HashMap<String, IRFuncSymbol> funcMap; // 函数名 -> 函数符号，被调用和被定义时都登记
+    private HashMap<IRFuncSymbol, Integer> funcDefLineMap; // 已定义的函数及其FUNC所在行
+    private HashSet<IRSymbol> labelDefSet; // .text段中定义过的标签
+    private LinkedHashMap<IRSymbol, Integer> jumpLineMap; // 跳转目标 -> 第一次跳转到它的行
+
+    public IRParser(CharSequence irText) {
+        this.irText = irText.toString();
+        this.funcMap = new HashMap<>();
+        this.funcDefLineMap = new HashMap<>();
+        this.labelDefSet = new HashSet<>();
+        this.jumpLineMap = new LinkedHashMap<>();
+    }
+
+    public IRModule parse() throws IRParseException {
+        labelManager = IRLabelManager.resetIRLabelManager();
+        HashMap<IRSymbol, ArrayList<Integer>> globalData = new LinkedHashMap<>(); // 数据区保持文本中的顺序
+        HashMap<IRSymbol, String> formatStrMap = new LinkedHashMap<>();
+        IRModule iRModule = new IRModule(new LinkedHashMap<>(), globalData, formatStrMap, null);
+        IRList iRList = iRModule.getEntryList();
+        IRFuncSymbol curFunc = null; // 刚读到FUNC行、尚未确定入口标签的函数
+        IRFuncSymbol textFunc = null; // 当前指令所属的函数
+        int lastInstLine = 0;
+        IRLabelSymbol dataLabel = null;
+        boolean inText = false;
+        lineNum = 0;
+        int lineStart = 0;
+        while (lineStart < irText.length()) {
+            int lineEnd = irText.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = irText.length();
+            }
+            String line = irText.substring(lineStart, lineEnd).trim();
+            lineStart = lineEnd + 1;
+            lineNum++;
+            if (line.isEmpty() || line.startsWith(".align")) {
+                continue;
+            } else if (line.equals(".data")) {
+                inText = false;
+                continue;
+            } else if (line.equals(".text")) {
+                inText = true;
+                continue;
+            }
+            if (!inText) { // 数据区
+                if (line.endsWith(":")) {
+                    dataLabel = parseLabel(line.substring(0, line.length() - 1));
+                } else if (dataLabel == null) {
+                    throw new IRParseException(lineNum, "data without label");
+                } else if (line.startsWith(".word ")) {
+                    ArrayList<Integer> valueList = new ArrayList<>();
+                    for (String value : line.substring(6).split(",")) {
+                        valueList.add(parseInt(value.trim()));
+                    }
+                    dataLabel.setGlobal(true);
+                    globalData.put(dataLabel, valueList);
+                    dataLabel = null;
+                } else if (line.startsWith(".asciiz ")) {
+                    int strStart = line.indexOf('"'), strEnd = line.lastIndexOf('"');
+                    if (strStart < 0 || strEnd <= strStart) {
+                        throw new IRParseException(lineNum, "bad string " + line);
+                    }
+                    formatStrMap.put(dataLabel, line.substring(strStart + 1, strEnd));
+                    dataLabel = null;
+                } else {
+                    throw new IRParseException(lineNum, "unknown directive " + line);
+                }
+                continue;
+            }
+            String[] tokens = line.split(" ");
+            if (tokens[0].equals("FUNC")) {
+                checkFuncEnd(textFunc, iRList, lastInstLine);
+                curFunc = parseFuncDef(tokens);
+                textFunc = curFunc;
+                iRList = iRModule.addFunction(curFunc).getIRList();
+                iRList.add(new IRElem(IRElem.FUNC, curFunc, curFunc.getfParamList()));
+                continue;
+            }
+            IRElem inst = parseInst(line, tokens);
+            if (curFunc != null) { // FUNC之后紧接的标签即函数入口
+                if (inst.getType() == IRElem.LABEL) {
+                    curFunc.setEntry(inst.getOp3());
+                }
+                curFunc = null;
+            }
+            if (iRModule.getMainFunc() == null && iRModule.getFuncList().isEmpty() && inst.getType() == IRElem.BR) {
+                iRModule.setMainFunc(inst.getOp3());
+            }
+            if (inst.getType() == IRElem.LABEL) {
+                labelDefSet.add(inst.getOp3());
+            } else if (inst.getType() == IRElem.BR || inst.getType() == IRElem.BZ || inst.getType() == IRElem.BNZ) {
+                jumpLineMap.putIfAbsent(inst.getOp3(), lineNum);
+            }
+            iRList.add(inst);
+            lastInstLine = lineNum;
+        }
+        checkFuncEnd(textFunc, iRList, lastInstLine);
+        for (IRSymbol target : jumpLineMap.keySet()) {
+            if (!labelDefSet.contains(target)) {
+                throw new IRParseException(jumpLineMap.get(target), "jump to undefined label " + target);
+            }
+        }
+        for (IRFuncSymbol funcSymbol : funcMap.values()) {
+            if (!funcDefLineMap.containsKey(funcSymbol)) {
+                throw new IRParseException(lineNum, "function " + funcSymbol + " is called but not defined");
+            }
+            if (funcSymbol.getEntry() == null) { // 入口标签已被优化掉
+                funcSymbol.setEntry(labelManager.allocSymbol());
+            }
+        }
+        return iRModule;
+    }
+
+    // 函数的最后一条指令必须是RET或EXIT，否则会执行到下一个函数，优化时也无法划分出完整的基本块
+    private void checkFuncEnd(IRFuncSymbol funcSymbol, IRList iRList, int lastInstLine) throws IRParseException {
+        if (funcSymbol == null) {
+            return;
+        }
+        int lastType = iRList.size() <= 1 ? -1 : iRList.getLast().getType(); // 只有FUNC一条时函数体为空
+        if (lastType != IRElem.RET && lastType != IRElem.EXIT) {
+            throw new IRParseException(lastInstLine, "function " + funcSymbol + " does not end with RET or EXIT");
+        }
+    }
+
+    private IRFuncSymbol parseFuncDef(String[] tokens) throws IRParseException {
+        if (tokens.length < 3 || !tokens[2].equals("PARAMS:")) {
+            throw new IRParseException(lineNum, "bad function definition");
+        }
+        IRFuncSymbol funcSymbol = getFunc(tokens[1]);
+        if (funcDefLineMap.containsKey(funcSymbol)) {
+            throw new IRParseException(lineNum, "function " + tokens[1] + " redefined");
+        }
+        funcDefLineMap.put(funcSymbol, lineNum);
+        funcSymbol.setfParamList(parseOperandList(tokens, 3));
+        return funcSymbol;
+    }
+
+    private IRElem parseInst(String line, String[] tokens) throws IRParseException {
+        int length = tokens.length;
+        if (length == 1 && line.endsWith(":")) {
+            return new IRElem(IRElem.LABEL, parseLabel(line.substring(0, line.length() - 1)));
+        }
+        switch (tokens[0]) {
+            case "RET":
+                return new IRElem(IRElem.RET);
+            case "EXIT":
+                return new IRElem(IRElem.EXIT);
+            case "BR":
+                checkLength(tokens, 2);
+                return new IRElem(IRElem.BR, parseLabel(tokens[1]));
+            case "BZ":
+                checkLength(tokens, 5);
+                return new IRElem(IRElem.BZ, parseLabel(tokens[1]), parseOperand(tokens[3]));
+            case "BNZ":
+                checkLength(tokens, 6);
+                return new IRElem(IRElem.BNZ, parseLabel(tokens[1]), parseOperand(tokens[3]));
+            case "SETRET":
+                checkLength(tokens, 2);
+                return new IRElem(IRElem.SETRET, parseOperand(tokens[1]));
+            case "PRINTSTR":
+                checkLength(tokens, 2);
+                return new IRElem(IRElem.PRINTS, parseLabel(tokens[1]));
+            case "PRINTINT":
+                checkLength(tokens, 2);
+                return new IRElem(IRElem.PRINTI, parseOperand(tokens[1]));
+            case "LOAD":
+            case "STORE": // LOAD a FROM BASE b OFFSET c
+                checkLength(tokens, 7);
+                return new IRElem(tokens[0].equals("LOAD") ? IRElem.LOAD : IRElem.STORE,
+                        parseOperand(tokens[1]), parseOperand(tokens[4]), parseOperand(tokens[6]));
+            case "ALLOCA":
+                checkLength(tokens, 5);
+                return new IRElem(IRElem.ALLOCA, parseLabel(tokens[1]), parseOperand(tokens[3]));
+        }
+        if (length < 3 || !tokens[1].equals("=")) {
+            throw new IRParseException(lineNum, "unknown instruction " + line);
+        }
+        IRSymbol op3 = parseLabel(tokens[0]);
+        if (tokens[2].equals("CALL")) { // #r = CALL f() PARAMS: ...
+            if (length < 5 || !tokens[4].equals("PARAMS:")) {
+                throw new IRParseException(lineNum, "bad call " + line);
+            }
+            return new IRElem(IRElem.CALL, op3, getFunc(tokens[3]), parseOperandList(tokens, 5));
+        } else if (length == 3) {
+            if (tokens[2].equals("GETINT")) {
+                return new IRElem(IRElem.GETINT, op3);
+            }
+            return new IRElem(IRElem.ASSIGN, op3, parseOperand(tokens[2]));
+        }
+        checkLength(tokens, 5);
+        Integer type = binaryOpMap.get(tokens[3]);
+        if (type == null) {
+            throw new IRParseException(lineNum, "unknown operator " + tokens[3]);
+        }
+        return new IRElem(type, op3, parseOperand(tokens[2]), parseOperand(tokens[4]));
+    }
+
+    private IRFuncSymbol getFunc(String token) throws IRParseException {
+        if (!token.endsWith("()")) {
+            throw new IRParseException(lineNum, "bad function name " + token);
+        }
+        String funcName = token.substring(0, token.length() - 2);
+        IRFuncSymbol funcSymbol = funcMap.get(funcName);
+        if (funcSymbol == null) {
+            funcSymbol = new IRFuncSymbol(funcName);
+            funcSymbol.setfParamList(new ArrayList<>());
+            funcMap.put(funcName, funcSymbol);
+        }
+        return funcSymbol;
+    }
+
+    private ArrayList<IRSymbol> parseOperandList(String[] tokens, int start) throws IRParseException {
+        ArrayList<IRSymbol> symbolList = new ArrayList<>(tokens.length - start);
+        for (int i = start; i < tokens.length; i++) {
+            symbolList.add(parseOperand(tokens[i]));
+        }
+        return symbolList;
+    }
+
+    private IRSymbol parseOperand(String token) throws IRParseException {
+        if (token.startsWith("#")) {
+            return parseLabel(token);
+        }
+        return new IRImmSymbol(parseInt(token));
+    }
+
+    private IRLabelSymbol parseLabel(String token) throws IRParseException {
+        if (!token.startsWith("#")) {
+            throw new IRParseException(lineNum, "label expected, got " + token);
+        }
+        return labelManager.restoreSymbol(parseInt(token.substring(1)));
+    }
+
+    private int parseInt(String token) throws IRParseException {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IRParseException(lineNum, "number expected, got " + token);
+        }
+    }
+
+    private void checkLength(String[] tokens, int length) throws IRParseException {
+        if (tokens.length != length) {
+            throw new IRParseException(lineNum, "expected " + length + " fields, got " + tokens.length);
+        }
+    }
+}
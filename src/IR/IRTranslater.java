@@ -8,46 +8,56 @@ import IR.IRLabelManager;
 import IR.IRLabelSymbol;
 import IR.IRSymbol;
 import Symbols.FuncSymbol;
+import Symbols.IntHashMap;
+import Symbols.NameTable;
 import Symbols.SymbolTable;
 import Symbols.VarSymbol;
-import SyntaxClasses.ConstIntToken;
 import SyntaxClasses.FormatStringToken;
 import SyntaxClasses.SyntaxClass;
+import SyntaxClasses.SyntaxTree;
 import SyntaxClasses.Token;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 
 public class IRTranslater {
-    private SyntaxClass compUnit;
+    private SyntaxTree tree;
+    private CompUnitSimplifyer compUnitSimplifyer; // 常量表达式求值
+    private int compUnit;
     private HashMap<VarSymbol, IRSymbol> constantArrMap; // 常量数组无法消干净
     private HashMap<VarSymbol, IRSymbol> globalArrMap; // 全局数组
     private HashMap<IRSymbol, String> formatStrMap; // 格式字符串作常量存
-    private HashMap<String, IRFuncSymbol> funcMap; // 函数名和函数标签对应
-    private LinkedList<IRElem> iRList;
+    private IntHashMap<IRFuncSymbol> funcMap; // 函数名（名字表编号）和函数标签对应
+    private IRModule iRModule; // 按函数划分的中间代码
+    private IRList iRList; // 当前正在生成的指令序列：函数内为该函数的序列，函数外为入口序列
+    private WorkStack workStack; // 表达式和语句翻译用的显式栈
+    private ArrayList<IRSymbol> symbolStack; // 已翻译的子表达式的结果，以及嵌套语句翻译完后要用的标签
     private int globalVarID;
     private IRLabelManager iRLabelManager;
     private IRSymbol mainFunc;
-
-    public IRTranslater(SyntaxClass compUnit) {
-        this.compUnit = compUnit;
-        constantArrMap = new HashMap<>();
-        globalArrMap = new HashMap<>();
-        formatStrMap = new HashMap<>();
-        funcMap = new HashMap<>();
-        iRList = new LinkedList<>();
+    private int globalLabelNum; // 全局Decl翻译完时已分配的标签数，之后的标签都属于某个函数
+
+    public IRTranslater(SyntaxTree tree) {
+        this.tree = tree;
+        this.compUnitSimplifyer = new CompUnitSimplifyer(tree);
+        this.compUnit = tree.getRoot();
+        constantArrMap = new LinkedHashMap<>(); // 数据区按声明顺序输出，不随散列顺序变化
+        globalArrMap = new LinkedHashMap<>();
+        formatStrMap = new LinkedHashMap<>();
+        funcMap = new IntHashMap<>();
+        iRModule = new IRModule(constantArrMap, globalArrMap, formatStrMap);
+        iRList = iRModule.getEntryList();
+        workStack = new WorkStack();
+        symbolStack = new ArrayList<>();
         globalVarID = 0;
         iRLabelManager = IRLabelManager.getIRLabelManager();
         mainFunc = null;
+        globalLabelNum = -1;
     }
 
-    public void setiRList(LinkedList<IRElem> iRList) {
-        this.iRList = iRList;
-    }
-
-    public SyntaxClass getCompUnit() {
-        return compUnit;
+    public SyntaxTree getSyntaxTree() {
+        return tree;
     }
 
     public IRSymbol getMainFunc() {
@@ -58,8 +68,17 @@ public class IRTranslater {
         return iRLabelManager;
     }
 
-    public LinkedList<IRElem> getIRList() {
-        return iRList;
+    public IRModule getIRModule() {
+        return iRModule;
+    }
+
+    // 整个程序的指令序列，由入口序列和各函数拼接而成
+    public IRList getIRList() {
+        return iRModule.toIRList();
+    }
+
+    public int getGlobalLabelNum() {
+        return globalLabelNum;
     }
 
     public HashMap<IRSymbol, String> getFormatStrMap() {
@@ -74,19 +93,21 @@ public class IRTranslater {
         return globalArrMap;
     }
 
-    public void constDeclTrans(SyntaxClass constDecl) {
-        ArrayList<SyntaxClass> sonList = constDecl.getSonNodeList();
-        for (int i = 2; i < sonList.size() - 1; i += 2) {
-            constDefTrans(sonList.get(i));
+    public void constDeclTrans(int constDecl) {
+        for (int i = 2; i < tree.getSonNum(constDecl) - 1; i += 2) {
+            constDefTrans(tree.getSon(constDecl, i));
         }
     }
 
     public void compUnitTrans() {
-        ArrayList<SyntaxClass> sonList = compUnit.getSonNodeList();
-        for (SyntaxClass syntaxClass : sonList) {
-            if (syntaxClass.getSyntaxType() == SyntaxClass.DECL) {
+        for (int i = 0; i < tree.getSonNum(compUnit); i++) {
+            int syntaxClass = tree.getSon(compUnit, i);
+            if (tree.getSyntaxType(syntaxClass) != SyntaxClass.DECL && globalLabelNum < 0) {
+                globalLabelNum = iRLabelManager.getLabelNum(); // 全局Decl都在函数之前
+            }
+            if (tree.getSyntaxType(syntaxClass) == SyntaxClass.DECL) {
                 declTrans(syntaxClass, true);
-            } else if (syntaxClass.getSyntaxType() == SyntaxClass.FUNCDEF) {
+            } else if (tree.getSyntaxType(syntaxClass) == SyntaxClass.FUNCDEF) {
                 funcDefTrans(syntaxClass);
             } else {
                 mainFunc = mainFuncDefTrans(syntaxClass);
@@ -94,17 +115,16 @@ public class IRTranslater {
                 IRSymbol retSymbol = iRLabelManager.allocSymbol();
                 ArrayList<IRSymbol> paramList = new ArrayList<>();
                 IRElem progEnter = new IRElem(IRElem.CALL, retSymbol, funcIRSymbol, paramList);*/
+                iRModule.setMainFunc(mainFunc);
                 IRElem progEnter = new IRElem(IRElem.BR, mainFunc);
-                iRList.addFirst(progEnter);
+                iRModule.getEntryList().addFirst(progEnter);
             }
         }
     }
 
-    public void constDefTrans(SyntaxClass constDef) {
-        ArrayList<SyntaxClass> sonList = constDef.getSonNodeList();
-        Token ident = (Token) sonList.get(0);
-        SymbolTable curEnv = constDef.getCurEnv();
-        VarSymbol constSymbol = curEnv.varGlobalLookup(ident.getTokenContext());
+    public void constDefTrans(int constDef) {
+        SymbolTable curEnv = tree.getCurEnv(constDef);
+        VarSymbol constSymbol = tree.getVarSymbol(constDef);
         if (constSymbol.getDimType() != 0) {
             IRLabelSymbol constIRLabel = iRLabelManager.allocSymbol();
             constantArrMap.put(constSymbol, constIRLabel);
@@ -112,21 +132,18 @@ public class IRTranslater {
         }
     }
 
-    public void varDeclTrans(SyntaxClass varDecl, boolean isGlobal) {
-        ArrayList<SyntaxClass> sonList = varDecl.getSonNodeList();
-        for (int i = 1; i < sonList.size() - 1; i += 2) {
-            varDefTrans(sonList.get(i), isGlobal);
+    public void varDeclTrans(int varDecl, boolean isGlobal) {
+        for (int i = 1; i < tree.getSonNum(varDecl) - 1; i += 2) {
+            varDefTrans(tree.getSon(varDecl, i), isGlobal);
         }
     }
 
-    public void varDefTrans(SyntaxClass varDef, boolean isGlobal) {
-        ArrayList<SyntaxClass> sonList = varDef.getSonNodeList();
-        Token ident = (Token) sonList.get(0);
-        SymbolTable curEnv = varDef.getCurEnv();
-        VarSymbol varSymbol = curEnv.varGlobalLookup(ident.getTokenContext());
+    public void varDefTrans(int varDef, boolean isGlobal) {
+        SymbolTable curEnv = tree.getCurEnv(varDef);
+        VarSymbol varSymbol = tree.getVarSymbol(varDef);
         if (varSymbol.getDimType() == 0) { // 单变量，考虑是否初始化
-            if (sonList.size() > 1) { // 有初始化
-                IRSymbol initValSymbol = singleInitValTrans(sonList.get(2)); // 初始值算出来赋值到一个临时变量上
+            if (tree.getSonNum(varDef) > 1) { // 有初始化
+                IRSymbol initValSymbol = singleInitValTrans(tree.getSon(varDef, 2)); // 初始值算出来赋值到一个临时变量上
                 IRLabelSymbol varIRLabel = iRLabelManager.allocSymbol(); // 给新定义的变量申请符号
                 curEnv.setVarRef(varSymbol, varIRLabel); // 设置引用
                 if (isGlobal) {
@@ -163,22 +180,20 @@ public class IRTranslater {
                 iRList.add(identIRElem);
             }
             // 全局数组初始化求值已在前面的Simplify处理完成
-            if (varSymbol.getDimType() == 1 && sonList.size() > 4 && !isGlobal) { // 局部一维数组初始化
-                SyntaxClass arrInitVal = sonList.get(5);
-                ArrayList<SyntaxClass> initValList = arrInitVal.getSonNodeList();
+            if (varSymbol.getDimType() == 1 && tree.getSonNum(varDef) > 4 && !isGlobal) { // 局部一维数组初始化
+                int arrInitVal = tree.getSon(varDef, 5);
                 for (int i = 0; i < varSymbol.getDimLength(0); ++i) {
-                    IRSymbol initSymbol = singleInitValTrans(initValList.get(2 * i + 1)); // 计算要赋的值
+                    IRSymbol initSymbol = singleInitValTrans(tree.getSon(arrInitVal, 2 * i + 1)); // 计算要赋的值
                     IRElem initElem = new IRElem(IRElem.STORE, initSymbol, irLabel,
                             new IRImmSymbol(i * 4));
                     iRList.add(initElem);
                 }
-            } else if (varSymbol.getDimType() == 2 && sonList.size() > 7 && !isGlobal) { // 局部二维数组初始化
-                SyntaxClass arrInitVal = sonList.get(8);
-                ArrayList<SyntaxClass> initValListList = arrInitVal.getSonNodeList();
+            } else if (varSymbol.getDimType() == 2 && tree.getSonNum(varDef) > 7 && !isGlobal) { // 局部二维数组初始化
+                int arrInitVal = tree.getSon(varDef, 8);
                 for (int i = 0; i < varSymbol.getDimLength(1); ++i) {
-                    ArrayList<SyntaxClass> initValList = initValListList.get(2 * i + 1).getSonNodeList();
+                    int initValList = tree.getSon(arrInitVal, 2 * i + 1);
                     for (int j = 0; j < varSymbol.getDimLength(0); ++j) {
-                        IRSymbol initSymbol = singleInitValTrans(initValList.get(2 * j + 1)); // 计算要赋的值
+                        IRSymbol initSymbol = singleInitValTrans(tree.getSon(initValList, 2 * j + 1)); // 计算要赋的值
                         IRElem initElem = new IRElem(IRElem.STORE, initSymbol, irLabel,
                                 new IRImmSymbol((i * varSymbol.getDimLength(0) + j) * 4));
                         iRList.add(initElem);
@@ -188,10 +203,10 @@ public class IRTranslater {
         }
     }
 
-    public IRSymbol singleInitValTrans(SyntaxClass initVal) { // InitVal -> Exp
-        SyntaxClass exp = initVal.getSonNodeList().get(0);
+    public IRSymbol singleInitValTrans(int initVal) { // InitVal -> Exp
+        int exp = tree.getSon(initVal, 0);
         IRSymbol expIRSymbol;
-        if (exp.getSyntaxType() == SyntaxClass.CONSTEXP) {
+        if (tree.getSyntaxType(exp) == SyntaxClass.CONSTEXP) {
             expIRSymbol = constExpTrans(exp);
         } else {
             expIRSymbol = expTrans(exp);
@@ -199,248 +214,181 @@ public class IRTranslater {
         return expIRSymbol;
     }
 
-    public IRSymbol constExpTrans(SyntaxClass constExp) {
-        if (!constExp.isCalculated()) {
-            CompUnitSimplifyer.constExpCal(constExp);
+    public IRSymbol constExpTrans(int constExp) {
+        if (!tree.isCalculated(constExp)) {
+            compUnitSimplifyer.constExpCal(constExp);
         }
-        return new IRImmSymbol(constExp.getConstValue());
+        return new IRImmSymbol(tree.getConstValue(constExp));
     }
 
-    public IRSymbol expTrans(SyntaxClass exp) {
-        if (exp.isCalculated()) {
-            return new IRImmSymbol(exp.getConstValue());
-        }
-        return addExpTrans(exp.getSonNodeList().get(0));
+    public IRSymbol expTrans(int exp) {
+        return expressionTrans(exp, true);
     }
 
-    public IRSymbol addExpTrans(SyntaxClass addExp) {
-        if (addExp.isCalculated()) {
-            return new IRImmSymbol(addExp.getConstValue());
-        }
-        IRSymbol symbol0;
-        SyntaxClass subExp0 = addExp.getSonNodeList().get(0);
-        if (subExp0.getSyntaxType() == SyntaxClass.MULEXP) {
-            symbol0 = mulExpTrans(subExp0);
-        } else {
-            symbol0 = addExpTrans(subExp0);
-        }
-        if (addExp.getSonNodeList().size() > 1) { // Exp0 +/- Exp1
-            SyntaxClass subExp1 = addExp.getSonNodeList().get(2);
-            IRSymbol symbol1;
-            if (subExp1.getSyntaxType() == SyntaxClass.MULEXP) {
-                symbol1 = mulExpTrans(subExp1);
-            } else {
-                symbol1 = addExpTrans(subExp1);
-            }
-            Token mathToken = (Token) addExp.getSonNodeList().get(1);
-            IRLabelSymbol resSymbol = iRLabelManager.allocSymbol(); // 申请新符号
-            IRElem exprIR;
-            if (mathToken.getTokenType() == Token.PLUS) {
-                exprIR = new IRElem(IRElem.ADD, resSymbol, symbol0, symbol1);
-            } else {
-                exprIR = new IRElem(IRElem.MINU, resSymbol, symbol0, symbol1);
-            }
-            iRList.add(exprIR);
-            return resSymbol;
-        } else {
-            return symbol0;
-        }
+    // AddExp层的表达式，已折叠为二元运算、一元运算、函数调用、(Exp)、LVal或IntConst结点
+    public IRSymbol addExpTrans(int addExp) {
+        return expressionTrans(addExp, true);
     }
 
-    public IRSymbol mulExpTrans(SyntaxClass mulExp) {
-        if (mulExp.isCalculated()) {
-            return new IRImmSymbol(mulExp.getConstValue());
-        }
-        IRSymbol symbol0;
-        SyntaxClass subExp0 = mulExp.getSonNodeList().get(0);
-        if (subExp0.getSyntaxType() == SyntaxClass.UNARYEXP) {
-            symbol0 = unaryExpTrans(subExp0);
-        } else {
-            symbol0 = mulExpTrans(subExp0);
-        }
-        if (mulExp.getSonNodeList().size() > 1) { // Exp0 * or / Exp1
-            SyntaxClass subExp1 = mulExp.getSonNodeList().get(2);
-            IRSymbol symbol1;
-            if (subExp1.getSyntaxType() == SyntaxClass.UNARYEXP) {
-                symbol1 = unaryExpTrans(subExp1);
-            } else {
-                symbol1 = mulExpTrans(subExp1);
-            }
-            Token mathToken = (Token) mulExp.getSonNodeList().get(1);
-            IRLabelSymbol resSymbol = iRLabelManager.allocSymbol(); // 申请新符号
-            IRElem exprIR;
-            if (mathToken.getTokenType() == Token.MULT) {
-                exprIR = new IRElem(IRElem.MULT, resSymbol, symbol0, symbol1);
-            } else if (mathToken.getTokenType() == Token.DIV) {
-                exprIR = new IRElem(IRElem.DIV, resSymbol, symbol0, symbol1);
-            } else {
-                exprIR = new IRElem(IRElem.MOD, resSymbol, symbol0, symbol1);
-            }
-            iRList.add(exprIR);
-            return resSymbol;
-        } else {
-            return symbol0;
-        }
-    }
-
-    public IRSymbol unaryExpTrans(SyntaxClass unaryExp) {
-        if (unaryExp.isCalculated()) {
-            return new IRImmSymbol(unaryExp.getConstValue());
-        }
-        ArrayList<SyntaxClass> sonList = unaryExp.getSonNodeList();
-        if (sonList.size() == 1) { // PrimaryExp
-            return primaryExpTrans(sonList.get(0));
-        } else if (sonList.size() == 2) { // UnaryOp UnaryExp
-            IRSymbol resSymbol;
-            IRSymbol subExpSymbol = unaryExpTrans(sonList.get(1));
-            Token mathSymbol = (Token) sonList.get(0).getSonNodeList().get(0);
-            if (mathSymbol.getTokenType() == Token.MINU) { // -
-                resSymbol = iRLabelManager.allocSymbol();
-                IRElem exprIR = new IRElem(IRElem.MINU, resSymbol,
-                        IRImmSymbol.ZERO, subExpSymbol);
-                iRList.add(exprIR);
-            } else if (mathSymbol.getTokenType() == Token.PLUS) { // +
-                resSymbol = subExpSymbol;
-            } else { // !
-                resSymbol = iRLabelManager.allocSymbol();
-                IRElem exprIR = new IRElem(IRElem.EQL, resSymbol,
-                        IRImmSymbol.ZERO, subExpSymbol); // 用 EQL 0 来逻辑取反
-                iRList.add(exprIR);
-            }
-            return resSymbol;
-        } else {
-            return funcCallTrans(unaryExp);
-        }
-    }
-
-    public IRSymbol funcCallTrans(SyntaxClass funcCallUnaryExp) {
-        ArrayList<SyntaxClass> funcCallList = funcCallUnaryExp.getSonNodeList();
-        Token funcIdent = (Token) funcCallList.get(0);
-        SymbolTable curEnv = funcCallUnaryExp.getCurEnv();
-        FuncSymbol funcSymbol = curEnv.funcGlobalLookup(funcIdent.getTokenContext());
-        SyntaxClass funcRParams = funcCallList.get(2);
-        ArrayList<IRSymbol> paramList = new ArrayList<>();
-        if (funcRParams.getSyntaxType() == SyntaxClass.FUNCRPARAMS) { // 从左往右计算各参数
-            ArrayList<SyntaxClass> realParamList = funcRParams.getSonNodeList();
-            for (int i = 0; i < realParamList.size(); i += 2) {
-                IRSymbol paramSymbol = expTrans(realParamList.get(i));
-                paramList.add(paramSymbol);
-            }
-        }
-        IRSymbol funcIRSymbol = funcMap.get(funcIdent.getTokenContext());
-        IRSymbol retSymbol = iRLabelManager.allocSymbol();
-        IRElem funcCalling = new IRElem(IRElem.CALL, retSymbol, funcIRSymbol, paramList);
-        iRList.add(funcCalling);
-        return retSymbol;
+    // LVal作为赋值对象时不取出数组元素的值
+    public IRSymbol lValTrans(int lVal) {
+        return expressionTrans(lVal, false);
     }
 
-    public IRSymbol primaryExpTrans(SyntaxClass primaryExp) {
-        if (primaryExp.isCalculated()) {
-            return new IRImmSymbol(primaryExp.getConstValue());
-        }
-        SyntaxClass subExp = primaryExp.getSonNodeList().get(0);
-        if (subExp.getSyntaxType() == SyntaxClass.NUMBER) {
-            return numberTrans(subExp);
-        } else if (subExp.getSyntaxType() == SyntaxClass.LVAL) {
-            // 此处LVal只会取值不会存值
-            IRSymbol lValSymbol = lValTrans(subExp);
-            if (lValSymbol instanceof IRArrSymbol) { // 数组
-                IRSymbol valueSymbol = iRLabelManager.allocSymbol();
-                IRElem loadElem = new IRElem(IRElem.LOAD, valueSymbol,
-                        ((IRArrSymbol) lValSymbol).getBaseAddr(),
-                        ((IRArrSymbol) lValSymbol).getOffset());
-                iRList.add(loadElem);
-                return valueSymbol;
-            } else {
-                return lValSymbol;
+    /* 表达式翻译，用显式栈代替递归，生成的中间代码顺序与递归翻译时相同：
+     * 结点第一次出栈（步骤0）时压回自身的下一步，再倒序压入子表达式，子表达式的结果依次放在symbolStack中，
+     * 子表达式都翻译完后再取出它们的结果翻译本结点。loadRoot为false时根结点是数组元素也不取值
+     */
+    private IRSymbol expressionTrans(int root, boolean loadRoot) {
+        int base = workStack.size();
+        workStack.push(root, 0);
+        while (workStack.size() > base) {
+            int node = workStack.topNode();
+            int state = workStack.topState();
+            workStack.pop();
+            if (state == 0 && tree.isCalculated(node)) { // 包括IntConst
+                symbolStack.add(new IRImmSymbol(tree.getConstValue(node)));
+                continue;
+            }
+            int syntaxType = tree.getSyntaxType(node);
+            if (syntaxType == SyntaxClass.EXP) {
+                workStack.push(tree.getSon(node, 0), 0);
+            } else if (syntaxType == SyntaxClass.PRIMARYEXP) { // (Exp)
+                workStack.push(tree.getSon(node, 1), 0);
+            } else if (syntaxType == SyntaxClass.BINARYEXP) {
+                if (state == 0) {
+                    workStack.push(node, 1);
+                    workStack.push(tree.getSon(node, 2), 0);
+                    workStack.push(tree.getSon(node, 0), 0);
+                } else {
+                    IRSymbol symbol1 = popSymbol();
+                    IRSymbol symbol0 = popSymbol();
+                    symbolStack.add(binaryExpTrans(node, symbol0, symbol1));
+                }
+            } else if (syntaxType == SyntaxClass.UNARYOPEXP) {
+                if (state == 0) {
+                    workStack.push(node, 1);
+                    workStack.push(tree.getSon(node, 1), 0);
+                } else {
+                    symbolStack.add(unaryExpTrans(node, popSymbol()));
+                }
+            } else if (syntaxType == SyntaxClass.UNARYEXP) { // 函数调用
+                int funcRParams = tree.getSon(node, 2);
+                boolean hasParams = tree.getSyntaxType(funcRParams) == SyntaxClass.FUNCRPARAMS;
+                if (state == 0) { // 从左往右计算各参数
+                    workStack.push(node, 1);
+                    for (int i = hasParams ? tree.getSonNum(funcRParams) - 1 : -1; i >= 0; i -= 2) {
+                        workStack.push(tree.getSon(funcRParams, i), 0);
+                    }
+                } else {
+                    int paramNum = hasParams ? (tree.getSonNum(funcRParams) + 1) / 2 : 0;
+                    ArrayList<IRSymbol> paramList = new ArrayList<>(
+                            symbolStack.subList(symbolStack.size() - paramNum, symbolStack.size()));
+                    symbolStack.subList(symbolStack.size() - paramNum, symbolStack.size()).clear();
+                    symbolStack.add(funcCallTrans(node, paramList));
+                }
+            } else { // LVal
+                lValStep(node, state, loadRoot || workStack.size() > base);
             }
-        } else {
-            subExp = primaryExp.getSonNodeList().get(1);
-            return expTrans(subExp);
         }
+        return popSymbol();
     }
 
-    public IRSymbol numberTrans(SyntaxClass number) {
-        if (number.isCalculated()) {
-            return new IRImmSymbol(number.getConstValue());
-        }
-        ConstIntToken subExp = (ConstIntToken) number.getSonNodeList().get(0);
-        return new IRImmSymbol(subExp.getMyValue());
+    private IRSymbol popSymbol() {
+        return symbolStack.remove(symbolStack.size() - 1);
     }
 
-    public IRSymbol lValTrans(SyntaxClass lVal) {
-        if (lVal.isCalculated()) {
-            return new IRImmSymbol(lVal.getConstValue());
-        }
-        ArrayList<SyntaxClass> sonList = lVal.getSonNodeList();
-        Token identToken = (Token) sonList.get(0);
-        SymbolTable curEnv = lVal.getCurEnv();
-        VarSymbol identSymbol = curEnv.varGlobalLookup(
-                identToken.getTokenContext(), lVal.getCurVarListPos());
-        if (identSymbol.getDimType() == 0) {
-            return lVal0DimTrans(lVal);
+    public IRSymbol binaryExpTrans(int binaryExp, IRSymbol symbol0, IRSymbol symbol1) { // Exp0 op Exp1
+        int mathToken = tree.getSon(binaryExp, 1);
+        IRLabelSymbol resSymbol = iRLabelManager.allocSymbol(); // 申请新符号
+        IRElem exprIR;
+        if (tree.getTokenType(mathToken) == Token.PLUS) {
+            exprIR = new IRElem(IRElem.ADD, resSymbol, symbol0, symbol1);
+        } else if (tree.getTokenType(mathToken) == Token.MINU) {
+            exprIR = new IRElem(IRElem.MINU, resSymbol, symbol0, symbol1);
+        } else if (tree.getTokenType(mathToken) == Token.MULT) {
+            exprIR = new IRElem(IRElem.MULT, resSymbol, symbol0, symbol1);
+        } else if (tree.getTokenType(mathToken) == Token.DIV) {
+            exprIR = new IRElem(IRElem.DIV, resSymbol, symbol0, symbol1);
         } else {
-            return lValArrTrans(lVal);
+            exprIR = new IRElem(IRElem.MOD, resSymbol, symbol0, symbol1);
         }
+        iRList.add(exprIR);
+        return resSymbol;
     }
 
-    public IRSymbol lVal0DimTrans(SyntaxClass lVal) { // 单常量/变量解析
-        if (lVal.isCalculated()) {
-            return new IRImmSymbol(lVal.getConstValue());
-        }
-        ArrayList<SyntaxClass> sonList = lVal.getSonNodeList();
-        Token identToken = (Token) sonList.get(0);
-        SymbolTable curEnv = lVal.getCurEnv();
-        VarSymbol identSymbol = curEnv.varGlobalLookup(
-                identToken.getTokenContext(), lVal.getCurVarListPos());
-        if (identSymbol.isVar()) {
-            IRLabelSymbol lValVarSymbol = curEnv.getLastVarRef(identSymbol);
-            if (lValVarSymbol == null) {
-                lValVarSymbol = iRLabelManager.allocSymbol();
-                // TODO: 刚刚修改的LVal新申请符号时加入记录
-                curEnv.setVarRef(identSymbol, lValVarSymbol);
-            } else if (lValVarSymbol.isGlobal()) { // 全局变量，视作数组
-                return new IRArrSymbol(lValVarSymbol, IRImmSymbol.ZERO);
-            }
-            return lValVarSymbol;
-        } else {
-            return new IRImmSymbol(identSymbol.constGetValue());
+    public IRSymbol unaryExpTrans(int unaryExp, IRSymbol subExpSymbol) { // UnaryOp UnaryExp
+        IRSymbol resSymbol;
+        int mathSymbol = tree.getSon(unaryExp, 0);
+        if (tree.getTokenType(mathSymbol) == Token.MINU) { // -
+            resSymbol = iRLabelManager.allocSymbol();
+            IRElem exprIR = new IRElem(IRElem.MINU, resSymbol,
+                    IRImmSymbol.ZERO, subExpSymbol);
+            iRList.add(exprIR);
+        } else if (tree.getTokenType(mathSymbol) == Token.PLUS) { // +
+            resSymbol = subExpSymbol;
+        } else { // !
+            resSymbol = iRLabelManager.allocSymbol();
+            IRElem exprIR = new IRElem(IRElem.EQL, resSymbol,
+                    IRImmSymbol.ZERO, subExpSymbol); // 用 EQL 0 来逻辑取反
+            iRList.add(exprIR);
         }
+        return resSymbol;
     }
 
-    public IRSymbol lValArrTrans(SyntaxClass lVal) { // 数组解析
-        if (lVal.isCalculated()) {
-            return new IRImmSymbol(lVal.getConstValue());
-        }
-        ArrayList<SyntaxClass> sonList = lVal.getSonNodeList();
-        Token identToken = (Token) sonList.get(0);
-        SymbolTable curEnv = lVal.getCurEnv();
-        VarSymbol identSymbol = curEnv.varGlobalLookup(
-                identToken.getTokenContext(), lVal.getCurVarListPos());
-        IRSymbol baseSymbol = curEnv.getLastVarRef(identSymbol);
-        if (sonList.size() == 1) {
-            // 明明是数组，但只传下来一个单独的Ident，说明这里是要地址
-            return baseSymbol;
-        }
-        SyntaxClass dim1Exp = sonList.get(2);
-        IRSymbol dim1Symbol = expTrans(dim1Exp);
-        if (identSymbol.getDimType() == 1) { // 一维数组
-            IRSymbol trueOffset = iRLabelManager.allocSymbol();
-            IRElem offsetCal = new IRElem(IRElem.MULT, trueOffset, dim1Symbol, new IRImmSymbol(4));
-            iRList.add(offsetCal);
-            return new IRArrSymbol(baseSymbol, trueOffset);
-        } else { // 二维数组
-            IRSymbol dim1OffSymbol;
-            if (dim1Symbol instanceof IRImmSymbol) { // 第1维是常数，直接算
-                dim1OffSymbol = new IRImmSymbol(
-                        ((IRImmSymbol) dim1Symbol).getValue() * identSymbol.getDimLength(0));
-            } else { // 第1维是变量，需要带变量执行计算
-                dim1OffSymbol = iRLabelManager.allocSymbol();
-                IRElem dim1OffCal = new IRElem(IRElem.MULT, dim1OffSymbol,
-                        dim1Symbol, new IRImmSymbol(identSymbol.getDimLength(0)));
-                iRList.add(dim1OffCal);
+    public IRSymbol funcCallTrans(int funcCallUnaryExp, ArrayList<IRSymbol> paramList) {
+        int funcIdent = tree.getSon(funcCallUnaryExp, 0);
+        IRSymbol funcIRSymbol = funcMap.get(tree.getNameId(funcIdent));
+        IRSymbol retSymbol = iRLabelManager.allocSymbol();
+        IRElem funcCalling = new IRElem(IRElem.CALL, retSymbol, funcIRSymbol, paramList);
+        iRList.add(funcCalling);
+        return retSymbol;
+    }
+
+    // LVal翻译的一步：步骤0开始，1第1维下标已翻译，2第2维下标已翻译；结果放入symbolStack
+    private void lValStep(int lVal, int state, boolean load) {
+        SymbolTable curEnv = tree.getCurEnv(lVal);
+        VarSymbol identSymbol = tree.getVarSymbol(lVal); // 语法分析时已解析
+        IRSymbol lValSymbol;
+        if (identSymbol.getDimType() == 0) {
+            lValSymbol = lVal0DimTrans(lVal);
+        } else if (state == 0) {
+            IRSymbol baseSymbol = curEnv.getLastVarRef(identSymbol);
+            if (tree.getSonNum(lVal) == 1) {
+                // 明明是数组，但只传下来一个单独的Ident，说明这里是要地址
+                lValSymbol = baseSymbol;
+            } else {
+                symbolStack.add(baseSymbol);
+                workStack.push(lVal, 1);
+                workStack.push(tree.getSon(lVal, 2), 0);
+                return;
             }
-            if (sonList.size() == 4) {
+        } else if (state == 1) {
+            IRSymbol dim1Symbol = popSymbol();
+            IRSymbol baseSymbol = popSymbol();
+            if (identSymbol.getDimType() == 1) { // 一维数组
+                IRSymbol trueOffset = iRLabelManager.allocSymbol();
+                IRElem offsetCal = new IRElem(IRElem.MULT, trueOffset, dim1Symbol, new IRImmSymbol(4));
+                iRList.add(offsetCal);
+                lValSymbol = new IRArrSymbol(baseSymbol, trueOffset);
+            } else { // 二维数组
+                IRSymbol dim1OffSymbol;
+                if (dim1Symbol instanceof IRImmSymbol) { // 第1维是常数，直接算
+                    dim1OffSymbol = new IRImmSymbol(
+                            ((IRImmSymbol) dim1Symbol).getValue() * identSymbol.getDimLength(0));
+                } else { // 第1维是变量，需要带变量执行计算
+                    dim1OffSymbol = iRLabelManager.allocSymbol();
+                    IRElem dim1OffCal = new IRElem(IRElem.MULT, dim1OffSymbol,
+                            dim1Symbol, new IRImmSymbol(identSymbol.getDimLength(0)));
+                    iRList.add(dim1OffCal);
+                }
+                if (tree.getSonNum(lVal) != 4) { // 还要翻译第2维
+                    symbolStack.add(baseSymbol);
+                    symbolStack.add(dim1OffSymbol);
+                    workStack.push(lVal, 2);
+                    workStack.push(tree.getSon(lVal, 5), 0);
+                    return;
+                }
                 // 二维数组，一维形式，说明这里是要地址
                 // 先计算按字节的偏移
                 IRSymbol trueOffSymbol;
@@ -453,14 +401,15 @@ public class IRTranslater {
                             dim1OffSymbol, new IRImmSymbol(4));
                     iRList.add(retAddrCal);
                 }
-                IRSymbol retAddrSymbol = iRLabelManager.allocSymbol();
-                IRElem addrCal = new IRElem(IRElem.ADD, retAddrSymbol,
+                lValSymbol = iRLabelManager.allocSymbol();
+                IRElem addrCal = new IRElem(IRElem.ADD, lValSymbol,
                         baseSymbol, trueOffSymbol);
                 iRList.add(addrCal);
-                return retAddrSymbol;
             }
-            SyntaxClass dim0Exp = sonList.get(5);
-            IRSymbol dim0Symbol = expTrans(dim0Exp);
+        } else {
+            IRSymbol dim0Symbol = popSymbol();
+            IRSymbol dim1OffSymbol = popSymbol();
+            IRSymbol baseSymbol = popSymbol();
             IRSymbol offset;
             if ((dim1OffSymbol instanceof IRImmSymbol) && (dim0Symbol instanceof IRImmSymbol)) {
                 // 两个维度都是常数，直接出结果
@@ -474,215 +423,243 @@ public class IRTranslater {
                 IRElem offsetCal = new IRElem(IRElem.MULT, offset, intOffsetCal, new IRImmSymbol(4));
                 iRList.add(offsetCal);
             }
-            return new IRArrSymbol(baseSymbol, offset);
+            lValSymbol = new IRArrSymbol(baseSymbol, offset);
         }
+        if (load && lValSymbol instanceof IRArrSymbol) { // 取数组元素（包括全局变量）的值
+            IRSymbol valueSymbol = iRLabelManager.allocSymbol();
+            IRElem loadElem = new IRElem(IRElem.LOAD, valueSymbol,
+                    ((IRArrSymbol) lValSymbol).getBaseAddr(),
+                    ((IRArrSymbol) lValSymbol).getOffset());
+            iRList.add(loadElem);
+            lValSymbol = valueSymbol;
+        }
+        symbolStack.add(lValSymbol);
     }
 
-    public IRSymbol condTrans(SyntaxClass cond) {
-        return lOrExpTrans(cond.getSonNodeList().get(0));
-    }
-
-    public IRSymbol lOrExpTrans(SyntaxClass lOrExp) {
-        ArrayList<SyntaxClass> sonList = lOrExp.getSonNodeList();
-        if (sonList.size() == 1) { // LOr -> LAnd
-            return lAndExpTrans(sonList.get(0));
+    public IRSymbol lVal0DimTrans(int lVal) { // 单常量/变量解析
+        if (tree.isCalculated(lVal)) {
+            return new IRImmSymbol(tree.getConstValue(lVal));
         }
-        // LOr -> LOr || LAnd
-        IRSymbol end0 = iRLabelManager.allocSymbol();
-        IRSymbol end1 = iRLabelManager.allocSymbol();
-        IRSymbol endAll = iRLabelManager.allocSymbol();
-        IRSymbol orResSymbol = lOrExpTrans(sonList.get(0));
-        if (orResSymbol instanceof IRImmSymbol) { // 第一部分是常数
-            if (((IRImmSymbol) orResSymbol).getValue() == 0) {
-                return lAndExpTrans(sonList.get(2));
-            } else {
-                return orResSymbol;
+        SymbolTable curEnv = tree.getCurEnv(lVal);
+        VarSymbol identSymbol = tree.getVarSymbol(lVal);
+        if (identSymbol.isVar()) {
+            IRLabelSymbol lValVarSymbol = curEnv.getLastVarRef(identSymbol);
+            if (lValVarSymbol == null) {
+                lValVarSymbol = iRLabelManager.allocSymbol();
+                // TODO: 刚刚修改的LVal新申请符号时加入记录
+                curEnv.setVarRef(identSymbol, lValVarSymbol);
+            } else if (lValVarSymbol.isGlobal()) { // 全局变量，视作数组
+                return new IRArrSymbol(lValVarSymbol, IRImmSymbol.ZERO);
             }
+            return lValVarSymbol;
+        } else {
+            return new IRImmSymbol(identSymbol.constGetValue());
         }
-        /* 短路求值操作：
-        LOr
-        BNZ(End1)
-        LAnd
-        BNZ(End1)
-        #mark = 0
-        BR EndAll
-        End1:
-        #mark = 1
-        EndAll:
-        * */
-
-        IRElem lOrResTrue = new IRElem(IRElem.BNZ, end1, orResSymbol);
-        iRList.add(lOrResTrue);
-
-        IRSymbol andResSymbol = lAndExpTrans(sonList.get(2));
-        IRElem lAndResTrue = new IRElem(IRElem.BNZ, end1, andResSymbol);
-        iRList.add(lAndResTrue);
-
-        IRSymbol resSymbol = iRLabelManager.allocSymbol();
-        IRElem resAssign0 = new IRElem(IRElem.ASSIGN, resSymbol, IRImmSymbol.ZERO);
-        iRList.add(resAssign0);
-        IRElem endAllElem = new IRElem(IRElem.BR, endAll);
-        iRList.add(endAllElem);
-
-        IRElem end1Label = new IRElem(IRElem.LABEL, end1);
-        iRList.add(end1Label);
-        IRElem resAssign1 = new IRElem(IRElem.ASSIGN, resSymbol, new IRImmSymbol(1));
-        iRList.add(resAssign1);
-        IRElem endAllLabel = new IRElem(IRElem.LABEL, endAll);
-        iRList.add(endAllLabel);
-        /*if (andResSymbol instanceof IRImmSymbol) { // 第二部分是常数
-            if (((IRImmSymbol) andResSymbol).getValue() == 0) {
-                return orResSymbol;
-            } else {
-                return andResSymbol;
-            }
-        }*/
-        // 都不是常数
-        //IRElem lOrElem = new IRElem(IRElem.OR, resSymbol, orResSymbol, andResSymbol);
-        //iRList.add(lOrElem);
-        return resSymbol;
     }
 
-    public IRSymbol lAndExpTrans(SyntaxClass lAndExp) {
-        ArrayList<SyntaxClass> sonList = lAndExp.getSonNodeList();
-        if (sonList.size() == 1) { // LAnd -> Eq
-            return eqExpTrans(sonList.get(0));
-        }
-        // LAnd -> LAnd && Eq
-        IRSymbol end0 = iRLabelManager.allocSymbol();
-        IRSymbol end1 = iRLabelManager.allocSymbol();
-        IRSymbol endAll = iRLabelManager.allocSymbol();
-        IRSymbol andResSymbol = lAndExpTrans(sonList.get(0));
-        if (andResSymbol instanceof IRImmSymbol) { // 第一部分是常数
-            if (((IRImmSymbol) andResSymbol).getValue() != 0) {
-                return eqExpTrans(sonList.get(2));
-            } else {
-                return andResSymbol;
+    public IRSymbol condTrans(int cond) {
+        return lOrExpTrans(tree.getSon(cond, 0));
+    }
+
+    // LOr、LAnd、Eq、Rel都是左递归的链，先沿左边的链向下把各层压栈，再从最内层往外逐层翻译，链再长也不会栈溢出
+    public IRSymbol lOrExpTrans(int lOrExp) {
+        int base = workStack.size();
+        int curLOrExp = lOrExp;
+        while (tree.getSonNum(curLOrExp) != 1) { // LOr -> LOr || LAnd
+            // 各层的标签在翻译左边之前申请
+            symbolStack.add(iRLabelManager.allocSymbol()); // end0
+            symbolStack.add(iRLabelManager.allocSymbol()); // end1
+            symbolStack.add(iRLabelManager.allocSymbol()); // endAll
+            workStack.push(curLOrExp, 0);
+            curLOrExp = tree.getSon(curLOrExp, 0);
+        }
+        IRSymbol orResSymbol = lAndExpTrans(tree.getSon(curLOrExp, 0)); // LOr -> LAnd
+        while (workStack.size() > base) {
+            curLOrExp = workStack.topNode();
+            workStack.pop();
+            IRSymbol endAll = popSymbol();
+            IRSymbol end1 = popSymbol();
+            popSymbol();
+            if (orResSymbol instanceof IRImmSymbol) { // 第一部分是常数
+                if (((IRImmSymbol) orResSymbol).getValue() == 0) {
+                    orResSymbol = lAndExpTrans(tree.getSon(curLOrExp, 2));
+                }
+                continue;
             }
-        }
-        /* 短路求值操作：
-        LAnd
-        BZ(End0)
-        Eq
-        BZ(End0)
-        #mark = 1
-        BR ENDALL
-        End0:
-        #mark = 0
-        ENDALL:
-        * */
-        IRElem lAndFalse = new IRElem(IRElem.BZ, end0, andResSymbol);
-        iRList.add(lAndFalse);
-
-        IRSymbol eqResSymbol = eqExpTrans(sonList.get(2));
-        IRElem eqFalse = new IRElem(IRElem.BZ, end0, eqResSymbol);
-        iRList.add(eqFalse);
-
-        IRSymbol resSymbol = iRLabelManager.allocSymbol();
-        IRElem resAssign1 = new IRElem(IRElem.ASSIGN, resSymbol, new IRImmSymbol(1));
-        iRList.add(resAssign1);
-        IRElem endAllElem = new IRElem(IRElem.BR, endAll);
-        iRList.add(endAllElem);
-
-        IRElem end0Label = new IRElem(IRElem.LABEL, end0);
-        iRList.add(end0Label);
-        IRElem resAssign0 = new IRElem(IRElem.ASSIGN, resSymbol, IRImmSymbol.ZERO);
-        iRList.add(resAssign0);
-        IRElem endAllLabel = new IRElem(IRElem.LABEL, endAll);
-        iRList.add(endAllLabel);
-        /*if (eqResSymbol instanceof IRImmSymbol) { // 第二部分是常数
-            if (((IRImmSymbol) eqResSymbol).getValue() != 0) {
-                return andResSymbol;
-            } else {
-                return eqResSymbol;
+            /* 短路求值操作：
+            LOr
+            BNZ(End1)
+            LAnd
+            BNZ(End1)
+            #mark = 0
+            BR EndAll
+            End1:
+            #mark = 1
+            EndAll:
+            * */
+
+            IRElem lOrResTrue = new IRElem(IRElem.BNZ, end1, orResSymbol);
+            iRList.add(lOrResTrue);
+
+            IRSymbol andResSymbol = lAndExpTrans(tree.getSon(curLOrExp, 2));
+            IRElem lAndResTrue = new IRElem(IRElem.BNZ, end1, andResSymbol);
+            iRList.add(lAndResTrue);
+
+            IRSymbol resSymbol = iRLabelManager.allocSymbol();
+            IRElem resAssign0 = new IRElem(IRElem.ASSIGN, resSymbol, IRImmSymbol.ZERO);
+            iRList.add(resAssign0);
+            IRElem endAllElem = new IRElem(IRElem.BR, endAll);
+            iRList.add(endAllElem);
+
+            IRElem end1Label = new IRElem(IRElem.LABEL, end1);
+            iRList.add(end1Label);
+            IRElem resAssign1 = new IRElem(IRElem.ASSIGN, resSymbol, new IRImmSymbol(1));
+            iRList.add(resAssign1);
+            IRElem endAllLabel = new IRElem(IRElem.LABEL, endAll);
+            iRList.add(endAllLabel);
+            orResSymbol = resSymbol;
+        }
+        return orResSymbol;
+    }
+
+    public IRSymbol lAndExpTrans(int lAndExp) {
+        int base = workStack.size();
+        int curLAndExp = lAndExp;
+        while (tree.getSonNum(curLAndExp) != 1) { // LAnd -> LAnd && Eq
+            symbolStack.add(iRLabelManager.allocSymbol()); // end0
+            symbolStack.add(iRLabelManager.allocSymbol()); // end1
+            symbolStack.add(iRLabelManager.allocSymbol()); // endAll
+            workStack.push(curLAndExp, 0);
+            curLAndExp = tree.getSon(curLAndExp, 0);
+        }
+        IRSymbol andResSymbol = eqExpTrans(tree.getSon(curLAndExp, 0)); // LAnd -> Eq
+        while (workStack.size() > base) {
+            curLAndExp = workStack.topNode();
+            workStack.pop();
+            IRSymbol endAll = popSymbol();
+            popSymbol();
+            IRSymbol end0 = popSymbol();
+            if (andResSymbol instanceof IRImmSymbol) { // 第一部分是常数
+                if (((IRImmSymbol) andResSymbol).getValue() != 0) {
+                    andResSymbol = eqExpTrans(tree.getSon(curLAndExp, 2));
+                }
+                continue;
             }
-        }*/
-        // 都不是常数
-        //IRElem lAndElem = new IRElem(IRElem.AND, resSymbol, andResSymbol, eqResSymbol);
-        //iRList.add(lAndElem);
-        return resSymbol;
-    }
+            /* 短路求值操作：
+            LAnd
+            BZ(End0)
+            Eq
+            BZ(End0)
+            #mark = 1
+            BR ENDALL
+            End0:
+            #mark = 0
+            ENDALL:
+            * */
+            IRElem lAndFalse = new IRElem(IRElem.BZ, end0, andResSymbol);
+            iRList.add(lAndFalse);
+
+            IRSymbol eqResSymbol = eqExpTrans(tree.getSon(curLAndExp, 2));
+            IRElem eqFalse = new IRElem(IRElem.BZ, end0, eqResSymbol);
+            iRList.add(eqFalse);
 
-    public IRSymbol eqExpTrans(SyntaxClass eqExp) { // 须保证结果仅为1或0，否则在AND部分可能出现算术错误
-        ArrayList<SyntaxClass> sonList = eqExp.getSonNodeList();
-        if (sonList.size() == 1) { // Eq -> Rel
-            return relExpTrans(sonList.get(0));
-        }
-        // Eq -> Eq (== or !=) Rel
-        IRSymbol eqResSymbol = eqExpTrans(sonList.get(0));
-        IRSymbol relResSymbol = relExpTrans(sonList.get(2));
-        // 是不是常数都得算
-        IRSymbol resSymbol = iRLabelManager.allocSymbol();
-        IRElem eqElem;
-        if (((Token) sonList.get(1)).getTokenType() == Token.EQL) { // ==
-            eqElem = new IRElem(IRElem.EQL, resSymbol, eqResSymbol, relResSymbol);
-        } else { // !=
-            eqElem = new IRElem(IRElem.NEQ, resSymbol, eqResSymbol, relResSymbol);
+            IRSymbol resSymbol = iRLabelManager.allocSymbol();
+            IRElem resAssign1 = new IRElem(IRElem.ASSIGN, resSymbol, new IRImmSymbol(1));
+            iRList.add(resAssign1);
+            IRElem endAllElem = new IRElem(IRElem.BR, endAll);
+            iRList.add(endAllElem);
+
+            IRElem end0Label = new IRElem(IRElem.LABEL, end0);
+            iRList.add(end0Label);
+            IRElem resAssign0 = new IRElem(IRElem.ASSIGN, resSymbol, IRImmSymbol.ZERO);
+            iRList.add(resAssign0);
+            IRElem endAllLabel = new IRElem(IRElem.LABEL, endAll);
+            iRList.add(endAllLabel);
+            andResSymbol = resSymbol;
+        }
+        return andResSymbol;
+    }
+
+    public IRSymbol eqExpTrans(int eqExp) { // 须保证结果仅为1或0，否则在AND部分可能出现算术错误
+        int base = workStack.size();
+        int curEqExp = eqExp;
+        while (tree.getSonNum(curEqExp) != 1) { // Eq -> Eq (== or !=) Rel
+            workStack.push(curEqExp, 0);
+            curEqExp = tree.getSon(curEqExp, 0);
+        }
+        IRSymbol eqResSymbol = relExpTrans(tree.getSon(curEqExp, 0)); // Eq -> Rel
+        while (workStack.size() > base) {
+            curEqExp = workStack.topNode();
+            workStack.pop();
+            IRSymbol relResSymbol = relExpTrans(tree.getSon(curEqExp, 2));
+            // 是不是常数都得算
+            IRSymbol resSymbol = iRLabelManager.allocSymbol();
+            IRElem eqElem;
+            if (tree.getTokenType(tree.getSon(curEqExp, 1)) == Token.EQL) { // ==
+                eqElem = new IRElem(IRElem.EQL, resSymbol, eqResSymbol, relResSymbol);
+            } else { // !=
+                eqElem = new IRElem(IRElem.NEQ, resSymbol, eqResSymbol, relResSymbol);
+            }
+            iRList.add(eqElem);
+            eqResSymbol = resSymbol;
         }
-        iRList.add(eqElem);
-        return resSymbol;
+        return eqResSymbol;
     }
 
-    public IRSymbol relExpTrans(SyntaxClass relExp) { // 须保证结果仅为1或0，否则在AND部分可能出现算术错误
-        ArrayList<SyntaxClass> sonList = relExp.getSonNodeList();
-        if (sonList.size() == 1) { // Rel -> Add
-            IRSymbol addSymbol = addExpTrans(sonList.get(0));
-            /*if (addSymbol instanceof IRImmSymbol) { // Add为常数，则直接判0返回
-                if (((IRImmSymbol) addSymbol).getValue() == 0) {
-                    return addSymbol;
-                } else {
-                    return new IRImmSymbol(1);
-                }
-            }
-            // Add非常数，则执行判0指令
+    public IRSymbol relExpTrans(int relExp) { // 须保证结果仅为1或0，否则在AND部分可能出现算术错误
+        int base = workStack.size();
+        int curRelExp = relExp;
+        while (tree.getSonNum(curRelExp) != 1) { // Rel -> Rel <symbol> Add
+            workStack.push(curRelExp, 0);
+            curRelExp = tree.getSon(curRelExp, 0);
+        }
+        IRSymbol relResSymbol = addExpTrans(tree.getSon(curRelExp, 0)); // Rel -> Add
+        while (workStack.size() > base) {
+            curRelExp = workStack.topNode();
+            workStack.pop();
+            IRSymbol addResSymbol = addExpTrans(tree.getSon(curRelExp, 2));
+            // 是不是常数都得算
             IRSymbol resSymbol = iRLabelManager.allocSymbol();
-            IRElem relElem = new IRElem(IRElem.NEQ, resSymbol, addSymbol, IRImmSymbol.ZERO); // 用 NEQ 0 判断是否非0
-            iRList.add(relElem);*/
-            return addSymbol;
-        }
-        // Rel -> Rel <symbol> Add
-        IRSymbol relResSymbol = relExpTrans(sonList.get(0));
-        IRSymbol addResSymbol = addExpTrans(sonList.get(2));
-        // 是不是常数都得算
-        IRSymbol resSymbol = iRLabelManager.allocSymbol();
-        IRElem eqElem;
-        if (((Token) sonList.get(1)).getTokenType() == Token.LSS) { // <
-            eqElem = new IRElem(IRElem.LSS, resSymbol, relResSymbol, addResSymbol);
-        } else if (((Token) sonList.get(1)).getTokenType() == Token.GRE) { // >
-            //eqElem = new IRElem(IRElem.GRE, resSymbol, relResSymbol, addResSymbol);
-            eqElem = new IRElem(IRElem.LSS, resSymbol, addResSymbol, relResSymbol);
-        } else if (((Token) sonList.get(1)).getTokenType() == Token.LEQ) { // <=
-            eqElem = new IRElem(IRElem.LEQ, resSymbol, relResSymbol, addResSymbol);
-        } else { // >=
-            //eqElem = new IRElem(IRElem.GEQ, resSymbol, relResSymbol, addResSymbol);
-            eqElem = new IRElem(IRElem.LEQ, resSymbol, addResSymbol, relResSymbol);
-        }
-        iRList.add(eqElem);
-        return resSymbol;
+            IRElem eqElem;
+            if (tree.getTokenType(tree.getSon(curRelExp, 1)) == Token.LSS) { // <
+                eqElem = new IRElem(IRElem.LSS, resSymbol, relResSymbol, addResSymbol);
+            } else if (tree.getTokenType(tree.getSon(curRelExp, 1)) == Token.GRE) { // >
+                //eqElem = new IRElem(IRElem.GRE, resSymbol, relResSymbol, addResSymbol);
+                eqElem = new IRElem(IRElem.LSS, resSymbol, addResSymbol, relResSymbol);
+            } else if (tree.getTokenType(tree.getSon(curRelExp, 1)) == Token.LEQ) { // <=
+                eqElem = new IRElem(IRElem.LEQ, resSymbol, relResSymbol, addResSymbol);
+            } else { // >=
+                //eqElem = new IRElem(IRElem.GEQ, resSymbol, relResSymbol, addResSymbol);
+                eqElem = new IRElem(IRElem.LEQ, resSymbol, addResSymbol, relResSymbol);
+            }
+            iRList.add(eqElem);
+            relResSymbol = resSymbol;
+        }
+        return relResSymbol;
     }
 
-    public IRSymbol funcDefTrans(SyntaxClass funcDef) {
-        ArrayList<SyntaxClass> sonList = funcDef.getSonNodeList();
-        Token funcIdent = (Token) sonList.get(1);
-        SymbolTable curEnv = funcDef.getCurEnv();
-        FuncSymbol funcSymbol = curEnv.funcGlobalLookup(funcIdent.getTokenContext());
+    public IRSymbol funcDefTrans(int funcDef) {
+        int funcIdent = tree.getSon(funcDef, 1);
+        SymbolTable curEnv = tree.getCurEnv(funcDef);
+        FuncSymbol funcSymbol = tree.getFuncSymbol(funcDef);
         IRLabelSymbol funcLabelSymbol = iRLabelManager.allocSymbol();
         curEnv.setFuncRef(funcSymbol, funcLabelSymbol); // 保存函数引用信息
         IRSymbol funcRetSymbol = iRLabelManager.allocSymbol(); // 申请函数统一返回出口标签
         funcSymbol.setReturnSymbol(funcRetSymbol); // 设置返回标签
         ArrayList<IRSymbol> fParamSymbols;
-        SyntaxClass block;
-        if (sonList.size() == 6) { // 有形参
-            fParamSymbols = fParamsTrans(sonList.get(3));
-            block = sonList.get(5);
+        int block;
+        if (tree.getSonNum(funcDef) == 6) { // 有形参
+            fParamSymbols = fParamsTrans(tree.getSon(funcDef, 3));
+            block = tree.getSon(funcDef, 5);
         } else {
             fParamSymbols = new ArrayList<>();
-            block = sonList.get(4);
+            block = tree.getSon(funcDef, 4);
         }
-        IRFuncSymbol funcIRSymbol = new IRFuncSymbol(funcIdent.getTokenContext());
+        IRFuncSymbol funcIRSymbol = new IRFuncSymbol(tree.getTokenText(funcIdent));
         funcIRSymbol.setEntry(funcLabelSymbol);
         funcIRSymbol.setfParamList(fParamSymbols);
-        funcMap.put(funcIdent.getTokenContext(), funcIRSymbol);
+        funcMap.put(tree.getNameId(funcIdent), funcIRSymbol);
+        iRList = iRModule.addFunction(funcIRSymbol).getIRList(); // 之后的指令属于该函数
         IRElem funcDefElem = new IRElem(IRElem.FUNC, funcIRSymbol, fParamSymbols);
         iRList.add(funcDefElem);
         IRElem funcDefLabelElem = new IRElem(IRElem.LABEL, funcLabelSymbol);
@@ -692,85 +669,197 @@ public class IRTranslater {
         iRList.add(returnLabel);
         IRElem voidReturnElem = new IRElem(IRElem.RET);
         iRList.add(voidReturnElem);
+        iRList = iRModule.getEntryList();
         return funcLabelSymbol;
     }
 
-    public IRSymbol mainFuncDefTrans(SyntaxClass funcDef) {
-        ArrayList<SyntaxClass> sonList = funcDef.getSonNodeList();
-        Token funcIdent = (Token) sonList.get(1);
-        SymbolTable curEnv = funcDef.getCurEnv();
-        FuncSymbol funcSymbol = curEnv.funcGlobalLookup(funcIdent.getTokenContext());
+    public IRSymbol mainFuncDefTrans(int funcDef) {
+        int funcIdent = tree.getSon(funcDef, 1);
+        SymbolTable curEnv = tree.getCurEnv(funcDef);
+        FuncSymbol funcSymbol = tree.getFuncSymbol(funcDef);
         IRLabelSymbol funcLabelSymbol = iRLabelManager.allocSymbol();
         curEnv.setFuncRef(funcSymbol, funcLabelSymbol); // 保存函数引用信息
         ArrayList<IRSymbol> fParamSymbols = new ArrayList<>();
-        IRFuncSymbol funcIRSymbol = new IRFuncSymbol(funcIdent.getTokenContext());
+        IRFuncSymbol funcIRSymbol = new IRFuncSymbol(tree.getTokenText(funcIdent));
         funcIRSymbol.setEntry(funcLabelSymbol);
         funcIRSymbol.setfParamList(fParamSymbols);
-        funcMap.put("main", funcIRSymbol);
+        funcMap.put(NameTable.MAIN_ID, funcIRSymbol);
+        iRList = iRModule.addFunction(funcIRSymbol).getIRList(); // 之后的指令属于该函数
         IRElem funcDefElem = new IRElem(IRElem.FUNC, funcIRSymbol, fParamSymbols);
         iRList.add(funcDefElem);
         IRElem funcLabelElem = new IRElem(IRElem.LABEL, funcLabelSymbol);
         iRList.add(funcLabelElem); // 插入函数定义标签
         IRSymbol funcRetSymbol = iRLabelManager.allocSymbol(); // 申请函数统一返回出口标签
         funcSymbol.setReturnSymbol(funcRetSymbol); // 设置返回标签
-        SyntaxClass block = sonList.get(4);
+        int block = tree.getSon(funcDef, 4);
         blockTrans(block, false);
         IRElem returnLabel = new IRElem(IRElem.LABEL, funcRetSymbol);
         iRList.add(returnLabel);
         IRElem mainReturnElem = new IRElem(IRElem.EXIT);
         iRList.add(mainReturnElem);
+        iRList = iRModule.getEntryList();
         return funcLabelSymbol;
     }
 
-    public ArrayList<IRSymbol> fParamsTrans(SyntaxClass funcFParams) {
-        ArrayList<SyntaxClass> sonList = funcFParams.getSonNodeList();
+    public ArrayList<IRSymbol> fParamsTrans(int funcFParams) {
         ArrayList<IRSymbol> symbolList = new ArrayList<>();
-        for (int i = 0; i < sonList.size(); i += 2) {
-            symbolList.add(fParamTrans(sonList.get(i)));
+        for (int i = 0; i < tree.getSonNum(funcFParams); i += 2) {
+            symbolList.add(fParamTrans(tree.getSon(funcFParams, i)));
         }
         return symbolList;
     }
 
-    public IRSymbol fParamTrans(SyntaxClass fParam) {
-        ArrayList<SyntaxClass> sonList = fParam.getSonNodeList();
-        SymbolTable curEnv = fParam.getCurEnv();
-        Token identToken = (Token) sonList.get(1);
-        VarSymbol varSymbol = curEnv.varGlobalLookup(identToken.getTokenContext());
+    public IRSymbol fParamTrans(int fParam) {
+        SymbolTable curEnv = tree.getCurEnv(fParam);
+        VarSymbol varSymbol = tree.getVarSymbol(fParam);
         IRLabelSymbol varLabel = iRLabelManager.allocSymbol();
         curEnv.setVarRef(varSymbol, varLabel);
         return varLabel;
     }
 
-    public void blockTrans(SyntaxClass block, boolean disableSSA) {
-        ArrayList<SyntaxClass> sonList = block.getSonNodeList();
-        for (int i = 1; i < sonList.size() - 1; ++i) {
-            SyntaxClass blockItem = sonList.get(i);
-            SyntaxClass subClass = blockItem.getSonNodeList().get(0);
-            if (subClass.getSyntaxType() == SyntaxClass.DECL) {
-                declTrans(subClass, false); // 在Block里了，肯定不是Global
-            } else {
-                stmtTrans(subClass, disableSSA);
+    /* 语句翻译，块、if、while层层嵌套时用显式栈代替递归：
+     * Block的帧记录下一个要翻译的BlockItem，if和while的帧记录翻译到了子语句之前还是之后，
+     * 子语句之后要用的标签放在symbolStack中；不含子语句的语句直接由simpleStmtTrans翻译
+     * 只有函数体最外层的语句使用SSA（disableSSA为false），嵌套在里面的都撤销SSA
+     */
+    public void blockTrans(int block, boolean disableSSA) {
+        int base = workStack.size();
+        workStack.push(block, 1);
+        nestedStmtTrans(base, disableSSA);
+    }
+
+    public void stmtTrans(int stmt, boolean disableSSA) {
+        if (!isNestedStmt(stmt)) {
+            simpleStmtTrans(stmt, disableSSA);
+            return;
+        }
+        int base = workStack.size();
+        workStack.push(stmt, 0);
+        nestedStmtTrans(base, true);
+    }
+
+    private boolean isNestedStmt(int stmt) {
+        int firstItem = tree.getSon(stmt, 0);
+        return tree.getSyntaxType(firstItem) == SyntaxClass.BLOCK ||
+                (tree.getSyntaxType(firstItem) == SyntaxClass.TOKEN &&
+                        (tree.getTokenType(firstItem) == Token.IFTK || tree.getTokenType(firstItem) == Token.WHILETK));
+    }
+
+    private void nestedStmtTrans(int base, boolean disableSSA) {
+        while (workStack.size() > base) {
+            int node = workStack.topNode();
+            int state = workStack.topState();
+            workStack.pop();
+            if (tree.getSyntaxType(node) == SyntaxClass.BLOCK) {
+                if (state < tree.getSonNum(node) - 1) {
+                    workStack.push(node, state + 1);
+                    int subClass = tree.getSon(tree.getSon(node, state), 0);
+                    if (tree.getSyntaxType(subClass) == SyntaxClass.DECL) {
+                        declTrans(subClass, false); // 在Block里了，肯定不是Global
+                    } else if (isNestedStmt(subClass)) {
+                        workStack.push(subClass, 0);
+                    } else { // 最外层的Block（帧在base处）按传入的disableSSA翻译
+                        simpleStmtTrans(subClass, workStack.size() - 1 == base ? disableSSA : true);
+                    }
+                }
+                continue;
+            }
+            int firstItem = tree.getSon(node, 0);
+            if (!isNestedStmt(node)) { // if、while的子语句
+                simpleStmtTrans(node, true);
+            } else if (tree.getSyntaxType(firstItem) == SyntaxClass.BLOCK) { // Block
+                workStack.push(firstItem, 1);
+            } else if (tree.getTokenType(firstItem) == Token.IFTK) { // if (Cond) Stmt
+                ifStmtStep(node, state);
+            } else { // while (cond) stmt
+                whileStmtStep(node, state);
             }
         }
     }
 
-    public void declTrans(SyntaxClass decl, boolean isGlobal) {
-        SyntaxClass subDecl = decl.getSonNodeList().get(0);
-        if (subDecl.getSyntaxType() == SyntaxClass.CONSTDECL) {
+    // if语句的各步：0翻译条件，1then分支之后，2else分支之后
+    private void ifStmtStep(int stmt, int state) {
+        if (state == 0) {
+            IRSymbol condSymbol = condTrans(tree.getSon(stmt, 2));
+            IRSymbol elseSymbol = iRLabelManager.allocSymbol();
+            IRElem condJudge = new IRElem(IRElem.BZ, elseSymbol, condSymbol);
+            iRList.add(condJudge);
+            symbolStack.add(elseSymbol);
+            workStack.push(stmt, 1);
+            workStack.push(tree.getSon(stmt, 4), 0);
+        } else if (state == 1) {
+            IRSymbol elseSymbol = popSymbol();
+            if (tree.getSonNum(stmt) != 5) { // 有else
+                IRSymbol endIfSymbol = iRLabelManager.allocSymbol();
+                IRElem endIfBr = new IRElem(IRElem.BR, endIfSymbol);
+                iRList.add(endIfBr);
+                IRElem elseStart = new IRElem(IRElem.LABEL, elseSymbol);
+                iRList.add(elseStart);
+                symbolStack.add(endIfSymbol);
+                workStack.push(stmt, 2);
+                workStack.push(tree.getSon(stmt, 6), 0);
+            } else { // 无else
+                IRElem endIfElem = new IRElem(IRElem.LABEL, elseSymbol);
+                iRList.add(endIfElem);
+            }
+        } else {
+            IRElem endIfElem = new IRElem(IRElem.LABEL, popSymbol());
+            iRList.add(endIfElem);
+        }
+    }
+
+    // while语句的各步：0循环体之前，1循环体之后
+    private void whileStmtStep(int stmt, int state) {
+        if (state == 0) {
+            IRSymbol startWhile = iRLabelManager.allocSymbol();
+            IRSymbol stmtStartWhile = iRLabelManager.allocSymbol();
+            IRSymbol endWhile = iRLabelManager.allocSymbol();
+            int whileStmt = tree.getSon(stmt, 4);
+            tree.getCurEnv(whileStmt).setCycleStartEnd(startWhile, endWhile);
+
+            IRElem startLabelElem = new IRElem(IRElem.LABEL, startWhile);
+            iRList.add(startLabelElem);
+
+            IRSymbol condFirstRes = condTrans(tree.getSon(stmt, 2));
+            IRElem condFirstJudge = new IRElem(IRElem.BZ, endWhile, condFirstRes);
+            iRList.add(condFirstJudge);
+
+            IRElem stmtStartLabelElem = new IRElem(IRElem.LABEL, stmtStartWhile);
+            iRList.add(stmtStartLabelElem);
+
+            symbolStack.add(stmtStartWhile);
+            symbolStack.add(endWhile);
+            workStack.push(stmt, 1);
+            workStack.push(whileStmt, 0);
+        } else {
+            IRSymbol endWhile = popSymbol();
+            IRSymbol stmtStartWhile = popSymbol();
+            IRSymbol condSecondRes = condTrans(tree.getSon(stmt, 2));
+            IRElem condSecondJudge = new IRElem(IRElem.BNZ, stmtStartWhile, condSecondRes);
+            iRList.add(condSecondJudge);
+
+            IRElem endLabelElem = new IRElem(IRElem.LABEL, endWhile);
+            iRList.add(endLabelElem);
+        }
+    }
+
+    public void declTrans(int decl, boolean isGlobal) {
+        int subDecl = tree.getSon(decl, 0);
+        if (tree.getSyntaxType(subDecl) == SyntaxClass.CONSTDECL) {
             constDeclTrans(subDecl);
         } else {
             varDeclTrans(subDecl, isGlobal);
         }
     }
 
-    public void stmtTrans(SyntaxClass stmt, boolean disableSSA) {
-        ArrayList<SyntaxClass> sonList = stmt.getSonNodeList();
-        SymbolTable curEnv = stmt.getCurEnv();
-        SyntaxClass firstItem = sonList.get(0);
-        if (firstItem.getSyntaxType() == SyntaxClass.LVAL) {
-            SyntaxClass objItem = sonList.get(2);
+    // 不含子语句的语句
+    private void simpleStmtTrans(int stmt, boolean disableSSA) {
+        SymbolTable curEnv = tree.getCurEnv(stmt);
+        int firstItem = tree.getSon(stmt, 0);
+        if (tree.getSyntaxType(firstItem) == SyntaxClass.LVAL) {
+            int objItem = tree.getSon(stmt, 2);
             IRSymbol lValSymbol = lValTrans(firstItem);
-            if (objItem.getSyntaxType() == SyntaxClass.EXP) { // LVal = Exp
+            if (tree.getSyntaxType(objItem) == SyntaxClass.EXP) { // LVal = Exp
                 IRSymbol expSymbol = expTrans(objItem);
                 if (lValSymbol instanceof IRLabelSymbol) { // LVal单变量
                     IRElem assignElem;
@@ -778,8 +867,7 @@ public class IRTranslater {
                         assignElem = new IRElem(IRElem.ASSIGN, lValSymbol, expSymbol);
                     } else { // 使用SSA，新建符号
                         lValSymbol = iRLabelManager.allocSymbol();
-                        VarSymbol varSymbol = curEnv.varGlobalLookup(
-                                ((Token) firstItem.getSonNodeList().get(0)).getTokenContext());
+                        VarSymbol varSymbol = tree.getVarSymbol(firstItem);
                         curEnv.setVarRef(varSymbol, (IRLabelSymbol) lValSymbol);
                         assignElem = new IRElem(IRElem.ASSIGN, lValSymbol, expSymbol);
                     }
@@ -797,8 +885,7 @@ public class IRTranslater {
                         getintElem = new IRElem(IRElem.GETINT, lValSymbol);
                     } else {
                         lValSymbol = iRLabelManager.allocSymbol();
-                        VarSymbol varSymbol = curEnv.varGlobalLookup(
-                                ((Token) firstItem.getSonNodeList().get(0)).getTokenContext());
+                        VarSymbol varSymbol = tree.getVarSymbol(firstItem);
                         curEnv.setVarRef(varSymbol, (IRLabelSymbol) lValSymbol);
                         getintElem = new IRElem(IRElem.GETINT, lValSymbol);
                     }
@@ -813,97 +900,34 @@ public class IRTranslater {
                     iRList.add(storeElem);
                 }
             }
-        } else if (firstItem.getSyntaxType() == SyntaxClass.EXP) { // Exp
+        } else if (tree.getSyntaxType(firstItem) == SyntaxClass.EXP) { // Exp
             expTrans(firstItem);
-        } else if (firstItem.getSyntaxType() == SyntaxClass.BLOCK) { // Block
-            blockTrans(firstItem, true);
         } else { // 剩下的都是Token
-            Token firstItemToken = (Token) firstItem;
-            if (firstItemToken.getTokenType() == Token.IFTK) { // if (Cond) Stmt
-                IRSymbol condSymbol = condTrans(sonList.get(2));
-                IRSymbol elseSymbol = iRLabelManager.allocSymbol();
-                IRElem condJudge = new IRElem(IRElem.BZ, elseSymbol, condSymbol);
-                iRList.add(condJudge);
-                SyntaxClass ifStmt = sonList.get(4);
-                stmtTrans(ifStmt, true);
-                if (sonList.size() != 5) { // 有else
-                    IRSymbol endIfSymbol = iRLabelManager.allocSymbol();
-                    IRElem endIfBr = new IRElem(IRElem.BR, endIfSymbol);
-                    iRList.add(endIfBr);
-                    IRElem elseStart = new IRElem(IRElem.LABEL, elseSymbol);
-                    iRList.add(elseStart);
-                    SyntaxClass elseStmt = sonList.get(6);
-                    stmtTrans(elseStmt, true);
-                    IRElem endIfElem = new IRElem(IRElem.LABEL, endIfSymbol);
-                    iRList.add(endIfElem);
-                } else { // 无else
-                    IRElem endIfElem = new IRElem(IRElem.LABEL, elseSymbol);
-                    iRList.add(endIfElem);
-                }
-            } else if (firstItemToken.getTokenType() == Token.WHILETK) { // while (cond) stmt
-                /*IRSymbol startWhile = iRLabelManager.allocSymbol();
-                IRSymbol endWhile = iRLabelManager.allocSymbol();
-                SyntaxClass whileStmt = sonList.get(4);
-                whileStmt.getCurEnv().setCycleStartEnd(startWhile, endWhile);
-                IRElem startLabelElem = new IRElem(IRElem.LABEL, startWhile);
-                iRList.add(startLabelElem);
-                IRSymbol condRes = condTrans(sonList.get(2));
-                IRElem condJudge = new IRElem(IRElem.BZ, endWhile, condRes);
-                iRList.add(condJudge);
-                stmtTrans(whileStmt, true);
-                IRElem backToStartElem = new IRElem(IRElem.BR, startWhile);
-                iRList.add(backToStartElem);
-                IRElem endLabelElem = new IRElem(IRElem.LABEL, endWhile);
-                iRList.add(endLabelElem);*/
-
-                IRSymbol startWhile = iRLabelManager.allocSymbol();
-                IRSymbol stmtStartWhile = iRLabelManager.allocSymbol();
-                IRSymbol endWhile = iRLabelManager.allocSymbol();
-                SyntaxClass whileStmt = sonList.get(4);
-                whileStmt.getCurEnv().setCycleStartEnd(startWhile, endWhile);
-
-                IRElem startLabelElem = new IRElem(IRElem.LABEL, startWhile);
-                iRList.add(startLabelElem);
-
-                IRSymbol condFirstRes = condTrans(sonList.get(2));
-                IRElem condFirstJudge = new IRElem(IRElem.BZ, endWhile, condFirstRes);
-                iRList.add(condFirstJudge);
-
-                IRElem stmtStartLabelElem = new IRElem(IRElem.LABEL, stmtStartWhile);
-                iRList.add(stmtStartLabelElem);
-
-                stmtTrans(whileStmt, true);
-
-                IRSymbol condSecondRes = condTrans(sonList.get(2));
-                IRElem condSecondJudge = new IRElem(IRElem.BNZ, stmtStartWhile, condSecondRes);
-                iRList.add(condSecondJudge);
-
-                IRElem endLabelElem = new IRElem(IRElem.LABEL, endWhile);
-                iRList.add(endLabelElem);
-            } else if (firstItemToken.getTokenType() == Token.BREAKTK) { // break
+            int firstItemToken = firstItem;
+            if (tree.getTokenType(firstItemToken) == Token.BREAKTK) { // break
                 IRSymbol endWhile = curEnv.findCycleEnd();
                 IRElem breakElem = new IRElem(IRElem.BR, endWhile);
                 iRList.add(breakElem);
-            } else if (firstItemToken.getTokenType() == Token.CONTINUETK) { // continue
+            } else if (tree.getTokenType(firstItemToken) == Token.CONTINUETK) { // continue
                 IRSymbol startWhile = curEnv.findCycleStart();
                 IRElem continueElem = new IRElem(IRElem.BR, startWhile);
                 iRList.add(continueElem);
-            } else if (firstItemToken.getTokenType() == Token.RETURNTK) { // return
+            } else if (tree.getTokenType(firstItemToken) == Token.RETURNTK) { // return
                 FuncSymbol curFunc = curEnv.checkCurFunc();
                 IRSymbol returnSymbol = curFunc.getReturnSymbol();
-                if (sonList.size() != 2) { // return Exp ;
-                    SyntaxClass exp = sonList.get(1);
+                if (tree.getSonNum(stmt) != 2) { // return Exp ;
+                    int exp = tree.getSon(stmt, 1);
                     IRSymbol expSymbol = expTrans(exp);
                     IRElem setRetValue = new IRElem(IRElem.SETRET, expSymbol);
                     iRList.add(setRetValue);
                 }
                 IRElem retElem = new IRElem(IRElem.BR, returnSymbol);
                 iRList.add(retElem);
-            } else if (firstItemToken.getTokenType() == Token.PRINTFTK) { // printf
-                FormatStringToken formatStr = (FormatStringToken) sonList.get(2);
+            } else if (tree.getTokenType(firstItemToken) == Token.PRINTFTK) { // printf
+                FormatStringToken formatStr = tree.getFormatString(tree.getSon(stmt, 2));
                 ArrayList<IRSymbol> paramSymbolList = new ArrayList<>();
-                for (int i = 4; i < sonList.size() - 2; i += 2) {
-                    paramSymbolList.add(expTrans(sonList.get(i)));
+                for (int i = 4; i < tree.getSonNum(stmt) - 2; i += 2) {
+                    paramSymbolList.add(expTrans(tree.getSon(stmt, i)));
                 }
                 ArrayList<String> rawStrList = formatStr.getRawStrList();
                 int i;
@@ -923,7 +947,7 @@ public class IRTranslater {
         }
     }
 
-    public StringBuilder outputIR(LinkedList<IRElem> iRList) {
+    public StringBuilder outputIR(IRList iRList) {
         StringBuilder outStr = new StringBuilder(".data\n");
         for (VarSymbol constVarSymbol : constantArrMap.keySet()) {
             IRSymbol constSymbol = constantArrMap.get(constVarSymbol);
@@ -0,0 +1,45 @@
+package IR;
+
+import java.util.Arrays;
+
+/*
+ * 把语法树上的递归改写成循环时用的显式栈，每帧是一个结点和该结点已经进行到的步骤
+ * 可以重入：使用前记下栈高，弹回到这个高度就处理完了，处理过程中再次使用的部分都在它上面
+ */
+public class WorkStack {
+    private int[] nodes;
+    private int[] states;
+    private int size;
+
+    public WorkStack() {
+        nodes = new int[64];
+        states = new int[64];
+        size = 0;
+    }
+
+    public void push(int node, int state) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+        }
+        nodes[size] = node;
+        states[size] = state;
+        size++;
+    }
+
+    public void pop() {
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int topNode() {
+        return nodes[size - 1];
+    }
+
+    public int topState() {
+        return states[size - 1];
+    }
+}
@@ -0,0 +1,338 @@
+import Exceptions.LexicalException;
+import IR.IRTranslater;
+import SyntaxClasses.Token;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * 以函数为单位的增量编译，供监视模式反复编译同一个不断修改的源程序
+ * 源程序按顶层成分切开：全局Decl、各FuncDef和MainFuncDef，以各自在源程序中的原文作为指纹
+ * 一个函数的目标代码只取决于它自己的原文、全部全局Decl和它调用的函数的函数头，这些都没变时直接用缓存的汇编
+ * 需要重新编译的函数放进一个缩减的程序中编译：全局Decl原样保留，其余函数只留函数头和空的函数体，
+ * 符号、可见性和调用检查都与完整的程序相同，而语法分析、中间代码生成、优化和目标代码生成只处理改动的函数
+ * 缓存的汇编中函数自己的标签改名为L_函数名_编号，用到的字符串和局部常量数组随函数一起缓存；
+ * 全局变量的标签在所有函数之前分配，全局Decl不变时编号也不变，全局Decl改动时全部重新编译
+ * 无法这样切分的程序（如有语法错误、函数重名）直接完整编译，不使用缓存
+ */
+public class IncrementalCompiler {
+    private static final Pattern labelPattern = Pattern.compile("\\bL(\\d+)\\b");
+    private String globalText; // 缓存对应的全部全局Decl的原文，为null表示没有缓存
+    private String globalDataStr; // 全局变量与全局常量数组的数据段
+    private HashMap<String, FuncCache> funcCacheMap; // 函数名 -> 缓存
+    private int funcNum; // 最近一次编译的函数个数（含main）
+    private int recompiledNum; // 其中重新编译的个数
+
+    public IncrementalCompiler() {
+        globalText = null;
+        globalDataStr = null;
+        funcCacheMap = new HashMap<>();
+        funcNum = 0;
+        recompiledNum = 0;
+    }
+
+    public int getFuncNum() {
+        return funcNum;
+    }
+
+    public int getRecompiledNum() {
+        return recompiledNum;
+    }
+
+    // 监视source，每次改动后增量编译并写出mipsFile，直到线程被中断
+    public void watch(File source, File mipsFile, long interval) {
+        long lastModified = -1, lastLength = -1;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (source.lastModified() != lastModified || source.length() != lastLength) {
+                lastModified = source.lastModified();
+                lastLength = source.length();
+                long startTime = System.nanoTime();
+                try (Writer mipsWriter = new FileWriter(mipsFile)) {
+                    mipsWriter.append(compile(Files.readString(source.toPath())));
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                System.out.printf("%s: recompiled %d of %d functions in %.1f ms%n", source.getName(),
+                        recompiledNum, funcNum, (System.nanoTime() - startTime) / 1e6);
+            }
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public StringBuilder compile(CharSequence program) {
+        ArrayList<TopUnit> unitList = splitUnits(program);
+        if (unitList == null) {
+            return fullCompile(program);
+        }
+        StringBuilder globalTextBuilder = new StringBuilder();
+        for (TopUnit unit : unitList) {
+            if (unit.isDecl) {
+                globalTextBuilder.append(unit.text).append('\n');
+            }
+        }
+        if (!globalTextBuilder.toString().equals(globalText)) { // 全局Decl变了，所有函数都要重新编译
+            globalText = globalTextBuilder.toString();
+            globalDataStr = null;
+            funcCacheMap.clear();
+        }
+        // 函数的缓存键：原文加上调用到的函数在它之前的函数头
+        HashMap<String, String> headMap = new HashMap<>();
+        HashSet<String> dirtySet = new HashSet<>();
+        for (TopUnit unit : unitList) {
+            if (unit.isDecl) {
+                continue;
+            }
+            if (headMap.containsKey(unit.name)) {
+                return fullCompile(program);
+            }
+            headMap.put(unit.name, unit.head);
+            StringBuilder key = new StringBuilder(unit.text);
+            for (String callee : unit.calleeSet) {
+                key.append('\n').append(callee).append(':').append(headMap.getOrDefault(callee, ""));
+            }
+            unit.key = key.toString();
+            FuncCache cache = funcCacheMap.get(unit.name);
+            if (cache == null || !cache.key.equals(unit.key)) {
+                dirtySet.add(unit.name);
+            }
+        }
+        funcCacheMap.keySet().retainAll(headMap.keySet()); // 删掉的函数
+        funcNum = headMap.size();
+        recompiledNum = dirtySet.size();
+        if (!dirtySet.isEmpty() || globalDataStr == null) {
+            if (!compileDirty(unitList, dirtySet)) {
+                return fullCompile(program);
+            }
+        }
+        // 拼接：全局数据、各函数的数据、入口跳转、各函数的代码
+        StringBuilder mipsStr = new StringBuilder(".data\n").append(globalDataStr);
+        for (TopUnit unit : unitList) {
+            if (!unit.isDecl) {
+                mipsStr.append(funcCacheMap.get(unit.name).dataStr);
+            }
+        }
+        mipsStr.append("\n\n.text\nj ").append(funcCacheMap.get("main").entryLabel).append('\n');
+        for (TopUnit unit : unitList) {
+            if (!unit.isDecl) {
+                mipsStr.append(funcCacheMap.get(unit.name).textStr);
+            }
+        }
+        return mipsStr;
+    }
+
+    private StringBuilder fullCompile(CharSequence program) {
+        globalText = null;
+        globalDataStr = null;
+        funcCacheMap.clear();
+        funcNum = 0;
+        recompiledNum = 0;
+        return Compiler.compile(program, false);
+    }
+
+    // 编译只保留dirtySet中函数体的缩减程序，把这些函数的汇编拆出来放入缓存
+    private boolean compileDirty(ArrayList<TopUnit> unitList, HashSet<String> dirtySet) {
+        StringBuilder program = new StringBuilder();
+        for (TopUnit unit : unitList) {
+            if (unit.isDecl || dirtySet.contains(unit.name)) {
+                program.append(unit.text).append('\n');
+            } else {
+                program.append(unit.head).append(unit.hasReturn ? " {\n    return 0;\n}\n" : " {\n}\n");
+            }
+        }
+        IRTranslater irTranslater = Compiler.compileToIR(program, false);
+        String mipsStr = new MIPSTranslatorWithReg(irTranslater).iRTranslate().toString();
+        int globalLabelNum = irTranslater.getGlobalLabelNum();
+        int textStart = mipsStr.indexOf("\n\n.text\n");
+        if (!mipsStr.startsWith(".data\n") || textStart < 0) {
+            return false;
+        }
+        // 数据段每项三行：.align、标签、内容
+        HashMap<Integer, String> dataMap = new HashMap<>();
+        StringBuilder globalData = new StringBuilder();
+        String[] dataLines = mipsStr.substring(".data\n".length(), textStart).split("\n");
+        for (int i = 0; i + 2 < dataLines.length; i += 3) {
+            int label = Integer.parseInt(dataLines[i + 1].substring(1, dataLines[i + 1].length() - 1));
+            String content = dataLines[i + 2] + "\n";
+            if (label < globalLabelNum) {
+                globalData.append(".align 2\nL").append(label).append(":\n").append(content);
+            } else {
+                dataMap.put(label, content);
+            }
+        }
+        globalDataStr = globalData.toString();
+        // 代码段：入口跳转之后是各函数，每个以"Func_函数名:"开头
+        String textStr = mipsStr.substring(textStart + "\n\n.text\n".length());
+        Matcher entryMatcher = Pattern.compile("j L(\\d+)\n").matcher(textStr);
+        if (!entryMatcher.lookingAt()) {
+            return false;
+        }
+        int funcStart = entryMatcher.end();
+        while (funcStart < textStr.length()) {
+            int nameEnd = textStr.indexOf(":\n", funcStart);
+            int funcEnd = textStr.indexOf("\nFunc_", funcStart);
+            funcEnd = (funcEnd < 0) ? textStr.length() : funcEnd + 1;
+            if (!textStr.startsWith("Func_", funcStart) || nameEnd < 0 || nameEnd > funcEnd) {
+                return false;
+            }
+            String name = textStr.substring(funcStart + "Func_".length(), nameEnd);
+            if (dirtySet.contains(name)) {
+                FuncCache cache = relocate(name, textStr.substring(funcStart, funcEnd), dataMap, globalLabelNum);
+                if (name.equals("main")) {
+                    cache.entryLabel = "L_main_" + entryMatcher.group(1);
+                }
+                funcCacheMap.put(name, cache);
+            }
+            funcStart = funcEnd;
+        }
+        for (TopUnit unit : unitList) {
+            if (!unit.isDecl && unit.key != null && dirtySet.contains(unit.name)) {
+                FuncCache cache = funcCacheMap.get(unit.name);
+                if (cache == null) {
+                    return false;
+                }
+                cache.key = unit.key;
+            }
+        }
+        return true;
+    }
+
+    // 把函数自己的标签Ln改名为L_name_n，同时取出它用到的数据
+    private static FuncCache relocate(String name, String funcText, HashMap<Integer, String> dataMap,
+                                      int globalLabelNum) {
+        FuncCache cache = new FuncCache();
+        StringBuilder textStr = new StringBuilder();
+        StringBuilder dataStr = new StringBuilder();
+        TreeSet<Integer> dataLabelSet = new TreeSet<>();
+        Matcher matcher = labelPattern.matcher(funcText);
+        while (matcher.find()) {
+            int label = Integer.parseInt(matcher.group(1));
+            if (label < globalLabelNum) {
+                matcher.appendReplacement(textStr, matcher.group());
+            } else {
+                matcher.appendReplacement(textStr, "L_" + name + "_" + label);
+                if (dataMap.containsKey(label)) {
+                    dataLabelSet.add(label);
+                }
+            }
+        }
+        matcher.appendTail(textStr);
+        for (int label : dataLabelSet) {
+            dataStr.append(".align 2\nL_").append(name).append('_').append(label).append(":\n")
+                    .append(dataMap.get(label));
+        }
+        cache.textStr = textStr.toString();
+        cache.dataStr = dataStr.toString();
+        return cache;
+    }
+
+    // 用Token类型切分顶层成分，结构不符合文法时返回null
+    private static ArrayList<TopUnit> splitUnits(CharSequence program) {
+        LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer();
+        lexicalAnalyzer.setErrorList(new ArrayList<>());
+        lexicalAnalyzer.setProgramStr(program);
+        try {
+            lexicalAnalyzer.lexicalAnalyze();
+        } catch (LexicalException e) {
+            return null;
+        }
+        TokenBuffer tokenBuffer = lexicalAnalyzer.getTokenBuffer();
+        int tokenNum = tokenBuffer.size();
+        ArrayList<TopUnit> unitList = new ArrayList<>();
+        boolean hasFunc = false, hasMain = false;
+        int i = 0;
+        while (i < tokenNum && !hasMain) {
+            int type = tokenBuffer.getType(i);
+            int type1 = (i + 1 < tokenNum) ? tokenBuffer.getType(i + 1) : -1;
+            int type2 = (i + 2 < tokenNum) ? tokenBuffer.getType(i + 2) : -1;
+            TopUnit unit = new TopUnit();
+            int end;
+            if (type == Token.CONSTTK || (type == Token.INTTK && type1 == Token.IDENFR && type2 != Token.LPARENT)) {
+                if (hasFunc) {
+                    return null;
+                }
+                unit.isDecl = true;
+                end = i;
+                int depth = 0;
+                while (end < tokenNum && (depth > 0 || tokenBuffer.getType(end) != Token.SEMICN)) {
+                    int endType = tokenBuffer.getType(end);
+                    if (endType == Token.LBRACE || endType == Token.LBRACK || endType == Token.LPARENT) {
+                        depth++;
+                    } else if (endType == Token.RBRACE || endType == Token.RBRACK || endType == Token.RPARENT) {
+                        depth--;
+                    }
+                    end++;
+                }
+            } else if ((type == Token.INTTK || type == Token.VOIDTK) && type1 == Token.IDENFR && type2 == Token.LPARENT ||
+                    type == Token.INTTK && type1 == Token.MAINTK) {
+                hasFunc = true;
+                hasMain = type1 == Token.MAINTK;
+                unit.isDecl = false;
+                unit.name = hasMain ? "main" : tokenBuffer.getText(i + 1);
+                unit.hasReturn = type == Token.INTTK;
+                int lBrace = i;
+                while (lBrace < tokenNum && tokenBuffer.getType(lBrace) != Token.LBRACE) {
+                    lBrace++;
+                }
+                if (lBrace == tokenNum || lBrace == i) {
+                    return null;
+                }
+                unit.head = program.subSequence(tokenBuffer.getStart(i), tokenBuffer.getEnd(lBrace - 1)).toString();
+                unit.calleeSet = new TreeSet<>();
+                int depth = 0;
+                for (end = lBrace; end < tokenNum; end++) {
+                    int endType = tokenBuffer.getType(end);
+                    if (endType == Token.LBRACE) {
+                        depth++;
+                    } else if (endType == Token.RBRACE && --depth == 0) {
+                        break;
+                    } else if (endType == Token.IDENFR && end + 1 < tokenNum &&
+                            tokenBuffer.getType(end + 1) == Token.LPARENT) {
+                        unit.calleeSet.add(tokenBuffer.getText(end));
+                    }
+                }
+            } else {
+                return null;
+            }
+            if (end >= tokenNum) {
+                return null;
+            }
+            unit.text = program.subSequence(tokenBuffer.getStart(i), tokenBuffer.getEnd(end)).toString();
+            unitList.add(unit);
+            i = end + 1;
+        }
+        return (hasMain && i == tokenNum) ? unitList : null;
+    }
+
+    // 一个顶层成分
+    private static class TopUnit {
+        private boolean isDecl;
+        private String text; // 原文
+        private String name; // 以下只对函数有意义
+        private String head; // 函数头的原文，到右括号为止
+        private boolean hasReturn;
+        private TreeSet<String> calleeSet;
+        private String key;
+    }
+
+    // 一个函数的编译结果
+    private static class FuncCache {
+        private String key;
+        private String textStr;
+        private String dataStr;
+        private String entryLabel; // 只对main有意义，程序入口
+    }
+}
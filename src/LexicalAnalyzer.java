@@ -1,18 +1,86 @@
 import Exceptions.LexicalException;
-import SyntaxClasses.ConstIntToken;
-import SyntaxClasses.FormatStringToken;
+import Symbols.NameTable;
 import SyntaxClasses.Token;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 public class LexicalAnalyzer {
-    private StringBuilder programStr;
-    private LinkedList<Token> tokenList;
+    // 字符类别表：ASCII之外的字符与空白一样直接跳过
+    private static final int C_SKIP = 0, C_NEWLINE = 1, C_DIGIT = 2, C_LETTER = 3, C_QUOTE = 4, C_SLASH = 5,
+            C_OP = 6;
+    private static final byte[] charClass = new byte[128];
+    // 运算符与界符，由它们生成DFA：opTrans[状态][字符]为下一状态（0表示无转移），opAccept为接受状态对应的Token类型
+    private static final String[] opStrs = new String[]{"+", "-", "*", "%", ";", ",", "(", ")", "[", "]", "{", "}",
+            "<", "<=", ">", ">=", "=", "==", "!", "!=", "&&", "||"};
+    private static final int[] opTypes = new int[]{Token.PLUS, Token.MINU, Token.MULT, Token.MOD, Token.SEMICN,
+            Token.COMMA, Token.LPARENT, Token.RPARENT, Token.LBRACK, Token.RBRACK, Token.LBRACE, Token.RBRACE,
+            Token.LSS, Token.LEQ, Token.GRE, Token.GEQ, Token.ASSIGN, Token.EQL, Token.NOT, Token.NEQ,
+            Token.AND, Token.OR};
+    private static final int[][] opTrans;
+    private static final int[] opAccept;
+    private static final int KEYWORD_TABLE_SIZE = 32;
+    private static final String[] keywordTable = new String[KEYWORD_TABLE_SIZE];
+    private static final int[] keywordTypeTable = new int[KEYWORD_TABLE_SIZE];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            charClass[c] = C_DIGIT;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            charClass[c] = C_LETTER;
+            charClass[Character.toUpperCase(c)] = C_LETTER;
+        }
+        charClass['_'] = C_LETTER;
+        charClass['\n'] = C_NEWLINE;
+        charClass['"'] = C_QUOTE;
+        charClass['/'] = C_SLASH;
+
+        // 按前缀树构造DFA，状态0为初态
+        ArrayList<int[]> transList = new ArrayList<>();
+        ArrayList<Integer> acceptList = new ArrayList<>();
+        transList.add(new int[128]);
+        acceptList.add(-1);
+        for (int i = 0; i < opStrs.length; i++) {
+            int state = 0;
+            charClass[opStrs[i].charAt(0)] = C_OP;
+            for (int j = 0; j < opStrs[i].length(); j++) {
+                char c = opStrs[i].charAt(j);
+                if (transList.get(state)[c] == 0) {
+                    transList.get(state)[c] = transList.size();
+                    transList.add(new int[128]);
+                    acceptList.add(-1);
+                }
+                state = transList.get(state)[c];
+            }
+            acceptList.set(state, opTypes[i]);
+        }
+        opTrans = transList.toArray(new int[0][]);
+        opAccept = new int[acceptList.size()];
+        for (int i = 0; i < opAccept.length; i++) {
+            opAccept[i] = acceptList.get(i);
+        }
+
+        String[] keywords = new String[]{"const", "int", "void", "if", "else", "while", "break", "continue",
+                "getint", "printf", "return", "main"};
+        int[] keywordTypes = new int[]{Token.CONSTTK, Token.INTTK, Token.VOIDTK, Token.IFTK, Token.ELSETK,
+                Token.WHILETK, Token.BREAKTK, Token.CONTINUETK, Token.GETINTTK, Token.PRINTFTK, Token.RETURNTK,
+                Token.MAINTK};
+        for (int i = 0; i < keywords.length; i++) {
+            int hash = keywordHash(keywords[i]);
+            keywordTable[hash] = keywords[i];
+            keywordTypeTable[hash] = keywordTypes[i];
+        }
+    }
+
+    private CharSequence programStr;
+    private TokenBuffer tokenBuffer;
+    private NameTable nameTable;
     private ArrayList<Error> errorList;
+    private int curPos; // 下一个待读字符的位置
+    private int curLineNum;
 
     public LexicalAnalyzer() {
-        this.tokenList = new LinkedList<>();
+        this.tokenBuffer = null;
         this.errorList = null;
     }
 
@@ -20,12 +88,22 @@ public class LexicalAnalyzer {
         this.errorList = errorList;
     }
 
-    public void setProgramStr(StringBuilder programStr) {
+    public void setProgramStr(CharSequence programStr) {
         this.programStr = programStr;
+        this.tokenBuffer = new TokenBuffer(programStr);
+        this.nameTable = tokenBuffer.getNameTable();
+        this.curPos = 0;
+        this.curLineNum = 1;
     }
 
-    public LinkedList<Token> getTokenList() {
-        return tokenList;
+    public TokenBuffer getTokenBuffer() {
+        return tokenBuffer;
+    }
+
+    // 不预先分析整个程序，返回的TokenBuffer在语法分析读到哪里时才分析到哪里
+    public TokenBuffer streamTokens() {
+        tokenBuffer.setLexer(this);
+        return tokenBuffer;
     }
 
     public boolean isDigit(char c) {
@@ -45,199 +123,169 @@ public class LexicalAnalyzer {
     }
 
     public void lexicalAnalyze() throws LexicalException {
-        int lineNum = 1, pos = 0, progLen = this.programStr.length();
+        while (lexNext()) {
+        }
+    }
+
+    // 从上次停下的位置继续分析，向tokenBuffer追加一个Token；已到程序末尾时返回false
+    public boolean lexNext() throws LexicalException {
+        int lineNum = curLineNum, pos = curPos, progLen = this.programStr.length();
+        CharSequence programStr = this.programStr;
         char readChr;
-        Token curToken;
+        int start, type, nameId;
         while (pos < progLen) {
-            readChr = this.programStr.charAt(pos++);
-            if (readChr == '+') {
-                curToken = new Token(Token.PLUS, lineNum, "+");
-            } else if (readChr == '-') {
-                curToken = new Token(Token.MINU, lineNum, "-");
-            } else if (readChr == '*') {
-                curToken = new Token(Token.MULT, lineNum, "*");
-            } else if (readChr == '/') {
-                curToken = new Token(Token.DIV, lineNum, "/");
-            } else if (readChr == '%') {
-                curToken = new Token(Token.MOD, lineNum, "%");
-            } else if (readChr == ';') {
-                curToken = new Token(Token.SEMICN, lineNum, ";");
-            } else if (readChr == ',') {
-                curToken = new Token(Token.COMMA, lineNum, ",");
-            } else if (readChr == '(') {
-                curToken = new Token(Token.LPARENT, lineNum, "(");
-            } else if (readChr == ')') {
-                curToken = new Token(Token.RPARENT, lineNum, ")");
-            } else if (readChr == '[') {
-                curToken = new Token(Token.LBRACK, lineNum, "[");
-            } else if (readChr == ']') {
-                curToken = new Token(Token.RBRACK, lineNum, "]");
-            } else if (readChr == '{') {
-                curToken = new Token(Token.LBRACE, lineNum, "{");
-            } else if (readChr == '}') {
-                curToken = new Token(Token.RBRACE, lineNum, "}");
-            } else if (readChr == '<') {
-                if (pos == progLen || this.programStr.charAt(pos) != '=') {
-                    curToken = new Token(Token.LSS, lineNum, "<");
-                } else {
-                    curToken = new Token(Token.LEQ, lineNum, "<=");
-                    pos++;
-                }
-            } else if (readChr == '>') {
-                if (pos == progLen || this.programStr.charAt(pos) != '=') {
-                    curToken = new Token(Token.GRE, lineNum, ">");
-                } else {
-                    curToken = new Token(Token.GEQ, lineNum, ">=");
-                    pos++;
-                }
-            } else if (readChr == '=') {
-                if (pos == progLen || this.programStr.charAt(pos) != '=') {
-                    curToken = new Token(Token.ASSIGN, lineNum, "=");
-                } else {
-                    curToken = new Token(Token.EQL, lineNum, "==");
-                    pos++;
-                }
-            } else if (readChr == '!') {
-                if (pos == progLen || this.programStr.charAt(pos) != '=') {
-                    curToken = new Token(Token.NOT, lineNum, "!");
-                } else {
-                    curToken = new Token(Token.NEQ, lineNum, "!=");
-                    pos++;
-                }
-            } else if (readChr == '&') {
-                if (pos < progLen && this.programStr.charAt(pos) == '&') {
-                    curToken = new Token(Token.AND, lineNum, "&&");
-                    pos++;
-                } else {
-                    throw new LexicalException(lineNum);
-                }
-            } else if (readChr == '|') {
-                if (pos < progLen && this.programStr.charAt(pos) == '|') {
-                    curToken = new Token(Token.OR, lineNum, "||");
-                    pos++;
-                } else {
-                    throw new LexicalException(lineNum);
-                }
-            } else if (readChr == '"') {
-                int start = pos - 1;
-                int status = 0;//, formatCharNum = 0;
-                while (pos < progLen) {
-                    char curChar = this.programStr.charAt(pos);
-                    if (curChar == '"') {
-                        ++pos;
-                        break;
-                    } else {
-                        switch (status) {
-                            case 0: // 正常状态
-                                if (curChar == '\\') {
-                                    status = 1;
-                                } else if (curChar == '%') {
-                                    status = 2;
-                                } else if ((int) curChar < 40 || (int) curChar > 126) {
-                                    if ((int) curChar != 32 && (int) curChar != 33) {
-                                        status = 3;
-                                    }
-                                }
-                                break;
-                            case 1: // 收到一个\。需要一个n恢复正常
-                                if (curChar == 'n') {
-                                    status = 0;
-                                } else {
-                                    status = 3;
-                                }
-                                break;
-                            case 2: // 收到一个%。需要一个d恢复正常
-                                if (curChar == 'd') {
-                                    status = 0;
-                                    //++formatCharNum;
-                                } else {
-                                    status = 3;
-                                }
-                                break;
-                            case 3:// 死状态
-                                if (curChar == '%') {
-                                    status = 4;
-                                }
-                                break;
-                            case 4: // 死状态
-                                // 收到一个%。需要一个d恢复正常
-                                // if (curChar == 'd') {
-                                    //++formatCharNum;
-                                // }
-                                status = 3;
-                                break;
+            start = pos;
+            nameId = -1;
+            readChr = programStr.charAt(pos++);
+            switch (readChr < 128 ? charClass[readChr] : C_SKIP) {
+                case C_NEWLINE:
+                    lineNum++;
+                    continue;
+                case C_DIGIT:
+                    while (pos < progLen && isClass(programStr.charAt(pos), C_DIGIT)) {
+                        pos++;
+                    }
+                    type = Token.INTCON;
+                    break;
+                case C_LETTER:
+                    while (pos < progLen && (isClass(programStr.charAt(pos), C_LETTER) ||
+                            isClass(programStr.charAt(pos), C_DIGIT))) {
+                        pos++;
+                    }
+                    type = identAnalyze(start, pos);
+                    if (type == Token.IDENFR) {
+                        nameId = nameTable.intern(programStr, start, pos);
+                    } else if (type == Token.MAINTK) {
+                        nameId = NameTable.MAIN_ID;
+                    }
+                    break;
+                case C_QUOTE:
+                    pos = formatStringAnalyze(lineNum, pos);
+                    type = Token.STRCON;
+                    break;
+                case C_SLASH:
+                    if (pos < progLen && programStr.charAt(pos) == '/') { // 单行注释，换行符留给下一轮计行号
+                        while (pos < progLen && programStr.charAt(pos) != '\n') {
+                            pos++;
+                        }
+                        continue;
+                    } else if (pos < progLen && programStr.charAt(pos) == '*') { // 多行注释
+                        pos++;
+                        while (pos < progLen && !(programStr.charAt(pos) == '*' &&
+                                pos + 1 < progLen && programStr.charAt(pos + 1) == '/')) {
+                            if (programStr.charAt(pos) == '\n') {
+                                lineNum++;
+                            }
+                            pos++;
                         }
+                        pos = Math.min(pos + 2, progLen);
+                        continue;
                     }
-                    ++pos;
-                }
-                if (status != 0) {
-                    Error strconErr = new Error(0, lineNum);
-                    errorList.add(strconErr);
-                }
-                if (this.programStr.charAt(pos - 1) == '"') {
-                    String context = this.programStr.substring(start, pos);
-                    curToken = new FormatStringToken(lineNum, context);
-                    //((FormatStringToken) curToken).setFormatCharNum(formatCharNum);
-                } else {
-                    throw new LexicalException(lineNum);
-                }
-            } else if (isDigit(readChr)) {
-                int start = pos - 1;
-                while (pos < progLen) {
-                    if (!isDigit(this.programStr.charAt(pos++))) {
-                        pos--;
-                        break;
+                    type = Token.DIV;
+                    break;
+                case C_OP: { // 运算符与界符：在DFA上走最长匹配，停在非接受状态说明是单独的&或|
+                    int state = opTrans[0][readChr], nextState;
+                    while (pos < progLen && programStr.charAt(pos) < 128 &&
+                            (nextState = opTrans[state][programStr.charAt(pos)]) != 0) {
+                        state = nextState;
+                        pos++;
                     }
-                }
-                curToken = new ConstIntToken(lineNum, this.programStr.substring(start, pos));
-                curToken.setConstValue(((ConstIntToken) curToken).getMyValue()); // 词法分析时求IntConst的值
-                curToken.setCalculated(true); // 标记为已求值
-            } else if (isIdentNonDigit(readChr)) {
-                int start = pos - 1;
-                while (pos < progLen) {
-                    if (!isIdentChar(this.programStr.charAt(pos++))) {
-                        pos--;
-                        break;
+                    if (opAccept[state] < 0) {
+                        throw new LexicalException(lineNum);
                     }
+                    type = opAccept[state];
+                    break;
                 }
-                curToken = identAnalyze(lineNum, this.programStr.substring(start, pos));
+                default: // 空白及其他字符
+                    continue;
+            }
+            tokenBuffer.add(type, lineNum, start, pos - start, nameId);
+            curPos = pos;
+            curLineNum = lineNum;
+            return true;
+        }
+        curPos = pos;
+        curLineNum = lineNum;
+        return false;
+    }
+
+    private static boolean isClass(char c, int cls) {
+        return c < 128 && charClass[c] == cls;
+    }
+
+    // 从开头的"之后（pos）扫描格式字符串，返回结尾"之后的位置，字符串未闭合时抛出LexicalException
+    private int formatStringAnalyze(int lineNum, int pos) throws LexicalException {
+        int progLen = this.programStr.length();
+        int status = 0;
+        while (pos < progLen) {
+            char curChar = this.programStr.charAt(pos);
+            if (curChar == '"') {
+                ++pos;
+                break;
             } else {
-                if (readChr == '\n') {
-                    lineNum++;
+                switch (status) {
+                    case 0: // 正常状态
+                        if (curChar == '\\') {
+                            status = 1;
+                        } else if (curChar == '%') {
+                            status = 2;
+                        } else if ((int) curChar < 40 || (int) curChar > 126) {
+                            if ((int) curChar != 32 && (int) curChar != 33) {
+                                status = 3;
+                            }
+                        }
+                        break;
+                    case 1: // 收到一个\。需要一个n恢复正常
+                        status = curChar == 'n' ? 0 : 3;
+                        break;
+                    case 2: // 收到一个%。需要一个d恢复正常
+                        status = curChar == 'd' ? 0 : 3;
+                        break;
+                    case 3: // 死状态
+                        if (curChar == '%') {
+                            status = 4;
+                        }
+                        break;
+                    case 4: // 死状态
+                        status = 3;
+                        break;
                 }
-                continue;
             }
-            tokenList.addLast(curToken);
+            ++pos;
+        }
+        if (status != 0) {
+            Error strconErr = new Error(0, lineNum);
+            errorList.add(strconErr);
+        }
+        if (this.programStr.charAt(pos - 1) == '"') {
+            return pos;
+        } else {
+            throw new LexicalException(lineNum);
         }
     }
 
-    public Token identAnalyze(int lineNum, String identStr) {
-        if (identStr.matches("const")) {
-            return new Token(Token.CONSTTK, lineNum, identStr);
-        } else if (identStr.matches("int")) {
-            return new Token(Token.INTTK, lineNum, identStr);
-        } else if (identStr.matches("void")) {
-            return new Token(Token.VOIDTK, lineNum, identStr);
-        } else if (identStr.matches("if")) {
-            return new Token(Token.IFTK, lineNum, identStr);
-        } else if (identStr.matches("else")) {
-            return new Token(Token.ELSETK, lineNum, identStr);
-        } else if (identStr.matches("while")) {
-            return new Token(Token.WHILETK, lineNum, identStr);
-        } else if (identStr.matches("break")) {
-            return new Token(Token.BREAKTK, lineNum, identStr);
-        } else if (identStr.matches("continue")) {
-            return new Token(Token.CONTINUETK, lineNum, identStr);
-        } else if (identStr.matches("getint")) {
-            return new Token(Token.GETINTTK, lineNum, identStr);
-        } else if (identStr.matches("printf")) {
-            return new Token(Token.PRINTFTK, lineNum, identStr);
-        } else if (identStr.matches("return")) {
-            return new Token(Token.RETURNTK, lineNum, identStr);
-        } else if (identStr.matches("main")) {
-            return new Token(Token.MAINTK, lineNum, identStr);
-        } else {
-            return new Token(Token.IDENFR, lineNum, identStr);
+    // 保留字用完美哈希查表，命中后再从首字符起逐字符核对（哈希不区分大小写，Int、If等同槽的标识符靠核对排除）
+    private int identAnalyze(int start, int end) {
+        int len = end - start;
+        String keyword = keywordTable[keywordHash(this.programStr.charAt(start), this.programStr.charAt(end - 1), len)];
+        if (keyword != null && keyword.length() == len) {
+            int i = 0;
+            while (i < len && keyword.charAt(i) == this.programStr.charAt(start + i)) {
+                i++;
+            }
+            if (i == len) {
+                return keywordTypeTable[keywordHash(keyword)];
+            }
         }
+        return Token.IDENFR;
+    }
+
+    // 12个保留字在(首字符 + 末字符*14 + 长度) mod 32下互不冲突
+    private static int keywordHash(char first, char last, int len) {
+        return (first + last * 14 + len) & (KEYWORD_TABLE_SIZE - 1);
+    }
+
+    private static int keywordHash(String identStr) {
+        return keywordHash(identStr.charAt(0), identStr.charAt(identStr.length() - 1), identStr.length());
     }
 }
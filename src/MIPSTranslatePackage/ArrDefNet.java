@@ -2,6 +2,7 @@ package MIPSTranslatePackage;
 
 import IR.IRElem;
 import IR.IRLabelManager;
+import IR.IRList;
 import IR.IRSymbol;
 import IR.IRTranslater;
 import Optimizer.BasicBlock;
@@ -49,7 +50,7 @@ public class ArrDefNet {
                     } else {
                         i = elem.getLineNo() + 1; // 定义块，从定义下一条算起
                     }
-                    ArrayList<IRElem> blockIRList = new ArrayList<>(block.getBlockIRList());
+                    IRList blockIRList = block.getBlockIRList();
                     for (; i < blockIRList.size(); i++) {
                         IRElem inst = blockIRList.get(i);
                         if (inst.getType() == IRElem.FUNC) {
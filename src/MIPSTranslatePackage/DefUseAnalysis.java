@@ -2,6 +2,7 @@ package MIPSTranslatePackage;
 
 import IR.IRElem;
 import IR.IRImmSymbol;
+import IR.IRList;
 import IR.IRSymbol;
 import Optimizer.BasicBlock;
 
@@ -57,7 +58,7 @@ public class DefUseAnalysis {
 
     public void blockGenKillCal(BasicBlock block,
                                 HashMap<IRSymbol, HashSet<DefUseNetElem>> killSetByVar) {
-        ArrayList<IRElem> iRList = new ArrayList<>(block.getBlockIRList());
+        IRList iRList = block.getBlockIRList();
         HashSet<DefUseNetElem> lastGen = new HashSet<>();
         HashSet<DefUseNetElem> lastKill = new HashSet<>();
         for (int i = 0; i < iRList.size(); i++) {
@@ -123,7 +124,7 @@ public class DefUseAnalysis {
     public HashMap<IRSymbol, HashSet<DefUseNetElem>> getAllKillSet() {
         HashMap<IRSymbol, HashSet<DefUseNetElem>> killSetByVar = new HashMap<>();
         for (BasicBlock block : blockList) {
-            ArrayList<IRElem> iRList = new ArrayList<>(block.getBlockIRList());
+            IRList iRList = block.getBlockIRList();
             for (int i = 0; i < iRList.size(); i++) {
                 IRElem inst = iRList.get(i);
                 if (inst.getType() == IRElem.ADD || inst.getType() == IRElem.MINU ||
@@ -1,6 +1,9 @@
 package MIPSTranslatePackage;
 
 import IR.IRElem;
+import IR.IRFunction;
+import IR.IRList;
+import IR.IRModule;
 import IR.IRTranslater;
 import Optimizer.BasicBlock;
 import Optimizer.LiveVarAnalysis;
@@ -9,33 +12,33 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class IRProcessor {
-    private IRTranslater iRPackage;
-    private LinkedList<IRElem> iRList;
-    private ArrayList<BasicBlock> blockList;
+    private IRModule iRModule;
+    private ArrayList<BasicBlock> blockList; // 当前函数的基本块
 
     public IRProcessor(IRTranslater iRPackage) {
-        this.iRPackage = iRPackage;
-        this.iRList = iRPackage.getIRList();
+        this.iRModule = iRPackage.getIRModule();
     }
 
     public void flushEnv() {
-        basicBlockInit(iRList);
-        LiveVarAnalysis liveVarAnalyzer = new LiveVarAnalysis(blockList);
-        liveVarAnalyzer.liveVarAnalysis();
-        DefUseAnalysis defUseAnalyzer = new DefUseAnalysis(blockList);
-        defUseAnalyzer.ArrDefAnalysis();
-        ArrDefNet netProcessor = new ArrDefNet(blockList, defUseAnalyzer);
-        netProcessor.buildNet();
-        netProcessor.netVarRename();
-        basicBlockToIRList();
-        liveVarAnalyzer = new LiveVarAnalysis(blockList);
-        liveVarAnalyzer.liveVarAnalysis();
+        for (IRFunction func : iRModule.getFuncList()) { // 基本块编号只在函数内有效，逐个函数处理
+            basicBlockInit(func.getIRList());
+            func.setBlockList(blockList);
+            LiveVarAnalysis liveVarAnalyzer = new LiveVarAnalysis(blockList);
+            liveVarAnalyzer.liveVarAnalysis();
+            DefUseAnalysis defUseAnalyzer = new DefUseAnalysis(blockList);
+            defUseAnalyzer.ArrDefAnalysis();
+            ArrDefNet netProcessor = new ArrDefNet(blockList, defUseAnalyzer);
+            netProcessor.buildNet();
+            netProcessor.netVarRename();
+            basicBlockToIRList(func);
+            liveVarAnalyzer = new LiveVarAnalysis(blockList);
+            liveVarAnalyzer.liveVarAnalysis();
+        }
     }
 
-    public void basicBlockInit(LinkedList<IRElem> iRList) {
+    public void basicBlockInit(IRList iRList) {
         ArrayList<Integer> breakPoint = buildBasicBlockBreakpoint(iRList);
         HashMap<Integer, Integer> labelBlockMap = buildBasicBlock(breakPoint, iRList);
         fillBlockLink(labelBlockMap);
@@ -76,8 +79,7 @@ public class IRProcessor {
     }
 
     public HashMap<Integer, Integer> buildBasicBlock(ArrayList<Integer> breakPointList,
-                                                     LinkedList<IRElem> iRList) {
-        ArrayList<IRElem> tempIRList = new ArrayList<>(iRList); // 转换为Arraylist加速访问
+                                                     IRList iRList) {
         ArrayList<BasicBlock> blockList = new ArrayList<>();
         HashMap<Integer, Integer> labelBlockIdMap = new HashMap<>();
         int start, end;
@@ -88,11 +90,11 @@ public class IRProcessor {
                 break;
             }
             BasicBlock block = new BasicBlock(i - 1);
-            block.addIR(tempIRList, start, end);
-            for (int j = start; tempIRList.get(j).getType() == IRElem.LABEL ||
-                    tempIRList.get(j).getType() == IRElem.FUNC; j++) {
-                if (tempIRList.get(j).getType() == IRElem.LABEL) {
-                    int labelID = tempIRList.get(j).getOp3().getId();
+            block.addIR(iRList, start, end);
+            for (int j = start; iRList.get(j).getType() == IRElem.LABEL ||
+                    iRList.get(j).getType() == IRElem.FUNC; j++) {
+                if (iRList.get(j).getType() == IRElem.LABEL) {
+                    int labelID = iRList.get(j).getOp3().getId();
                     labelBlockIdMap.put(labelID, i - 1);
                 }
             }
@@ -102,7 +104,7 @@ public class IRProcessor {
         return labelBlockIdMap;
     }
 
-    public ArrayList<Integer> buildBasicBlockBreakpoint(LinkedList<IRElem> iRList) { // 得到所有基本块起点的位置
+    public ArrayList<Integer> buildBasicBlockBreakpoint(IRList iRList) { // 得到所有基本块起点的位置
         int i = 0;
         HashSet<Integer> breakpointSet = new HashSet<>();
         HashMap<Integer, Integer> labelLineMap = new HashMap<>();
@@ -147,16 +149,19 @@ public class IRProcessor {
         return breakPointList;
     }
 
-    public void basicBlockToIRList() {
-        LinkedList<IRElem> optedIRList = new LinkedList<>();
-        for (BasicBlock block : blockList) {
+    public void basicBlockToIRList(IRFunction func) {
+        IRList optedIRList = new IRList(func.getIRList().size());
+        for (BasicBlock block : func.getBlockList()) {
             optedIRList.addAll(block.getBlockIRList());
         }
-        iRList = optedIRList;
-        iRPackage.setiRList(optedIRList);
+        func.setIRList(optedIRList);
     }
 
-    public ArrayList<BasicBlock> getBlockList() {
-        return blockList;
+    public ArrayList<BasicBlock> getBlockList() { // 各函数的基本块依次拼接
+        ArrayList<BasicBlock> allBlockList = new ArrayList<>();
+        for (IRFunction func : iRModule.getFuncList()) {
+            allBlockList.addAll(func.getBlockList());
+        }
+        return allBlockList;
     }
 }
@@ -3,22 +3,22 @@ import IR.IRFuncSymbol;
 import IR.IRImmSymbol;
 import IR.IRLabelManager;
 import IR.IRLabelSymbol;
+import IR.IRList;
 import IR.IRSymbol;
 import IR.IRTranslater;
 import Symbols.VarSymbol;
-import SyntaxClasses.SyntaxClass;
+import SyntaxClasses.SyntaxTree;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class MIPSTranslater {
-    private SyntaxClass compUnit;
+    private SyntaxTree tree;
     private HashMap<VarSymbol, IRSymbol> constantArrMap; // 常量数组无法消干净
     private HashMap<VarSymbol, IRSymbol> globalArrMap; // 全局数组
     private HashMap<IRSymbol, String> formatStrMap; // 格式字符串作常量存
-    private LinkedList<IRElem> iRList;
+    private IRList iRList;
     private IRLabelManager iRLabelManager;
     private IRSymbol mainFunc;
     private HashMap<IRSymbol, Integer> iRAddrMap; //
@@ -28,7 +28,7 @@ public class MIPSTranslater {
     private FunctionTemplate curFunc;
 
     public MIPSTranslater(IRTranslater irTranslater) {
-        this.compUnit = irTranslater.getCompUnit();
+        this.tree = irTranslater.getSyntaxTree();
         this.constantArrMap = irTranslater.getConstantArrMap();
         this.globalArrMap = irTranslater.getGlobalArrMap();
         this.formatStrMap = irTranslater.getFormatStrMap();
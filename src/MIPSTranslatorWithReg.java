@@ -1,26 +1,29 @@
 import Exceptions.NoRegToUseException;
 import IR.IRElem;
 import IR.IRFuncSymbol;
+import IR.IRFunction;
 import IR.IRImmSymbol;
 import IR.IRLabelManager;
 import IR.IRLabelSymbol;
+import IR.IRList;
+import IR.IRModule;
 import IR.IRSymbol;
 import IR.IRTranslater;
 import Optimizer.IROptimizer;
-import Symbols.VarSymbol;
-import SyntaxClasses.SyntaxClass;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class MIPSTranslatorWithReg {
-    private SyntaxClass compUnit;
-    private HashMap<VarSymbol, IRSymbol> constantArrMap; // 常量数组无法消干净
-    private HashMap<VarSymbol, IRSymbol> globalArrMap; // 全局数组
+    private HashMap<IRSymbol, ArrayList<Integer>> constantData; // 常量数组无法消干净
+    private HashMap<IRSymbol, ArrayList<Integer>> globalData; // 全局数组
     private HashMap<IRSymbol, String> formatStrMap; // 格式字符串作常量存
-    private LinkedList<IRElem> iRList;
+    private IRModule iRModule;
+    private IRList iRList; // 正在翻译的指令序列（入口序列或某个函数）
     private IRLabelManager iRLabelManager;
     private IRSymbol mainFunc;
     private HashMap<IRSymbol, Integer> iRAddrMap; //
@@ -36,16 +39,22 @@ public class MIPSTranslatorWithReg {
     private HashMap<IRSymbol, String> regUseMap;
 
     private boolean testVar = false;
+    private Writer mipsWriter; // 非空时instTranslate每翻译完一个函数就写出
 
 
     public MIPSTranslatorWithReg(IRTranslater irTranslater) {
-        this.compUnit = irTranslater.getCompUnit();
-        this.constantArrMap = irTranslater.getConstantArrMap();
-        this.globalArrMap = irTranslater.getGlobalArrMap();
-        this.formatStrMap = irTranslater.getFormatStrMap();
-        this.iRList = irTranslater.getIRList();
+        this(irTranslater.getIRModule());
+    }
+
+    // 只依赖中间代码本身，也可以翻译从文件读入的模块
+    public MIPSTranslatorWithReg(IRModule iRModule) {
+        this.constantData = iRModule.getConstantData();
+        this.globalData = iRModule.getGlobalData();
+        this.formatStrMap = iRModule.getFormatStrMap();
+        this.iRModule = iRModule;
+        this.iRList = iRModule.getEntryList();
         this.iRLabelManager = IRLabelManager.getIRLabelManager();
-        this.mainFunc = irTranslater.getMainFunc();
+        this.mainFunc = iRModule.getMainFunc();
         this.globalLabelSet = new HashSet<>();
         this.functionTemplateTable = new HashMap<>();
 
@@ -54,10 +63,9 @@ public class MIPSTranslatorWithReg {
         this.curFunc = FunctionTemplate.GLOBAL;
 
         this.globalLabelSet.addAll(formatStrMap.keySet());
-        this.globalLabelSet.addAll(constantArrMap.values());
-        this.globalLabelSet.addAll(globalArrMap.values());
+        this.globalLabelSet.addAll(constantData.keySet());
+        this.globalLabelSet.addAll(globalData.keySet());
 
-        this.breakpointList = IROptimizer.buildBasicBlockBreakpoint(this.iRList);
         regPoolInit();
     }
 
@@ -74,14 +82,20 @@ public class MIPSTranslatorWithReg {
     }
 
     public void buildFunctionTemplate() {
+        this.curFunc = FunctionTemplate.GLOBAL;
+        scanSymbols(iRModule.getEntryList());
+        for (IRFunction func : iRModule.getFuncList()) {
+            FunctionTemplate newFuncTempl = new FunctionTemplate(func.getFuncSymbol());
+            functionTemplateTable.put(newFuncTempl.getFuncName(), newFuncTempl);
+            this.curFunc = newFuncTempl;
+            scanSymbols(func.getIRList());
+        }
+        this.curFunc = FunctionTemplate.GLOBAL;
+    }
+
+    private void scanSymbols(IRList iRList) { // 登记指令序列中用到的局部符号和栈空间
         for (IRElem inst : iRList) {
-            if (inst.getType() == IRElem.FUNC) {
-                FunctionTemplate newFuncTempl = new FunctionTemplate((IRFuncSymbol) inst.getOp3());
-                functionTemplateTable.put(newFuncTempl.getFuncName(), newFuncTempl);
-                this.curFunc = newFuncTempl;
-            } else if (inst.getType() == IRElem.RET || inst.getType() == IRElem.EXIT) {
-                this.curFunc = FunctionTemplate.GLOBAL;
-            } else if (inst.getType() == IRElem.ADD || inst.getType() == IRElem.MINU ||
+            if (inst.getType() == IRElem.ADD || inst.getType() == IRElem.MINU ||
                     inst.getType() == IRElem.MULT || inst.getType() == IRElem.DIV ||
                     inst.getType() == IRElem.MOD || inst.getType() == IRElem.AND ||
                     inst.getType() == IRElem.LSHIFT || inst.getType() == IRElem.RSHIFT ||
@@ -131,8 +145,48 @@ public class MIPSTranslatorWithReg {
         return outStr;
     }
 
+    // 流式输出：数据段与每个函数的代码生成完即写入mipsWriter，内存中只保留当前函数的汇编
+    public void iRTranslate(Writer mipsWriter) throws IOException {
+        buildFunctionTemplate();
+        mipsWriter.append(outputDataSegment());
+        this.mipsWriter = mipsWriter;
+        try {
+            mipsWriter.append(instTranslate());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.mipsWriter = null;
+        }
+    }
+
+    private void flushToWriter(StringBuilder outStr) {
+        if (mipsWriter == null) {
+            return;
+        }
+        try {
+            mipsWriter.append(outStr);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        outStr.setLength(0);
+    }
+
     public StringBuilder instTranslate() {
         StringBuilder outStr = new StringBuilder("\n\n.text\n");
+        outStr.append(instListTranslate(iRModule.getEntryList()));
+        for (IRFunction func : iRModule.getFuncList()) {
+            outStr.append(instListTranslate(func.getIRList()));
+            flushToWriter(outStr); // 一个函数翻译完毕
+        }
+        return outStr;
+    }
+
+    // 翻译一段指令序列（入口序列或一个函数），基本块边界只在该序列内计算
+    private StringBuilder instListTranslate(IRList iRList) {
+        this.iRList = iRList;
+        this.breakpointList = IROptimizer.buildBasicBlockBreakpoint(iRList);
+        breakpointList.add(iRList.size()); // 序列末尾的块结束时还会取下一块的边界
+        StringBuilder outStr = new StringBuilder();
         int blockID = 1;
         int nextEnd = breakpointList.get(blockID);
         for (int i = 0; i < iRList.size(); i++) {
@@ -1412,22 +1466,20 @@ public class MIPSTranslatorWithReg {
 
     public StringBuilder outputDataSegment() {
         StringBuilder outStr = new StringBuilder(".data\n");
-        for (VarSymbol constVarSymbol : constantArrMap.keySet()) {
-            IRSymbol constSymbol = constantArrMap.get(constVarSymbol);
+        for (IRSymbol constSymbol : constantData.keySet()) {
             outStr.append(".align 2\n");
             outStr.append("L").append(constSymbol.getId()).append(":\n.word ");
-            ArrayList<Integer> constArr = constVarSymbol.constGetAllValue();
+            ArrayList<Integer> constArr = constantData.get(constSymbol);
             int i;
             for (i = 0; i < constArr.size() - 1; ++i) {
                 outStr.append(constArr.get(i)).append(", ");
             }
             outStr.append(constArr.get(i)).append("\n");
         }
-        for (VarSymbol globalVarSymbol : globalArrMap.keySet()) {
-            IRSymbol varLabelSymbol = globalArrMap.get(globalVarSymbol);
+        for (IRSymbol varLabelSymbol : globalData.keySet()) {
             outStr.append(".align 2\n");
             outStr.append("L").append(varLabelSymbol.getId()).append(":\n.word ");
-            ArrayList<Integer> constArr = globalVarSymbol.constGetAllValue();
+            ArrayList<Integer> constArr = globalData.get(varLabelSymbol);
             int i;
             for (i = 0; i < constArr.size() - 1; ++i) {
                 outStr.append(constArr.get(i)).append(", ");
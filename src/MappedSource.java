@@ -0,0 +1,42 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// 以内存映射的源文件字节直接作为字符序列，按单字节字符访问，不再复制出一份String/StringBuilder
+// SysY源程序中合法的字符都是ASCII，非ASCII字节只可能出现在注释里（由词法分析跳过）或作为非法字符报错
+public class MappedSource implements CharSequence {
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+
+    public MappedSource(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    private MappedSource(ByteBuffer buffer, int start, int length) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(start + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new MappedSource(buffer, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -4,6 +4,7 @@ import IR.IRElem;
 import IR.IRFuncSymbol;
 import IR.IRImmSymbol;
 import IR.IRLabelManager;
+import IR.IRList;
 import IR.IRSymbol;
 import MIPSTranslatePackage.DefUseNetElem;
 import Optimizer.DAG.DAGCallNode;
@@ -19,7 +20,7 @@ public class BasicBlock {
     private ArrayList<BasicBlock> predecessors; // 前驱
     private HashSet<IRSymbol> useSet; // 活跃变量分析的use集合
     private HashSet<IRSymbol> defSet; // 活跃变量分析的def集合
-    private LinkedList<IRElem> iRList; // 基本块指令序列
+    private IRList iRList; // 基本块指令序列
     private HashSet<IRSymbol> inSetLVA; // 活跃变量分析的in集合
     private HashSet<IRSymbol> outSetLVA; // 活跃变量分析的out集合
     private HashSet<DefUseNetElem> genSet;
@@ -30,16 +31,16 @@ public class BasicBlock {
     private DAGClass dag;
 
     private IRElem setRetInst; // 一个块内只有最后一条有效
-    private HashSet<IRElem> labelSet;
+    private ArrayList<IRElem> labelList; // 块开头的标签，按原来的顺序
     private IRElem funcInst; // 一个块内最多一个Func
     private LinkedList<DAGNode> calculateList;
-    private LinkedList<IRElem> blockOptInstList;
+    private IRList blockOptInstList;
 
     public BasicBlock(int id) {
         this.blockID = id;
         this.successors = new ArrayList<>();
         this.predecessors = new ArrayList<>();
-        this.iRList = new LinkedList<>();
+        this.iRList = new IRList();
         this.inSetLVA = new HashSet<>();
         this.outSetLVA = new HashSet<>();
         this.defSet = new HashSet<>();
@@ -51,7 +52,7 @@ public class BasicBlock {
 
         this.setRetInst = null;
         this.funcInst = null;
-        this.labelSet = new HashSet<>();
+        this.labelList = new ArrayList<>();
         this.calculateList = new LinkedList<>();
         blockOptInstList = null;
     }
@@ -147,7 +148,7 @@ public class BasicBlock {
                 graph.addCallNode(inst.getType(), op3, (IRFuncSymbol) op1, paramNodeList);
             } else if (inst.getType() == IRElem.LABEL) {
                 graph.addLabelInst(inst);
-                labelSet.add(inst);
+                labelList.add(inst);
             }
         }
         this.dag = graph;
@@ -199,7 +200,7 @@ public class BasicBlock {
         return inSet;
     }
 
-    public LinkedList<IRElem> reArrangeInstFromDAG() {
+    public IRList reArrangeInstFromDAG() {
         HashSet<DAGNode> visited = new HashSet<>();
         for (IRSymbol liveSymbol : outSetLVA) {
             DAGNode node = dag.getNode(liveSymbol);
@@ -233,7 +234,7 @@ public class BasicBlock {
             depthFirstSearch(dag.getBlockEndNode(), visited, calculateList);
         }
 
-        LinkedList<IRElem> instList = new LinkedList<>();
+        IRList instList = new IRList();
         IRLabelManager labelManager = IRLabelManager.getIRLabelManager();
 
         for (DAGNode curNode : calculateList) { // 最开始就确认所有叶节点变更名称情况
@@ -494,8 +495,8 @@ public class BasicBlock {
             IRElem nodeInst = new IRElem(blockEndNode.getType(), addrSymbol, judgeSymbol);
             instList.add(nodeInst); // 指令
         }
-        for (IRElem label : labelSet) {
-            instList.addFirst(label);
+        for (int i = labelList.size() - 1; i >= 0; i--) { // 逐条加在前面，倒序加入才保持原顺序
+            instList.addFirst(labelList.get(i));
         }
         if (funcInst != null) {
             instList.addFirst(funcInst);
@@ -504,7 +505,7 @@ public class BasicBlock {
         return instList;
     }
 
-    public LinkedList<IRElem> getBlockOptInstList() {
+    public IRList getBlockOptInstList() {
         return blockOptInstList;
     }
 
@@ -590,11 +591,11 @@ public class BasicBlock {
         return blockID;
     }
 
-    public LinkedList<IRElem> getBlockIRList() {
+    public IRList getBlockIRList() {
         return iRList;
     }
 
-    public void addIR(ArrayList<IRElem> globalIRList, int start, int end) { // 包含start，不含end
+    public void addIR(IRList globalIRList, int start, int end) { // 包含start，不含end
         int i = start;
         for (; i < end; ++i) {
             this.iRList.add(globalIRList.get(i));
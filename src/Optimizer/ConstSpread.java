@@ -2,12 +2,12 @@ package Optimizer;
 
 import IR.IRElem;
 import IR.IRImmSymbol;
+import IR.IRList;
 import IR.IRSymbol;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class ConstSpread {
     private ArrayList<BasicBlock> blockList;
@@ -66,7 +66,7 @@ public class ConstSpread {
     }
 
     public void renewBlockIR(BasicBlock block) {
-        LinkedList<IRElem> blockInstList = block.getBlockIRList();
+        IRList blockInstList = block.getBlockIRList();
         HashMap<IRSymbol, ConstSpreadType> blockOut = blockOutMap.get(block);
         for (IRElem inst : blockInstList) {
             if (inst.getType() == IRElem.ADD || inst.getType() == IRElem.MINU ||
@@ -130,7 +130,7 @@ public class ConstSpread {
     }
 
     public boolean blockSpreadCal(BasicBlock block) {
-        LinkedList<IRElem> blockInstList = block.getBlockIRList();
+        IRList blockInstList = block.getBlockIRList();
         HashMap<IRSymbol, ConstSpreadType> blockOut = new HashMap<>();
         HashMap<IRSymbol, ConstSpreadType> blockIn = blockInMap.get(block);
         HashMap<IRSymbol, ConstSpreadType> blockOutLast = blockOutMap.get(block);
@@ -4,8 +4,9 @@ public class ConstSpreadType {
     public static final int CONST = 0, NAC = 1, UNDEF = 2;
     private int type;
     private int value;
-    private static ConstSpreadType nacObj;
-    private static ConstSpreadType undefObj;
+    // 两个共享对象在类加载时创建，多个编译并行时不会出现重复创建
+    private static final ConstSpreadType nacObj = new ConstSpreadType(NAC);
+    private static final ConstSpreadType undefObj = new ConstSpreadType(UNDEF);
 
     private ConstSpreadType(int type) {
         this.type = type;
@@ -13,14 +14,8 @@ public class ConstSpreadType {
 
     public static ConstSpreadType getTypeObj(int type) {
         if (type == NAC) {
-            if (nacObj == null) {
-                nacObj = new ConstSpreadType(NAC);
-            }
             return nacObj;
         } else if (type == UNDEF) {
-            if (undefObj == null) {
-                undefObj = new ConstSpreadType(UNDEF);
-            }
             return undefObj;
         } else {
             return null;
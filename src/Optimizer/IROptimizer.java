@@ -1,84 +1,136 @@
 package Optimizer;
 
 import IR.IRElem;
+import IR.IRFunction;
 import IR.IRImmSymbol;
+import IR.IRList;
+import IR.IRModule;
 import IR.IRSymbol;
 import IR.IRTranslater;
 import MIPSTranslatePackage.DefUseNetElem;
+import Profiler.PhaseProfiler;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class IROptimizer {
-    private IRTranslater iRPackage;
-    private LinkedList<IRElem> iRList;
-    private ArrayList<BasicBlock> blockList;
+    private IRModule iRModule;
+    private ArrayList<BasicBlock> blockList; // 当前函数的基本块
 
     public IROptimizer(IRTranslater iRPackage) {
-        this.iRPackage = iRPackage;
-        this.iRList = iRPackage.getIRList();
+        this(iRPackage.getIRModule());
     }
 
+    // 只需要中间代码本身，也可以直接优化从文件读入的IRModule
+    public IROptimizer(IRModule iRModule) {
+        this.iRModule = iRModule;
+    }
+
+    // 各遍都逐个函数进行，同一遍内按函数定义顺序处理，与整个程序一起处理时申请的新符号编号相同
     public void doOptimizeWithNewLVA() {
-        PrintOpt.emptyStrOpt(iRPackage);
+        PrintOpt.emptyStrOpt(iRModule);
         for (int i = 0; i < 5; i++) {
-            doJumpOptimize();
-            basicBlockInit(iRList);
-            ConstSpread constSpread = new ConstSpread(blockList);
-            constSpread.doConstSpread();
-            for (BasicBlock block : blockList) {
-                block.buildDAG();
+            for (IRFunction func : iRModule.getFuncList()) {
+                doJumpOptimize(func);
+                basicBlockInit(func);
+                ConstSpread constSpread = new ConstSpread(blockList);
+                constSpread.doConstSpread();
+                for (BasicBlock block : blockList) {
+                    block.buildDAG();
+                }
+                LiveVarAnalysis liveVarAnalyzer = new LiveVarAnalysis(blockList);
+                liveVarAnalyzer.liveVarAnalysisWithBlock();
             }
-            LiveVarAnalysis liveVarAnalyzer = new LiveVarAnalysis(blockList);
-            liveVarAnalyzer.liveVarAnalysisWithBlock();
-            for (BasicBlock block : blockList) {
-                block.reArrangeInstFromDAG();
+            for (IRFunction func : iRModule.getFuncList()) {
+                for (BasicBlock block : func.getBlockList()) {
+                    block.reArrangeInstFromDAG();
+                }
+                basicBlockToIRList(func);
             }
-            basicBlockToIRList();
             if (i == 0) {
-                MultDivOpt multDivOpter = new MultDivOpt(iRPackage);
-                LinkedList<IRElem> newList = multDivOpter.powOfTwoOpt();
-                iRPackage.setiRList(newList);
-                //this.iRList = iRPackage.getIRList();
-                this.iRList = newList;
-            } else {
-                this.iRList = iRPackage.getIRList();
+                MultDivOpt multDivOpter = new MultDivOpt();
+                for (IRFunction func : iRModule.getFuncList()) {
+                    multDivOpter.powOfTwoOpt(func);
+                }
+            }
+            for (IRFunction func : iRModule.getFuncList()) {
+                constInstCal(func.getIRList());
             }
-            constInstCal();
         }
     }
 
     public void doOptimize() {
-        PrintOpt.emptyStrOpt(iRPackage);
+        // 各子过程前后向PhaseProfiler报告指令数与基本块数，未开启统计时为空操作
+        PhaseProfiler.beginPhase("PrintOpt", instNum(), blockNum());
+        PrintOpt.emptyStrOpt(iRModule);
+        PhaseProfiler.endPhase(instNum(), blockNum());
+        ArrayList<IRFunction> funcList = iRModule.getFuncList();
         for (int i = 0; i < 5; i++) {
-            doJumpOptimize();
-            basicBlockInit(iRList);
-            ConstSpread constSpread = new ConstSpread(blockList);
-            constSpread.doConstSpread();
-            LiveVarAnalysis liveVarAnalyzer = new LiveVarAnalysis(blockList);
-            liveVarAnalyzer.liveVarAnalysis();
-            for (BasicBlock block : blockList) {
-                block.buildDAG();
-                block.reArrangeInstFromDAG();
+            PhaseProfiler.beginPhase("iteration" + i, instNum(), blockNum());
+            PhaseProfiler.beginPhase("JumpOpt", instNum(), blockNum());
+            for (IRFunction func : funcList) {
+                doJumpOptimize(func);
+            }
+            PhaseProfiler.endPhase(instNum(), blockNum());
+            PhaseProfiler.beginPhase("BasicBlockInit", instNum(), blockNum());
+            for (IRFunction func : funcList) {
+                basicBlockInit(func);
+            }
+            PhaseProfiler.endPhase(instNum(), blockNum());
+            PhaseProfiler.beginPhase("ConstSpread", instNum(), blockNum());
+            for (IRFunction func : funcList) {
+                ConstSpread constSpread = new ConstSpread(func.getBlockList());
+                constSpread.doConstSpread();
+            }
+            PhaseProfiler.endPhase(instNum(), blockNum());
+            PhaseProfiler.beginPhase("LiveVarAnalysis", instNum(), blockNum());
+            for (IRFunction func : funcList) {
+                LiveVarAnalysis liveVarAnalyzer = new LiveVarAnalysis(func.getBlockList());
+                liveVarAnalyzer.liveVarAnalysis();
+            }
+            PhaseProfiler.endPhase(instNum(), blockNum());
+            PhaseProfiler.beginPhase("DAG", instNum(), blockNum());
+            for (IRFunction func : funcList) {
+                for (BasicBlock block : func.getBlockList()) {
+                    block.buildDAG();
+                    block.reArrangeInstFromDAG();
+                }
+                basicBlockToIRList(func);
             }
-            basicBlockToIRList();
+            PhaseProfiler.endPhase(instNum(), blockNum());
             if (i == 0) {
-                MultDivOpt multDivOpter = new MultDivOpt(iRPackage);
-                LinkedList<IRElem> newList = multDivOpter.powOfTwoOpt();
-                iRPackage.setiRList(newList);
-                //this.iRList = iRPackage.getIRList();
-                this.iRList = newList;
-            } else {
-                this.iRList = iRPackage.getIRList();
+                PhaseProfiler.beginPhase("MultDivOpt", instNum(), blockNum());
+                MultDivOpt multDivOpter = new MultDivOpt();
+                for (IRFunction func : funcList) {
+                    multDivOpter.powOfTwoOpt(func);
+                }
+                PhaseProfiler.endPhase(instNum(), blockNum());
+            }
+            PhaseProfiler.beginPhase("ConstInstCal", instNum(), blockNum());
+            for (IRFunction func : funcList) {
+                constInstCal(func.getIRList());
             }
-            constInstCal();
+            PhaseProfiler.endPhase(instNum(), blockNum());
+            PhaseProfiler.endPhase(instNum(), blockNum());
         }
     }
 
-    public void basicBlockInit(LinkedList<IRElem> iRList) {
+    private int instNum() {
+        return iRModule.getInstNum();
+    }
+
+    private int blockNum() {
+        return iRModule.getBlockNum();
+    }
+
+    public void basicBlockInit(IRFunction func) {
+        basicBlockInit(func.getIRList());
+        func.setBlockList(blockList);
+    }
+
+    public void basicBlockInit(IRList iRList) {
         ArrayList<Integer> breakPoint = buildBasicBlockBreakpoint(iRList);
         HashMap<Integer, Integer> labelBlockMap = buildBasicBlock(breakPoint, iRList);
         fillBlockLink(labelBlockMap);
@@ -119,8 +171,7 @@ public class IROptimizer {
     }
 
     public HashMap<Integer, Integer> buildBasicBlock(ArrayList<Integer> breakPointList,
-                                                     LinkedList<IRElem> iRList) {
-        ArrayList<IRElem> tempIRList = new ArrayList<>(iRList); // 转换为Arraylist加速访问
+                                                     IRList iRList) {
         ArrayList<BasicBlock> blockList = new ArrayList<>();
         HashMap<Integer, Integer> labelBlockIdMap = new HashMap<>();
         int start, end;
@@ -131,11 +182,11 @@ public class IROptimizer {
                 break;
             }
             BasicBlock block = new BasicBlock(i - 1);
-            block.addIR(tempIRList, start, end);
-            for (int j = start; tempIRList.get(j).getType() == IRElem.LABEL ||
-                    tempIRList.get(j).getType() == IRElem.FUNC; j++) {
-                if (tempIRList.get(j).getType() == IRElem.LABEL) {
-                    int labelID = tempIRList.get(j).getOp3().getId();
+            block.addIR(iRList, start, end);
+            for (int j = start; iRList.get(j).getType() == IRElem.LABEL ||
+                    iRList.get(j).getType() == IRElem.FUNC; j++) {
+                if (iRList.get(j).getType() == IRElem.LABEL) {
+                    int labelID = iRList.get(j).getOp3().getId();
                     labelBlockIdMap.put(labelID, i - 1);
                 }
             }
@@ -145,7 +196,7 @@ public class IROptimizer {
         return labelBlockIdMap;
     }
 
-    public static ArrayList<Integer> buildBasicBlockBreakpoint(LinkedList<IRElem> iRList) { // 得到所有基本块起点的位置
+    public static ArrayList<Integer> buildBasicBlockBreakpoint(IRList iRList) { // 得到所有基本块起点的位置
         int i = 0;
         HashSet<Integer> breakpointSet = new HashSet<>();
         HashMap<Integer, Integer> labelLineMap = new HashMap<>();
@@ -181,7 +232,9 @@ public class IROptimizer {
             }
         }
         for (int labelID : entrySet) {
-            breakpointSet.add(labelLineMap.get(labelID));
+            if (labelLineMap.containsKey(labelID)) { // 入口序列中跳转到main的目标不在本序列内
+                breakpointSet.add(labelLineMap.get(labelID));
+            }
         }
         breakpointSet.add(0);
         breakpointSet.add(iRList.size());
@@ -190,22 +243,21 @@ public class IROptimizer {
         return breakPointList;
     }
 
-    public void basicBlockToIRList() {
-        LinkedList<IRElem> optedIRList = new LinkedList<>();
-        for (BasicBlock block : blockList) {
+    public void basicBlockToIRList(IRFunction func) {
+        IRList optedIRList = new IRList(func.getIRList().size());
+        for (BasicBlock block : func.getBlockList()) {
             optedIRList.addAll(block.getBlockOptInstList());
         }
-        iRList = optedIRList;
-        iRPackage.setiRList(optedIRList);
+        func.setIRList(optedIRList);
     }
 
-    public LinkedList<IRElem> doJumpOptimize() {
-        JumpOpt jumpOptimizer = new JumpOpt(iRList);
-        iRList = jumpOptimizer.doJumpOpt();
-        return iRList;
+    public IRList doJumpOptimize(IRFunction func) {
+        JumpOpt jumpOptimizer = new JumpOpt(func.getIRList());
+        func.setIRList(jumpOptimizer.doJumpOpt());
+        return func.getIRList();
     }
 
-    public void constInstCal() {
+    public void constInstCal(IRList iRList) {
         for (int i = 0; i < iRList.size(); i++) {
             IRElem inst = iRList.get(i);
             if (inst.getType() == IRElem.ADD) {
@@ -320,8 +372,12 @@ public class IROptimizer {
         }
     }
 
-    public ArrayList<BasicBlock> getBlockList() {
-        return blockList;
+    public ArrayList<BasicBlock> getBlockList() { // 各函数的基本块依次拼接
+        ArrayList<BasicBlock> allBlockList = new ArrayList<>();
+        for (IRFunction func : iRModule.getFuncList()) {
+            allBlockList.addAll(func.getBlockList());
+        }
+        return allBlockList;
     }
 
     public StringBuilder printBasicBlock(boolean isOpted, ArrayList<BasicBlock> blockList) {
@@ -333,7 +389,7 @@ public class IROptimizer {
                 outStr.append(block1.getBlockID()).append(" ");
             }
             outStr.append("\n");
-            LinkedList<IRElem> irList;
+            IRList irList;
             if (!isOpted) {
                 irList = block.getBlockIRList();
             } else {
@@ -3,21 +3,18 @@ package Optimizer;
 import IR.IRElem;
 import IR.IRImmSymbol;
 import IR.IRLabelSymbol;
+import IR.IRList;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class JumpOpt {
-    private LinkedList<IRElem> iRList;
+    private IRList iRList;
 
-    public JumpOpt(LinkedList<IRElem> irList) {
+    public JumpOpt(IRList irList) {
         iRList = irList;
     }
 
     public void condBranchOpt() {
-        HashSet<IRElem> delSet = new HashSet<>();
-        ArrayList<Integer> delIdSet = new ArrayList<>();
         for (int i = 0; i < iRList.size(); i++) {
             IRElem inst = iRList.get(i);
             if (inst.getType() == IRElem.BZ) {
@@ -26,8 +23,7 @@ public class JumpOpt {
                         IRElem newInst = new IRElem(IRElem.BR, inst.getOp3());
                         iRList.set(i, newInst);
                     } else {
-                        delSet.add(inst);
-                        delIdSet.add(i);
+                        iRList.markRemoved(i);
                     }
                 }
             } else if (inst.getType() == IRElem.BNZ) {
@@ -36,55 +32,31 @@ public class JumpOpt {
                         IRElem newInst = new IRElem(IRElem.BR, inst.getOp3());
                         iRList.set(i, newInst);
                     } else {
-                        delSet.add(inst);
-                        delIdSet.add(i);
+                        iRList.markRemoved(i);
                     }
                 }
             }
         }
-        /*for (IRElem inst : delSet) {
-            iRList.remove(inst);
-        }*/
-        for (int i = delIdSet.size() - 1; i >= 0; i--) {
-            iRList.remove((int) delIdSet.get(i));
-        }
+        iRList.commit();
     }
 
-    public LinkedList<IRElem> doJumpOpt() {
+    public IRList doJumpOpt() {
         condBranchOpt();
-        IRElem first = null;
-        IRElem next = null;
-        int firstPos = 0, nextPos = 1;
-        while (firstPos < iRList.size() - 1) {
-            nextPos = firstPos + 1;
-            first = iRList.get(firstPos);
-            if (first.getType() == IRElem.BR || first.getType() == IRElem.BZ || first.getType() == IRElem.BNZ) {
-                boolean removed = false;
-                IRLabelSymbol jumpLabel = (IRLabelSymbol) first.getOp3();
-                next = iRList.get(nextPos);
-                while (next.getType() == IRElem.LABEL) {
-                    IRLabelSymbol nextLabel = (IRLabelSymbol) next.getOp3();
-                    if (jumpLabel.getId() == nextLabel.getId()) { // 发现跳转到下一条的情况
-                        iRList.remove(firstPos); // 删除该条跳转语句
-                        removed = true;
-                        break;
-                    } else {
-                        ++nextPos;
-                        if (nextPos >= iRList.size()) {
-                            break;
-                        }
-                        next = iRList.get(nextPos);
-                    }
-                }
-                if (removed) {
-                    firstPos -= 1; // 若删除过，则前移一位
-                } else {
-                    firstPos = nextPos; // 否则，nextPos或者指向下一个非Label语句，或者已经越界
-                }
-            } else {
-                firstPos += 1;
+        // 从后向前扫描，labelRun为当前位置之后紧接着的一串Label（已删除的跳转不打断这一串）
+        // 跳转目标在其中即为跳转到下一条的情况，删除后前面的跳转面对的仍是同一串Label
+        HashSet<Integer> labelRun = new HashSet<>();
+        for (int i = iRList.size() - 1; i >= 0; i--) {
+            IRElem inst = iRList.get(i);
+            if (inst.getType() == IRElem.LABEL) {
+                labelRun.add(((IRLabelSymbol) inst.getOp3()).getId());
+            } else if ((inst.getType() == IRElem.BR || inst.getType() == IRElem.BZ || inst.getType() == IRElem.BNZ)
+                    && labelRun.contains(((IRLabelSymbol) inst.getOp3()).getId())) {
+                iRList.markRemoved(i); // 删除该条跳转语句
+            } else if (!labelRun.isEmpty()) {
+                labelRun.clear();
             }
         }
+        iRList.commit();
         return iRList;
     }
 }
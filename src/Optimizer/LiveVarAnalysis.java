@@ -3,11 +3,13 @@ package Optimizer;
 import IR.IRElem;
 import IR.IRFuncSymbol;
 import IR.IRLabelSymbol;
+import IR.IRList;
 import IR.IRSymbol;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 
 public class LiveVarAnalysis {
     private ArrayList<BasicBlock> blockList;
@@ -46,36 +48,83 @@ public class LiveVarAnalysis {
 
     public void liveVarAnalysis() { // 活跃变量分析
         blockSetCal(); // 先计算use和def集合
-        boolean changed = true;
-        for (BasicBlock block : blockList) { // 全部置空
-            block.setInSetLVA(new HashSet<>());
+        // 迭代在位向量上进行，收敛后再转回各基本块的in和out集合；各块的位向量只申请一次
+        // 位下标是本函数用到的标签的局部编号：全局编号跨越全局变量到各轮优化新申请的标签，单个函数只占其中很稀疏的一部分
+        int blockNum = blockList.size();
+        HashMap<BasicBlock, Integer> blockIndexMap = new HashMap<>();
+        HashMap<IRSymbol, Integer> symbolIndexMap = new HashMap<>();
+        ArrayList<IRSymbol> symbolList = new ArrayList<>();
+        BitSet[] useBits = new BitSet[blockNum];
+        BitSet[] defBits = new BitSet[blockNum];
+        BitSet[] inBits = new BitSet[blockNum];
+        BitSet[] outBits = new BitSet[blockNum];
+        for (int i = 0; i < blockNum; i++) { // in全部置空
+            BasicBlock curBlock = blockList.get(i);
+            blockIndexMap.put(curBlock, i);
+            useBits[i] = toBits(curBlock.getUseSet(), symbolIndexMap, symbolList);
+            defBits[i] = toBits(curBlock.getDefSet(), symbolIndexMap, symbolList);
+            inBits[i] = new BitSet();
+            outBits[i] = new BitSet();
         }
+        BitSet inSet = new BitSet(); // 新算出的in，与旧的in交换后重复使用
+        boolean changed = true;
         while (changed) {
             changed = false;
-            for (int i = blockList.size() - 1; i >= 0; i--) {
-                BasicBlock curBlock = blockList.get(i);
-                HashSet<IRSymbol> outSet = new HashSet<>();
-                for (BasicBlock succBlock : curBlock.getSuccessors()) {
-                    outSet.addAll(succBlock.getInSetLVA());
+            for (int i = blockNum - 1; i >= 0; i--) {
+                BitSet outSet = outBits[i];
+                outSet.clear();
+                for (BasicBlock succBlock : blockList.get(i).getSuccessors()) {
+                    Integer succIndex = blockIndexMap.get(succBlock);
+                    outSet.or((succIndex != null) ? inBits[succIndex] :
+                            toBits(succBlock.getInSetLVA(), symbolIndexMap, symbolList));
                 }
-                curBlock.setOutSetLVA(outSet);
-                HashSet<IRSymbol> inSet = new HashSet<>(outSet);
-                inSet.removeAll(curBlock.getDefSet());
-                inSet.addAll(curBlock.getUseSet());
-                if (!inSet.equals(curBlock.getInSetLVA())) { // 若有更新则in和out均更新
+                inSet.clear();
+                inSet.or(outSet);
+                inSet.andNot(defBits[i]);
+                inSet.or(useBits[i]);
+                if (!inSet.equals(inBits[i])) { // 若有更新则in和out均更新
                     changed = true;
-                    curBlock.setInSetLVA(inSet);
+                    BitSet oldInSet = inBits[i];
+                    inBits[i] = inSet;
+                    inSet = oldInSet;
                 }
-
             }
         }
+        for (int i = 0; i < blockNum; i++) {
+            blockList.get(i).setInSetLVA(toSymbolSet(inBits[i], symbolList));
+            blockList.get(i).setOutSetLVA(toSymbolSet(outBits[i], symbolList));
+        }
+    }
+
+    // 集合中的符号按第一次出现的顺序编号，symbolList为编号到符号的反查表
+    private static BitSet toBits(HashSet<IRSymbol> symbolSet, HashMap<IRSymbol, Integer> symbolIndexMap,
+                                 ArrayList<IRSymbol> symbolList) {
+        BitSet bits = new BitSet();
+        for (IRSymbol symbol : symbolSet) {
+            Integer index = symbolIndexMap.get(symbol);
+            if (index == null) {
+                index = symbolList.size();
+                symbolIndexMap.put(symbol, index);
+                symbolList.add(symbol);
+            }
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    private static HashSet<IRSymbol> toSymbolSet(BitSet bits, ArrayList<IRSymbol> symbolList) {
+        HashSet<IRSymbol> symbolSet = new HashSet<>();
+        for (int index = bits.nextSetBit(0); index >= 0; index = bits.nextSetBit(index + 1)) {
+            symbolSet.add(symbolList.get(index));
+        }
+        return symbolSet;
     }
 
     public void blockSetCal() { // 计算各基本块内def和use集合
         for (BasicBlock curBlock : blockList) {
             HashSet<IRSymbol> useSet = new HashSet<>();
             HashSet<IRSymbol> defSet = new HashSet<>();
-            LinkedList<IRElem> iRList = curBlock.getBlockIRList();
+            IRList iRList = curBlock.getBlockIRList();
             for (IRElem irElem : iRList) {
                 fillDefAndUseSet(irElem, useSet, defSet);
             }
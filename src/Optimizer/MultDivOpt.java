@@ -1,23 +1,21 @@
 package Optimizer;
 
 import IR.IRElem;
+import IR.IRFunction;
 import IR.IRImmSymbol;
 import IR.IRLabelManager;
+import IR.IRList;
 import IR.IRSymbol;
-import IR.IRTranslater;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 
 public class MultDivOpt {
-    private IRTranslater iRPackage;
     private HashMap<Integer, Integer> shiftBits;
     private HashMap<Integer, ArrayList<IRElem>> addList;
     private IRLabelManager labelManager;
 
-    public MultDivOpt(IRTranslater iRPackage) {
-        this.iRPackage = iRPackage;
+    public MultDivOpt() {
         this.shiftBits = new HashMap<>();
         for (int i = 0, j = 1; i < 31; ++i) {
             this.shiftBits.put(j, i);
@@ -27,9 +25,10 @@ public class MultDivOpt {
         this.labelManager = IRLabelManager.getIRLabelManager();
     }
 
-    public LinkedList<IRElem> powOfTwoOpt() {
+    public IRList powOfTwoOpt(IRFunction func) {
         IRElem inst;
-        ArrayList<IRElem> iRList = new ArrayList<>(iRPackage.getIRList());
+        IRList iRList = func.getIRList();
+        addList.clear(); // 下标只在本函数内有效
         for (int i = 0; i < iRList.size(); i++) {
             inst = iRList.get(i);
             if (inst.getType() == IRElem.MULT) {
@@ -133,7 +132,7 @@ public class MultDivOpt {
                 }
             }
         }
-        LinkedList<IRElem> newIRList = new LinkedList<>();
+        IRList newIRList = new IRList(iRList.size());
         for (int i = 0; i < iRList.size(); i++) {
             ArrayList<IRElem> replaceList = addList.getOrDefault(i, null);
             if (replaceList != null) {
@@ -142,8 +141,7 @@ public class MultDivOpt {
                 newIRList.add(iRList.get(i));
             }
         }
-        //iRPackage.setiRList(new LinkedList<>(iRList));
-        iRPackage.setiRList(newIRList);
+        func.setIRList(newIRList);
         return newIRList;
     }
 }
@@ -0,0 +1,160 @@
+package Profiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/*
+ * 编译各阶段的耗时、分配字节数与IR规模统计
+ * 与IRLabelManager一样绑定在执行编译的线程上；当前线程没有绑定时beginPhase/endPhase什么也不做
+ * 阶段可以嵌套（如优化的每一轮包含若干子过程），depth记录嵌套层数
+ */
+public class PhaseProfiler {
+    private static final ThreadLocal<PhaseProfiler> curProfiler = new ThreadLocal<>();
+    private ArrayList<PhaseRecord> recordList;
+    private LinkedList<PhaseRecord> openStack;
+    private ThreadMXBean threadMXBean;
+    private boolean allocSupported;
+
+    public PhaseProfiler() {
+        recordList = new ArrayList<>();
+        openStack = new LinkedList<>();
+        threadMXBean = ManagementFactory.getThreadMXBean();
+        allocSupported = (threadMXBean instanceof com.sun.management.ThreadMXBean) &&
+                ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported();
+        if (allocSupported) {
+            ((com.sun.management.ThreadMXBean) threadMXBean).setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    public static void setCurProfiler(PhaseProfiler profiler) {
+        curProfiler.set(profiler);
+    }
+
+    public static PhaseProfiler getCurProfiler() {
+        return curProfiler.get();
+    }
+
+    public static void releaseCurProfiler() {
+        curProfiler.remove();
+    }
+
+    // instNum、blockNum为阶段开始时的指令数与基本块数，不适用时传-1
+    public static void beginPhase(String name, int instNum, int blockNum) {
+        PhaseProfiler profiler = curProfiler.get();
+        if (profiler != null) {
+            profiler.begin(name, instNum, blockNum);
+        }
+    }
+
+    public static void endPhase(int instNum, int blockNum) {
+        PhaseProfiler profiler = curProfiler.get();
+        if (profiler != null) {
+            profiler.end(instNum, blockNum);
+        }
+    }
+
+    private long allocatedBytes() {
+        if (!allocSupported) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threadMXBean).
+                getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void begin(String name, int instNum, int blockNum) {
+        PhaseRecord record = new PhaseRecord(name, openStack.size());
+        record.instBefore = instNum;
+        record.blockBefore = blockNum;
+        recordList.add(record); // 按开始顺序记录，父阶段排在子阶段前面
+        openStack.push(record);
+        record.allocStart = allocatedBytes();
+        record.timeStart = System.nanoTime();
+    }
+
+    public void end(int instNum, int blockNum) {
+        long timeEnd = System.nanoTime();
+        long allocEnd = allocatedBytes();
+        PhaseRecord record = openStack.pop();
+        record.timeNs = timeEnd - record.timeStart;
+        record.allocBytes = (allocEnd < 0) ? -1 : allocEnd - record.allocStart;
+        record.instAfter = instNum;
+        record.blockAfter = blockNum;
+    }
+
+    public ArrayList<PhaseRecord> getRecordList() {
+        return recordList;
+    }
+
+    // 只统计最外层阶段，避免嵌套阶段重复计算
+    public long getTotalTimeNs() {
+        long total = 0;
+        for (PhaseRecord record : recordList) {
+            if (record.depth == 0) {
+                total += record.timeNs;
+            }
+        }
+        return total;
+    }
+
+    public StringBuilder toJson(String source) {
+        StringBuilder jsonStr = new StringBuilder("{\n");
+        jsonStr.append("  \"source\": \"").append(jsonEscape(source)).append("\",\n");
+        jsonStr.append("  \"totalTimeNs\": ").append(getTotalTimeNs()).append(",\n");
+        jsonStr.append("  \"phases\": [\n");
+        for (int i = 0; i < recordList.size(); i++) {
+            jsonStr.append("    ").append(recordList.get(i).toJson());
+            jsonStr.append(i == recordList.size() - 1 ? "\n" : ",\n");
+        }
+        jsonStr.append("  ]\n}\n");
+        return jsonStr;
+    }
+
+    public static String jsonEscape(String str) {
+        return str.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    public static class PhaseRecord {
+        private String name;
+        private int depth;
+        private long timeStart;
+        private long allocStart;
+        private long timeNs;
+        private long allocBytes;
+        private int instBefore, instAfter;
+        private int blockBefore, blockAfter;
+
+        public PhaseRecord(String name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getTimeNs() {
+            return timeNs;
+        }
+
+        public long getAllocBytes() {
+            return allocBytes;
+        }
+
+        public int getInstAfter() {
+            return instAfter;
+        }
+
+        public String toJson() {
+            return "{\"name\": \"" + jsonEscape(name) + "\", \"depth\": " + depth +
+                    ", \"timeNs\": " + timeNs + ", \"allocBytes\": " + allocBytes +
+                    ", \"instBefore\": " + instBefore + ", \"instAfter\": " + instAfter +
+                    ", \"blockBefore\": " + blockBefore + ", \"blockAfter\": " + blockAfter + "}";
+        }
+    }
+}
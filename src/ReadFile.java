@@ -1,5 +1,8 @@
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class ReadFile {
     private FileInputStream fileInputStream;
@@ -9,6 +12,16 @@ public class ReadFile {
         this.filePath = path;
     }
 
+    // 将源文件映射到内存直接交给词法分析，注释由词法分析器跳过，不再经过removeComment
+    public CharSequence mapFile() {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return new MappedSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
+
     public StringBuilder readFile() {
         StringBuilder readStr = null;
         try {
@@ -19,6 +32,11 @@ public class ReadFile {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return removeComment(readStr);
+    }
+
+    // 将注释替换为空格（保留换行以维持行号），可直接用于内存中的源程序
+    public static StringBuilder removeComment(StringBuilder readStr) {
         int fileLen = readStr.length(), i = 0, status = 0;
         char readC;
         while (i < fileLen) {
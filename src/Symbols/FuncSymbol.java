@@ -9,6 +9,7 @@ public class FuncSymbol extends Symbol{
     private boolean hasReturn; // 是否有返回值
     private ArrayList<SymbolType> fParams; // 参数类型列表
     private IRSymbol returnSymbol;
+    private int funcIndex; // 在全局符号表中的登记顺序
 
     public FuncSymbol(Token token, boolean hasReturn) {
         super(token, 1);
@@ -17,6 +18,14 @@ public class FuncSymbol extends Symbol{
         returnSymbol = null;
     }
 
+    public void setFuncIndex(int funcIndex) {
+        this.funcIndex = funcIndex;
+    }
+
+    public int getFuncIndex() {
+        return funcIndex;
+    }
+
     public void setReturnSymbol(IRSymbol returnSymbol) {
         this.returnSymbol = returnSymbol;
     }
@@ -0,0 +1,76 @@
+package Symbols;
+
+import java.util.Arrays;
+
+/*
+ * 以非负int为键的哈希表（开放定址，线性探查），键不装箱
+ * 用于按标识符编号查找符号；只需要查找和插入，不支持删除
+ */
+public class IntHashMap<V> {
+    private int[] keys; // -1表示空位
+    private Object[] values;
+    private int size;
+
+    public IntHashMap() {
+        this(8);
+    }
+
+    public IntHashMap(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 4) * 2 - 1) << 1;
+        keys = new int[tableSize];
+        Arrays.fill(keys, -1);
+        values = new Object[tableSize];
+        size = 0;
+    }
+
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9; // 编号是连续的小整数，先打散再取模
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != -1 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = indexOf(key);
+        return keys[slot] == -1 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return keys[indexOf(key)] != -1;
+    }
+
+    public void put(int key, V value) {
+        int slot = indexOf(key);
+        values[slot] = value;
+        if (keys[slot] == -1) {
+            keys[slot] = key;
+            size++;
+            if (size * 2 > keys.length) { // 装载因子不超过1/2
+                rehash();
+            }
+        }
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, -1);
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1) {
+                int slot = indexOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,86 @@
+package Symbols;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * 标识符名字表：词法分析时把每个标识符映射为从0开始的稠密编号，同名标识符编号相同
+ * 之后符号表、IR生成都按编号查找，每个名字的String只保存一份
+ * 直接对源程序的一段区间查表，已出现过的名字不再截取字符串
+ */
+public class NameTable {
+    public static final int MAIN_ID = 0; // main是保留字，预先占用0号，主函数的符号也按编号登记
+    private int[] slots; // 开放定址哈希表，存名字编号+1，0表示空位
+    private int[] hashes;
+    private ArrayList<String> nameList;
+
+    public NameTable() {
+        slots = new int[256];
+        hashes = new int[16];
+        nameList = new ArrayList<>();
+        intern("main");
+    }
+
+    public int intern(CharSequence source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && sameName(nameList.get(id), source, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = nameList.size();
+        nameList.add(source.subSequence(start, end).toString());
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (nameList.size() * 2 > slots.length) { // 装载因子不超过1/2
+            rehash();
+        }
+        return id;
+    }
+
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    private static boolean sameName(String name, CharSequence source, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < nameList.size(); id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    public String getName(int id) {
+        return nameList.get(id);
+    }
+
+    public int size() {
+        return nameList.size();
+    }
+}
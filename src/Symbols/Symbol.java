@@ -5,12 +5,14 @@ import SyntaxClasses.Token;
 public class Symbol {
     private Token token;
     private String name;
+    private int nameId; // 名字表中的编号，符号表按编号查找
     private int type; // 0:常/变量Token，1:函数Token
     private int curRefID; // IR中的引用ID，-1为尚未引用
 
     public Symbol(Token token, int type) {
         this.token = token;
         this.name = token.getTokenContext();
+        this.nameId = token.getNameId();
         this.type = type;
         curRefID = -1;
     }
@@ -30,4 +32,8 @@ public class Symbol {
     public String getName() {
         return name;
     }
+
+    public int getNameId() {
+        return nameId;
+    }
 }
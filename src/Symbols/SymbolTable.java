@@ -4,18 +4,29 @@ import Exceptions.DuplicatedDefineIdentException;
 import IR.IRLabelSymbol;
 import IR.IRSymbol;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
+/*
+ * 一个作用域的符号表。LVal在语法分析时已解析到VarSymbol并记在语法树结点上，之后各阶段不再按名字查找变量
+ * 作用域大多很小，变量放在数组中按定义顺序存放，超过LINEAR_LOOKUP_MAX个时才建立按名字编号查找的哈希表；
+ * 函数表和中间代码阶段的函数引用表也在第一次用到时才创建，不用的作用域不分配；
+ * 变量的引用记在VarSymbol上：每个声明对应唯一的VarSymbol，SSA只在函数体最外层重新绑定，取引用是O(1)，与嵌套深度无关
+ * 函数按登记顺序编号，查找时只能看到编号小于visibleFuncNum的函数：并行分析函数体前全局表已登记了全部函数，
+ * 每个函数体仍只能看到它自己和在它之前定义的函数，与顺序分析一致
+ */
 public class SymbolTable {
+    private static final int LINEAR_LOOKUP_MAX = 8;
     private SymbolTable parent;
-    private HashMap<String, VarSymbol> varSymbolMap;
-    private HashMap<String, FuncSymbol> funcSymbolMap;
+    private VarSymbol[] varSymbols; // 按定义顺序
+    private int varNum;
+    private IntHashMap<VarSymbol> varSymbolMap; // 按标识符在名字表中的编号查找，变量多时才建立
+    private IntHashMap<FuncSymbol> funcSymbolMap;
+    private int funcNum;
+    private int visibleFuncNum;
     private boolean cycleBlock;
     private FuncSymbol curFunc;
-    private HashMap<VarSymbol, IRLabelSymbol> varRefMap;
     private HashMap<FuncSymbol, IRLabelSymbol> funcRefMap;
-    private ArrayList<VarSymbol> varSymbolList;
     private IRSymbol cycleStart;
     private IRSymbol cycleEnd;
     private int parentCurPos;
@@ -34,13 +45,15 @@ public class SymbolTable {
     public SymbolTable(SymbolTable parent, int parentCurPos) {
         this.parent = parent;
         this.parentCurPos = parentCurPos;
-        varSymbolMap = new HashMap<>();
-        funcSymbolMap = new HashMap<>();
+        varSymbols = new VarSymbol[4];
+        varNum = 0;
+        varSymbolMap = null;
+        funcSymbolMap = null;
+        funcNum = 0;
+        visibleFuncNum = (parent == null) ? Integer.MAX_VALUE : parent.visibleFuncNum; // 子作用域沿用
         cycleBlock = false;
         curFunc = null;
-        varRefMap = new HashMap<>();
-        funcRefMap = new HashMap<>();
-        varSymbolList = new ArrayList<>();
+        funcRefMap = null;
     }
 
     public void setCycleStartEnd(IRSymbol cycleStart, IRSymbol cycleEnd) {
@@ -78,54 +91,46 @@ public class SymbolTable {
         return null;
     }
 
+    // 变量的当前引用直接记在VarSymbol上，不沿作用域链查找
     public void setVarRef(VarSymbol varSymbol, IRLabelSymbol refSymbol) {
-        varRefMap.put(varSymbol, refSymbol);
+        varSymbol.setIRRef(refSymbol);
     }
 
     public void setFuncRef(FuncSymbol funcSymbol, IRLabelSymbol refSymbol) {
+        if (funcRefMap == null) {
+            funcRefMap = new HashMap<>();
+        }
         funcRefMap.put(funcSymbol, refSymbol);
     }
 
     public IRLabelSymbol getFuncRef(FuncSymbol funcSymbol) {
-        return funcRefMap.get(funcSymbol);
-    }
-
-    public IRLabelSymbol getCurLastRef(VarSymbol varSymbol) {
-        return varRefMap.getOrDefault(varSymbol, null);
+        return funcRefMap == null ? null : funcRefMap.get(funcSymbol);
     }
 
     public IRLabelSymbol getLastVarRef(VarSymbol varSymbol) {
-        SymbolTable curTable = this;
-        while (curTable != null) {
-            IRLabelSymbol refSymbol = curTable.getCurLastRef(varSymbol);
-            if (refSymbol != null) {
-                return refSymbol;
-            }
-            curTable = curTable.getParent();
-        }
-        return null;
+        return varSymbol.getIRRef();
     }
 
-    public VarSymbol varLocalLookup(String name, int curListPos) {
+    public VarSymbol varLocalLookup(int nameId, int curListPos) {
         //int i = curListPos >= varSymbolList.size() ? varSymbolList.size() - 1 : curListPos;
         int i = curListPos - 1;
         for (; i >= 0; --i) {
-            if (varSymbolList.get(i).getName().equals(name)) {
-                return varSymbolList.get(i);
+            if (varSymbols[i].getNameId() == nameId) {
+                return varSymbols[i];
             }
         }
         return null;
     }
 
-    public VarSymbol varGlobalLookup(String name, int curListPos) {
-        VarSymbol res = varLocalLookup(name, curListPos);
+    public VarSymbol varGlobalLookup(int nameId, int curListPos) {
+        VarSymbol res = varLocalLookup(nameId, curListPos);
         if (res != null) {
             return res;
         }
         int parentPos = this.parentCurPos;
         SymbolTable curTable = this.getParent();
         while (curTable != null) {
-            res = curTable.varLocalLookup(name, parentPos);
+            res = curTable.varLocalLookup(nameId, parentPos);
             if (res != null) {
                 return res;
             }
@@ -136,7 +141,7 @@ public class SymbolTable {
     }
 
     public int getCurListPos() {
-        return varSymbolList.size();
+        return varNum;
     }
 
     public void setCurFunc(FuncSymbol curFunc) {
@@ -179,14 +184,17 @@ public class SymbolTable {
         return parent;
     }
 
-    public VarSymbol varLocalLookup(String name) {
-        return varSymbolMap.getOrDefault(name, null);
+    public VarSymbol varLocalLookup(int nameId) {
+        if (varSymbolMap != null) {
+            return varSymbolMap.get(nameId);
+        }
+        return varLocalLookup(nameId, varNum);
     }
 
-    public VarSymbol varGlobalLookup(String name) {
+    public VarSymbol varGlobalLookup(int nameId) {
         SymbolTable curTable = this;
         while (curTable != null) {
-            VarSymbol res = curTable.varLocalLookup(name);
+            VarSymbol res = curTable.varLocalLookup(nameId);
             if (res != null) {
                 return res;
             }
@@ -195,8 +203,8 @@ public class SymbolTable {
         return null;
     }
 
-    public Symbol globalLookup(String name, int type) { // 0:Var, 1:Func
-        Symbol symbol = globalLookup(name);
+    public Symbol globalLookup(int nameId, int type) { // 0:Var, 1:Func
+        Symbol symbol = globalLookup(nameId);
         if (symbol == null) {
             return null;
         }
@@ -207,14 +215,33 @@ public class SymbolTable {
         }
     }
 
-    public FuncSymbol funcLocalLookup(String name) {
-        return funcSymbolMap.getOrDefault(name, null);
+    public FuncSymbol funcLocalLookup(int nameId) {
+        return funcSymbolMap == null ? null : funcSymbolMap.get(nameId);
     }
 
-    public FuncSymbol funcGlobalLookup(String name) {
+    public FuncSymbol funcLocalLookup(int nameId, int visibleNum) {
+        FuncSymbol res = funcLocalLookup(nameId);
+        return (res == null || res.getFuncIndex() < visibleNum) ? res : null;
+    }
+
+    public int getFuncNum() {
+        return funcNum;
+    }
+
+    public void setVisibleFuncNum(int visibleFuncNum) {
+        this.visibleFuncNum = visibleFuncNum;
+    }
+
+    // 撤销登记的全部函数，并行分析放弃时回到顺序分析前的状态
+    public void clearFuncSymbols() {
+        funcSymbolMap = null;
+        funcNum = 0;
+    }
+
+    public FuncSymbol funcGlobalLookup(int nameId) {
         SymbolTable curTable = this;
         while (curTable != null) {
-            FuncSymbol res = curTable.funcLocalLookup(name);
+            FuncSymbol res = curTable.funcLocalLookup(nameId, visibleFuncNum);
             if (res != null) {
                 return res;
             }
@@ -223,24 +250,27 @@ public class SymbolTable {
         return null;
     }
 
-    public Symbol localLookup(String name) {
-        Symbol res = varSymbolMap.getOrDefault(name, null);
+    public Symbol localLookup(int nameId) {
+        Symbol res = varLocalLookup(nameId);
         if (res != null) {
             return res;
         } else {
-            return funcSymbolMap.getOrDefault(name, null);
+            return funcLocalLookup(nameId);
         }
     }
 
-    public Symbol upLevelLookup(String name, int type) {
+    public Symbol upLevelLookup(int nameId, int type) {
         SymbolTable curTable = this.getParent();
-        return (curTable == null) ? null : curTable.globalLookup(name, type);
+        return (curTable == null) ? null : curTable.globalLookup(nameId, type);
     }
 
-    public Symbol globalLookup(String name) {
+    public Symbol globalLookup(int nameId) {
         SymbolTable curTable = this;
         while (curTable != null) {
-            Symbol res = curTable.localLookup(name);
+            Symbol res = curTable.varLocalLookup(nameId);
+            if (res == null) {
+                res = curTable.funcLocalLookup(nameId, visibleFuncNum);
+            }
             if (res != null) {
                 return res;
             }
@@ -250,14 +280,32 @@ public class SymbolTable {
     }
 
     public void addSymbol(Symbol symbol) throws DuplicatedDefineIdentException {
-        if (localLookup(symbol.getName()) != null) {
+        if (localLookup(symbol.getNameId()) != null) {
             throw new DuplicatedDefineIdentException();
         } else {
             if (symbol instanceof VarSymbol) {
-                varSymbolMap.put(symbol.getName(), (VarSymbol) symbol);
-                varSymbolList.add((VarSymbol) symbol);
+                addVarSymbol((VarSymbol) symbol);
             } else {
-                funcSymbolMap.put(symbol.getName(), (FuncSymbol) symbol);
+                if (funcSymbolMap == null) {
+                    funcSymbolMap = new IntHashMap<>();
+                }
+                ((FuncSymbol) symbol).setFuncIndex(funcNum++);
+                funcSymbolMap.put(symbol.getNameId(), (FuncSymbol) symbol);
+            }
+        }
+    }
+
+    private void addVarSymbol(VarSymbol varSymbol) {
+        if (varNum == varSymbols.length) {
+            varSymbols = Arrays.copyOf(varSymbols, varNum * 2);
+        }
+        varSymbols[varNum++] = varSymbol;
+        if (varSymbolMap != null) {
+            varSymbolMap.put(varSymbol.getNameId(), varSymbol);
+        } else if (varNum > LINEAR_LOOKUP_MAX) { // 变量多了再按编号建表
+            varSymbolMap = new IntHashMap<>(varNum * 2);
+            for (int i = 0; i < varNum; i++) {
+                varSymbolMap.put(varSymbols[i].getNameId(), varSymbols[i]);
             }
         }
     }
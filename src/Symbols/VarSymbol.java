@@ -1,5 +1,6 @@
 package Symbols;
 
+import IR.IRLabelSymbol;
 import SyntaxClasses.Token;
 
 import java.util.ArrayList;
@@ -15,6 +16,7 @@ public class VarSymbol extends Symbol {
     private int[] dimLength;
     private boolean constHasValue;
     private int[][] constValue;
+    private IRLabelSymbol iRRef; // 中间代码生成时变量当前对应的标签
 
     public VarSymbol(Token token, int isVar, int dimType) {
         super(token, 0);
@@ -27,6 +29,14 @@ public class VarSymbol extends Symbol {
         this.dimLength[dim] = length;
     }
 
+    public void setIRRef(IRLabelSymbol iRRef) {
+        this.iRRef = iRRef;
+    }
+
+    public IRLabelSymbol getIRRef() {
+        return iRRef;
+    }
+
     public boolean isVar() {
         return varType.isVar();
     }
@@ -7,551 +7,806 @@ import Symbols.SymbolTable;
 import Symbols.VarSymbol;
 import SyntaxClasses.FormatStringToken;
 import SyntaxClasses.SyntaxClass;
+import SyntaxClasses.SyntaxTree;
 import SyntaxClasses.Token;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class SyntaxAnalyzer {
-    private ArrayList<Token> tokenList;
-    private SyntaxClass globalCompUnit;
+    private static final int PARALLEL_FUNC_MIN = 2; // 至少有这么多个FuncDef才并行分析
+    private TokenBuffer tokenBuffer;
+    private SyntaxTree tree;
     private int pos;
     private ArrayList<Error> errorList;
+    private ForkJoinPool parsePool; // 为null时顺序分析各FuncDef
+    private int lexErrorStart; // 并行分析前预先词法分析出的错误从errorList的这个位置起混入，分析完后按行号整理，-1表示没有
 
     public SyntaxAnalyzer() {
-        this.globalCompUnit = null;
+        this.tree = null;
         this.pos = 0;
         errorList = new ArrayList<>();
+        parsePool = null;
+        lexErrorStart = -1;
     }
 
-    public void setTokenList(LinkedList<Token> tokenList) {
-        this.tokenList = new ArrayList<>();
-        this.tokenList.addAll(tokenList);
+    // 并行分析一个FuncDef用：与主分析器共用Token流，语法树和错误列表各自独立，最后按顺序并入主分析器
+    private SyntaxAnalyzer(TokenBuffer tokenBuffer, int pos) {
+        this.tokenBuffer = tokenBuffer;
+        this.tree = new SyntaxTree(tokenBuffer.getNameTable());
+        this.pos = pos;
+        errorList = new ArrayList<>();
+        parsePool = null;
+        lexErrorStart = -1;
+    }
+
+    public void setTokenBuffer(TokenBuffer tokenBuffer) {
+        this.tokenBuffer = tokenBuffer;
+        this.tree = new SyntaxTree(tokenBuffer.getNameTable());
     }
 
     public void setErrorList(ArrayList<Error> errorList) {
         this.errorList = errorList;
     }
 
+    public void setParsePool(ForkJoinPool parsePool) {
+        this.parsePool = parsePool;
+    }
+
     public int getPos() {
         return pos;
     }
 
-    public SyntaxClass getGlobalCompUnit() {
-        return globalCompUnit;
+    public SyntaxTree getSyntaxTree() {
+        return tree;
     }
 
     public void syntaxAnalyze() throws SyntaxException {
-        globalCompUnit = readCompUnit();
+        try {
+            tree.setRoot(readCompUnit());
+        } finally {
+            sortLexErrors();
+        }
+    }
+
+    /*
+     * 顺序分析时词法分析由语法分析按需驱动，词法错误与语法、语义错误大致按行号交替加入errorList；
+     * 并行分析前一次取完了全部Token，预先得到的词法错误在readFuncDefsParallel中另外保存后放回，
+     * 这里把它们与之后各函数的错误一起按行号稳定排序，同一行的先后与顺序分析一样（词法错误在前）
+     */
+    private void sortLexErrors() {
+        if (lexErrorStart < 0) {
+            return;
+        }
+        errorList.subList(lexErrorStart, errorList.size()).sort((err1, err2) -> {
+            if (err1.getLineNo() != err2.getLineNo()) {
+                return err1.getLineNo() - err2.getLineNo();
+            }
+            return (err1.getErrType() == 0 ? 0 : 1) - (err2.getErrType() == 0 ? 0 : 1);
+        });
+        lexErrorStart = -1;
+    }
+
+    // 读入pos处的Token，作为叶结点加入语法树
+    private int readToken() {
+        int type = tokenBuffer.getType(pos);
+        if (type == Token.STRCON) {
+            return tree.addFormatString((FormatStringToken) tokenBuffer.getToken(pos++));
+        }
+        int value = (type == Token.INTCON) ? tokenBuffer.getIntValue(pos) : tokenBuffer.getNameId(pos);
+        int node = tree.addToken(type, tokenBuffer.getLine(pos), value);
+        pos++;
+        return node;
+    }
+
+    // 以下是向前看的判断条件，只读Token类型，不建语法树，代替解析失败后捕获异常再回溯
+    // 顶层Decl：const开头，或int Ident后面不是'('
+    private boolean isDeclStart(int index) {
+        if (tokenBuffer.isEnd(index)) {
+            return false;
+        }
+        int type = tokenBuffer.getType(index);
+        if (type == Token.CONSTTK) {
+            return true;
+        }
+        return type == Token.INTTK && !tokenBuffer.isEnd(index + 1) && tokenBuffer.getType(index + 1) == Token.IDENFR &&
+                (tokenBuffer.isEnd(index + 2) || tokenBuffer.getType(index + 2) != Token.LPARENT);
+    }
+
+    // FuncDef：void或int后面跟Ident（main是保留字，不是Ident）
+    private boolean isFuncDefStart(int index) {
+        if (tokenBuffer.isEnd(index + 1)) {
+            return false;
+        }
+        int type = tokenBuffer.getType(index);
+        return (type == Token.VOIDTK || type == Token.INTTK) && tokenBuffer.getType(index + 1) == Token.IDENFR;
+    }
+
+    // 能作为Exp开头的Token
+    private boolean isExpFirst(int index) {
+        if (tokenBuffer.isEnd(index)) {
+            return false;
+        }
+        int type = tokenBuffer.getType(index);
+        return type == Token.IDENFR || type == Token.INTCON || type == Token.LPARENT ||
+                type == Token.PLUS || type == Token.MINU || type == Token.NOT;
     }
 
-    public SyntaxClass readCompUnit() throws SyntaxException {
-        SyntaxClass compUnit = new SyntaxClass(SyntaxClass.COMPUNIT);
+    // 以Ident开头的语句：跳过Ident和各维下标后是'='，则是赋值语句，否则是Exp
+    // 下标缺']'时，扫到不会出现在下标表达式中的Token，或两个操作数相邻（表达式已结束）就停下，与按LVal解析时停下的位置一致
+    private boolean isAssignStmt(int index) {
+        if (tokenBuffer.getType(index) != Token.IDENFR ||
+                (!tokenBuffer.isEnd(index + 1) && tokenBuffer.getType(index + 1) == Token.LPARENT)) {
+            return false;
+        }
+        int i = index + 1;
+        while (!tokenBuffer.isEnd(i) && tokenBuffer.getType(i) == Token.LBRACK) {
+            int depth = 0;
+            boolean prevOperand = false;
+            while (!tokenBuffer.isEnd(i)) {
+                int type = tokenBuffer.getType(i);
+                if (type == Token.LBRACK) {
+                    depth++;
+                    prevOperand = false;
+                } else if (type == Token.RBRACK) {
+                    prevOperand = true;
+                    if (--depth == 0) {
+                        break;
+                    }
+                } else if (type == Token.IDENFR || type == Token.INTCON) {
+                    if (prevOperand) {
+                        break;
+                    }
+                    prevOperand = true;
+                } else if (type == Token.RPARENT) {
+                    prevOperand = true;
+                } else if (type == Token.LPARENT || type == Token.PLUS || type == Token.MINU ||
+                        type == Token.MULT || type == Token.DIV || type == Token.MOD || type == Token.NOT ||
+                        type == Token.COMMA) {
+                    prevOperand = false;
+                } else {
+                    break;
+                }
+                i++;
+            }
+            if (depth != 0) { // 缺']'，LVal到此为止
+                break;
+            }
+            i++;
+        }
+        return !tokenBuffer.isEnd(i) && tokenBuffer.getType(i) == Token.ASSIGN;
+    }
+
+    public int readCompUnit() throws SyntaxException {
+        int mark = tree.mark();
         SymbolTable globalSymbolTable = new SymbolTable(null, 0);
-        compUnit.setCurEnv(globalSymbolTable); // 创建并设置全局符号表
-        if (pos >= tokenList.size()) {
-            return null;
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        // 检查是否有Decl成分，如果没有，弹出错误，就break
-        SyntaxClass decl = null;
+        // 先看开头几个Token判断是Decl、FuncDef还是MainFuncDef，不再试探着解析后回溯
+        int decl = -1;
         int startPos = pos;
-        while (true) {
+        while (isDeclStart(pos)) {
+            startPos = pos;
+            tokenBuffer.mark(startPos); // 顶层成分内部不会再访问startPos之前的Token，流式读取时可以丢弃
             try {
-                startPos = pos;
                 decl = readDecl(globalSymbolTable);
-            } catch (SyntaxException e) {
-                pos = startPos;
-                break;
+            } finally {
+                tokenBuffer.release(startPos);
             }
-            if (decl == null) break;
-            compUnit.appendSonNode(decl);
+            if (decl < 0) break;
+            tree.push(decl);
+        }
+        int funcDef = -1;
+        if (parsePool != null) {
+            readFuncDefsParallel(globalSymbolTable); // 没能并行分析的FuncDef仍由下面顺序分析
         }
-        // 检查是否有FuncDef成分，如果没有，弹出错误，就break
-        SyntaxClass funcDef = null;
-        while (true) {
+        while (isFuncDefStart(pos)) {
+            startPos = pos;
+            tokenBuffer.mark(startPos);
             try {
-                startPos = pos;
                 funcDef = readFuncDef(globalSymbolTable);
-            } catch (SyntaxException e) {
-                pos = startPos;
-                break;
+            } finally {
+                tokenBuffer.release(startPos);
             }
-            if (funcDef == null) break;
-            compUnit.appendSonNode(funcDef);
+            if (funcDef < 0) break;
+            tree.push(funcDef);
         }
         // 分析MainFuncDef成分
-        SyntaxClass mainFuncDef;
+        int mainFuncDef;
         startPos = pos;
-        mainFuncDef = readMainFuncDef(globalSymbolTable);
-        if (mainFuncDef == null) {
+        tokenBuffer.mark(startPos);
+        try {
+            mainFuncDef = readMainFuncDef(globalSymbolTable);
+        } finally {
+            tokenBuffer.release(startPos);
+        }
+        if (mainFuncDef < 0) {
             pos = startPos;
             throw new SyntaxException();
         }
-        compUnit.appendSonNode(mainFuncDef);
-        compUnit.setFirstAsLineNo(); // 设置非终结符行号
-        return compUnit;
+        tree.push(mainFuncDef);
+        return tree.finish(SyntaxClass.COMPUNIT, globalSymbolTable, mark);
     }
 
-    public SyntaxClass readDecl(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    // 从index开始按花括号配对找出连续的各FuncDef，返回各自的结束位置（函数体'}'之后），括号不配对时只返回之前的部分
+    private ArrayList<Integer> scanFuncDefEnds(int index) {
+        ArrayList<Integer> ends = new ArrayList<>();
+        while (isFuncDefStart(index)) {
+            int i = index;
+            while (!tokenBuffer.isEnd(i) && tokenBuffer.getType(i) != Token.LBRACE) {
+                i++;
+            }
+            int depth = 0;
+            for (; !tokenBuffer.isEnd(i); i++) {
+                int type = tokenBuffer.getType(i);
+                if (type == Token.LBRACE) {
+                    depth++;
+                } else if (type == Token.RBRACE && --depth == 0) {
+                    break;
+                }
+            }
+            if (tokenBuffer.isEnd(i)) {
+                break;
+            }
+            index = i + 1;
+            ends.add(index);
+        }
+        return ends;
+    }
+
+    /*
+     * 并行分析pos开始的各FuncDef：
+     * 先取完全部Token，按花括号配对预扫描出各函数的范围，在当前线程中按顺序分析各函数头并把函数符号登记到全局符号表，
+     * 之后全局符号表不再改动，各函数体在parsePool中同时分析，每个函数体只能看到它自己和之前定义的函数；
+     * 最后按函数顺序把各自的语法树接入主树，错误列表依次并入errorList，与顺序分析相同；
+     * 取完Token时产生的词法错误先从errorList中取出，最后放回并由sortLexErrors与各函数的错误按行号排列
+     * 某个函数实际结束的位置与预扫描不符时撤销登记的函数，返回false交给顺序分析
+     */
+    private boolean readFuncDefsParallel(SymbolTable globalSymbolTable) throws SyntaxException {
+        int errorStart = errorList.size();
+        tokenBuffer.pullAll();
+        ArrayList<Error> lexErrors = new ArrayList<>(errorList.subList(errorStart, errorList.size()));
+        errorList.subList(errorStart, errorList.size()).clear();
+        lexErrorStart = errorStart;
+        ArrayList<Integer> ends = scanFuncDefEnds(pos);
+        if (ends.size() < PARALLEL_FUNC_MIN) {
+            errorList.addAll(lexErrors);
+            return false;
+        }
+        ArrayList<FuncDefTask> tasks = new ArrayList<>();
+        SyntaxAnalyzer headFailed = null;
+        int start = pos;
+        for (int end : ends) {
+            SyntaxAnalyzer analyzer = new SyntaxAnalyzer(tokenBuffer, start);
+            SymbolTable funcBlockEnv;
+            try {
+                funcBlockEnv = analyzer.readFuncHead(globalSymbolTable);
+            } catch (SyntaxException e) {
+                headFailed = analyzer; // 顺序分析到这里也会出错，之后的函数不再分析
+                break;
+            }
+            funcBlockEnv.setVisibleFuncNum(globalSymbolTable.getFuncNum());
+            tasks.add(new FuncDefTask(analyzer, globalSymbolTable, funcBlockEnv, end));
+            start = end;
+        }
+        parsePool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        // 按顺序找到第一个出错的函数，它之前的函数若与预扫描的范围都相符，则结果与顺序分析相同
+        int doneNum = 0;
+        while (doneNum < tasks.size() && tasks.get(doneNum).failure == null) {
+            FuncDefTask task = tasks.get(doneNum);
+            if (task.analyzer.pos != task.end) {
+                globalSymbolTable.clearFuncSymbols();
+                errorList.addAll(lexErrors);
+                return false;
+            }
+            doneNum++;
+        }
+        for (int i = 0; i < doneNum; i++) {
+            FuncDefTask task = tasks.get(i);
+            tree.push(tree.appendTree(task.analyzer.tree, task.funcDef));
+            errorList.addAll(task.analyzer.errorList);
+            pos = task.end;
+        }
+        SyntaxAnalyzer failed = (doneNum < tasks.size()) ? tasks.get(doneNum).analyzer : headFailed;
+        if (failed != null) {
+            errorList.addAll(failed.errorList);
+            pos = failed.pos;
+            // 顺序分析在出错处停止，不会再读到之后的Token，也就没有之后的词法错误
+            int failLine = tokenBuffer.isEnd(pos) ? Integer.MAX_VALUE : tokenBuffer.getLine(pos);
+            for (Error lexError : lexErrors) {
+                if (lexError.getLineNo() <= failLine) {
+                    errorList.add(lexError);
+                }
+            }
+            throw new SyntaxException();
+        }
+        errorList.addAll(lexErrors);
+        return true;
+    }
+
+    // 在parsePool中分析一个函数体，函数头已由readFuncDefsParallel分析完
+    private static class FuncDefTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SyntaxAnalyzer analyzer;
+        private final SymbolTable globalEnv;
+        private final SymbolTable funcBlockEnv;
+        private final int end;
+        private int funcDef;
+        private SyntaxException failure;
+
+        public FuncDefTask(SyntaxAnalyzer analyzer, SymbolTable globalEnv, SymbolTable funcBlockEnv, int end) {
+            this.analyzer = analyzer;
+            this.globalEnv = globalEnv;
+            this.funcBlockEnv = funcBlockEnv;
+            this.end = end;
+            this.funcDef = -1;
+            this.failure = null;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                funcDef = analyzer.readFuncBody(globalEnv, funcBlockEnv, 0);
+            } catch (SyntaxException e) {
+                failure = e;
+            }
+        }
+    }
+
+    public int readDecl(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
         int startPos;
-        SyntaxClass decl = new SyntaxClass(SyntaxClass.DECL);
-        decl.setCurEnv(curEnv);
+        int mark = tree.mark();
         // 开头是const，说明是ConstDecl
-        if (tokenList.get(pos).getTokenType() == Token.CONSTTK) {
-            SyntaxClass constDecl;
+        if (tokenBuffer.getType(pos) == Token.CONSTTK) {
+            int constDecl;
             startPos = pos;
             constDecl = readConstDecl(curEnv);
-            if (constDecl == null) {
+            if (constDecl < 0) {
                 pos = startPos;
                 throw new SyntaxException();
             } else {
-                decl.appendSonNode(constDecl);
+                tree.push(constDecl);
             }
         } else { // 否则是VarDecl
-            SyntaxClass varDecl;
+            int varDecl;
             startPos = pos;
             varDecl = readVarDecl(curEnv);
-            if (varDecl == null) {
+            if (varDecl < 0) {
                 pos = startPos;
                 throw new SyntaxException();
             } else {
-                decl.appendSonNode(varDecl);
+                tree.push(varDecl);
             }
         }
-        decl.setFirstAsLineNo();
-        return decl;
+        return tree.finish(SyntaxClass.DECL, curEnv, mark);
     }
 
-    public SyntaxClass readConstDecl(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readConstDecl(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
         int startPos;
         // 检查是否以const开头
-        if (tokenList.get(pos).getTokenType() != Token.CONSTTK) {
-            return null;
-        }
-        SyntaxClass constDecl = new SyntaxClass(SyntaxClass.CONSTDECL),
-                bType, constDef;
-        constDecl.setCurEnv(curEnv);
-        Token constToken = tokenList.get(this.pos++);
-        constDecl.appendSonNode(constToken);
+        if (tokenBuffer.getType(pos) != Token.CONSTTK) {
+            return -1;
+        }
+        int mark = tree.mark();
+        int bType, constDef;
+        int constToken = readToken();
+        tree.push(constToken);
         // 检查BType
         startPos = pos;
         bType = readBType();
-        if (bType == null) {
+        if (bType < 0) {
             pos = startPos;
             throw new SyntaxException();
         } else {
-            constDecl.appendSonNode(bType);
+            tree.push(bType);
         }
         // 检查必需的constDef
         startPos = pos;
         constDef = readConstDef(curEnv);
-        if (constDef == null) {
+        if (constDef < 0) {
             pos = startPos;
             throw new SyntaxException();
         } else {
-            constDecl.appendSonNode(constDef);
+            tree.push(constDef);
         }
 
         // 如果有逗号就继续
-        while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-            Token comma = tokenList.get(pos++);
+        while (tokenBuffer.getType(pos) == Token.COMMA) {
+            int comma = readToken();
             startPos = pos;
             constDef = readConstDef(curEnv);
-            if (constDef == null) {
+            if (constDef < 0) {
                 pos = startPos;
                 throw new SyntaxException();
             } else {
-                constDecl.appendSonNode(comma);
-                constDecl.appendSonNode(constDef);
+                tree.push(comma);
+                tree.push(constDef);
             }
         }
 
         // 检测分号
-        if (tokenList.get(pos).getTokenType() != Token.SEMICN) {
+        if (tokenBuffer.getType(pos) != Token.SEMICN) {
             //throw new SyntaxException();
-            Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+            Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
             errorList.add(semicnMissingError);
         } else {
-            Token semicn = tokenList.get(pos++);
-            constDecl.appendSonNode(semicn);
+            int semicn = readToken();
+            tree.push(semicn);
         }
-        constDecl.setFirstAsLineNo();
-        return constDecl;
+        return tree.finish(SyntaxClass.CONSTDECL, curEnv, mark);
     }
 
-    public SyntaxClass readBType() throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readBType() throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass bType = new SyntaxClass(SyntaxClass.BTYPE);
+        int mark = tree.mark();
         // 检查是不是int
-        if (tokenList.get(pos).getTokenType() != Token.INTTK) {
+        if (tokenBuffer.getType(pos) != Token.INTTK) {
             throw new SyntaxException();
         } else {
-            bType.appendSonNode(tokenList.get(pos++));
+            tree.push(readToken());
         }
-        return bType;
+        return tree.finish(SyntaxClass.BTYPE, null, mark);
     }
 
-    public SyntaxClass readConstDef(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readConstDef(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass constDef = new SyntaxClass(SyntaxClass.CONSTDEF);
-        constDef.setCurEnv(curEnv);
-        Token ident = tokenList.get(pos);
+        int mark = tree.mark();
+        Token ident;
         int startPos;
         // 检查是否是标识符
-        if (ident.getTokenType() != Token.IDENFR) {
+        if (tokenBuffer.getType(pos) != Token.IDENFR) {
             throw new SyntaxException();
         } else {
-            ++pos;
-            constDef.appendSonNode(ident);
+            ident = tokenBuffer.getToken(pos); // 建立符号需要Token对象
+            tree.push(readToken());
         }
         // 检查是否有左中括号
-        Token token;
+        int token;
         int brackNum = 0;
-        while (tokenList.get(pos).getTokenType() == Token.LBRACK) {
+        while (tokenBuffer.getType(pos) == Token.LBRACK) {
             // 若有，检查ConstExp和右中括号
             ++brackNum;
-            token = tokenList.get(pos++);
-            SyntaxClass constExp;
+            token = readToken();
+            int constExp;
             startPos = pos;
             constExp = readConstExp(curEnv);
-            Token rbrack = tokenList.get(pos);
-            if (rbrack.getTokenType() != Token.RBRACK) {
-                Error rBrackMissingError = new Error(10, tokenList.get(pos - 1).getLineNo());
+            if (tokenBuffer.getType(pos) != Token.RBRACK) {
+                Error rBrackMissingError = new Error(10, tokenBuffer.getLine(pos - 1));
                 errorList.add(rBrackMissingError);
                 // throw new SyntaxException();
             } else {
-                ++pos;
-                constDef.appendSonNode(token);
-                constDef.appendSonNode(constExp);
-                constDef.appendSonNode(rbrack);
+                int rbrack = readToken();
+                tree.push(token);
+                tree.push(constExp);
+                tree.push(rbrack);
             }
         }
         // 检查是否是 =
-        if (tokenList.get(pos).getTokenType() != Token.ASSIGN) {
+        if (tokenBuffer.getType(pos) != Token.ASSIGN) {
             throw new SyntaxException();
         } else {
-            token = tokenList.get(pos++);
-            constDef.appendSonNode(token);
-            SyntaxClass constInitVal;
+            token = readToken();
+            tree.push(token);
+            int constInitVal;
             // 检查constInitVal
             constInitVal = readConstInitVal(curEnv);
-            if (constInitVal == null) {
+            if (constInitVal < 0) {
                 throw new SyntaxException();
             } else {
-                constDef.appendSonNode(constInitVal);
+                tree.push(constInitVal);
             }
         }
         // Add current constdef to symbol table
         VarSymbol curSymbol = new VarSymbol(ident, 0, brackNum);
-        constDef.setFirstAsLineNo();
         try {
             curEnv.addSymbol(curSymbol);
         } catch (DuplicatedDefineIdentException e) {
             Error duplicatedDefinedError = new Error(1, ident.getLineNo());
             errorList.add(duplicatedDefinedError);
         }
+        int constDef = tree.finish(SyntaxClass.CONSTDEF, curEnv, mark);
+        tree.setSymbol(constDef, curSymbol);
         return constDef;
     }
 
-    public SyntaxClass readConstInitVal(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readConstInitVal(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass constInitVal = new SyntaxClass(SyntaxClass.CONSTINITVAL);
-        constInitVal.setCurEnv(curEnv);
+        int mark = tree.mark();
         // 检查是否是左花括号
-        if (tokenList.get(pos).getTokenType() == Token.LBRACE) {
-            Token token = tokenList.get(pos++);
-            constInitVal.appendSonNode(token);
+        if (tokenBuffer.getType(pos) == Token.LBRACE) {
+            int token = readToken();
+            tree.push(token);
             // 先看看是不是右花括号，如果不是，说明中间有内容
             // 这样的话可以避免回溯
-            if (tokenList.get(pos).getTokenType() != Token.RBRACE) {
+            if (tokenBuffer.getType(pos) != Token.RBRACE) {
                 // 检查是否是ConstInitVal
-                SyntaxClass subConstInitVal;
+                int subConstInitVal;
                 subConstInitVal = readConstInitVal(curEnv);
-                if (subConstInitVal == null) {
+                if (subConstInitVal < 0) {
                     throw new SyntaxException();
                 } else {
-                    constInitVal.appendSonNode(subConstInitVal);
+                    tree.push(subConstInitVal);
                 }
                 // 检查有无逗号
-                while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-                    Token comma = tokenList.get(pos++);
-                    constInitVal.appendSonNode(comma);
+                while (tokenBuffer.getType(pos) == Token.COMMA) {
+                    int comma = readToken();
+                    tree.push(comma);
                     // 有逗号，后面需要再接ConstInitVal
                     subConstInitVal = readConstInitVal(curEnv);
-                    if (subConstInitVal == null) {
+                    if (subConstInitVal < 0) {
                         throw new SyntaxException();
                     } else {
-                        constInitVal.appendSonNode(subConstInitVal);
+                        tree.push(subConstInitVal);
                     }
                 }
             }
             // 检查右花括号
-            if (tokenList.get(pos).getTokenType() != Token.RBRACE) {
+            if (tokenBuffer.getType(pos) != Token.RBRACE) {
                 throw new SyntaxException();
             } else {
-                token = tokenList.get(pos++);
-                constInitVal.appendSonNode(token);
+                token = readToken();
+                tree.push(token);
             }
         } else { // 不是左花括号，要匹配一个ConstExp
-            SyntaxClass constExp;
+            int constExp;
             constExp = readConstExp(curEnv);
-            if (constExp == null) {
+            if (constExp < 0) {
                 throw new SyntaxException();
             } else {
-                constInitVal.appendSonNode(constExp);
+                tree.push(constExp);
             }
         }
-        constInitVal.setFirstAsLineNo();
-        return constInitVal;
+        return tree.finish(SyntaxClass.CONSTINITVAL, curEnv, mark);
     }
 
-    public SyntaxClass readVarDecl(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readVarDecl(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass varDecl = new SyntaxClass(SyntaxClass.VARDECL);
-        varDecl.setCurEnv(curEnv);
-        SyntaxClass bType, varDef;
+        int mark = tree.mark();
+        int bType, varDef;
         // 检查BType
         bType = readBType();
-        if (bType == null) {
+        if (bType < 0) {
             throw new SyntaxException();
         } else {
-            varDecl.appendSonNode(bType);
+            tree.push(bType);
         }
         // 若下一个ident后面是括号，则说明是FuncDef
-        if (pos + 1 < tokenList.size() && tokenList.get(pos + 1).getTokenType() == Token.LPARENT) {
+        if (!tokenBuffer.isEnd(pos + 1) && tokenBuffer.getType(pos + 1) == Token.LPARENT) {
             throw new SyntaxException();
         }
         // 检查VarDef
         varDef = readVarDef(curEnv);
-        if (varDef == null) {
+        if (varDef < 0) {
             throw new SyntaxException();
         } else {
-            varDecl.appendSonNode(varDef);
+            tree.push(varDef);
         }
-        Token token;
+        int token;
         // 如果有逗号
-        while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-            token = tokenList.get(pos++);
-            varDecl.appendSonNode(token);
+        while (tokenBuffer.getType(pos) == Token.COMMA) {
+            token = readToken();
+            tree.push(token);
             // 逗号后面需要是VarDef
             varDef = readVarDef(curEnv);
-            if (varDef == null) {
+            if (varDef < 0) {
                 throw new SyntaxException();
             } else {
-                varDecl.appendSonNode(varDef);
+                tree.push(varDef);
             }
         }
         // 需要一个分号
-        if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-            token = tokenList.get(pos++);
-            varDecl.appendSonNode(token);
-        } else if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
+        if (tokenBuffer.getType(pos) == Token.SEMICN) {
+            token = readToken();
+            tree.push(token);
+        } else if (tokenBuffer.getType(pos) == Token.LPARENT) {
             throw new SyntaxException();
         } else {
-            Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+            Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
             errorList.add(semicnMissingError);
-            //throw new SemicnMissingException(tokenList.get(pos - 1).getLineNo());
+            //throw new SemicnMissingException(tokenBuffer.getLine(pos - 1));
         }
-        varDecl.setFirstAsLineNo();
-        return varDecl;
+        return tree.finish(SyntaxClass.VARDECL, curEnv, mark);
     }
 
-    public SyntaxClass readVarDef(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readVarDef(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass varDef = new SyntaxClass(SyntaxClass.VARDEF);
-        varDef.setCurEnv(curEnv);
-        Token ident = tokenList.get(pos);
+        int mark = tree.mark();
+        Token ident;
         // 检查Token是否是标识符
-        if (ident.getTokenType() != Token.IDENFR) {
+        if (tokenBuffer.getType(pos) != Token.IDENFR) {
             throw new SyntaxException();
         } else {
-            ++pos;
-            varDef.appendSonNode(ident);
+            ident = tokenBuffer.getToken(pos); // 建立符号需要Token对象
+            tree.push(readToken());
         }
         // 检查是否有左中括号
         int brackNum = 0;
-        Token token = tokenList.get(pos);
-        while (token.getTokenType() == Token.LBRACK) {
+        int token;
+        while (tokenBuffer.getType(pos) == Token.LBRACK) {
             ++brackNum;
             // 若有，检查ConstExp和右中括号
-            ++pos;
-            SyntaxClass constExp;
+            token = readToken();
+            int constExp;
             constExp = readConstExp(curEnv);
-            Token rbrack = tokenList.get(pos);
-            if (rbrack.getTokenType() != Token.RBRACK) {
-                Error rBrackMissingError = new Error(10, tokenList.get(pos - 1).getLineNo());
+            if (tokenBuffer.getType(pos) != Token.RBRACK) {
+                Error rBrackMissingError = new Error(10, tokenBuffer.getLine(pos - 1));
                 errorList.add(rBrackMissingError);
                 // throw new SyntaxException();
             } else {
-                ++pos;
-                varDef.appendSonNode(token);
-                varDef.appendSonNode(constExp);
-                varDef.appendSonNode(rbrack);
+                int rbrack = readToken();
+                tree.push(token);
+                tree.push(constExp);
+                tree.push(rbrack);
             }
-            token = tokenList.get(pos);
         }
         // 如果是 =
-        if (token.getTokenType() == Token.ASSIGN) {
-            ++pos;
-            varDef.appendSonNode(token);
-            SyntaxClass initVal;
+        if (tokenBuffer.getType(pos) == Token.ASSIGN) {
+            token = readToken();
+            tree.push(token);
+            int initVal;
             // 检查InitVal
             initVal = readInitVal(curEnv);
-            if (initVal == null) {
+            if (initVal < 0) {
                 throw new SyntaxException();
             } else {
-                varDef.appendSonNode(initVal);
+                tree.push(initVal);
             }
         }
         // Add current constdef to symbol table
         VarSymbol curSymbol = new VarSymbol(ident, 1, brackNum);
-        varDef.setFirstAsLineNo();
         try {
             curEnv.addSymbol(curSymbol);
         } catch (DuplicatedDefineIdentException e) {
             Error duplicatedDefinedError = new Error(1, ident.getLineNo());
             errorList.add(duplicatedDefinedError);
         }
+        int varDef = tree.finish(SyntaxClass.VARDEF, curEnv, mark);
+        tree.setSymbol(varDef, curSymbol);
         return varDef;
     }
 
-    public SyntaxClass readInitVal(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readInitVal(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass initVal = new SyntaxClass(SyntaxClass.INITVAL);
-        initVal.setCurEnv(curEnv);
-        Token token;
+        int mark = tree.mark();
+        int token;
         // 检查是否是左花括号
-        if (tokenList.get(pos).getTokenType() == Token.LBRACE) {
-            token = tokenList.get(pos++);
-            initVal.appendSonNode(token);
+        if (tokenBuffer.getType(pos) == Token.LBRACE) {
+            token = readToken();
+            tree.push(token);
             // 如果不是右花括号，说明中间有东西，避免回溯
-            if (tokenList.get(pos).getTokenType() != Token.RBRACE) {
+            if (tokenBuffer.getType(pos) != Token.RBRACE) {
                 // 检查必须存在的InitVal
-                SyntaxClass subInitVal;
+                int subInitVal;
                 subInitVal = readInitVal(curEnv);
-                if (subInitVal == null) {
+                if (subInitVal < 0) {
                     throw new SyntaxException();
                 } else {
-                    initVal.appendSonNode(subInitVal);
+                    tree.push(subInitVal);
                 }
                 // 有逗号，可以继续读
-                while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-                    token = tokenList.get(pos++);
-                    initVal.appendSonNode(token);
+                while (tokenBuffer.getType(pos) == Token.COMMA) {
+                    token = readToken();
+                    tree.push(token);
                     // 需要一个InitVal
                     subInitVal = readInitVal(curEnv);
-                    if (subInitVal == null) {
+                    if (subInitVal < 0) {
                         throw new SyntaxException();
                     } else {
-                        initVal.appendSonNode(subInitVal);
+                        tree.push(subInitVal);
                     }
                 }
             }
             // 检查右花括号
-            if (tokenList.get(pos).getTokenType() == Token.RBRACE) {
-                token = tokenList.get(pos++);
-                initVal.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.RBRACE) {
+                token = readToken();
+                tree.push(token);
             } else {
                 throw new SyntaxException();
             }
         } else {
             // 单Exp情况
-            SyntaxClass exp;
+            int exp;
             exp = readExp(curEnv);
-            if (exp == null) {
+            if (exp < 0) {
                 throw new SyntaxException();
             } else {
-                initVal.appendSonNode(exp);
+                tree.push(exp);
             }
         }
-        initVal.setFirstAsLineNo();
-        return initVal;
+        return tree.finish(SyntaxClass.INITVAL, curEnv, mark);
     }
 
-    public SyntaxClass readFuncDef(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readFuncDef(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
+        int mark = tree.mark();
+        SymbolTable funcBlockEnv = readFuncHead(curEnv);
+        return readFuncBody(curEnv, funcBlockEnv, mark);
+    }
+
+    // FuncDef中Block之前的部分，建立函数符号并加入curEnv，返回函数块的符号表
+    private SymbolTable readFuncHead(SymbolTable curEnv) throws SyntaxException {
         SymbolTable funcBlockEnv = new SymbolTable(curEnv, curEnv.getCurListPos());
-        SyntaxClass funcDef = new SyntaxClass(SyntaxClass.FUNCDEF);
-        funcDef.setCurEnv(curEnv);
-        SyntaxClass funcType, block;
+        int funcType;
         // 检查FuncType
         funcType = readFuncType();
-        if (funcType == null) {
+        if (funcType < 0) {
             throw new SyntaxException();
         } else {
-            funcDef.appendSonNode(funcType);
+            tree.push(funcType);
         }
         // 检查Ident
-        if (tokenList.get(pos).getTokenType() != Token.IDENFR) {
+        Token funcIdent;
+        if (tokenBuffer.getType(pos) != Token.IDENFR) {
             throw new SyntaxException();
         } else {
-            Token ident;
-            ident = tokenList.get(pos++);
-            funcDef.appendSonNode(ident);
+            funcIdent = tokenBuffer.getToken(pos); // 建立函数符号需要Token对象
+            tree.push(readToken());
         }
         // 检查左括号
-        if (tokenList.get(pos).getTokenType() != Token.LPARENT) {
+        int lastSon;
+        if (tokenBuffer.getType(pos) != Token.LPARENT) {
             throw new SyntaxException();
         } else {
-            Token ident;
-            ident = tokenList.get(pos++);
-            funcDef.appendSonNode(ident);
+            lastSon = readToken();
+            tree.push(lastSon);
         }
         // 若没有直接遇见右括号，说明中间有东西
-        /*if (tokenList.get(pos).getTokenType() != Token.RPARENT) {
-            SyntaxClass funcFParams;
+        /*if (tokenBuffer.getType(pos) != Token.RPARENT) {
+            int funcFParams;
             funcFParams = readFuncFParams(funcBlockEnv);
-            if (funcFParams == null) {
+            if (funcFParams < 0) {
                 throw new SyntaxException();
             } else {
-                funcDef.appendSonNode(funcFParams);
+                tree.push(funcFParams);
             }
         }*/
-        int startPos = pos;
-        SyntaxClass funcFParams = null;
-        try {
+        // 参数都以int开头，否则没有参数（或缺右括号）
+        int funcFParams = -1;
+        if (tokenBuffer.getType(pos) == Token.INTTK) {
             funcFParams = readFuncFParams(funcBlockEnv);
-            funcDef.appendSonNode(funcFParams);
-        } catch (SyntaxException e) {
-            funcFParams = null;
-            pos = startPos;
+            if (funcFParams < 0) {
+                throw new SyntaxException();
+            }
+            tree.push(funcFParams);
+            lastSon = funcFParams;
         }
         // 检查右括号
-        if (tokenList.get(pos).getTokenType() != Token.RPARENT) {
-            Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+        if (tokenBuffer.getType(pos) != Token.RPARENT) {
+            Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
             errorList.add(rParentMissingError);
             // 没有你就给它加一个
-            ArrayList<SyntaxClass> sonNodeList = funcDef.getSonNodeList();
-            Token rParentToken = new Token(Token.RPARENT, sonNodeList.get(sonNodeList.size() - 1).getLineNo(), ")");
-            funcDef.appendSonNode(rParentToken);
+            int rParentToken = tree.addToken(Token.RPARENT, tree.getLineNo(lastSon), -1);
+            tree.push(rParentToken);
             //throw new SyntaxException();
         } else {
-            Token ident;
-            ident = tokenList.get(pos++);
-            funcDef.appendSonNode(ident);
+            tree.push(readToken());
         }
         // 需要在Block前把该函数加入env以应对递归情形
-        FuncSymbol funcSymbol = SymbolAnalyzer.getFuncSymbol(funcDef);
+        FuncSymbol funcSymbol = SymbolAnalyzer.getFuncSymbol(tree, funcType, funcIdent, funcFParams);
         funcBlockEnv.setCurFunc(funcSymbol); // 设置函数块函数
         try {
             curEnv.addSymbol(funcSymbol);
@@ -559,58 +814,57 @@ public class SyntaxAnalyzer {
             Error duplicatedDefinedError = new Error(1, funcSymbol.getlineNo());
             errorList.add(duplicatedDefinedError);
         }
+        return funcBlockEnv;
+    }
+
+    // FuncDef的Block，mark是readFuncHead之前的待挂子结点栈高度
+    private int readFuncBody(SymbolTable curEnv, SymbolTable funcBlockEnv, int mark) throws SyntaxException {
         // 检查Block
-        block = readBlock(funcBlockEnv);
-        if (block == null) {
+        int block = readBlock(funcBlockEnv);
+        if (block < 0) {
             throw new SyntaxException();
         } else {
-            funcDef.appendSonNode(block);
+            tree.push(block);
         }
-        funcDef.setFirstAsLineNo();
+        int funcDef = tree.finish(SyntaxClass.FUNCDEF, curEnv, mark);
+        tree.setSymbol(funcDef, funcBlockEnv.getCurBlockFunc());
         return funcDef;
     }
 
-    public SyntaxClass readMainFuncDef(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readMainFuncDef(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
         SymbolTable mainFuncBlockEnv = new SymbolTable(curEnv, curEnv.getCurListPos());
-        SyntaxClass mainFuncDef = new SyntaxClass(SyntaxClass.MAINFUNCDEF);
-        mainFuncDef.setCurEnv(curEnv);
-        SyntaxClass block;
+        int mark = tree.mark();
+        int block;
         Token mainToken;
         // 检查int
-        if (tokenList.get(pos).getTokenType() != Token.INTTK) {
+        if (tokenBuffer.getType(pos) != Token.INTTK) {
             throw new SyntaxException();
         } else {
-            Token ident;
-            ident = tokenList.get(pos++);
-            mainFuncDef.appendSonNode(ident);
+            tree.push(readToken());
         }
         // 检查main
-        if (tokenList.get(pos).getTokenType() != Token.MAINTK) {
+        if (tokenBuffer.getType(pos) != Token.MAINTK) {
             throw new SyntaxException();
         } else {
-            mainToken = tokenList.get(pos++);
-            mainFuncDef.appendSonNode(mainToken);
+            mainToken = tokenBuffer.getToken(pos);
+            tree.push(readToken());
         }
         // 检查左括号
-        if (tokenList.get(pos).getTokenType() != Token.LPARENT) {
+        if (tokenBuffer.getType(pos) != Token.LPARENT) {
             throw new SyntaxException();
         } else {
-            Token ident;
-            ident = tokenList.get(pos++);
-            mainFuncDef.appendSonNode(ident);
+            tree.push(readToken());
         }
         // 检查右括号
-        if (tokenList.get(pos).getTokenType() != Token.RPARENT) {
-            Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+        if (tokenBuffer.getType(pos) != Token.RPARENT) {
+            Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
             errorList.add(rParentMissingError);
             // throw new SyntaxException();
         } else {
-            Token ident;
-            ident = tokenList.get(pos++);
-            mainFuncDef.appendSonNode(ident);
+            tree.push(readToken());
         }
         // 先加入env
         FuncSymbol mainFuncSymbol = new FuncSymbol(mainToken, true);
@@ -618,129 +872,122 @@ public class SyntaxAnalyzer {
         try {
             curEnv.addSymbol(mainFuncSymbol);
         } catch (DuplicatedDefineIdentException e) {
-            Error duplicatedDefinedError = new Error(1, mainFuncDef.getLineNo());
+            Error duplicatedDefinedError = new Error(1, mainFuncSymbol.getlineNo());
             errorList.add(duplicatedDefinedError);
         }
         // 检查Block
         block = readBlock(mainFuncBlockEnv);
-        if (block == null) {
+        if (block < 0) {
             throw new SyntaxException();
         } else {
-            mainFuncDef.appendSonNode(block);
+            tree.push(block);
         }
-        mainFuncDef.setFirstAsLineNo();
-
+        int mainFuncDef = tree.finish(SyntaxClass.MAINFUNCDEF, curEnv, mark);
+        tree.setSymbol(mainFuncDef, mainFuncSymbol);
         return mainFuncDef;
     }
 
-    public SyntaxClass readFuncType() throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readFuncType() throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass funcType = new SyntaxClass(SyntaxClass.FUNCTYPE);
+        int mark = tree.mark();
         // 检查void
-        if (tokenList.get(pos).getTokenType() == Token.VOIDTK ||
-                tokenList.get(pos).getTokenType() == Token.INTTK) {
-            Token ident;
-            ident = tokenList.get(pos++);
-            funcType.appendSonNode(ident);
+        if (tokenBuffer.getType(pos) == Token.VOIDTK ||
+                tokenBuffer.getType(pos) == Token.INTTK) {
+            tree.push(readToken());
         } else {
             throw new SyntaxException();
         }
-        funcType.setFirstAsLineNo();
-        return funcType;
+        return tree.finish(SyntaxClass.FUNCTYPE, null, mark);
     }
 
-    public SyntaxClass readFuncFParams(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readFuncFParams(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass funcFParams = new SyntaxClass(SyntaxClass.FUNCFPARAMS);
-        funcFParams.setCurEnv(curEnv);
-        SyntaxClass param;
+        int mark = tree.mark();
+        int param;
         // 检查必须有的FuncFParam
         param = readFuncFParam(curEnv);
-        if (param == null) {
+        if (param < 0) {
             throw new SyntaxException();
         } else {
-            funcFParams.appendSonNode(param);
+            tree.push(param);
         }
         // 如果有逗号，说明后面还有
-        while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-            Token token = tokenList.get(pos++);
-            funcFParams.appendSonNode(token);
+        while (tokenBuffer.getType(pos) == Token.COMMA) {
+            int token = readToken();
+            tree.push(token);
             param = readFuncFParam(curEnv);
-            if (param == null) {
+            if (param < 0) {
                 throw new SyntaxException();
             } else {
-                funcFParams.appendSonNode(param);
+                tree.push(param);
             }
         }
-        funcFParams.setFirstAsLineNo();
-        return funcFParams;
+        return tree.finish(SyntaxClass.FUNCFPARAMS, curEnv, mark);
     }
 
-    public SyntaxClass readFuncFParam(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readFuncFParam(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass funcFParam = new SyntaxClass(SyntaxClass.FUNCFPARAM);
-        funcFParam.setCurEnv(curEnv);
+        int mark = tree.mark();
         Token fParamToken;
         // 检查BType
-        SyntaxClass bType;
+        int bType;
         bType = readBType();
-        if (bType == null) {
+        if (bType < 0) {
             throw new SyntaxException();
         } else {
-            funcFParam.appendSonNode(bType);
+            tree.push(bType);
         }
         // 检查ident
-        if (tokenList.get(pos).getTokenType() == Token.IDENFR) {
-            fParamToken = tokenList.get(pos++);
-            funcFParam.appendSonNode(fParamToken);
+        if (tokenBuffer.getType(pos) == Token.IDENFR) {
+            fParamToken = tokenBuffer.getToken(pos); // 建立符号需要Token对象
+            tree.push(readToken());
         } else {
             throw new SyntaxException();
         }
         int brackNum = 0;
         // 如果有左中括号
-        if (tokenList.get(pos).getTokenType() == Token.LBRACK) {
+        if (tokenBuffer.getType(pos) == Token.LBRACK) {
             ++brackNum;
-            Token ident = tokenList.get(pos++);
-            funcFParam.appendSonNode(ident);
+            int ident = readToken();
+            tree.push(ident);
             // 需要跟一个右中括号
-            if (tokenList.get(pos).getTokenType() == Token.RBRACK) {
-                ident = tokenList.get(pos++);
-                funcFParam.appendSonNode(ident);
+            if (tokenBuffer.getType(pos) == Token.RBRACK) {
+                ident = readToken();
+                tree.push(ident);
             } else {
-                Error rBrackMissingError = new Error(10, tokenList.get(pos - 1).getLineNo());
+                Error rBrackMissingError = new Error(10, tokenBuffer.getLine(pos - 1));
                 errorList.add(rBrackMissingError);
                 // throw new SyntaxException();
             }
             // 如果还有左中括号
-            while (tokenList.get(pos).getTokenType() == Token.LBRACK) {
+            while (tokenBuffer.getType(pos) == Token.LBRACK) {
                 ++brackNum;
-                ident = tokenList.get(pos++);
-                funcFParam.appendSonNode(ident);
+                ident = readToken();
+                tree.push(ident);
                 // 检查一个ConstExp
-                SyntaxClass constExp;
+                int constExp;
                 constExp = readConstExp(curEnv);
-                if (constExp == null) {
+                if (constExp < 0) {
                     throw new SyntaxException();
                 }
-                funcFParam.appendSonNode(constExp);
+                tree.push(constExp);
                 // 检查右中括号
-                if (tokenList.get(pos).getTokenType() == Token.RBRACK) {
-                    ident = tokenList.get(pos++);
-                    funcFParam.appendSonNode(ident);
+                if (tokenBuffer.getType(pos) == Token.RBRACK) {
+                    ident = readToken();
+                    tree.push(ident);
                 } else {
-                    Error rBrackMissingError = new Error(10, tokenList.get(pos - 1).getLineNo());
+                    Error rBrackMissingError = new Error(10, tokenBuffer.getLine(pos - 1));
                     errorList.add(rBrackMissingError);
                     // throw new SyntaxException();
                 }
             }
         }
-        funcFParam.setFirstAsLineNo();
         VarSymbol paramSymbol = new VarSymbol(fParamToken, 1, brackNum); // 作为函数块内变量
         try {
             curEnv.addSymbol(paramSymbol);
@@ -748,140 +995,126 @@ public class SyntaxAnalyzer {
             Error duplicatedDefinedError = new Error(1, fParamToken.getLineNo());
             errorList.add(duplicatedDefinedError);
         }
+        int funcFParam = tree.finish(SyntaxClass.FUNCFPARAM, curEnv, mark);
+        tree.setSymbol(funcFParam, paramSymbol);
         return funcFParam;
     }
 
-    public SyntaxClass readBlock(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readBlock(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass block = new SyntaxClass(SyntaxClass.BLOCK);
-        block.setCurEnv(curEnv);
+        int mark = tree.mark();
         // 检查左花括号
-        int startPos = pos;
-        Token brace;
-        if (tokenList.get(pos).getTokenType() == Token.LBRACE) {
-            brace = tokenList.get(pos++);
-            block.appendSonNode(brace);
-            SyntaxClass blockItem;
+        int brace;
+        if (tokenBuffer.getType(pos) == Token.LBRACE) {
+            brace = readToken();
+            tree.push(brace);
+            int blockItem = -1;
             // 没见到右花括号就继续
-            while (tokenList.get(pos).getTokenType() != Token.RBRACE) {
-                if (pos >= tokenList.size()) {
+            while (tokenBuffer.getType(pos) != Token.RBRACE) {
+                if (tokenBuffer.isEnd(pos)) {
                     throw new SyntaxException();
                 }
-                // 可能存在的BlockItem，若发生错误，则说明没有，break
-                // 准备回溯（疑似无必要）
-                startPos = pos;
-                try {
-                    blockItem = readBlockItem(curEnv);
-                } catch (SyntaxException e) {
-                    pos = startPos;
-                    break;
-                }
-                if (blockItem == null) {
+                blockItem = readBlockItem(curEnv);
+                if (blockItem < 0) {
                     throw new SyntaxException();
                 } else {
-                    block.appendSonNode(blockItem);
+                    tree.push(blockItem);
                 }
             }
             // 右花括号
-            if (tokenList.get(pos).getTokenType() == Token.RBRACE) {
-                brace = tokenList.get(pos++);
+            if (tokenBuffer.getType(pos) == Token.RBRACE) {
+                brace = readToken();
 
                 // 检查有返回值的函数的return情况
                 boolean retErr = true;
                 if (curEnv.getCurBlockFunc() == null || !curEnv.getCurBlockFunc().funcHasReturn()) {
                     retErr = false;
                 }
-                ArrayList<SyntaxClass> blockSonNodeList = block.getSonNodeList();
-                blockItem = blockSonNodeList.get(blockSonNodeList.size() - 1);
-                if (blockItem.getSyntaxType() == SyntaxClass.BLOCKITEM) {
-                    SyntaxClass stmt = blockItem.getSonNodeList().get(blockItem.getSonNodeList().size() - 1);
-                    SyntaxClass returnToken = stmt.getSonNodeList().get(stmt.getSonNodeList().size() - 1);
-                    if (returnToken.getSyntaxType() == SyntaxClass.TOKEN) {
-                        if (((Token) returnToken).getTokenType() == Token.RETURNTK) {
+                if (blockItem >= 0) { // 最后一个BlockItem
+                    int stmt = tree.getLastSon(blockItem);
+                    int returnToken = tree.getLastSon(stmt);
+                    if (tree.getSyntaxType(returnToken) == SyntaxClass.TOKEN) {
+                        if (tree.getTokenType(returnToken) == Token.RETURNTK) {
                             retErr = false;
                         }
                     }
                 }
                 if (retErr) {
-                    Error missingReturnError = new Error(6, brace.getLineNo());
+                    Error missingReturnError = new Error(6, tree.getLineNo(brace));
                     errorList.add(missingReturnError);
                 }
 
-                block.appendSonNode(brace);
+                tree.push(brace);
             } else {
                 throw new SyntaxException();
             }
         } else {
             throw new SyntaxException();
         }
-        block.setFirstAsLineNo();
-        return block;
+        return tree.finish(SyntaxClass.BLOCK, curEnv, mark);
     }
 
-    public SyntaxClass readBlockItem(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readBlockItem(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass blockItem = new SyntaxClass(SyntaxClass.BLOCKITEM);
-        blockItem.setCurEnv(curEnv);
-        SyntaxClass syntaxClass;
+        int mark = tree.mark();
+        int syntaxClass;
 
-        int startPos = pos, nextTokenType = tokenList.get(pos).getTokenType();
+        int startPos = pos, nextTokenType = tokenBuffer.getType(pos);
         if (nextTokenType == Token.CONSTTK || nextTokenType == Token.INTTK) {
             // 尝试解析Decl
             syntaxClass = readDecl(curEnv);
-            if (syntaxClass == null) {
+            if (syntaxClass < 0) {
                 throw new SyntaxException();
             }
-            blockItem.appendSonNode(syntaxClass);
+            tree.push(syntaxClass);
         } else {
             // 尝试解析Stmt
             // 先回溯
             // pos = startPos;
             syntaxClass = readStmt(curEnv);
-            if (syntaxClass != null) {
-                blockItem.appendSonNode(syntaxClass);
+            if (syntaxClass >= 0) {
+                tree.push(syntaxClass);
             } else {
                 throw new SyntaxException();
             }
         }
-        blockItem.setFirstAsLineNo();
-        return blockItem;
+        return tree.finish(SyntaxClass.BLOCKITEM, curEnv, mark);
     }
 
-    public SyntaxClass readStmt(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readStmt(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass stmt = new SyntaxClass(SyntaxClass.STMT);
-        stmt.setCurEnv(curEnv);
-        int nextTokenType = tokenList.get(pos).getTokenType();
+        int mark = tree.mark();
+        int nextTokenType = tokenBuffer.getType(pos);
         // If
         if (nextTokenType == Token.IFTK) {
-            Token token = tokenList.get(pos++);
-            stmt.appendSonNode(token);
+            int token = readToken();
+            tree.push(token);
             // 左括号
-            if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.LPARENT) {
+                token = readToken();
+                tree.push(token);
             } else {
                 throw new SyntaxException();
             }
             // Cond
-            SyntaxClass cond = readCond(curEnv);
-            if (cond == null) {
+            int cond = readCond(curEnv);
+            if (cond < 0) {
                 throw new SyntaxException();
             } else {
-                stmt.appendSonNode(cond);
+                tree.push(cond);
             }
             // 右括号
-            if (tokenList.get(pos).getTokenType() == Token.RPARENT) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.RPARENT) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+                Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
                 errorList.add(rParentMissingError);
                 // throw new SyntaxException();
             }
@@ -889,51 +1122,51 @@ public class SyntaxAnalyzer {
             // 新作用域
             //SymbolTable ifStmtEnv = new SymbolTable(curEnv);
             SymbolTable ifStmtEnv = curEnv;
-            SyntaxClass subStmt = readStmt(ifStmtEnv);
-            if (subStmt == null) {
+            int subStmt = readStmt(ifStmtEnv);
+            if (subStmt < 0) {
                 throw new SyntaxException();
             } else {
-                stmt.appendSonNode(subStmt);
+                tree.push(subStmt);
             }
             // 如果有else
-            if (tokenList.get(pos).getTokenType() == Token.ELSETK) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.ELSETK) {
+                token = readToken();
+                tree.push(token);
                 // Stmt
                 // 新作用域
                 //SymbolTable elseStmtEnv = new SymbolTable(curEnv);
                 SymbolTable elseStmtEnv = curEnv;
                 subStmt = readStmt(elseStmtEnv);
-                if (subStmt == null) {
+                if (subStmt < 0) {
                     throw new SyntaxException();
                 } else {
-                    stmt.appendSonNode(subStmt);
+                    tree.push(subStmt);
                 }
             }
         } else if (nextTokenType == Token.WHILETK) {
             // While
-            Token token = tokenList.get(pos++);
-            stmt.appendSonNode(token);
+            int token = readToken();
+            tree.push(token);
             // 左括号
-            if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.LPARENT) {
+                token = readToken();
+                tree.push(token);
             } else {
                 throw new SyntaxException();
             }
             // Cond
-            SyntaxClass cond = readCond(curEnv);
-            if (cond == null) {
+            int cond = readCond(curEnv);
+            if (cond < 0) {
                 throw new SyntaxException();
             } else {
-                stmt.appendSonNode(cond);
+                tree.push(cond);
             }
             // 右括号
-            if (tokenList.get(pos).getTokenType() == Token.RPARENT) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.RPARENT) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+                Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
                 errorList.add(rParentMissingError);
                 // throw new SyntaxException();
             }
@@ -941,80 +1174,79 @@ public class SyntaxAnalyzer {
             // While的新作用域
             SymbolTable whileStmtEnv = new SymbolTable(curEnv, curEnv.getCurListPos());
             whileStmtEnv.setCycleBlock(true); // 标记为循环块的作用域
-            SyntaxClass subStmt = readStmt(whileStmtEnv);
-            if (subStmt == null) {
+            int subStmt = readStmt(whileStmtEnv);
+            if (subStmt < 0) {
                 throw new SyntaxException();
             } else {
-                stmt.appendSonNode(subStmt);
+                tree.push(subStmt);
             }
         } else if (nextTokenType == Token.BREAKTK) {
             // Break
-            Token token, breakToken = tokenList.get(pos++);
-            stmt.appendSonNode(breakToken);
+            int token, breakToken = readToken();
+            tree.push(breakToken);
             // 分号
-            if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.SEMICN) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+                Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
                 errorList.add(semicnMissingError);
                 //throw new SyntaxException();
             }
             if (!curEnv.isInCycleBlock()) {
-                Error cycleError = new Error(12, breakToken.getLineNo());
+                Error cycleError = new Error(12, tree.getLineNo(breakToken));
                 errorList.add(cycleError);
             }
         } else if (nextTokenType == Token.CONTINUETK) {
             // Continue
-            Token token, continueToken = tokenList.get(pos++);
-            stmt.appendSonNode(continueToken);
+            int token, continueToken = readToken();
+            tree.push(continueToken);
             // 分号
-            if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.SEMICN) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+                Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
                 errorList.add(semicnMissingError);
                 //throw new SyntaxException();
             }
             if (!curEnv.isInCycleBlock()) {
-                Error cycleError = new Error(12, continueToken.getLineNo());
+                Error cycleError = new Error(12, tree.getLineNo(continueToken));
                 errorList.add(cycleError);
             }
         } else if (nextTokenType == Token.RETURNTK) {
             // Return
-            Token returnToken = tokenList.get(pos++), token;
-            stmt.appendSonNode(returnToken);
+            int returnToken = readToken(), token;
+            tree.push(returnToken);
             // 分号
-            /*if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            /*if (tokenBuffer.getType(pos) == Token.SEMICN) {
+                token = readToken();
+                tree.push(token);
             } else {*/
             // 没有分号，说明有返回值
-            SyntaxClass exp = null;
-            boolean hasReturnValue = true;
-            try {
-                exp = readExp(curEnv);
-            } catch (SyntaxException e) {
-                hasReturnValue = false;
-            }
+            int exp = -1;
+            boolean hasReturnValue = isExpFirst(pos);
             if (hasReturnValue) {
-                stmt.appendSonNode(exp);
+                exp = readExp(curEnv);
+                if (exp < 0) {
+                    throw new SyntaxException();
+                }
+                tree.push(exp);
             }
             // 有返回值，检查返回值是否匹配函数类型
             FuncSymbol curFuncSymbol = curEnv.checkCurFunc();
             if (curFuncSymbol.funcHasReturn() != hasReturnValue) {
                 // 返回值与函数返回情况不匹配
                 int errType = curFuncSymbol.funcHasReturn() ? 6 : 5;
-                Error semicnMissingError = new Error(errType, returnToken.getLineNo());
+                Error semicnMissingError = new Error(errType, tree.getLineNo(returnToken));
                 errorList.add(semicnMissingError);
             }
             // 分号
-            if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.SEMICN) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+                Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
                 errorList.add(semicnMissingError);
                 //throw new SyntaxException();
             }
@@ -1022,301 +1254,291 @@ public class SyntaxAnalyzer {
             //}
         } else if (nextTokenType == Token.PRINTFTK) {
             // Printf
-            Token token, printfToken = tokenList.get(pos++);
-            stmt.appendSonNode(printfToken);
+            int token, printfToken = readToken();
+            tree.push(printfToken);
             // 左括号
-            if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.LPARENT) {
+                token = readToken();
+                tree.push(token);
             } else {
                 throw new SyntaxException();
             }
             // FormatString
             int formatCharNum = 0;
-            if (tokenList.get(pos).getTokenType() == Token.STRCON) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
-                formatCharNum = ((FormatStringToken) token).getFormatCharNum();
+            if (tokenBuffer.getType(pos) == Token.STRCON) {
+                token = readToken();
+                tree.push(token);
+                formatCharNum = tree.getFormatString(token).getFormatCharNum();
             } else {
                 throw new SyntaxException();
             }
             // 如果有逗号
             int expNum = 0; // 后接表达式数量
-            while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            while (tokenBuffer.getType(pos) == Token.COMMA) {
+                token = readToken();
+                tree.push(token);
                 // 需要有Exp
-                SyntaxClass exp = readExp(curEnv);
-                if (exp == null) {
+                int exp = readExp(curEnv);
+                if (exp < 0) {
                     throw new SyntaxException();
                 } else {
-                    stmt.appendSonNode(exp);
+                    tree.push(exp);
                 }
                 ++expNum;
             }
             // 右括号
-            if (tokenList.get(pos).getTokenType() == Token.RPARENT) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.RPARENT) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+                Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
                 errorList.add(rParentMissingError);
                 // throw new SyntaxException();
             }
             // 分号
-            if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-                token = tokenList.get(pos++);
-                stmt.appendSonNode(token);
+            if (tokenBuffer.getType(pos) == Token.SEMICN) {
+                token = readToken();
+                tree.push(token);
             } else {
-                Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+                Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
                 errorList.add(semicnMissingError);
                 // throw new SyntaxException();
             }
             //检查格式字符与后接表达式数目是否相等
             if (formatCharNum != expNum) {
-                Error formatNumNotMatchError = new Error(11, printfToken.getLineNo());
+                Error formatNumNotMatchError = new Error(11, tree.getLineNo(printfToken));
                 errorList.add(formatNumNotMatchError);
             }
         } else if (nextTokenType == Token.LBRACE) {
             // 左花括号，说明是一个Block
             // 新作用域
             SymbolTable blockEnv = new SymbolTable(curEnv, curEnv.getCurListPos());
-            SyntaxClass block = readBlock(blockEnv);
-            if (block == null) {
+            int block = readBlock(blockEnv);
+            if (block < 0) {
                 throw new SyntaxException();
             } else {
-                stmt.appendSonNode(block);
+                tree.push(block);
             }
         } else {
-            /* LVal=Exp,[Exp],LVal=getint()三种情况，存在回溯可能*/
-            int startPos = pos;
+            /* LVal=Exp,[Exp],LVal=getint()三种情况，由isAssignStmt向前看区分*/
             // [Exp];中单走一个分号的情况（空语句）
-            Token semicn;
+            int semicn;
             if (nextTokenType == Token.SEMICN) {
-                semicn = tokenList.get(pos++);
-                stmt.appendSonNode(semicn);
+                semicn = readToken();
+                tree.push(semicn);
             } else { // 非空语句
-                // 先试试LVal
-                SyntaxClass lVal = null;
-                boolean isLVal = true;
-                Error lValUndefinedError = null;
-                try {
-                    lVal = readLVal(curEnv);
-                } catch (SyntaxException e) {
-                    isLVal = false;
-                } catch (LValNotDefinedException e) {
-                    lValUndefinedError = new Error(2, e.getLineNum());
-                    lVal = e.getlVal();
-                }
-                if (lVal == null && lValUndefinedError == null) {
-                    isLVal = false;
-                }
-                if (isLVal) {
-                    // 检查是否跟着等号
-                    if (tokenList.get(pos).getTokenType() == Token.ASSIGN) {
-                        if (lValUndefinedError != null) {
-                            // LVal内符号未定义
-                            errorList.add(lValUndefinedError);
-                        } else {
-                            // 给LVal赋值，需要检查LVal是否是常量
-                            Token lValToken = (Token) lVal.getSonNodeList().get(0);
-                            //VarSymbol tokenSymbol = curEnv.varGlobalLookup(lValToken.getTokenContext());
-                            VarSymbol tokenSymbol = (VarSymbol) curEnv.globalLookup(lValToken.getTokenContext(), 0);
-                            if (tokenSymbol != null && !tokenSymbol.isVar()) {
-                                // 确实是常量，寄了
-                                Error constantAssignmentError = new Error(7, lValToken.getLineNo());
-                                errorList.add(constantAssignmentError);
-                            }
+                if (isAssignStmt(pos)) {
+                    // LVal后面跟着等号，是LVal = Exp或LVal = getint()
+                    int lVal;
+                    Error lValUndefinedError = null;
+                    try {
+                        lVal = readLVal(curEnv);
+                    } catch (LValNotDefinedException e) {
+                        lValUndefinedError = new Error(2, e.getLineNum());
+                        lVal = e.getlVal();
+                    }
+                    if (lVal < 0) {
+                        throw new SyntaxException();
+                    }
+                    if (lValUndefinedError != null) {
+                        // LVal内符号未定义
+                        errorList.add(lValUndefinedError);
+                    } else {
+                        // 给LVal赋值，需要检查LVal是否是常量
+                        int lValToken = tree.getSon(lVal, 0);
+                        VarSymbol tokenSymbol = tree.getVarSymbol(lVal); // 语法分析LVal时已解析
+                        if (tokenSymbol != null && !tokenSymbol.isVar()) {
+                            // 确实是常量，寄了
+                            Error constantAssignmentError = new Error(7, tree.getLineNo(lValToken));
+                            errorList.add(constantAssignmentError);
                         }
+                    }
 
-                        Token token = tokenList.get(pos++);
-                        // 确实是等号，则LVal可以确认加入
-                        stmt.appendSonNode(lVal);
-                        stmt.appendSonNode(token);
-                        // 检查是否是getint
-                        if (tokenList.get(pos).getTokenType() == Token.GETINTTK) {
-                            token = tokenList.get(pos++);
-                            // 是getint
-                            stmt.appendSonNode(token);
-                            // 左括号
-                            if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
-                                token = tokenList.get(pos++);
-                                stmt.appendSonNode(token);
-                            } else {
-                                throw new SyntaxException(); // getint 左括号缺失
-                            }
-                            // 右括号
-                            if (tokenList.get(pos).getTokenType() == Token.RPARENT) {
-                                token = tokenList.get(pos++);
-                                stmt.appendSonNode(token);
-                            } else {
-                                Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
-                                errorList.add(rParentMissingError); // getint 右括号缺失
-                                // throw new SyntaxException();
-                            }
+                    int token = readToken();
+                    tree.push(lVal);
+                    tree.push(token);
+                    // 检查是否是getint
+                    if (tokenBuffer.getType(pos) == Token.GETINTTK) {
+                        token = readToken();
+                        // 是getint
+                        tree.push(token);
+                        // 左括号
+                        if (tokenBuffer.getType(pos) == Token.LPARENT) {
+                            token = readToken();
+                            tree.push(token);
                         } else {
-                            // 不是LVal = getint，则应该是LVal = Exp
-                            SyntaxClass exp;
-                            exp = readExp(curEnv);
-                            if (exp == null) {
-                                throw new SyntaxException();
-                            }
-                            stmt.appendSonNode(exp);
+                            throw new SyntaxException(); // getint 左括号缺失
+                        }
+                        // 右括号
+                        if (tokenBuffer.getType(pos) == Token.RPARENT) {
+                            token = readToken();
+                            tree.push(token);
+                        } else {
+                            Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
+                            errorList.add(rParentMissingError); // getint 右括号缺失
+                            // throw new SyntaxException();
                         }
                     } else {
-                        // LVal后面没跟等号，说明不可以解析为LVal，应该是Exp的一部分
-                        isLVal = false;
+                        // 不是LVal = getint，则应该是LVal = Exp
+                        int exp;
+                        exp = readExp(curEnv);
+                        if (exp < 0) {
+                            throw new SyntaxException();
+                        }
+                        tree.push(exp);
                     }
-                }
-                if (!isLVal) {
-                    // 经过前面所有判断，认为不是单独的LVal，只能是非空的Exp，需要回溯
-                    pos = startPos;
-                    SyntaxClass exp = readExp(curEnv);
-                    if (exp == null) {
+                } else {
+                    // 不是赋值，只能是非空的Exp
+                    int exp = readExp(curEnv);
+                    if (exp < 0) {
                         throw new SyntaxException();
                     }
-                    stmt.appendSonNode(exp);
+                    tree.push(exp);
                 }
                 // 分号
-                if (tokenList.get(pos).getTokenType() == Token.SEMICN) {
-                    semicn = tokenList.get(pos++);
-                    stmt.appendSonNode(semicn);
+                if (tokenBuffer.getType(pos) == Token.SEMICN) {
+                    semicn = readToken();
+                    tree.push(semicn);
                 } else {
-                    Error semicnMissingError = new Error(8, tokenList.get(pos - 1).getLineNo());
+                    Error semicnMissingError = new Error(8, tokenBuffer.getLine(pos - 1));
                     errorList.add(semicnMissingError);
                     //throw new SyntaxException();
                 }
             }
         }
-        stmt.setFirstAsLineNo();
-        return stmt;
+        return tree.finish(SyntaxClass.STMT, curEnv, mark);
     }
 
-    public SyntaxClass readExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass exp = new SyntaxClass(SyntaxClass.EXP), addExp;
-        exp.setCurEnv(curEnv);
+        int mark = tree.mark();
+        int addExp;
         // 检查AddExp
-        addExp = readAddExp(curEnv);
-        if (addExp == null) {
+        addExp = readBinaryExp(curEnv, 1);
+        if (addExp < 0) {
             throw new SyntaxException();
         }
-        exp.appendSonNode(addExp);
-        return exp;
+        tree.push(addExp);
+        return tree.finish(SyntaxClass.EXP, curEnv, mark);
     }
 
-    public SyntaxClass readCond(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readCond(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass cond = new SyntaxClass(SyntaxClass.COND), lOrExp;
-        cond.setCurEnv(curEnv);
+        int mark = tree.mark();
+        int lOrExp;
         // 检查LOrExp
         lOrExp = readLOrExp(curEnv);
-        if (lOrExp == null) {
+        if (lOrExp < 0) {
             throw new SyntaxException();
         }
-        cond.appendSonNode(lOrExp);
-        return cond;
+        tree.push(lOrExp);
+        return tree.finish(SyntaxClass.COND, curEnv, mark);
     }
 
-    public SyntaxClass readLVal(SymbolTable curEnv) throws SyntaxException, LValNotDefinedException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readLVal(SymbolTable curEnv) throws SyntaxException, LValNotDefinedException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass lVal = new SyntaxClass(SyntaxClass.LVAL);
-        lVal.setCurEnv(curEnv);
+        int mark = tree.mark();
+        int curVarListPos = curEnv.getCurListPos(); // 此前已定义的变量数，之后的同名定义不可见
         // 检查Ident
-        Token ident;
-        if (tokenList.get(pos).getTokenType() == Token.IDENFR) {
-            ident = tokenList.get(pos++);
-            lVal.appendSonNode(ident);
+        int ident;
+        if (tokenBuffer.getType(pos) == Token.IDENFR) {
+            ident = readToken();
+            tree.push(ident);
             // 检查后面是否跟了'('，若是，则说明是函数，不是LVal
-            if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
+            if (tokenBuffer.getType(pos) == Token.LPARENT) {
                 throw new SyntaxException();
             }
             // 检查可能有的左中括号
             int brackNum = 0;
-            while (tokenList.get(pos).getTokenType() == Token.LBRACK) {
+            while (tokenBuffer.getType(pos) == Token.LBRACK) {
                 ++brackNum;
-                Token brack = tokenList.get(pos++);
-                lVal.appendSonNode(brack);
-                SyntaxClass exp;
+                int brack = readToken();
+                tree.push(brack);
+                int exp;
                 // Exp
                 exp = readExp(curEnv);
-                if (exp == null) {
+                if (exp < 0) {
                     throw new SyntaxException();
                 }
-                lVal.appendSonNode(exp);
+                tree.push(exp);
                 // 右中括号
-                if (tokenList.get(pos).getTokenType() == Token.RBRACK) {
-                    brack = tokenList.get(pos++);
-                    lVal.appendSonNode(brack);
+                if (tokenBuffer.getType(pos) == Token.RBRACK) {
+                    brack = readToken();
+                    tree.push(brack);
                 } else {
-                    Error rBrackMissingError = new Error(10, tokenList.get(pos - 1).getLineNo());
+                    Error rBrackMissingError = new Error(10, tokenBuffer.getLine(pos - 1));
                     errorList.add(rBrackMissingError);
                     // throw new SyntaxException();
                 }
             }
+            // 解析到此处可见的定义，之后的同名定义不可见；找不到时与原来一样按名字查，之后的同名定义也算已定义
+            VarSymbol identSymbol = curEnv.varGlobalLookup(tree.getNameId(ident), curVarListPos);
+            if (identSymbol == null) {
+                identSymbol = (VarSymbol) curEnv.globalLookup(tree.getNameId(ident), 0);
+            }
             // 错误检查：查符号表是否存在该标识符
-            //VarSymbol identSymbol = curEnv.varGlobalLookup(ident.getTokenContext());
-            VarSymbol identSymbol = (VarSymbol) curEnv.globalLookup(ident.getTokenContext(), 0);
             if (identSymbol == null) {
                 // 未定义符号
-                LValNotDefinedException e = new LValNotDefinedException(ident.getLineNo());
-                lVal.setFirstAsLineNo();
+                LValNotDefinedException e = new LValNotDefinedException(tree.getLineNo(ident));
+                int lVal = tree.finish(SyntaxClass.LVAL, curEnv, mark);
+                tree.setSymbol(lVal, null);
                 e.setlVal(lVal);
                 throw e;
                     /*Error undefinedSymbolError = new Error(2, ident.getLineNo());
                     errorList.add(undefinedSymbolError);*/
             }
+            int lVal = tree.finish(SyntaxClass.LVAL, curEnv, mark);
+            tree.setSymbol(lVal, identSymbol);
+            return lVal;
         } else {
             throw new SyntaxException();
         }
-        lVal.setFirstAsLineNo();
-        return lVal;
     }
 
-    public SyntaxClass readPrimaryExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
-        }
-        SyntaxClass primaryExp = new SyntaxClass(SyntaxClass.PRIMARYEXP);
-        primaryExp.setCurEnv(curEnv);
-        // (Exp)
-        if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
+    public int readPrimaryExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
+        }
+        // (Exp)，只有带括号的才建PrimaryExp结点，Number和LVal直接作为表达式结点
+        if (tokenBuffer.getType(pos) == Token.LPARENT) {
+            int mark = tree.mark();
             // (
-            Token parent = tokenList.get(pos++);
-            primaryExp.appendSonNode(parent);
+            int parent = readToken();
+            tree.push(parent);
             // Exp
-            SyntaxClass exp;
+            int exp;
             exp = readExp(curEnv);
-            if (exp == null) {
+            if (exp < 0) {
                 throw new SyntaxException();
             }
-            primaryExp.appendSonNode(exp);
+            tree.push(exp);
             // )
-            if (tokenList.get(pos).getTokenType() == Token.RPARENT) {
-                parent = tokenList.get(pos++);
-                primaryExp.appendSonNode(parent);
+            if (tokenBuffer.getType(pos) == Token.RPARENT) {
+                parent = readToken();
+                tree.push(parent);
             } else {
-                Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+                Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
                 errorList.add(rParentMissingError);
                 // throw new SyntaxException();
             }
-        } else if (tokenList.get(pos).getTokenType() == Token.INTCON) {
+            return tree.finish(SyntaxClass.PRIMARYEXP, curEnv, mark);
+        } else if (tokenBuffer.getType(pos) == Token.INTCON) {
             // Number
-            SyntaxClass number;
+            int number;
             number = readNumber();
-            if (number == null) {
+            if (number < 0) {
                 throw new SyntaxException();
             }
-            primaryExp.appendSonNode(number);
+            return number;
         } else {
             // LVal
-            SyntaxClass lVal = null;
+            int lVal = -1;
             Error lValUndefinedError = null;
             try {
                 lVal = readLVal(curEnv);
@@ -1325,83 +1547,73 @@ public class SyntaxAnalyzer {
                 errorList.add(lValUndefinedError);
                 lVal = e.getlVal();
             }
-            if (lVal == null) {
+            if (lVal < 0) {
                 throw new SyntaxException();
             }
-            primaryExp.appendSonNode(lVal);
+            return lVal;
         }
-        primaryExp.setFirstAsLineNo();
-        return primaryExp;
     }
 
-    public SyntaxClass readNumber() throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
-        }
-        SyntaxClass number = new SyntaxClass(SyntaxClass.NUMBER);
-        if (tokenList.get(pos).getTokenType() == Token.INTCON) {
-            // IntConst
-            Token parent = tokenList.get(pos++);
-            number.appendSonNode(parent);
-        } else {
+    public int readNumber() throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
+        }
+        // IntConst，叶结点建立时已求值，不再包一层Number
+        if (tokenBuffer.getType(pos) != Token.INTCON) {
             throw new SyntaxException();
         }
-        number.setFirstAsLineNo();
-        return number;
+        return readToken();
     }
 
-    public SyntaxClass readUnaryExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readUnaryExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass unaryExp = new SyntaxClass(SyntaxClass.UNARYEXP);
-        unaryExp.setCurEnv(curEnv);
-        int nextTokenType = tokenList.get(pos).getTokenType();
+        int mark = tree.mark();
+        int nextTokenType = tokenBuffer.getType(pos);
         // Ident，即函数调用
-        if (nextTokenType == Token.IDENFR && tokenList.get(pos + 1).getTokenType() == Token.LPARENT) {
-            Token ident = tokenList.get(pos++);
-            unaryExp.appendSonNode(ident);
+        if (nextTokenType == Token.IDENFR && tokenBuffer.getType(pos + 1) == Token.LPARENT) {
+            int ident = readToken();
+            tree.push(ident);
             // 左括号
-            if (tokenList.get(pos).getTokenType() == Token.LPARENT) {
-                Token lParent = tokenList.get(pos++);
-                unaryExp.appendSonNode(lParent);
+            if (tokenBuffer.getType(pos) == Token.LPARENT) {
+                int lParent = readToken();
+                tree.push(lParent);
             } else {
                 throw new SyntaxException();
             }
             // 可能的参数
-            SyntaxClass funcRParams;
-            int startPos = pos;
-            try {
-                funcRParams = readFuncRParams(curEnv); // 在当前作用域找
-            } catch (SyntaxException e) {
-                // 出错说明没有能够读取到参数，那就是没有
-                funcRParams = null;
-                pos = startPos;
-            }
-            if (funcRParams != null) {
-                unaryExp.appendSonNode(funcRParams);
+            // 下一个Token能作为Exp的开头才有参数，否则没有参数（或缺右括号）
+            if (isExpFirst(pos)) {
+                int funcRParams = readFuncRParams(curEnv); // 在当前作用域找
+                if (funcRParams < 0) {
+                    throw new SyntaxException();
+                }
+                tree.push(funcRParams);
             }
             // 右括号
-            if (tokenList.get(pos).getTokenType() != Token.RPARENT) {
+            if (tokenBuffer.getType(pos) != Token.RPARENT) {
                 // 缺右括号
-                Error rParentMissingError = new Error(9, tokenList.get(pos - 1).getLineNo());
+                Error rParentMissingError = new Error(9, tokenBuffer.getLine(pos - 1));
                 errorList.add(rParentMissingError);
                 // throw new SyntaxException();
             } else {
                 //不缺右括号，再进行接下来的检查
-                Token rParent = tokenList.get(pos++);
-                unaryExp.appendSonNode(rParent);
+                int rParent = readToken();
+                tree.push(rParent);
+                // 检查要用到整个结点，先建好
+                int unaryExp = tree.finish(SyntaxClass.UNARYEXP, curEnv, mark);
                 // 先检查符号存在与否
                 //FuncSymbol identSymbol = curEnv.funcGlobalLookup(ident.getTokenContext());
-                FuncSymbol identSymbol = (FuncSymbol) curEnv.globalLookup(ident.getTokenContext(), 1);
+                FuncSymbol identSymbol = (FuncSymbol) curEnv.globalLookup(tree.getNameId(ident), 1);
                 if (identSymbol == null) {
-                    Error undefinedSymbolError = new Error(2, ident.getLineNo());
+                    Error undefinedSymbolError = new Error(2, tree.getLineNo(ident));
                     errorList.add(undefinedSymbolError);
                 } else {
                     FuncSymbol curFuncSymbol = null;
                     boolean funcSymbolValid = true;
                     try {
-                        curFuncSymbol = SymbolAnalyzer.getCallFuncSymbol(unaryExp);
+                        curFuncSymbol = SymbolAnalyzer.getCallFuncSymbol(tree, unaryExp);
                     } catch (SyntaxException e) {
                     /*Error undefinedSymbolError = new Error(2, e.getLineNum());
                     errorList.add(undefinedSymbolError);*/
@@ -1410,322 +1622,256 @@ public class SyntaxAnalyzer {
                     if (funcSymbolValid) {
                         if (!identSymbol.checkParamsLength(curFuncSymbol)) {
                             // 检查参数个数
-                            Error undefinedSymbolError = new Error(3, ident.getLineNo());
+                            Error undefinedSymbolError = new Error(3, tree.getLineNo(ident));
                             errorList.add(undefinedSymbolError);
                         } else if (!identSymbol.checkConsistent(curFuncSymbol)) {
                             // 检查参数类型
-                            Error undefinedSymbolError = new Error(4, ident.getLineNo());
+                            Error undefinedSymbolError = new Error(4, tree.getLineNo(ident));
                             errorList.add(undefinedSymbolError);
                         }
                     }
                 }
+                return unaryExp;
             }
         } else if (nextTokenType == Token.PLUS ||
                 nextTokenType == Token.MINU ||
                 nextTokenType == Token.NOT) {
-            // UnaryOp UnaryExp情况
-            // 先检查一元运算符
-            SyntaxClass unaryOp;
-            unaryOp = readUnaryOp();
-            if (unaryOp == null) {
-                throw new SyntaxException();
-            }
-            unaryExp.appendSonNode(unaryOp);
+            // UnaryOp UnaryExp情况，建成运算符和操作数两个子结点的一元运算结点
+            int unaryOpToken = readToken();
+            tree.push(unaryOpToken);
             // 检查一元表达式
-            SyntaxClass subUnaryExp;
+            int subUnaryExp;
             subUnaryExp = readUnaryExp(curEnv);
-            if (subUnaryExp == null) {
+            if (subUnaryExp < 0) {
                 throw new SyntaxException();
             }
-            unaryExp.appendSonNode(subUnaryExp);
+            tree.push(subUnaryExp);
+            return tree.finish(SyntaxClass.UNARYOPEXP, null, mark);
         } else {
             // PrimaryExp
-            SyntaxClass primaryExp;
+            int primaryExp;
             primaryExp = readPrimaryExp(curEnv);
-            if (primaryExp == null) {
+            if (primaryExp < 0) {
                 throw new SyntaxException();
             }
-            unaryExp.appendSonNode(primaryExp);
-        }
-        unaryExp.setFirstAsLineNo();
-        return unaryExp;
-    }
-
-    public SyntaxClass readUnaryOp() throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
-        }
-        SyntaxClass unaryOp = new SyntaxClass(SyntaxClass.UNARYOP);
-        // +,-,!
-        int tokenType = tokenList.get(pos).getTokenType();
-        if (tokenType == Token.PLUS || tokenType == Token.MINU || tokenType == Token.NOT) {
-            Token unaryOpToken = tokenList.get(pos++);
-            unaryOp.appendSonNode(unaryOpToken);
-        } else {
-            throw new SyntaxException();
+            return primaryExp;
         }
-        unaryOp.setFirstAsLineNo();
-        return unaryOp;
+        return tree.finish(SyntaxClass.UNARYEXP, curEnv, mark);
     }
 
-    public SyntaxClass readFuncRParams(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readFuncRParams(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass funcRParams = new SyntaxClass(SyntaxClass.FUNCRPARAMS);
-        funcRParams.setCurEnv(curEnv);
+        int mark = tree.mark();
         // 必须要有的Exp
-        SyntaxClass exp;
+        int exp;
         exp = readExp(curEnv);
-        if (exp == null) {
+        if (exp < 0) {
             throw new SyntaxException();
         }
-        funcRParams.appendSonNode(exp);
+        tree.push(exp);
         // 如果有逗号就一直读
-        while (tokenList.get(pos).getTokenType() == Token.COMMA) {
-            Token comma = tokenList.get(pos++);
-            funcRParams.appendSonNode(comma);
+        while (tokenBuffer.getType(pos) == Token.COMMA) {
+            int comma = readToken();
+            tree.push(comma);
             exp = readExp(curEnv);
-            if (exp == null) {
+            if (exp < 0) {
                 throw new SyntaxException();
             }
-            funcRParams.appendSonNode(exp);
+            tree.push(exp);
         }
-        funcRParams.setFirstAsLineNo();
-        return funcRParams;
+        return tree.finish(SyntaxClass.FUNCRPARAMS, curEnv, mark);
     }
 
-    public SyntaxClass readMulExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
-        }
-        SyntaxClass mulExp = new SyntaxClass(SyntaxClass.MULEXP);
-        mulExp.setCurEnv(curEnv);
-        SyntaxClass unaryExp;
-        // 修改文法，消除左递归
-        // 需要一个UnaryExp
-        unaryExp = readUnaryExp(curEnv);
-        if (unaryExp == null) {
-            throw new SyntaxException();
-        }
-        mulExp.appendSonNode(unaryExp);
-        int nextTokenType = tokenList.get(pos).getTokenType();
-        // *, /, %
-        while (nextTokenType == Token.MULT || nextTokenType == Token.DIV || nextTokenType == Token.MOD) {
-            // 先封装自己
-            mulExp.setFirstAsLineNo();
-            SyntaxClass tmpMulExp = new SyntaxClass(SyntaxClass.MULEXP);
-            tmpMulExp.appendSonNode(mulExp);
-            mulExp = tmpMulExp;
-            Token token = tokenList.get(pos++);
-            mulExp.appendSonNode(token);
-            // UnaryExp
-            unaryExp = readUnaryExp(curEnv);
-            if (unaryExp == null) {
-                throw new SyntaxException();
-            }
-            mulExp.appendSonNode(unaryExp);
-            nextTokenType = tokenList.get(pos).getTokenType();
-        }
-        mulExp.setFirstAsLineNo();
-        return mulExp;
+    // 二元算术运算符的优先级，+-为1，*/%为2，不是二元算术运算符为0
+    private int binaryPrecedence(int index) {
+        if (tokenBuffer.isEnd(index)) {
+            return 0;
+        }
+        int type = tokenBuffer.getType(index);
+        if (type == Token.PLUS || type == Token.MINU) {
+            return 1;
+        } else if (type == Token.MULT || type == Token.DIV || type == Token.MOD) {
+            return 2;
+        }
+        return 0;
     }
 
-    public SyntaxClass readAddExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
-        }
-        SyntaxClass addExp = new SyntaxClass(SyntaxClass.ADDEXP);
-        addExp.setCurEnv(curEnv);
-        SyntaxClass mulExp;
-        // 修改文法，消除左递归
-        // 需要一个MulExp
-        mulExp = readMulExp(curEnv);
-        if (mulExp == null) {
+    // 按优先级爬升读AddExp和MulExp，直接建二元运算结点（左操作数、运算符、右操作数），不再逐层包AddExp、MulExp
+    // 只读优先级不低于minPrecedence的运算符，右操作数只接受更高优先级的运算符，保证左结合
+    public int readBinaryExp(SymbolTable curEnv, int minPrecedence) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
+        }
+        int binaryExp;
+        binaryExp = readUnaryExp(curEnv);
+        if (binaryExp < 0) {
             throw new SyntaxException();
         }
-        addExp.appendSonNode(mulExp);
-        int nextTokenType = tokenList.get(pos).getTokenType();
-        // +,-
-        while (nextTokenType == Token.PLUS || nextTokenType == Token.MINU) {
-            // 先封装自己
-            addExp.setFirstAsLineNo();
-            SyntaxClass tmpAddExp = new SyntaxClass(SyntaxClass.ADDEXP);
-            tmpAddExp.appendSonNode(addExp);
-            addExp = tmpAddExp;
-            Token token = tokenList.get(pos++);
-            addExp.appendSonNode(token);
-            // MulExp
-            mulExp = readMulExp(curEnv);
-            if (mulExp == null) {
+        int precedence = binaryPrecedence(pos);
+        while (precedence >= minPrecedence) {
+            int mark = tree.mark();
+            tree.push(binaryExp);
+            int token = readToken();
+            tree.push(token);
+            int rightExp;
+            rightExp = readBinaryExp(curEnv, precedence + 1);
+            if (rightExp < 0) {
                 throw new SyntaxException();
             }
-            addExp.appendSonNode(mulExp);
-            nextTokenType = tokenList.get(pos).getTokenType();
+            tree.push(rightExp);
+            binaryExp = tree.finish(SyntaxClass.BINARYEXP, null, mark);
+            precedence = binaryPrecedence(pos);
         }
-        addExp.setFirstAsLineNo();
-        return addExp;
+        return binaryExp;
     }
 
-    public SyntaxClass readRelExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readRelExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass relExp = new SyntaxClass(SyntaxClass.RELEXP);
-        relExp.setCurEnv(curEnv);
-        SyntaxClass addExp;
+        int mark = tree.mark();
+        SymbolTable env = curEnv; // 原来只有最内层的结点记录符号表
+        int addExp;
         // 修改文法，消除左递归
         // 需要一个AddExp
-        addExp = readAddExp(curEnv);
-        if (addExp == null) {
+        addExp = readBinaryExp(curEnv, 1);
+        if (addExp < 0) {
             throw new SyntaxException();
         }
-        relExp.appendSonNode(addExp);
-        int nextTokenType = tokenList.get(pos).getTokenType();
+        tree.push(addExp);
+        int nextTokenType = tokenBuffer.getType(pos);
         // <,>,<=,>=
         while (nextTokenType == Token.LSS || nextTokenType == Token.GRE ||
                 nextTokenType == Token.LEQ || nextTokenType == Token.GEQ) {
-            // 先封装自己
-            relExp.setFirstAsLineNo();
-            SyntaxClass tmpRelExp = new SyntaxClass(SyntaxClass.RELEXP);
-            tmpRelExp.appendSonNode(relExp);
-            relExp = tmpRelExp;
-            Token token = tokenList.get(pos++);
-            relExp.appendSonNode(token);
+            // 先封装自己，作为新结点的第一个子结点
+            tree.push(tree.finish(SyntaxClass.RELEXP, env, mark));
+            env = null;
+            int token = readToken();
+            tree.push(token);
             // AddExp
-            addExp = readAddExp(curEnv);
-            if (addExp == null) {
+            addExp = readBinaryExp(curEnv, 1);
+            if (addExp < 0) {
                 throw new SyntaxException();
             }
-            relExp.appendSonNode(addExp);
-            nextTokenType = tokenList.get(pos).getTokenType();
+            tree.push(addExp);
+            nextTokenType = tokenBuffer.getType(pos);
         }
-        relExp.setFirstAsLineNo();
-        return relExp;
+        return tree.finish(SyntaxClass.RELEXP, env, mark);
     }
 
-    public SyntaxClass readEqExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readEqExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass eqExp = new SyntaxClass(SyntaxClass.EQEXP);
-        eqExp.setCurEnv(curEnv);
-        SyntaxClass relExp;
+        int mark = tree.mark();
+        SymbolTable env = curEnv; // 原来只有最内层的结点记录符号表
+        int relExp;
         // 修改文法，消除左递归
         // 需要一个RelExp
         relExp = readRelExp(curEnv);
-        if (relExp == null) {
+        if (relExp < 0) {
             throw new SyntaxException();
         }
-        eqExp.appendSonNode(relExp);
-        int nextTokenType = tokenList.get(pos).getTokenType();
+        tree.push(relExp);
+        int nextTokenType = tokenBuffer.getType(pos);
         // ==,!=
         while (nextTokenType == Token.EQL || nextTokenType == Token.NEQ) {
-            // 先封装自己
-            eqExp.setFirstAsLineNo();
-            SyntaxClass tmpEqExp = new SyntaxClass(SyntaxClass.EQEXP);
-            tmpEqExp.appendSonNode(eqExp);
-            eqExp = tmpEqExp;
-            Token token = tokenList.get(pos++);
-            eqExp.appendSonNode(token);
+            // 先封装自己，作为新结点的第一个子结点
+            tree.push(tree.finish(SyntaxClass.EQEXP, env, mark));
+            env = null;
+            int token = readToken();
+            tree.push(token);
             // RelExp
             relExp = readRelExp(curEnv);
-            if (relExp == null) {
+            if (relExp < 0) {
                 throw new SyntaxException();
             }
-            eqExp.appendSonNode(relExp);
-            nextTokenType = tokenList.get(pos).getTokenType();
+            tree.push(relExp);
+            nextTokenType = tokenBuffer.getType(pos);
         }
-        eqExp.setFirstAsLineNo();
-        return eqExp;
+        return tree.finish(SyntaxClass.EQEXP, env, mark);
     }
 
-    public SyntaxClass readLAndExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readLAndExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass lAndExp = new SyntaxClass(SyntaxClass.LANDEXP);
-        lAndExp.setCurEnv(curEnv);
-        SyntaxClass eqExp;
+        int mark = tree.mark();
+        SymbolTable env = curEnv; // 原来只有最内层的结点记录符号表
+        int eqExp;
         // 修改文法，消除左递归
         // 需要一个EqExp
         eqExp = readEqExp(curEnv);
-        if (eqExp == null) {
+        if (eqExp < 0) {
             throw new SyntaxException();
         }
-        lAndExp.appendSonNode(eqExp);
-        int nextTokenType = tokenList.get(pos).getTokenType();
+        tree.push(eqExp);
+        int nextTokenType = tokenBuffer.getType(pos);
         // &&
         while (nextTokenType == Token.AND) {
-            // 先封装自己
-            lAndExp.setFirstAsLineNo();
-            SyntaxClass tmpLAndExp = new SyntaxClass(SyntaxClass.LANDEXP);
-            tmpLAndExp.appendSonNode(lAndExp);
-            lAndExp = tmpLAndExp;
-            Token token = tokenList.get(pos++);
-            lAndExp.appendSonNode(token);
+            // 先封装自己，作为新结点的第一个子结点
+            tree.push(tree.finish(SyntaxClass.LANDEXP, env, mark));
+            env = null;
+            int token = readToken();
+            tree.push(token);
             // EqExp
             eqExp = readEqExp(curEnv);
-            if (eqExp == null) {
+            if (eqExp < 0) {
                 throw new SyntaxException();
             }
-            lAndExp.appendSonNode(eqExp);
-            nextTokenType = tokenList.get(pos).getTokenType();
+            tree.push(eqExp);
+            nextTokenType = tokenBuffer.getType(pos);
         }
-        lAndExp.setFirstAsLineNo();
-        return lAndExp;
+        return tree.finish(SyntaxClass.LANDEXP, env, mark);
     }
 
-    public SyntaxClass readLOrExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readLOrExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass lOrExp = new SyntaxClass(SyntaxClass.LOREXP);
-        lOrExp.setCurEnv(curEnv);
-        SyntaxClass lAndExp;
+        int mark = tree.mark();
+        SymbolTable env = curEnv; // 原来只有最内层的结点记录符号表
+        int lAndExp;
         // 修改文法，消除左递归
         // 需要一个LAndExp
         lAndExp = readLAndExp(curEnv);
-        if (lAndExp == null) {
+        if (lAndExp < 0) {
             throw new SyntaxException();
         }
-        lOrExp.appendSonNode(lAndExp);
-        int nextTokenType = tokenList.get(pos).getTokenType();
+        tree.push(lAndExp);
+        int nextTokenType = tokenBuffer.getType(pos);
         // ||
         while (nextTokenType == Token.OR) {
-            // 先封装自己
-            lOrExp.setFirstAsLineNo();
-            SyntaxClass tmpLOrExp = new SyntaxClass(SyntaxClass.LOREXP);
-            tmpLOrExp.appendSonNode(lOrExp);
-            lOrExp = tmpLOrExp;
-            Token token = tokenList.get(pos++);
-            lOrExp.appendSonNode(token);
+            // 先封装自己，作为新结点的第一个子结点
+            tree.push(tree.finish(SyntaxClass.LOREXP, env, mark));
+            env = null;
+            int token = readToken();
+            tree.push(token);
             // LAndExp
             lAndExp = readLAndExp(curEnv);
-            if (lAndExp == null) {
+            if (lAndExp < 0) {
                 throw new SyntaxException();
             }
-            lOrExp.appendSonNode(lAndExp);
-            nextTokenType = tokenList.get(pos).getTokenType();
+            tree.push(lAndExp);
+            nextTokenType = tokenBuffer.getType(pos);
         }
-        lOrExp.setFirstAsLineNo();
-        return lOrExp;
+        return tree.finish(SyntaxClass.LOREXP, env, mark);
     }
 
-    public SyntaxClass readConstExp(SymbolTable curEnv) throws SyntaxException {
-        if (pos >= tokenList.size()) {
-            return null;
+    public int readConstExp(SymbolTable curEnv) throws SyntaxException {
+        if (tokenBuffer.isEnd(pos)) {
+            return -1;
         }
-        SyntaxClass constExp = new SyntaxClass(SyntaxClass.CONSTEXP);
-        constExp.setCurEnv(curEnv);
+        int mark = tree.mark();
         // AddExp
-        SyntaxClass addExp;
-        addExp = readAddExp(curEnv);
-        if (addExp == null) {
+        int addExp;
+        addExp = readBinaryExp(curEnv, 1);
+        if (addExp < 0) {
             throw new SyntaxException();
         }
-        constExp.appendSonNode(addExp);
-        constExp.setFirstAsLineNo();
-        return constExp;
+        tree.push(addExp);
+        return tree.finish(SyntaxClass.CONSTEXP, curEnv, mark);
     }
 }
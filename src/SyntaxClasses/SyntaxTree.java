@@ -0,0 +1,359 @@
+package SyntaxClasses;
+
+import Symbols.FuncSymbol;
+import Symbols.NameTable;
+import Symbols.Symbol;
+import Symbols.SymbolTable;
+import Symbols.VarSymbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * 语法树的紧凑表示：全部结点按列存放在几个数组中，结点用下标表示，不再为每个结点创建对象和子结点列表
+ * 每个结点有种类、行号、子结点区间、附加值、常量值、是否已求值、所在符号表几列，子结点的下标连续存放在sons中
+ * 终结符也是结点，种类为TOKEN + Token类型，附加值是标识符的名字编号、整数的值或格式字符串在formatStrList中的下标
+ * LVal和ConstDef、VarDef、FuncFParam、FuncDef、MainFuncDef结点的附加值是symbolList中的下标，
+ * 分别是语法分析时解析到的变量和定义的符号，之后各阶段直接取用，不再按名字查找；其他非终结符不用附加值
+ * 建树按后序进行：分析一个成分前用mark()记下待挂子结点栈的高度，读到的子结点依次push，
+ * 最后finish()把栈中这一段作为子结点区间，建立新结点并弹栈；没有push的结点不会出现在树中
+ * Exp和ConstExp以下的算术表达式是折叠的：二元运算为BinaryExp(左, 运算符, 右)，一元运算为UnaryOpExp(运算符, 操作数)，
+ * 函数调用仍为UnaryExp，带括号的为PrimaryExp，Number和LVal直接作为操作数；输出时再按原文法展开
+ */
+public class SyntaxTree {
+    private static final int INIT_CAPACITY = 1024;
+    private byte[] kinds;
+    private int[] lines;
+    private int[] sonStarts;
+    private int[] sonNums;
+    private int[] values;
+    private int[] constValues;
+    private boolean[] calculated;
+    private SymbolTable[] envs; // 当前符号表，不需要的结点为null
+    private int nodeNum;
+    private int[] sons;
+    private int sonSize;
+    private int[] pendingSons; // 待挂子结点栈
+    private int pendingNum;
+    private int root;
+    private NameTable nameTable;
+    private ArrayList<FormatStringToken> formatStrList;
+    private ArrayList<Symbol> symbolList;
+
+    public SyntaxTree(NameTable nameTable) {
+        this.nameTable = nameTable;
+        kinds = new byte[INIT_CAPACITY];
+        lines = new int[INIT_CAPACITY];
+        sonStarts = new int[INIT_CAPACITY];
+        sonNums = new int[INIT_CAPACITY];
+        values = new int[INIT_CAPACITY];
+        constValues = new int[INIT_CAPACITY];
+        calculated = new boolean[INIT_CAPACITY];
+        envs = new SymbolTable[INIT_CAPACITY];
+        nodeNum = 0;
+        sons = new int[INIT_CAPACITY];
+        sonSize = 0;
+        pendingSons = new int[64];
+        pendingNum = 0;
+        root = -1;
+        formatStrList = new ArrayList<>();
+        symbolList = new ArrayList<>();
+    }
+
+    private int newNode(int kind, int line, SymbolTable env) {
+        if (nodeNum == kinds.length) {
+            int capacity = nodeNum * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            sonStarts = Arrays.copyOf(sonStarts, capacity);
+            sonNums = Arrays.copyOf(sonNums, capacity);
+            values = Arrays.copyOf(values, capacity);
+            constValues = Arrays.copyOf(constValues, capacity);
+            calculated = Arrays.copyOf(calculated, capacity);
+            envs = Arrays.copyOf(envs, capacity);
+        }
+        kinds[nodeNum] = (byte) kind;
+        lines[nodeNum] = line;
+        envs[nodeNum] = env;
+        return nodeNum++;
+    }
+
+    // 叶结点，value见类开头的说明
+    public int addToken(int tokenType, int line, int value) {
+        int node = newNode(SyntaxClass.TOKEN + tokenType, line, null);
+        values[node] = value;
+        if (tokenType == Token.INTCON) { // IntConst在建立时求值
+            constValues[node] = value;
+            calculated[node] = true;
+        }
+        return node;
+    }
+
+    public int addFormatString(FormatStringToken formatStr) {
+        int node = newNode(SyntaxClass.TOKEN + Token.STRCON, formatStr.getLineNo(), null);
+        values[node] = formatStrList.size();
+        formatStrList.add(formatStr);
+        return node;
+    }
+
+    public int mark() {
+        return pendingNum;
+    }
+
+    public void push(int node) {
+        if (pendingNum == pendingSons.length) {
+            pendingSons = Arrays.copyOf(pendingSons, pendingNum * 2);
+        }
+        pendingSons[pendingNum++] = node;
+    }
+
+    // 以mark之后push的结点为子结点建立非终结符，行号取第一个子结点的行号
+    public int finish(int syntaxType, SymbolTable env, int mark) {
+        int sonNum = pendingNum - mark;
+        int node = newNode(syntaxType, sonNum > 0 ? lines[pendingSons[mark]] : 0, env);
+        if (sonSize + sonNum > sons.length) {
+            sons = Arrays.copyOf(sons, Math.max(sons.length * 2, sonSize + sonNum));
+        }
+        System.arraycopy(pendingSons, mark, sons, sonSize, sonNum);
+        sonStarts[node] = sonSize;
+        sonNums[node] = sonNum;
+        sonSize += sonNum;
+        pendingNum = mark;
+        return node;
+    }
+
+    // 把另一棵树（同一个名字表）的全部结点接在本树之后，返回其中subRoot结点在本树中的下标
+    // 子结点下标、格式字符串和符号的下标都加上相应的偏移；按顺序接入各部分时，结点编号与在一棵树中依次建立时相同
+    public int appendTree(SyntaxTree sub, int subRoot) {
+        int nodeOffset = nodeNum, sonOffset = sonSize;
+        int formatStrOffset = formatStrList.size(), symbolOffset = symbolList.size();
+        int capacity = kinds.length;
+        while (capacity < nodeNum + sub.nodeNum) {
+            capacity *= 2;
+        }
+        if (capacity > kinds.length) {
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            sonStarts = Arrays.copyOf(sonStarts, capacity);
+            sonNums = Arrays.copyOf(sonNums, capacity);
+            values = Arrays.copyOf(values, capacity);
+            constValues = Arrays.copyOf(constValues, capacity);
+            calculated = Arrays.copyOf(calculated, capacity);
+            envs = Arrays.copyOf(envs, capacity);
+        }
+        if (sonSize + sub.sonSize > sons.length) {
+            sons = Arrays.copyOf(sons, Math.max(sons.length * 2, sonSize + sub.sonSize));
+        }
+        System.arraycopy(sub.kinds, 0, kinds, nodeOffset, sub.nodeNum);
+        System.arraycopy(sub.lines, 0, lines, nodeOffset, sub.nodeNum);
+        System.arraycopy(sub.sonNums, 0, sonNums, nodeOffset, sub.nodeNum);
+        System.arraycopy(sub.constValues, 0, constValues, nodeOffset, sub.nodeNum);
+        System.arraycopy(sub.calculated, 0, calculated, nodeOffset, sub.nodeNum);
+        System.arraycopy(sub.envs, 0, envs, nodeOffset, sub.nodeNum);
+        for (int i = 0; i < sub.nodeNum; i++) {
+            int kind = sub.kinds[i];
+            int value = sub.values[i];
+            if (kind == SyntaxClass.TOKEN + Token.STRCON) {
+                value += formatStrOffset;
+            } else if (hasSymbol(kind)) {
+                value += symbolOffset;
+            }
+            values[nodeOffset + i] = value;
+            sonStarts[nodeOffset + i] = sub.sonStarts[i] + sonOffset;
+        }
+        for (int i = 0; i < sub.sonSize; i++) {
+            sons[sonOffset + i] = sub.sons[i] + nodeOffset;
+        }
+        nodeNum += sub.nodeNum;
+        sonSize += sub.sonSize;
+        formatStrList.addAll(sub.formatStrList);
+        symbolList.addAll(sub.symbolList);
+        return subRoot + nodeOffset;
+    }
+
+    private static boolean hasSymbol(int kind) {
+        return kind == SyntaxClass.LVAL || kind == SyntaxClass.CONSTDEF || kind == SyntaxClass.VARDEF ||
+                kind == SyntaxClass.FUNCFPARAM || kind == SyntaxClass.FUNCDEF || kind == SyntaxClass.MAINFUNCDEF;
+    }
+
+    public void setRoot(int root) {
+        this.root = root;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return nodeNum;
+    }
+
+    public NameTable getNameTable() {
+        return nameTable;
+    }
+
+    // 终结符统一返回SyntaxClass.TOKEN，具体类型用getTokenType
+    public int getSyntaxType(int node) {
+        return kinds[node] >= SyntaxClass.TOKEN ? SyntaxClass.TOKEN : kinds[node];
+    }
+
+    public int getTokenType(int node) {
+        return kinds[node] - SyntaxClass.TOKEN;
+    }
+
+    public int getLineNo(int node) {
+        return lines[node];
+    }
+
+    public int getSonNum(int node) {
+        return sonNums[node];
+    }
+
+    public int getSon(int node, int index) {
+        return sons[sonStarts[node] + index];
+    }
+
+    public int getLastSon(int node) {
+        return sons[sonStarts[node] + sonNums[node] - 1];
+    }
+
+    public int getNameId(int node) {
+        return values[node];
+    }
+
+    public FormatStringToken getFormatString(int node) {
+        return formatStrList.get(values[node]);
+    }
+
+    public String getTokenText(int node) {
+        int tokenType = getTokenType(node);
+        if (tokenType == Token.IDENFR) {
+            return nameTable.getName(values[node]);
+        } else if (tokenType == Token.INTCON) {
+            return Integer.toString(values[node]);
+        } else if (tokenType == Token.STRCON) {
+            return getFormatString(node).getTokenContext();
+        }
+        return Token.fixedTexts[tokenType];
+    }
+
+    // 需要Token对象（如建立符号）时才创建
+    public Token getToken(int node) {
+        if (getTokenType(node) == Token.STRCON) {
+            return getFormatString(node);
+        }
+        return new Token(getTokenType(node), lines[node], getTokenText(node),
+                getTokenType(node) == Token.IDENFR ? values[node] : -1);
+    }
+
+    public boolean isCalculated(int node) {
+        return calculated[node];
+    }
+
+    public void setCalculated(int node, boolean isCalculated) {
+        calculated[node] = isCalculated;
+    }
+
+    public int getConstValue(int node) {
+        return constValues[node];
+    }
+
+    public void setConstValue(int node, int constValue) {
+        constValues[node] = constValue;
+    }
+
+    public SymbolTable getCurEnv(int node) {
+        return envs[node];
+    }
+
+    // LVal引用的变量（未定义时为null）或定义结点建立的符号
+    public void setSymbol(int node, Symbol symbol) {
+        values[node] = symbolList.size();
+        symbolList.add(symbol);
+    }
+
+    public VarSymbol getVarSymbol(int node) {
+        return (VarSymbol) symbolList.get(values[node]);
+    }
+
+    public FuncSymbol getFuncSymbol(int node) {
+        return (FuncSymbol) symbolList.get(values[node]);
+    }
+
+    // 按原来的语法分析输出格式打印以node为根的子树
+    public String toString(int node) {
+        StringBuilder outStringBuilder = new StringBuilder();
+        appendNode(outStringBuilder, node);
+        return outStringBuilder.toString();
+    }
+
+    private void appendNode(StringBuilder outStringBuilder, int node) {
+        if (kinds[node] >= SyntaxClass.TOKEN) {
+            outStringBuilder.append(Token.typeNames[getTokenType(node)]).append(" ")
+                    .append(getTokenText(node)).append("\n");
+            return;
+        }
+        int syntaxType = kinds[node];
+        for (int i = 0; i < sonNums[node]; i++) {
+            int son = getSon(node, i);
+            if ((syntaxType == SyntaxClass.EXP || syntaxType == SyntaxClass.CONSTEXP) ||
+                    (syntaxType == SyntaxClass.RELEXP && (sonNums[node] == 1 || i == 2))) {
+                appendExp(outStringBuilder, son, SyntaxClass.ADDEXP); // 折叠的算术表达式
+            } else {
+                appendNode(outStringBuilder, son);
+            }
+        }
+        if (syntaxType != SyntaxClass.BLOCKITEM &&
+                syntaxType != SyntaxClass.DECL &&
+                syntaxType != SyntaxClass.BTYPE) {
+            outStringBuilder.append("<").append(SyntaxClass.syntaxNames[syntaxType]).append(">");
+            if (syntaxType != SyntaxClass.COMPUNIT) {
+                outStringBuilder.append("\n");
+            }
+        }
+    }
+
+    // 把折叠的算术表达式当作level（AddExp、MulExp、UnaryExp或PrimaryExp）层的成分输出，补上省略的各层
+    private void appendExp(StringBuilder outStringBuilder, int node, int level) {
+        int syntaxType = kinds[node];
+        if (level == SyntaxClass.ADDEXP || level == SyntaxClass.MULEXP) {
+            boolean isAdd = syntaxType == SyntaxClass.BINARYEXP &&
+                    (getTokenType(getSon(node, 1)) == Token.PLUS || getTokenType(getSon(node, 1)) == Token.MINU);
+            boolean isMul = syntaxType == SyntaxClass.BINARYEXP && !isAdd;
+            int subLevel = (level == SyntaxClass.ADDEXP) ? SyntaxClass.MULEXP : SyntaxClass.UNARYEXP;
+            if ((level == SyntaxClass.ADDEXP) ? isAdd : isMul) {
+                appendExp(outStringBuilder, getSon(node, 0), level);
+                appendNode(outStringBuilder, getSon(node, 1));
+                appendExp(outStringBuilder, getSon(node, 2), subLevel);
+            } else {
+                appendExp(outStringBuilder, node, subLevel);
+            }
+        } else if (level == SyntaxClass.UNARYEXP) {
+            if (syntaxType == SyntaxClass.UNARYEXP) { // 函数调用
+                appendNode(outStringBuilder, node);
+                return;
+            } else if (syntaxType == SyntaxClass.UNARYOPEXP) {
+                appendNode(outStringBuilder, getSon(node, 0));
+                outStringBuilder.append("<UnaryOp>\n");
+                appendExp(outStringBuilder, getSon(node, 1), SyntaxClass.UNARYEXP);
+            } else {
+                appendExp(outStringBuilder, node, SyntaxClass.PRIMARYEXP);
+            }
+        } else {
+            if (syntaxType == SyntaxClass.PRIMARYEXP) { // (Exp)
+                appendNode(outStringBuilder, node);
+                return;
+            }
+            appendNode(outStringBuilder, node);
+            if (syntaxType != SyntaxClass.LVAL) { // IntConst
+                outStringBuilder.append("<Number>\n");
+            }
+        }
+        outStringBuilder.append("<").append(SyntaxClass.syntaxNames[level]).append(">\n");
+    }
+
+    @Override
+    public String toString() {
+        return root < 0 ? "" : toString(root);
+    }
+}
@@ -10,14 +10,34 @@ public class Token extends SyntaxClass{
             "BREAKTK", "CONTINUETK", "IFTK", "ELSETK", "NOT", "AND", "OR", "WHILETK", "GETINTTK", "PRINTFTK",
             "RETURNTK", "PLUS", "MINU", "VOIDTK", "MULT", "DIV", "MOD", "LSS", "LEQ", "GRE", "GEQ", "EQL", "NEQ",
             "ASSIGN", "SEMICN", "COMMA", "LPARENT", "RPARENT", "LBRACK", "RBRACK", "LBRACE", "RBRACE"};
+    public static final String[] fixedTexts = new String[typeNames.length]; // 保留字与运算符的文本，其余为null
     private int tokenType;
     private String tokenContext;
+    private int nameId; // 标识符在名字表中的编号，其他Token为-1
     //private int formatCharNum;
 
+    static {
+        int[] fixedTypes = new int[]{MAINTK, CONSTTK, INTTK, BREAKTK, CONTINUETK, IFTK, ELSETK, NOT, AND, OR,
+                WHILETK, GETINTTK, PRINTFTK, RETURNTK, PLUS, MINU, VOIDTK, MULT, DIV, MOD, LSS, LEQ, GRE, GEQ,
+                EQL, NEQ, ASSIGN, SEMICN, COMMA, LPARENT, RPARENT, LBRACK, RBRACK, LBRACE, RBRACE};
+        String[] texts = new String[]{"main", "const", "int", "break", "continue", "if", "else", "!", "&&", "||",
+                "while", "getint", "printf", "return", "+", "-", "void", "*", "/", "%", "<", "<=", ">", ">=", "==",
+                "!=", "=", ";", ",", "(", ")", "[", "]", "{", "}"};
+        for (int i = 0; i < fixedTypes.length; i++) {
+            fixedTexts[fixedTypes[i]] = texts[i];
+        }
+    }
+
     public Token(int type, int lineNum, String context) {
         super(lineNum, SyntaxClass.TOKEN);
         this.tokenType = type;
         this.tokenContext = context;
+        this.nameId = -1;
+    }
+
+    public Token(int type, int lineNum, String context, int nameId) {
+        this(type, lineNum, context);
+        this.nameId = nameId;
     }
 
     public int getTokenType() {
@@ -28,6 +48,10 @@ public class Token extends SyntaxClass{
         return tokenContext;
     }
 
+    public int getNameId() {
+        return nameId;
+    }
+
     @Override
     public String toString() {
         return typeNames[this.tokenType] + " " + this.tokenContext + "\n";
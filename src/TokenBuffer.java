@@ -0,0 +1,219 @@
+import Exceptions.LexicalException;
+import SyntaxClasses.ConstIntToken;
+import SyntaxClasses.FormatStringToken;
+import SyntaxClasses.Token;
+import Symbols.NameTable;
+
+import java.util.Arrays;
+
+/*
+ * 词法分析结果：按列存放的Token流，每个Token只占类型、行号、起始位置、长度、名字编号五个int
+ * 语法分析直接按下标查类型和行号，语法树的叶结点也只记录类型、行号和值，只有建立符号等需要时才创建Token对象
+ * 可以一次性装入全部Token，也可以设置lexer后由语法分析按需拉取，此时只保留一个有界的窗口：
+ * 语法分析器用mark/release声明可能回溯到的位置，窗口满时丢弃最早回溯点之前的Token
+ * 保留字与运算符的文本是固定的，标识符的文本取自名字表，整数和格式字符串的文本在创建Token对象时才从源程序中截取
+ */
+public class TokenBuffer {
+    private static final int INIT_CAPACITY = 1024;
+    private CharSequence programStr;
+    private int[] types;
+    private int[] lines;
+    private int[] starts;
+    private int[] lengths;
+    private int[] nameIds;
+    private int base; // 窗口中第一个Token的下标，流式读取时之前的Token已被丢弃
+    private int end; // 已产生的Token数
+    private NameTable nameTable;
+    private LexicalAnalyzer lexer; // 为null表示Token已全部产生
+    private int[] marks; // 语法分析器尚未释放的回溯点
+    private int markNum;
+
+    public TokenBuffer(CharSequence programStr) {
+        this.programStr = programStr;
+        // 按源程序长度预估容量，Token平均约3个字符，取一半的长度基本不需要再扩容
+        allocate(Math.max(INIT_CAPACITY, programStr.length() / 2));
+        this.base = 0;
+        this.end = 0;
+        this.nameTable = new NameTable();
+        this.lexer = null;
+        this.marks = new int[16];
+        this.markNum = 0;
+    }
+
+    private void allocate(int capacity) {
+        this.types = new int[capacity];
+        this.lines = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.nameIds = new int[capacity];
+    }
+
+    // 改为按需从lexer取Token：窗口从小容量开始，只保留最早的回溯点之后的Token
+    public void setLexer(LexicalAnalyzer lexer) {
+        this.lexer = lexer;
+        if (end == 0) {
+            allocate(INIT_CAPACITY);
+        }
+    }
+
+    public void add(int type, int line, int start, int length, int nameId) {
+        if (end - base == types.length) {
+            makeRoom();
+        }
+        int i = end - base;
+        types[i] = type;
+        lines[i] = line;
+        starts[i] = start;
+        lengths[i] = length;
+        nameIds[i] = nameId;
+        end++;
+    }
+
+    // 窗口满时，能丢弃一半以上就把最早回溯点之前的Token移出窗口（多留一个给报错时取上一个Token的行号），否则扩容
+    private void makeRoom() {
+        int floor = (lexer == null || markNum == 0) ? base : Math.max(base, marks[0] - 1);
+        int discard = floor - base, remain = end - floor;
+        if (discard * 2 >= types.length) {
+            System.arraycopy(types, discard, types, 0, remain);
+            System.arraycopy(lines, discard, lines, 0, remain);
+            System.arraycopy(starts, discard, starts, 0, remain);
+            System.arraycopy(lengths, discard, lengths, 0, remain);
+            System.arraycopy(nameIds, discard, nameIds, 0, remain);
+            base = floor;
+        } else {
+            int capacity = types.length * 2;
+            types = Arrays.copyOf(types, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+        }
+    }
+
+    // 语法分析器在可能回溯到index之前调用，回溯点按嵌套顺序成对出现
+    public void mark(int index) {
+        if (markNum == marks.length) {
+            marks = Arrays.copyOf(marks, markNum * 2);
+        }
+        marks[markNum++] = index;
+    }
+
+    public void release(int index) {
+        if (markNum == 0 || marks[markNum - 1] != index) {
+            throw new IllegalStateException("Unbalanced token mark " + index);
+        }
+        markNum--;
+    }
+
+    // 取到index为止的Token，词法错误与原先一样打印后当作输入结束
+    private void pull(int index) {
+        while (end <= index && lexer != null) {
+            try {
+                if (!lexer.lexNext()) {
+                    lexer = null;
+                }
+            } catch (LexicalException e) {
+                e.printStackTrace();
+                lexer = null;
+            }
+        }
+    }
+
+    // 取完全部Token，之后各方法只读，可以被多个线程同时访问；调用时不应有未释放的回溯点，否则窗口无法丢弃而一直扩容
+    public void pullAll() {
+        pull(Integer.MAX_VALUE);
+    }
+
+    private void fill(int index) {
+        pull(index);
+        if (index >= end) {
+            throw new IndexOutOfBoundsException("Token " + index + " out of " + end);
+        }
+    }
+
+    public boolean isEnd(int index) {
+        if (index >= end) {
+            pull(index);
+        }
+        return index >= end;
+    }
+
+    // 已产生的Token数
+    public int size() {
+        return end;
+    }
+
+    public int getType(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        return types[index - base];
+    }
+
+    public int getLine(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        return lines[index - base];
+    }
+
+    public int getNameId(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        return nameIds[index - base];
+    }
+
+    // Token在源程序中的起止位置（end不含）
+    public int getStart(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        return starts[index - base];
+    }
+
+    public int getEnd(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        return starts[index - base] + lengths[index - base];
+    }
+
+    public NameTable getNameTable() {
+        return nameTable;
+    }
+
+    public String getText(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        int i = index - base;
+        String text = Token.fixedTexts[types[i]];
+        if (types[i] == Token.IDENFR) {
+            text = nameTable.getName(nameIds[i]);
+        } else if (text == null) {
+            text = programStr.subSequence(starts[i], starts[i] + lengths[i]).toString();
+        }
+        return text;
+    }
+
+    // 整数常量的值，直接在源程序上解析，不截取字符串
+    public int getIntValue(int index) {
+        if (index >= end) {
+            fill(index);
+        }
+        int i = index - base;
+        return Integer.parseInt(programStr, starts[i], starts[i] + lengths[i], 10);
+    }
+
+    // 每次调用都创建新的Token对象
+    public Token getToken(int index) {
+        int type = getType(index), line = lines[index - base];
+        if (type == Token.INTCON) {
+            return new ConstIntToken(line, getText(index));
+        } else if (type == Token.STRCON) {
+            return new FormatStringToken(line, getText(index));
+        }
+        return new Token(type, line, getText(index), nameIds[index - base]);
+    }
+}